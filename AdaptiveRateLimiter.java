@@ -0,0 +1,106 @@
+package com.cclo7;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Token bucket whose refill rate adapts to service throttling (additive increase, multiplicative decrease).
+ * 
+ * acquire() reserves the next token and sleeps until it is due, so waiting callers are served in 
+ * order without spinning. The bucket holds at most one second worth of tokens.
+ */
+public class AdaptiveRateLimiter {
+	
+	private static final double DECREASE_FACTOR = 0.5;
+	private static final double INCREASE_FRACTION = 0.01;
+	private static final long DECREASE_COOLDOWN_NANOS = TimeUnit.SECONDS.toNanos(1);
+	
+	private final double maxRate;
+	private final double minRate;
+	private final double increaseStep;
+	
+	private double rate;
+	private double tokens;
+	private long lastRefillNanos;
+	private long lastDecreaseNanos;
+	
+	/*
+	 * rates are in permits per second, the limiter starts at maxRate
+	 */
+	public AdaptiveRateLimiter(double maxRate, double minRate){
+		if(minRate <= 0 || maxRate < minRate){
+			throw new IllegalArgumentException("invalid rates: max " + maxRate + ", min " + minRate);
+		}
+		this.maxRate = maxRate;
+		this.minRate = minRate;
+		this.increaseStep = Math.max(maxRate * INCREASE_FRACTION, 0.01);
+		this.rate = maxRate;
+		this.tokens = Math.max(1, maxRate);
+		this.lastRefillNanos = System.nanoTime();
+		this.lastDecreaseNanos = this.lastRefillNanos - DECREASE_COOLDOWN_NANOS;
+	}
+	
+	public void acquire() throws InterruptedException {
+		long waitNanos;
+		synchronized(this){
+			this.refill(System.nanoTime());
+			this.tokens -= 1;
+			if(this.tokens >= 0){
+				return;
+			}
+			waitNanos = (long) (-this.tokens / this.rate * TimeUnit.SECONDS.toNanos(1));
+		}
+		TimeUnit.NANOSECONDS.sleep(waitNanos);
+	}
+	
+	/*
+	 * like acquire(), but returns false without reserving a token when none is due within the timeout
+	 */
+	public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+		long waitNanos;
+		synchronized(this){
+			this.refill(System.nanoTime());
+			if(this.tokens >= 1){
+				this.tokens -= 1;
+				return true;
+			}
+			waitNanos = (long) ((1 - this.tokens) / this.rate * TimeUnit.SECONDS.toNanos(1));
+			if(waitNanos > unit.toNanos(timeout)){
+				return false;
+			}
+			this.tokens -= 1;
+		}
+		TimeUnit.NANOSECONDS.sleep(waitNanos);
+		return true;
+	}
+	
+	/*
+	 * Halves the rate. Concurrent requests usually get throttled together, so further 
+	 * signals within a second of a decrease are ignored.
+	 */
+	public synchronized void onThrottled(){
+		long now = System.nanoTime();
+		if(now - this.lastDecreaseNanos < DECREASE_COOLDOWN_NANOS){
+			return;
+		}
+		this.refill(now);
+		this.rate = Math.max(this.minRate, this.rate * DECREASE_FACTOR);
+		this.lastDecreaseNanos = now;
+	}
+	
+	public synchronized void onSuccess(){
+		if(this.rate < this.maxRate){
+			this.refill(System.nanoTime());
+			this.rate = Math.min(this.maxRate, this.rate + this.increaseStep);
+		}
+	}
+	
+	public synchronized double getRate(){
+		return this.rate;
+	}
+	
+	private void refill(long now){
+		double capacity = Math.max(1, this.rate);
+		this.tokens = Math.min(capacity, this.tokens + (now - this.lastRefillNanos) * this.rate / TimeUnit.SECONDS.toNanos(1));
+		this.lastRefillNanos = now;
+	}
+}
@@ -1,43 +1,57 @@
 package com.cclo7;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.StringReader;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLEncoder;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.TimeZone;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
-import org.apache.commons.codec.binary.Base64;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
+import javax.xml.stream.XMLStreamException;
 
 public class AmazonMTurkClient {
 	
 	private final String ACCESS_KEY;
-	private final String SECRET_KEY;
+	private final RequestSigner SIGNER;
 	private final String REST_API_VERSION;
 	private final String SERVICE_URL;
 	private final String PREVIEW_URL;
+	private final MTurkTransport TRANSPORT;
+	private final boolean isOwnTransport;
+	private final ExecutorService EXECUTOR;
+	private final boolean isOwnExecutor;
+	//blocking helper work that must not wait for a thread of EXECUTOR, e.g. page prefetching and attempts 
+	//with a deadline or a hedge (see awaitAttempt); created on first use
+	private volatile ExecutorService internalExecutor;
+	private final MTurkClientConfig CONFIG;
+	private final AdaptiveRateLimiter RATE_LIMITER;
+	private final ConcurrentMap<String, AdaptiveRateLimiter> operationRateLimiters = 
+			new ConcurrentHashMap<String, AdaptiveRateLimiter>();
+	private final SingleFlight<RequestKey, MTurkResponse> inFlightRequests = new SingleFlight<RequestKey, MTurkResponse>();
+	private final ConcurrentMap<String, HedgeStats> hedgeStats = new ConcurrentHashMap<String, HedgeStats>();
 
-	private static final String DEFAULT_REST_API_VERSION = "2011-10-01";
+	public static final String DEFAULT_REST_API_VERSION = "2011-10-01";
 	private static final String MTURK_SERVICE_NAME = "AWSMechanicalTurkRequester";
 	private static final String PRODUCTION_SERVICE_URL = "https://mechanicalturk.amazonaws.com/";
 	private static final String SANDBOX_SERVICE_URL = "https://mechanicalturk.sandbox.amazonaws.com/";
@@ -47,20 +61,76 @@ public class AmazonMTurkClient {
 	//operation name
 	private static final String APPROVE_ASSIGNMENT_OPERATION = "ApproveAssignment";
 	private static final String CREATE_HIT_OPERATION = "CreateHIT";
+	private static final String DISPOSE_HIT_OPERATION = "DisposeHIT";
 	private static final String EXTEND_HIT_OPERATION = "ExtendHIT";
+	private static final String FORCE_EXPIRE_HIT_OPERATION = "ForceExpireHIT";
 	private static final String GET_ASSIGNMENTS_FOR_HIT_OPERATION = "GetAssignmentsForHIT"; 
 	private static final String GRANT_BONUS_OPERATION = "GrantBonus";
+	private static final String REGISTER_HIT_TYPE_OPERATION = "RegisterHITType";
 	private static final String REJECT_ASSIGNMENT_OPERATION = "RejectAssignment";
 	private static final String SET_HITTYPE_NOTIFICATION_OPERATION = "SetHITTypeNotification"; 
 	
-	private static final int REST_REQUEST_RETRY_LIMIT = 15;
+	//reads and writes that have the same effect when sent twice: identical concurrent requests share one call
+	//(see MTurkClientConfig.setCoalesceRequests) and a lost response is retried
+	private static final Set<String> IDEMPOTENT_OPERATIONS = new HashSet<String>(Arrays.asList(
+			APPROVE_ASSIGNMENT_OPERATION, DISPOSE_HIT_OPERATION, FORCE_EXPIRE_HIT_OPERATION, 
+			GET_ASSIGNMENTS_FOR_HIT_OPERATION, REGISTER_HIT_TYPE_OPERATION, REJECT_ASSIGNMENT_OPERATION,
+			SET_HITTYPE_NOTIFICATION_OPERATION));
+	
+	//reads that may be sent twice, see MTurkClientConfig.setHedgeReads
+	private static final Set<String> HEDGEABLE_OPERATIONS = new HashSet<String>(Arrays.asList(
+			GET_ASSIGNMENTS_FOR_HIT_OPERATION));
+	
+	//GetAssignmentsForHIT accepts page sizes from 1 to 100
+	public static final int MAX_ASSIGNMENTS_PAGE_SIZE = 100;
+	
+	private static final QuestionTemplate EXTERNAL_QUESTION_TEMPLATE = QuestionTemplate.externalQuestion();
+	
+	//response parsers, shared by all calls
+	private static final MTurkResponseParser STATUS_PARSER = new MTurkResponseParser(null);
+	private static final MTurkResponseParser CREATE_HIT_PARSER = new MTurkResponseParser(null, "HITId", "HITTypeId");
+	private static final MTurkResponseParser REGISTER_HIT_TYPE_PARSER = new MTurkResponseParser(null, "HITTypeId");
+	private static final MTurkResponseParser GET_ASSIGNMENTS_FOR_HIT_PARSER = new MTurkResponseParser("Assignment",
+			"AssignmentId", "WorkerId", "Answer");
+	private static final MTurkResponseParser GET_ASSIGNMENTS_PAGE_PARSER = new MTurkResponseParser("Assignment",
+			"AssignmentId", "WorkerId", "HITId", "AssignmentStatus", "AutoApprovalTime", "AcceptTime", "SubmitTime",
+			"ApprovalTime", "RejectionTime", "RequesterFeedback", "Answer", "PageNumber", "TotalNumResults");
 			
-	public AmazonMTurkClient(String accessKey, String secretKey, String restApiVersion, boolean isUseSandbox){
+	/*
+	 * executor runs the *Async operations; when null the client creates its own 
+	 * (see MTurkExecutors.newDefaultExecutor) and shuts it down in shutdown()
+	 */
+	public AmazonMTurkClient(String accessKey, String secretKey, String restApiVersion, boolean isUseSandbox,
+			MTurkTransport transport, ExecutorService executor, MTurkClientConfig config){
+		this(accessKey, newSigner(secretKey), restApiVersion, isUseSandbox, transport, true, executor, config);
+	}
+	
+	/*
+	 * used by MTurkClientPool to share the signer, transport and executor between clients; 
+	 * shutdown() leaves a transport that is not owned open
+	 */
+	AmazonMTurkClient(String accessKey, RequestSigner signer, String restApiVersion, boolean isUseSandbox,
+			MTurkTransport transport, boolean isOwnTransport, ExecutorService executor, MTurkClientConfig config){
 		this.ACCESS_KEY = accessKey;
-		this.SECRET_KEY = secretKey;
+		this.SIGNER = signer;
 		this.REST_API_VERSION = restApiVersion;
+		this.TRANSPORT = transport;
+		this.isOwnTransport = isOwnTransport;
+		this.CONFIG = config;
+		this.RATE_LIMITER = new AdaptiveRateLimiter(config.getMaxRequestsPerSecond(), config.getMinRequestsPerSecond());
 		
-		if(isUseSandbox){
+		if(executor != null){
+			this.EXECUTOR = executor;
+			this.isOwnExecutor = false;
+		}else{
+			this.EXECUTOR = MTurkExecutors.newDefaultExecutor();
+			this.isOwnExecutor = true;
+		}
+		
+		if(config.getServiceUrl() != null){
+			this.SERVICE_URL = config.getServiceUrl();
+			this.PREVIEW_URL = isUseSandbox ? SANDBOX_PREVIEW_URL : PRODUCTION_PREVIEW_URL;
+		}else if(isUseSandbox){
 			this.SERVICE_URL = SANDBOX_SERVICE_URL;
 			this.PREVIEW_URL = SANDBOX_PREVIEW_URL;
 		}else{
@@ -69,66 +139,92 @@ public class AmazonMTurkClient {
 		}
 	}
 	
+	public AmazonMTurkClient(String accessKey, String secretKey, String restApiVersion, boolean isUseSandbox,
+			MTurkTransport transport, ExecutorService executor){
+		this(accessKey, secretKey, restApiVersion, isUseSandbox, transport, executor, new MTurkClientConfig());
+	}
+	
+	public AmazonMTurkClient(String accessKey, String secretKey, String restApiVersion, boolean isUseSandbox,
+			MTurkTransport transport){
+		this(accessKey, secretKey, restApiVersion, isUseSandbox, transport, null);
+	}
+	
+	public AmazonMTurkClient(String accessKey, String secretKey, String restApiVersion, boolean isUseSandbox){
+		this(accessKey, secretKey, restApiVersion, isUseSandbox, new PooledHttpTransport());
+	}
+	
 	public AmazonMTurkClient(String accessKey, String secretKey, boolean isUseSandbox){
 		this(accessKey, secretKey, DEFAULT_REST_API_VERSION, isUseSandbox);
 	}
 	
 	/*
 	 * functions for MTurk operations
+	 * 
+	 * The *Result variants report the outcome as an MTurkResult carrying either the typed value or an
+	 * MTurkError (code, message, RequestId, retryability). The boolean and Map variants are kept
+	 * for existing callers and are implemented on top of them.
 	 */
 	public boolean approveAssignment(String assignmentId){
+		MTurkResult<Void> result = this.approveAssignmentResult(assignmentId);
+		if(result.isSuccess()){
+			return true;
+		}
+		
+		//an assignment the service no longer considers Submitted has already been reviewed
+		String message = result.getError().getMessage();
+		return result.getError().isInvalidAssignmentState() && message != null && message.contains("Submitted");
+	}
+	
+	/*
+	 * fails with AWS.MechanicalTurk.InvalidAssignmentState when the assignment was already reviewed
+	 */
+	public MTurkResult<Void> approveAssignmentResult(String assignmentId){
+		
+		AssignmentStateCache stateCache = this.CONFIG.getAssignmentStateCache();
+		if(stateCache != null){
+			Assignment.Status status = stateCache.getStatus(assignmentId);
+			if(status == Assignment.Status.APPROVED){
+				return MTurkResult.success(null, null);
+			}else if(status == Assignment.Status.REJECTED){
+				return alreadyReviewed(assignmentId, status);
+			}
+		}
 		
 		Map<String, String> parameters = new HashMap<String, String>(1);
 		parameters.put("AssignmentId", assignmentId);
-		String response = this.makeMTurkRequest(APPROVE_ASSIGNMENT_OPERATION, parameters);
+		MTurkResponse response = this.makeMTurkRequest(APPROVE_ASSIGNMENT_OPERATION, parameters, STATUS_PARSER);
 		
-		if(response != null && response.length() > 0){
-			String responseXML = this.decodeXML(response.toString());
-			
-			try{
-				DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-				DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-				Document doc = dBuilder.parse(new InputSource(new StringReader(responseXML)));
-				doc.getDocumentElement().normalize();
-				
-				NodeList isValidNodeList = doc.getElementsByTagName("IsValid");
-				if(isValidNodeList.getLength() > 0){
-					Element isValidElement = (Element) isValidNodeList.item(0);
-					String isValid = isValidElement.getTextContent();
-					
-					if(isValid.equals("True")){
-						return true;
-					}
-				}
-				
-				NodeList messageNodeList = doc.getElementsByTagName("Message");
-				if(messageNodeList.getLength() > 0){
-					Element messageElement = (Element) messageNodeList.item(0);
-					String message = messageElement.getTextContent();
-					
-					if(message.contains("Submitted")){
-						return true;
-					}
-				}
-				
-			} catch(ParserConfigurationException e) {
-				e.printStackTrace();
-			} catch (SAXException e) {
-				e.printStackTrace();
-			} catch (IOException e) {
-				e.printStackTrace();
+		if(response != null && response.isValid()){
+			if(stateCache != null){
+				stateCache.recordStatus(assignmentId, null, Assignment.Status.APPROVED);
 			}
+			return MTurkResult.success(null, response.getRequestId());
 		}
-		
-		return false;
+		return failure(APPROVE_ASSIGNMENT_OPERATION, parameters, response);
 	}
 	
 	public Map<String, String> createHIT(String title, String description, String question, double rewardAmt,
 			long maxAssignments, long assignmentDurationInSeconds, long lifetimeInSeconds,
 			long autoApprovalDelayInSeconds, QualificationRequirement qualificationRequirement){
-		Map<String, String> responseMap = new HashMap<String, String>(3);
 		
-		Map<String, String> parameters = new HashMap<String, String>(1);
+		MTurkResult<CreatedHIT> result = this.createHITResult(title, description, question, rewardAmt, 
+				maxAssignments, assignmentDurationInSeconds, lifetimeInSeconds, autoApprovalDelayInSeconds, 
+				qualificationRequirement);
+		
+		if(!result.isSuccess()){
+			System.err.println("createHIT operation: invalid request " + result.getError());
+			return new HashMap<String, String>(3);
+		}
+		
+		System.out.println("createHIT success: " + result.getValue().getPreviewUrl());
+		return toMap(result.getValue());
+	}
+	
+	public MTurkResult<CreatedHIT> createHITResult(String title, String description, String question, 
+			double rewardAmt, long maxAssignments, long assignmentDurationInSeconds, long lifetimeInSeconds,
+			long autoApprovalDelayInSeconds, QualificationRequirement qualificationRequirement){
+		
+		Map<String, String> parameters = new HashMap<String, String>(12);
 		parameters.put("Title", title);
 		parameters.put("Description", description);
 		parameters.put("Question", question);
@@ -145,61 +241,8 @@ public class AmazonMTurkClient {
 			parameters.put("QualificationRequirement.1.IntegerValue", Integer.toString(qualificationRequirement.getIntegerValue()));
 		}
 	
-		String response = this.makeMTurkRequest(CREATE_HIT_OPERATION, parameters);
-
-		if(response != null && response.length() > 0){
-			String responseXML = this.decodeXML(response.toString());
-	
-			try{
-				DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-				DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-				Document doc = dBuilder.parse(new InputSource(new StringReader(responseXML)));
-				doc.getDocumentElement().normalize();
-				
-				NodeList isValidNodeList = doc.getElementsByTagName("IsValid");
-				if(isValidNodeList.getLength() > 0){
-					Element isValidElement = (Element) isValidNodeList.item(0);
-					String isValid = isValidElement.getTextContent();
-					
-					if(isValid.equals("True")){
-						
-						String hitId = null;
-						NodeList hitIdNodeList = doc.getElementsByTagName("HITId");
-						if(hitIdNodeList.getLength() > 0){
-							Element hitIdElement = (Element) hitIdNodeList.item(0);
-							hitId = hitIdElement.getTextContent();
-							responseMap.put("hitId", hitId);
-						}
-						
-						String hitTypeId = null;
-						NodeList hitTypeIdNodeList = doc.getElementsByTagName("HITTypeId");
-						if(hitTypeIdNodeList.getLength() > 0){
-							Element hitTypeIdElement = (Element) hitTypeIdNodeList.item(0);
-							hitTypeId = hitTypeIdElement.getTextContent();
-							responseMap.put("hitTypeId", hitTypeId);
-						}
-						
-						if(hitId != null && hitTypeId != null){
-							String previewUrl = this.getPreviewUrl(hitTypeId);
-							responseMap.put("previewUrl", previewUrl);
-							System.out.println("createHIT success: " + previewUrl);						
-						}
-						
-					}else{
-						System.err.println("createHIT operation: invalid request");
-					}
-				}
-				
-				
-			} catch(ParserConfigurationException e) {
-				e.printStackTrace();
-			} catch (SAXException e) {
-				e.printStackTrace();
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
-		}		
-		return responseMap;
+		MTurkResponse response = this.makeMTurkRequest(CREATE_HIT_OPERATION, parameters, CREATE_HIT_PARSER);
+		return this.toCreatedHIT(response, parameters, null);
 	}
 
 	public Map<String, String> createHITWithExternalQuestion(String title, String description, 
@@ -213,111 +256,175 @@ public class AmazonMTurkClient {
 					qualificationRequirement);
 	}
 	
-	public boolean extendHIT(String hitId, int maxAssignmentsIncrement){
-		Map<String, String> parameters = new HashMap<String, String>(1);
-		parameters.put("HITId", hitId);
-		parameters.put("MaxAssignmentsIncrement", Integer.toString(maxAssignmentsIncrement));
-		String response = this.makeMTurkRequest(EXTEND_HIT_OPERATION, parameters);
+	public MTurkResult<CreatedHIT> createHITWithExternalQuestionResult(String title, String description, 
+			String questionUrl, int externalFrameHeight, double rewardAmt, long maxAssignments, 
+			long assignmentDurationInSeconds, long lifetimeInSeconds, long autoApprovalDelayInSeconds,
+			QualificationRequirement qualificationRequirement){
 		
-		if(response != null && response.length() > 0){
-			String responseXML = this.decodeXML(response.toString());
-			
-			try{
-				DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-				DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-				Document doc = dBuilder.parse(new InputSource(new StringReader(responseXML)));
-				doc.getDocumentElement().normalize();
-				
-				NodeList isValidNodeList = doc.getElementsByTagName("IsValid");
-				if(isValidNodeList.getLength() > 0){
-					Element isValidElement = (Element) isValidNodeList.item(0);
-					String isValid = isValidElement.getTextContent();
-					
-					if(isValid.equals("True")){
-						return true;
-					}
-				}
-				
-			} catch(ParserConfigurationException e) {
-				e.printStackTrace();
-			} catch (SAXException e) {
-				e.printStackTrace();
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
+			String question = this.getExternalQuestion(questionUrl, externalFrameHeight);
+			return this.createHITResult(title, description, question, rewardAmt, maxAssignments, 
+					assignmentDurationInSeconds, lifetimeInSeconds, autoApprovalDelayInSeconds,
+					qualificationRequirement);
+	}
+	
+	/*
+	 * Registers the properties shared by a group of HITs once, returns the HITTypeId or null on failure.
+	 * HITs of the type are then created with createHITWithHITType.
+	 */
+	public String registerHITType(String title, String description, double rewardAmt,
+			long assignmentDurationInSeconds, long autoApprovalDelayInSeconds,
+			QualificationRequirement qualificationRequirement){
+		
+		MTurkResult<String> result = this.registerHITTypeResult(title, description, rewardAmt, 
+				assignmentDurationInSeconds, autoApprovalDelayInSeconds, qualificationRequirement);
+		if(result.isSuccess()){
+			return result.getValue();
+		}
+		
+		System.err.println("registerHITType operation: invalid request " + result.getError());
+		return null;
+	}
+	
+	/*
+	 * the value is the HITTypeId
+	 */
+	public MTurkResult<String> registerHITTypeResult(String title, String description, double rewardAmt,
+			long assignmentDurationInSeconds, long autoApprovalDelayInSeconds,
+			QualificationRequirement qualificationRequirement){
+		
+		Map<String, String> parameters = new HashMap<String, String>(8);
+		parameters.put("Title", title);
+		parameters.put("Description", description);
+		parameters.put("Reward.1.Amount", Double.toString(rewardAmt));
+		parameters.put("Reward.1.CurrencyCode", "USD");
+		parameters.put("AssignmentDurationInSeconds", Long.toString(assignmentDurationInSeconds));
+		parameters.put("AutoApprovalDelayInSeconds", Long.toString(autoApprovalDelayInSeconds));
+		
+		if(qualificationRequirement != null){
+			parameters.put("QualificationRequirement.1.QualificationTypeId", qualificationRequirement.getTypeId());
+			parameters.put("QualificationRequirement.1.Comparator", qualificationRequirement.getComparator());
+			parameters.put("QualificationRequirement.1.IntegerValue", Integer.toString(qualificationRequirement.getIntegerValue()));
+		}
+		
+		MTurkResponse response = this.makeMTurkRequest(REGISTER_HIT_TYPE_OPERATION, parameters, REGISTER_HIT_TYPE_PARSER);
+		if(response != null && response.isValid() && response.getField("HITTypeId") != null){
+			return MTurkResult.success(response.getField("HITTypeId"), response.getRequestId());
 		}
+		return failure(REGISTER_HIT_TYPE_OPERATION, parameters, response);
+	}
+	
+	/*
+	 * Creates a HIT of a registered HIT type. Returns the same keys as createHIT 
+	 * (empty on failure) without logging every created HIT.
+	 */
+	public Map<String, String> createHITWithHITType(String hitTypeId, String question, long maxAssignments,
+			long lifetimeInSeconds){
+		MTurkResult<CreatedHIT> result = this.createHITWithHITTypeResult(hitTypeId, question, maxAssignments, 
+				lifetimeInSeconds);
+		return result.isSuccess() ? toMap(result.getValue()) : new HashMap<String, String>(3);
+	}
+	
+	public MTurkResult<CreatedHIT> createHITWithHITTypeResult(String hitTypeId, String question, 
+			long maxAssignments, long lifetimeInSeconds){
 		
-		return false;
+		Map<String, String> parameters = new HashMap<String, String>(4);
+		parameters.put("HITTypeId", hitTypeId);
+		parameters.put("Question", question);
+		parameters.put("MaxAssignments", Long.toString(maxAssignments));
+		parameters.put("LifetimeInSeconds", Long.toString(lifetimeInSeconds));
 		
+		MTurkResponse response = this.makeMTurkRequest(CREATE_HIT_OPERATION, parameters, CREATE_HIT_PARSER);
+		return this.toCreatedHIT(response, parameters, hitTypeId);
+	}
+	
+	public boolean extendHIT(String hitId, int maxAssignmentsIncrement){
+		return this.extendHITResult(hitId, maxAssignmentsIncrement).isSuccess();
+	}
+	
+	public MTurkResult<Void> extendHITResult(String hitId, int maxAssignmentsIncrement){
+		return this.extendHITResult(hitId, maxAssignmentsIncrement, 0);
+	}
+	
+	/*
+	 * adds assignments and/or lifetime to a HIT; an increment of 0 is not sent
+	 */
+	public MTurkResult<Void> extendHITResult(String hitId, int maxAssignmentsIncrement, 
+			long expirationIncrementInSeconds){
+		Map<String, String> parameters = new HashMap<String, String>(3);
+		parameters.put("HITId", hitId);
+		if(maxAssignmentsIncrement != 0 || expirationIncrementInSeconds == 0){
+			parameters.put("MaxAssignmentsIncrement", Integer.toString(maxAssignmentsIncrement));
+		}
+		if(expirationIncrementInSeconds != 0){
+			parameters.put("ExpirationIncrementInSeconds", Long.toString(expirationIncrementInSeconds));
+		}
+		return this.makeStatusRequest(EXTEND_HIT_OPERATION, parameters);
+	}
+	
+	public boolean forceExpireHIT(String hitId){
+		return this.forceExpireHITResult(hitId).isSuccess();
+	}
+	
+	/*
+	 * stops a HIT from being accepted by more workers; submitted assignments can still be reviewed
+	 */
+	public MTurkResult<Void> forceExpireHITResult(String hitId){
+		Map<String, String> parameters = new HashMap<String, String>(1);
+		parameters.put("HITId", hitId);
+		return this.makeStatusRequest(FORCE_EXPIRE_HIT_OPERATION, parameters);
+	}
+	
+	public boolean disposeHIT(String hitId){
+		return this.disposeHITResult(hitId).isSuccess();
 	}
 	
+	/*
+	 * removes a reviewable HIT whose assignments have all been approved or rejected
+	 */
+	public MTurkResult<Void> disposeHITResult(String hitId){
+		Map<String, String> parameters = new HashMap<String, String>(1);
+		parameters.put("HITId", hitId);
+		return this.makeStatusRequest(DISPOSE_HIT_OPERATION, parameters);
+	}
 	
+	/*
+	 * Answers of the last assignment of the first page, keyed by QuestionIdentifier, plus its 
+	 * "assignmentId" and "workerId". Use getAssignmentsForHITPage or iterateAssignmentsForHIT 
+	 * for every assignment with typed fields.
+	 */
 	public Map<String, String> getAssignmentsForHIT(String hitId){
 		HashMap<String, String> answerMap = new HashMap<String, String>(3);
 		
 		Map<String, String> parameters = new HashMap<String, String>(1);
 		parameters.put("HITId", hitId);
-		String response = this.makeMTurkRequest(GET_ASSIGNMENTS_FOR_HIT_OPERATION, parameters);
+		MTurkResponse response = this.makeMTurkRequest(GET_ASSIGNMENTS_FOR_HIT_OPERATION, parameters, 
+				GET_ASSIGNMENTS_FOR_HIT_PARSER);
 		
 		//parse XML response for worker's submitted answer
-		if(response != null && response.length() > 0){
-			String responseXML = this.decodeXML(response.toString());
-			
-			//DOM ran into problems when using it to parse this nested xml
-			//so we use substring here
-			
-			//check value of IsValid node
-			String tagName = "<IsValid>";
-			int first = responseXML.indexOf(tagName) + tagName.length();
-			int last = responseXML.indexOf("</IsValid>");
-			String isValidValue = responseXML.substring(first, last);
-			
-			if(isValidValue.equals("True")){
-				//get assignmentId
-				tagName = "<AssignmentId>";
-				first = responseXML.lastIndexOf(tagName) + tagName.length();
-				last = responseXML.lastIndexOf("</AssignmentId>");
-				String assignmentId = responseXML.substring(first, last);
-				answerMap.put("assignmentId", assignmentId);
-				
-				//get workerId
-				tagName = "<WorkerId>";
-				first = responseXML.lastIndexOf(tagName) + tagName.length();
-				last = responseXML.lastIndexOf("</WorkerId>");
-				String workerId = responseXML.substring(first, last);
-				answerMap.put("workerId", workerId);
+		if(response != null){
+			if(response.isValid()){
+				List<Map<String, String>> assignments = response.getRecords();
+				if(assignments.isEmpty()){
+					return answerMap;
+				}
 				
-				//get the inner nested xml data
-				tagName = "</QuestionFormAnswers>";
-				first = responseXML.lastIndexOf("<?xml");
-				last = responseXML.lastIndexOf(tagName) + tagName.length();
-				responseXML = responseXML.substring(first, last);
+				//only the last assignment of the page is reported
+				Map<String, String> assignment = assignments.get(assignments.size() - 1);
 				
-				try{
-					DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-					DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-					Document doc = dBuilder.parse(new InputSource(new StringReader(responseXML)));
-					doc.getDocumentElement().normalize();
-					
-					NodeList nodeList = doc.getElementsByTagName("Answer");
-					for(int i = 0; i < nodeList.getLength(); i++){
-						Element answerElement = (Element) nodeList.item(i);
-						Element idElement = (Element) answerElement.getElementsByTagName("QuestionIdentifier").item(0);
-						Element textElement = (Element) answerElement.getElementsByTagName("FreeText").item(0);
-						
-						String id = idElement.getTextContent();
-						String text = textElement.getTextContent();
-						answerMap.put(id, text);
+				//the Answer field holds the unescaped QuestionFormAnswers document
+				String answer = assignment.get("Answer");
+				if(answer != null){
+					try{
+						answerMap.putAll(MTurkResponseParser.parseAnswers(answer));
+					}catch(XMLStreamException e){
+						e.printStackTrace();
 					}
-					
-				} catch(ParserConfigurationException e) {
-					e.printStackTrace();
-				} catch (SAXException e) {
-					e.printStackTrace();
-				} catch (IOException e) {
-					e.printStackTrace();
 				}
 				
+				//put last so that a question named like them cannot hide the real ids
+				answerMap.put("assignmentId", assignment.get("AssignmentId"));
+				answerMap.put("workerId", assignment.get("WorkerId"));
+				
 			}else{
 				System.err.println("Request of GetAssignmentsForHIT is invalid");
 			}
@@ -327,102 +434,169 @@ public class AmazonMTurkClient {
 		return answerMap;
 	}
 	
+	/*
+	 * Fetches a single page of assignments, pageNumber is 1-based. Failures are thrown as an 
+	 * MTurkException carrying the MTurkError.
+	 */
+	public AssignmentPage getAssignmentsForHITPage(String hitId, int pageNumber, int pageSize){
+		if(pageSize < 1 || pageSize > MAX_ASSIGNMENTS_PAGE_SIZE){
+			throw new IllegalArgumentException("pageSize must be between 1 and " + MAX_ASSIGNMENTS_PAGE_SIZE);
+		}
+		
+		Map<String, String> parameters = new HashMap<String, String>(3);
+		parameters.put("HITId", hitId);
+		parameters.put("PageNumber", Integer.toString(pageNumber));
+		parameters.put("PageSize", Integer.toString(pageSize));
+		MTurkResponse response = this.makeMTurkRequest(GET_ASSIGNMENTS_FOR_HIT_OPERATION, parameters, 
+				GET_ASSIGNMENTS_PAGE_PARSER);
+		
+		if(response == null || !response.isValid()){
+			throw new MTurkException(failure(GET_ASSIGNMENTS_FOR_HIT_OPERATION, parameters, response).getError());
+		}
+		
+		List<Assignment> assignments = new ArrayList<Assignment>(response.getRecords().size());
+		for(Map<String, String> record : response.getRecords()){
+			assignments.add(Assignment.fromRecord(record));
+		}
+		
+		String totalNumResults = response.getField("TotalNumResults");
+		int total = totalNumResults != null ? Integer.parseInt(totalNumResults) : assignments.size();
+		return new AssignmentPage(hitId, pageNumber, pageSize, total, assignments);
+	}
+	
+	/*
+	 * Lazily iterates over every assignment of the HIT, page by page. Failures surface as MTurkException
+	 * from hasNext()/next().
+	 */
+	public Iterator<Assignment> iterateAssignmentsForHIT(String hitId, int pageSize){
+		if(pageSize < 1 || pageSize > MAX_ASSIGNMENTS_PAGE_SIZE){
+			throw new IllegalArgumentException("pageSize must be between 1 and " + MAX_ASSIGNMENTS_PAGE_SIZE);
+		}
+		return new AssignmentPageIterator(this, hitId, pageSize);
+	}
+	
+	public Iterator<Assignment> iterateAssignmentsForHIT(String hitId){
+		return this.iterateAssignmentsForHIT(hitId, MAX_ASSIGNMENTS_PAGE_SIZE);
+	}
+	
+	public Stream<Assignment> streamAssignmentsForHIT(String hitId){
+		Iterator<Assignment> iterator = this.iterateAssignmentsForHIT(hitId);
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, 
+				Spliterator.ORDERED | Spliterator.NONNULL), false);
+	}
+	
+	/*
+	 * Returns the assignments of the HIT that are new or whose status changed since the last poll.
+	 * Requires an AssignmentStateCache in the client config.
+	 */
+	public List<Assignment> pollAssignmentsForHIT(String hitId){
+		AssignmentStateCache stateCache = this.CONFIG.getAssignmentStateCache();
+		if(stateCache == null){
+			throw new IllegalStateException("pollAssignmentsForHIT requires an AssignmentStateCache");
+		}
+		return stateCache.filterNewOrChanged(this.iterateAssignmentsForHIT(hitId));
+	}
+	
 	public boolean grantBonus(String workerId, String assignmentId, double bonusAmt, String reason){
-		Map<String, String> parameters = new HashMap<String, String>(5);
+		return this.grantBonus(workerId, assignmentId, bonusAmt, reason, null);
+	}
+	
+	/*
+	 * With a uniqueRequestToken MTurk pays the bonus at most once no matter how often the call is repeated;
+	 * a repeated call is reported as success.
+	 */
+	public boolean grantBonus(String workerId, String assignmentId, double bonusAmt, String reason, 
+			String uniqueRequestToken){
+		return this.grantBonusResult(workerId, assignmentId, bonusAmt, reason, uniqueRequestToken).isSuccess();
+	}
+	
+	/*
+	 * uniqueRequestToken may be null; a call repeating a token that was already paid succeeds
+	 */
+	public MTurkResult<Void> grantBonusResult(String workerId, String assignmentId, double bonusAmt, 
+			String reason, String uniqueRequestToken){
+		Map<String, String> parameters = new HashMap<String, String>(8);
 		parameters.put("WorkerId", workerId);
 		parameters.put("AssignmentId", assignmentId);
 		parameters.put("BonusAmount.1.Amount", Double.toString(bonusAmt));
 		parameters.put("BonusAmount.1.CurrencyCode", "USD");
 		parameters.put("Reason", reason);
-
-		String response = this.makeMTurkRequest(GRANT_BONUS_OPERATION, parameters);
-		if(response != null && response.length() > 0){
-			String responseXML = this.decodeXML(response.toString());
-
-			try{
-				DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-				DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-				Document doc = dBuilder.parse(new InputSource(new StringReader(responseXML)));
-				doc.getDocumentElement().normalize();
-				
-				NodeList isValidNodeList = doc.getElementsByTagName("IsValid");
-				if(isValidNodeList.getLength() > 0){
-					Element isValidElement = (Element) isValidNodeList.item(0);
-					String isValid = isValidElement.getTextContent();
-					
-					if(isValid.equals("True")){
-						return true;
-					}
-				}
-				
-			} catch(ParserConfigurationException e) {
-				e.printStackTrace();
-			} catch (SAXException e) {
-				e.printStackTrace();
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
+		if(uniqueRequestToken != null){
+			parameters.put("UniqueRequestToken", uniqueRequestToken);
 		}
 
-		return false;
-		
+		MTurkResponse response = this.makeMTurkRequest(GRANT_BONUS_OPERATION, parameters, STATUS_PARSER);
+		if(response != null && (response.isValid() || (uniqueRequestToken != null && isDuplicateRequest(response)))){
+			return MTurkResult.success(null, response.getRequestId());
+		}
+		return failure(GRANT_BONUS_OPERATION, parameters, response);
 	}
 
 	public boolean rejectAssignment(String assignmentId, String requesterFeedback){
+		return this.rejectAssignmentResult(assignmentId, requesterFeedback).isSuccess();
+	}
+	
+	/*
+	 * fails with AWS.MechanicalTurk.InvalidAssignmentState when the assignment was already reviewed
+	 */
+	public MTurkResult<Void> rejectAssignmentResult(String assignmentId, String requesterFeedback){
+		
+		AssignmentStateCache stateCache = this.CONFIG.getAssignmentStateCache();
+		if(stateCache != null){
+			Assignment.Status status = stateCache.getStatus(assignmentId);
+			if(status == Assignment.Status.REJECTED){
+				return MTurkResult.success(null, null);
+			}else if(status == Assignment.Status.APPROVED){
+				return alreadyReviewed(assignmentId, status);
+			}
+		}
 
-		Map<String, String> parameters = new HashMap<String, String>(5);
+		Map<String, String> parameters = new HashMap<String, String>(2);
 		parameters.put("AssignmentId", assignmentId);
 		if(requesterFeedback != null && requesterFeedback.length() > 0){
 			parameters.put("RequesterFeedback", requesterFeedback);
 		}
 
-		String response = this.makeMTurkRequest(REJECT_ASSIGNMENT_OPERATION, parameters);
-		if(response != null && response.length() > 0){
-			String responseXML = this.decodeXML(response.toString());
-
-			try{
-				DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-				DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-				Document doc = dBuilder.parse(new InputSource(new StringReader(responseXML)));
-				doc.getDocumentElement().normalize();
-				
-				NodeList isValidNodeList = doc.getElementsByTagName("IsValid");
-				if(isValidNodeList.getLength() > 0){
-					Element isValidElement = (Element) isValidNodeList.item(0);
-					String isValid = isValidElement.getTextContent();
-					
-					if(isValid.equals("True")){
-						return true;
-					}
-				}
-				
-			} catch(ParserConfigurationException e) {
-				e.printStackTrace();
-			} catch (SAXException e) {
-				e.printStackTrace();
-			} catch (IOException e) {
-				e.printStackTrace();
+		MTurkResponse response = this.makeMTurkRequest(REJECT_ASSIGNMENT_OPERATION, parameters, STATUS_PARSER);
+		
+		if(response != null && response.isValid()){
+			if(stateCache != null){
+				stateCache.recordStatus(assignmentId, null, Assignment.Status.REJECTED);
 			}
+			return MTurkResult.success(null, response.getRequestId());
 		}
-
-		return false;
+		return failure(REJECT_ASSIGNMENT_OPERATION, parameters, response);
 	}
 	
 
 	public boolean setHITTypeNotification(String hitTypeId, String destination, String[] eventTypes, 
 			String transport, boolean isMakeActive){	
 		
-		Map<String, String> parameters = new HashMap<String, String>(5);
+		boolean success = this.setHITTypeNotificationResult(hitTypeId, destination, eventTypes, transport, 
+				isMakeActive).isSuccess();
+		if(success){
+			System.out.println("Successfully set notification endpoint at:" + destination);
+		}
+		
+		return success;
+	}
+	
+	public MTurkResult<Void> setHITTypeNotificationResult(String hitTypeId, String destination, 
+			String[] eventTypes, String transport, boolean isMakeActive){
+		
+		if(eventTypes.length < 1){
+			return MTurkResult.failure(new MTurkError(MTurkError.INVALID_PARAMETER_VALUE, 
+					"at least one notification event type is required", null));
+		}
+		
+		Map<String, String> parameters = new HashMap<String, String>(8);
 		parameters.put("HITTypeId", hitTypeId);
 		parameters.put("Active", Boolean.toString(isMakeActive));
 		parameters.put("Notification.1.Destination", destination);
 		parameters.put("Notification.1.Transport", transport);
 		parameters.put("Notification.1.Version", "2006-05-05");
-		parameters.put("Notification.1.Destination", destination);
 		
-		if(eventTypes.length < 1){
-			return false;
-		}else if(eventTypes.length == 1){
+		if(eventTypes.length == 1){
 			parameters.put("Notification.1.EventType", eventTypes[0]);
 		}else{
 			for(int i = 0; i < eventTypes.length; i++){
@@ -430,157 +604,771 @@ public class AmazonMTurkClient {
 			}
 		}
 		
-		boolean success = false;
-		String response = this.makeMTurkRequest(SET_HITTYPE_NOTIFICATION_OPERATION, parameters);
-		if(response != null && response.length() > 0){
-			String responseXML = this.decodeXML(response.toString());
-
-			try{
-				DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-				DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-				Document doc = dBuilder.parse(new InputSource(new StringReader(responseXML)));
-				doc.getDocumentElement().normalize();
-				
-				NodeList nodeList = doc.getElementsByTagName("IsValid");
-				if(nodeList.getLength() > 0){
-					Element isValidElement = (Element) nodeList.item(0);
-					if(isValidElement.getTextContent().equals("True")){
-						success = true;
-						System.out.println("Successfully set notification endpoint at:" + destination);
-					}				
-				}
-				
-			} catch(ParserConfigurationException e) {
-				e.printStackTrace();
-			} catch (SAXException e) {
-				e.printStackTrace();
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
-			
+		MTurkResponse response = this.makeMTurkRequest(SET_HITTYPE_NOTIFICATION_OPERATION, parameters, STATUS_PARSER);
+		if(response != null && response.isValid()){
+			return MTurkResult.success(null, response.getRequestId());
 		}
-		
-		return success;
-	}
-	
-	public String getPreviewURL(){
-		return this.PREVIEW_URL;
+		return failure(SET_HITTYPE_NOTIFICATION_OPERATION, parameters, response);
 	}
 	
 	/*
-	 * private Helper functions
+	 * asynchronous variants of the MTurk operations, executed on the client executor
 	 */
-	private String decodeXML(String rawXML){
-		return rawXML.replace("&lt;", "<").replace("&gt;", ">");
+	public CompletableFuture<Boolean> approveAssignmentAsync(final String assignmentId){
+		return CompletableFuture.supplyAsync(new Supplier<Boolean>(){
+			public Boolean get(){
+				return approveAssignment(assignmentId);
+			}
+		}, this.EXECUTOR);
 	}
 	
-	private String getExternalQuestion(String url, int externalFrameHeight){
-		StringBuffer q = new StringBuffer();
-		q.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
-		q.append("<ExternalQuestion xmlns=\"http://mechanicalturk.amazonaws.com/AWSMechanicalTurkDataSchemas/2006-07-14/ExternalQuestion.xsd\">");
-		q.append("	<ExternalURL>" + url + "</ExternalURL>");
-		q.append("	<FrameHeight>" + externalFrameHeight + "</FrameHeight>");
-		q.append("</ExternalQuestion>");
-		
-		return q.toString();
+	public CompletableFuture<MTurkResult<Void>> approveAssignmentResultAsync(final String assignmentId){
+		return CompletableFuture.supplyAsync(new Supplier<MTurkResult<Void>>(){
+			public MTurkResult<Void> get(){
+				return approveAssignmentResult(assignmentId);
+			}
+		}, this.EXECUTOR);
 	}
 	
-
-	/*
+	public CompletableFuture<Map<String, String>> createHITAsync(final String title, final String description,
+			final String question, final double rewardAmt, final long maxAssignments,
+			final long assignmentDurationInSeconds, final long lifetimeInSeconds,
+			final long autoApprovalDelayInSeconds, final QualificationRequirement qualificationRequirement){
+		return CompletableFuture.supplyAsync(new Supplier<Map<String, String>>(){
+			public Map<String, String> get(){
+				return createHIT(title, description, question, rewardAmt, maxAssignments,
+						assignmentDurationInSeconds, lifetimeInSeconds, autoApprovalDelayInSeconds,
+						qualificationRequirement);
+			}
+		}, this.EXECUTOR);
+	}
+	
+	public CompletableFuture<Map<String, String>> createHITWithExternalQuestionAsync(final String title,
+			final String description, final String questionUrl, final int externalFrameHeight,
+			final double rewardAmt, final long maxAssignments, final long assignmentDurationInSeconds,
+			final long lifetimeInSeconds, final long autoApprovalDelayInSeconds,
+			final QualificationRequirement qualificationRequirement){
+		return CompletableFuture.supplyAsync(new Supplier<Map<String, String>>(){
+			public Map<String, String> get(){
+				return createHITWithExternalQuestion(title, description, questionUrl, externalFrameHeight,
+						rewardAmt, maxAssignments, assignmentDurationInSeconds, lifetimeInSeconds,
+						autoApprovalDelayInSeconds, qualificationRequirement);
+			}
+		}, this.EXECUTOR);
+	}
+	
+	public CompletableFuture<Map<String, String>> createHITWithHITTypeAsync(final String hitTypeId, 
+			final String question, final long maxAssignments, final long lifetimeInSeconds){
+		return CompletableFuture.supplyAsync(new Supplier<Map<String, String>>(){
+			public Map<String, String> get(){
+				return createHITWithHITType(hitTypeId, question, maxAssignments, lifetimeInSeconds);
+			}
+		}, this.EXECUTOR);
+	}
+	
+	public CompletableFuture<MTurkResult<CreatedHIT>> createHITWithHITTypeResultAsync(final String hitTypeId, 
+			final String question, final long maxAssignments, final long lifetimeInSeconds){
+		return CompletableFuture.supplyAsync(new Supplier<MTurkResult<CreatedHIT>>(){
+			public MTurkResult<CreatedHIT> get(){
+				return createHITWithHITTypeResult(hitTypeId, question, maxAssignments, lifetimeInSeconds);
+			}
+		}, this.EXECUTOR);
+	}
+	
+	public CompletableFuture<Boolean> extendHITAsync(final String hitId, final int maxAssignmentsIncrement){
+		return CompletableFuture.supplyAsync(new Supplier<Boolean>(){
+			public Boolean get(){
+				return extendHIT(hitId, maxAssignmentsIncrement);
+			}
+		}, this.EXECUTOR);
+	}
+	
+	public CompletableFuture<MTurkResult<Void>> extendHITResultAsync(final String hitId, 
+			final int maxAssignmentsIncrement, final long expirationIncrementInSeconds){
+		return CompletableFuture.supplyAsync(new Supplier<MTurkResult<Void>>(){
+			public MTurkResult<Void> get(){
+				return extendHITResult(hitId, maxAssignmentsIncrement, expirationIncrementInSeconds);
+			}
+		}, this.EXECUTOR);
+	}
+	
+	public CompletableFuture<MTurkResult<Void>> forceExpireHITResultAsync(final String hitId){
+		return CompletableFuture.supplyAsync(new Supplier<MTurkResult<Void>>(){
+			public MTurkResult<Void> get(){
+				return forceExpireHITResult(hitId);
+			}
+		}, this.EXECUTOR);
+	}
+	
+	public CompletableFuture<MTurkResult<Void>> disposeHITResultAsync(final String hitId){
+		return CompletableFuture.supplyAsync(new Supplier<MTurkResult<Void>>(){
+			public MTurkResult<Void> get(){
+				return disposeHITResult(hitId);
+			}
+		}, this.EXECUTOR);
+	}
+	
+	public CompletableFuture<Map<String, String>> getAssignmentsForHITAsync(final String hitId){
+		return CompletableFuture.supplyAsync(new Supplier<Map<String, String>>(){
+			public Map<String, String> get(){
+				return getAssignmentsForHIT(hitId);
+			}
+		}, this.EXECUTOR);
+	}
+	
+	public CompletableFuture<AssignmentPage> getAssignmentsForHITPageAsync(final String hitId, final int pageNumber,
+			final int pageSize){
+		return CompletableFuture.supplyAsync(new Supplier<AssignmentPage>(){
+			public AssignmentPage get(){
+				return getAssignmentsForHITPage(hitId, pageNumber, pageSize);
+			}
+		}, this.EXECUTOR);
+	}
+	
+	public CompletableFuture<List<Assignment>> pollAssignmentsForHITAsync(final String hitId){
+		return CompletableFuture.supplyAsync(new Supplier<List<Assignment>>(){
+			public List<Assignment> get(){
+				return pollAssignmentsForHIT(hitId);
+			}
+		}, this.EXECUTOR);
+	}
+	
+	public CompletableFuture<Boolean> grantBonusAsync(final String workerId, final String assignmentId,
+			final double bonusAmt, final String reason){
+		return CompletableFuture.supplyAsync(new Supplier<Boolean>(){
+			public Boolean get(){
+				return grantBonus(workerId, assignmentId, bonusAmt, reason);
+			}
+		}, this.EXECUTOR);
+	}
+	
+	public CompletableFuture<Boolean> grantBonusAsync(final String workerId, final String assignmentId,
+			final double bonusAmt, final String reason, final String uniqueRequestToken){
+		return CompletableFuture.supplyAsync(new Supplier<Boolean>(){
+			public Boolean get(){
+				return grantBonus(workerId, assignmentId, bonusAmt, reason, uniqueRequestToken);
+			}
+		}, this.EXECUTOR);
+	}
+	
+	public CompletableFuture<MTurkResult<Void>> grantBonusResultAsync(final String workerId, 
+			final String assignmentId, final double bonusAmt, final String reason, final String uniqueRequestToken){
+		return CompletableFuture.supplyAsync(new Supplier<MTurkResult<Void>>(){
+			public MTurkResult<Void> get(){
+				return grantBonusResult(workerId, assignmentId, bonusAmt, reason, uniqueRequestToken);
+			}
+		}, this.EXECUTOR);
+	}
+	
+	public CompletableFuture<Boolean> rejectAssignmentAsync(final String assignmentId, final String requesterFeedback){
+		return CompletableFuture.supplyAsync(new Supplier<Boolean>(){
+			public Boolean get(){
+				return rejectAssignment(assignmentId, requesterFeedback);
+			}
+		}, this.EXECUTOR);
+	}
+	
+	public CompletableFuture<MTurkResult<Void>> rejectAssignmentResultAsync(final String assignmentId, 
+			final String requesterFeedback){
+		return CompletableFuture.supplyAsync(new Supplier<MTurkResult<Void>>(){
+			public MTurkResult<Void> get(){
+				return rejectAssignmentResult(assignmentId, requesterFeedback);
+			}
+		}, this.EXECUTOR);
+	}
+	
+	public CompletableFuture<Boolean> setHITTypeNotificationAsync(final String hitTypeId, final String destination,
+			final String[] eventTypes, final String transport, final boolean isMakeActive){
+		return CompletableFuture.supplyAsync(new Supplier<Boolean>(){
+			public Boolean get(){
+				return setHITTypeNotification(hitTypeId, destination, eventTypes, transport, isMakeActive);
+			}
+		}, this.EXECUTOR);
+	}
+	
+	public String getPreviewURL(){
+		return this.PREVIEW_URL;
+	}
+	
+	/*
+	 * requests that were answered by a concurrent identical request instead of a call of their own
+	 */
+	public long getCoalescedRequestCount(){
+		return this.inFlightRequests.getCoalescedCount();
+	}
+	
+	/*
+	 * Fetches the page on the internal executor. Iterators wait for their prefetched pages, and an
+	 * iterator consumed by a task of EXECUTOR (e.g. pollAssignmentsForHITAsync) would starve the 
+	 * executor if the pages were queued behind it.
+	 */
+	CompletableFuture<AssignmentPage> prefetchAssignmentsForHITPage(final String hitId, final int pageNumber,
+			final int pageSize){
+		return CompletableFuture.supplyAsync(new Supplier<AssignmentPage>(){
+			public AssignmentPage get(){
+				return getAssignmentsForHITPage(hitId, pageNumber, pageSize);
+			}
+		}, this.getInternalExecutor());
+	}
+	
+	private ExecutorService getInternalExecutor(){
+		ExecutorService executor = this.internalExecutor;
+		if(executor == null){
+			synchronized(this){
+				if(this.internalExecutor == null){
+					this.internalExecutor = MTurkExecutors.newCachedExecutor();
+				}
+				executor = this.internalExecutor;
+			}
+		}
+		return executor;
+	}
+	
+	public ExecutorService getExecutor(){
+		return this.EXECUTOR;
+	}
+	
+	/*
+	 * shuts down the transport and the executor if the client created them (see MTurkTransport.shutdown()),
+	 * the client must not be used afterwards
+	 */
+	public void shutdown(){
+		synchronized(this){
+			if(this.internalExecutor != null){
+				this.internalExecutor.shutdown();
+			}
+		}
+		if(this.isOwnExecutor){
+			this.EXECUTOR.shutdown();
+		}
+		if(this.isOwnTransport){
+			this.TRANSPORT.shutdown();
+		}
+	}
+	
+	/*
+	 * private Helper functions
+	 */
+	private String getExternalQuestion(String url, int externalFrameHeight){
+		return EXTERNAL_QUESTION_TEMPLATE.render(url, Integer.toString(externalFrameHeight));
+	}
+	
+
+	/*
 	 * Note: HitTypeId can be used for the groupId parameter as well
 	 */
 	private String getPreviewUrl(String groupId){
 		return this.PREVIEW_URL + "groupId=" + groupId;
 	}
 	
+	static RequestSigner newSigner(String secretKey){
+		return new RequestSigner(MTURK_SERVICE_NAME, secretKey);
+	}
+	
 	private String getTimestamp(){
-        Calendar cal = Calendar.getInstance();
-        DateFormat dfm = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
-        dfm.setTimeZone(TimeZone.getTimeZone("GMT"));
-        String timestamp = dfm.format(cal.getTime());
-
-        return timestamp;
+		return RequestSigner.getTimestamp();
 	}
 	
 	private String getSignature(String operation, String timestamp){
-		String signatureData = MTURK_SERVICE_NAME + operation + timestamp;
-		
-		String signature = null;
-		
-		try{
-			Mac mac = Mac.getInstance("HmacSHA1");
-			SecretKeySpec signingKey = new SecretKeySpec(this.SECRET_KEY.getBytes(), mac.getAlgorithm());
-			mac.init(signingKey);
-			byte[] rawHmac = mac.doFinal(signatureData.getBytes());
-			Base64 encoder = new Base64();
-			signature = new String(encoder.encode(rawHmac));
-		}catch(NoSuchAlgorithmException e){
-			
-		}catch(InvalidKeyException e){
-			e.printStackTrace();
+		return this.SIGNER.sign(operation, timestamp);
+	}
+	
+	/*
+	 * Sends the request, sharing the call of a concurrent identical request when coalescing is enabled.
+	 * Returns null when no response could be read or parsed, and when the thread is interrupted while 
+	 * waiting for a shared call, which may still have succeeded. Only idempotent requests are shared, 
+	 * so the resulting NoResponse error is retryable.
+	 */
+	private MTurkResponse makeMTurkRequest(final String operation, final Map<String, String> parameters, 
+			final MTurkResponseParser parser){
+		if(!this.CONFIG.isCoalesceRequests() || !isIdempotent(operation, parameters)){
+			return this.sendMTurkRequest(operation, parameters, parser);
 		}
 		
-		return signature;
+		return this.inFlightRequests.execute(new RequestKey(operation, parameters, parser), new Supplier<MTurkResponse>(){
+			public MTurkResponse get(){
+				return sendMTurkRequest(operation, parameters, parser);
+			}
+		});
 	}
-			
-	private String makeMTurkRequest(String operation, Map<String, String> parameters){
+	
+	/*
+	 * Sends the request through the client and operation rate limiters. Throttling and server errors
+	 * are retried with backoff as configured by the RetryPolicy, other errors are returned right away.
+	 * A lost response is only retried for idempotent requests, the first call of a CreateHIT, ExtendHIT
+	 * or GrantBonus without token may have been applied.
+	 * Attempts stop at the operation deadline and while the circuit breaker is open.
+	 * Returns null when no response could be read or parsed.
+	 */
+	private MTurkResponse sendMTurkRequest(String operation, Map<String, String> parameters, 
+			MTurkResponseParser parser){
+		
+		RetryPolicy retryPolicy = this.CONFIG.getRetryPolicy();
+		CircuitBreaker circuitBreaker = this.CONFIG.getCircuitBreaker();
+		AdaptiveRateLimiter operationRateLimiter = this.getOperationRateLimiter(operation);
+		HedgeStats hedgeStats = this.CONFIG.isHedgeReads() && HEDGEABLE_OPERATIONS.contains(operation) 
+				? this.getHedgeStats(operation) : null;
+		boolean isIdempotent = isIdempotent(operation, parameters);
+		EncodedRequest request = this.encodeRequest(operation, parameters);
 		
-		String result = null;
+		MTurkMetrics metrics = this.CONFIG.getMetrics();
+		long startNanos = System.nanoTime();
+		long deadlineMillis = this.CONFIG.getRequestDeadlineMillis(operation);
+		long deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+		long bytesSent = 0;
+		AtomicLong bytesReceived = new AtomicLong(0);
+		if(metrics != null){
+			metrics.requestStarted(operation);
+		}
+		
+		MTurkResponse result = null;
+		int attempts = 0;
 		int i = 0;
-		while(i < REST_REQUEST_RETRY_LIMIT){	//loop until success or reach limit
+		while(true){	//loop until success, non-retryable error or reach limit
+			if(circuitBreaker != null && !circuitBreaker.allowRequest()){
+				result = MTurkResponse.clientError(MTurkError.CIRCUIT_OPEN, operation + ": circuit breaker open");
+				break;
+			}
+			
+			try{
+				if(!this.acquirePermits(operationRateLimiter, deadlineMillis > 0 ? deadlineNanos : 0)){
+					result = deadlineExceeded(operation, deadlineMillis);
+					break;
+				}
+			}catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				result = null;
+				break;
+			}
+			
+			if(deadlineMillis > 0 && System.nanoTime() - deadlineNanos >= 0){
+				result = deadlineExceeded(operation, deadlineMillis);
+				break;
+			}
+			
 			String timestamp = this.getTimestamp();
 			String signature = this.getSignature(operation, timestamp);
-
-			StringBuffer requestUrl = new StringBuffer(this.SERVICE_URL);
-			StringBuffer response = new StringBuffer();
-			try{
-				requestUrl.append("?Service=" + MTURK_SERVICE_NAME);
-				requestUrl.append("&AWSAccessKeyId=" + this.ACCESS_KEY);
-				requestUrl.append("&Version=" + this.REST_API_VERSION);
-				requestUrl.append("&Operation=" + operation);
-				requestUrl.append("&Signature=" + signature);
-				requestUrl.append("&Timestamp=" + timestamp);
-				
-				for(Map.Entry<String, String> entry : parameters.entrySet()){
-					requestUrl.append("&" + entry.getKey() + "=");
-					requestUrl.append(URLEncoder.encode(entry.getValue(), "UTF-8"));
+			
+			request.resetToFixed();
+			request.append("Timestamp", timestamp);
+			request.append("Signature", signature);
+			
+			boolean isPost = request.getLength() > this.CONFIG.getPostThresholdBytes();
+			String url = isPost ? this.SERVICE_URL : request.toUrl(this.SERVICE_URL);
+			
+			attempts++;
+			bytesSent += request.getLength();
+			if(deadlineMillis > 0 || hedgeStats != null){
+				//the buffer is reused by the next attempt while an abandoned call may still be sending it
+				byte[] body = isPost ? Arrays.copyOf(request.getBuffer(), request.getLength()) : null;
+				try{
+					result = this.awaitAttempt(url, body, request.getLength(), parser, bytesReceived, 
+							deadlineMillis > 0 ? deadlineNanos : 0, hedgeStats, operationRateLimiter);
+				}catch(TimeoutException e){
+					result = deadlineExceeded(operation, deadlineMillis);
+				}catch(InterruptedException e){
+					Thread.currentThread().interrupt();
+					result = null;
+					break;
 				}
-							
-				URL url = new URL(requestUrl.toString());
-				BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream()));
-				String line;
-				
-				while((line = reader.readLine()) != null){
-					response.append(line);
+			}else{
+				result = this.sendAttempt(url, isPost ? request.getBuffer() : null, request.getLength(), parser, 
+						bytesReceived);
+			}
+			
+			boolean isEndpointFailure = result == null || MTurkError.DEADLINE_EXCEEDED.equals(result.getErrorCode())
+					|| (result.hasErrors() && !RetryPolicy.isThrottlingError(result.getErrorCode(), result.getErrorMessage())
+							&& RetryPolicy.isRetryableError(result.getErrorCode(), result.getErrorMessage()));
+			if(circuitBreaker != null){
+				if(isEndpointFailure){
+					circuitBreaker.onFailure();
+				}else{
+					circuitBreaker.onSuccess();
 				}
-				
-				reader.close();
-							
-			}catch(MalformedURLException e){
-				e.printStackTrace();
-			}catch(IOException e){
-				e.printStackTrace();
 			}
 			
-			result = response.toString();
-			if(!result.contains("<Errors>") || result.contains("InvalidAssignmentState")){
+			if(result != null && (!result.hasErrors() || isInvalidAssignmentState(result))){
 				//no error
+				this.RATE_LIMITER.onSuccess();
+				operationRateLimiter.onSuccess();
 				break;
 			}
-
-			System.err.println("makeMTurkRequest error response: " + result);
+			
+			if(result != null && MTurkError.DEADLINE_EXCEEDED.equals(result.getErrorCode())){
+				break;
+			}
+			
+			if(result == null && !isIdempotent){
+				break;
+			}
+			
+			if(result != null){
+				if(RetryPolicy.isThrottlingError(result.getErrorCode(), result.getErrorMessage())){
+					this.RATE_LIMITER.onThrottled();
+					operationRateLimiter.onThrottled();
+				}else if(!RetryPolicy.isRetryableError(result.getErrorCode(), result.getErrorMessage())){
+					break;
+				}
+			}
+			
 			i++;
+			if(i >= retryPolicy.getMaxAttempts()){
+				break;
+			}
 			
+			long backoffMillis = retryPolicy.getBackoffMillis(i);
+			if(deadlineMillis > 0 && System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMillis) - deadlineNanos >= 0){
+				//no time left for another attempt, keep the last error
+				break;
+			}
 			
 			try {
-				Thread.sleep(5);
+				Thread.sleep(backoffMillis);
 			} catch (InterruptedException e) {
-				e.printStackTrace();
+				Thread.currentThread().interrupt();
+				break;
 			}
 		}
 		
+		if(metrics != null){
+			String errorCode;
+			if(result == null){
+				errorCode = MTurkMetrics.NO_RESPONSE_ERROR_CODE;
+			}else if(result.hasErrors()){
+				errorCode = result.getErrorCode();
+			}else{
+				errorCode = null;
+			}
+			metrics.requestCompleted(operation, System.nanoTime() - startNanos, attempts, 
+					errorCode, bytesSent, bytesReceived.get());
+		}
+		
 		return result;
 	}
 	
+	/*
+	 * one call to the transport, a GET of url when body is null and a POST of body otherwise.
+	 * Returns null when no response could be read or parsed.
+	 */
+	private MTurkResponse sendAttempt(String url, byte[] body, int length, MTurkResponseParser parser, 
+			AtomicLong bytesReceived){
+		try{
+			InputStream in;
+			if(body != null){
+				in = this.TRANSPORT.executePost(url, body, length);
+			}else{
+				in = this.TRANSPORT.execute(url);
+			}
+			CountingInputStream countingIn = new CountingInputStream(in);
+			try{
+				return parser.parse(countingIn);
+			}finally{
+				bytesReceived.addAndGet(countingIn.getCount());
+				countingIn.close();
+			}
+		}catch(IOException e){
+			e.printStackTrace();
+		}catch(XMLStreamException e){
+			e.printStackTrace();
+		}
+		return null;
+	}
 	
+	/*
+	 * Runs the attempt on the internal executor and waits for it until deadlineNanos (no limit when 0).
+	 * With hedgeStats the same request is sent a second time once the first call is slower than
+	 * the hedge percentile; the first response wins. Calls still running when this returns are 
+	 * abandoned, they close their response on their own when it arrives.
+	 */
+	private MTurkResponse awaitAttempt(String url, byte[] body, int length, MTurkResponseParser parser, 
+			AtomicLong bytesReceived, long deadlineNanos, HedgeStats hedgeStats, AdaptiveRateLimiter operationRateLimiter) 
+			throws InterruptedException, TimeoutException {
+		
+		CompletionService<MTurkResponse> attempts = new ExecutorCompletionService<MTurkResponse>(this.getInternalExecutor());
+		attempts.submit(this.newAttempt(url, body, length, parser, bytesReceived, hedgeStats, null, 0));
+		int running = 1;
+		
+		long hedgeDelayNanos = hedgeStats != null ? hedgeStats.getHedgeDelayNanos(this.CONFIG.getHedgePercentile()) : 0;
+		long hedgeNanos = System.nanoTime() + hedgeDelayNanos;
+		boolean isHedgePending = hedgeDelayNanos > 0;
+		
+		MTurkResponse result = null;
+		while(running > 0){
+			long now = System.nanoTime();
+			long waitNanos = Long.MAX_VALUE;
+			if(deadlineNanos != 0){
+				waitNanos = deadlineNanos - now;
+			}
+			if(isHedgePending){
+				waitNanos = Math.min(waitNanos, hedgeNanos - now);
+			}
+			
+			Future<MTurkResponse> done = attempts.poll(Math.max(waitNanos, 0), TimeUnit.NANOSECONDS);
+			if(done == null){
+				if(isHedgePending && System.nanoTime() - hedgeNanos >= 0){
+					isHedgePending = false;
+					attempts.submit(this.newAttempt(url, body, length, parser, bytesReceived, hedgeStats, 
+							operationRateLimiter, deadlineNanos));
+					running++;
+					continue;
+				}
+				if(deadlineNanos != 0 && System.nanoTime() - deadlineNanos >= 0){
+					throw new TimeoutException();
+				}
+				continue;
+			}
+			
+			running--;
+			try{
+				result = done.get();
+			}catch(ExecutionException e){
+				e.printStackTrace();
+				result = null;
+			}
+			//a failed call waits for the other one, or returns without waiting for the hedge delay
+			if(result != null && !isRetryableResponse(result)){
+				return result;
+			}
+		}
+		return result;
+	}
+	
+	/*
+	 * A hedge (operationRateLimiter not null) goes through the rate limiters like any other attempt;
+	 * it is not sent when no permit is due before deadlineNanos (no limit when 0).
+	 */
+	private Callable<MTurkResponse> newAttempt(final String url, final byte[] body, final int length, 
+			final MTurkResponseParser parser, final AtomicLong bytesReceived, final HedgeStats hedgeStats,
+			final AdaptiveRateLimiter operationRateLimiter, final long deadlineNanos){
+		return new Callable<MTurkResponse>(){
+			public MTurkResponse call() throws InterruptedException {
+				if(operationRateLimiter != null && !acquirePermits(operationRateLimiter, deadlineNanos)){
+					return null;
+				}
+				long startNanos = System.nanoTime();
+				MTurkResponse response = sendAttempt(url, body, length, parser, bytesReceived);
+				if(hedgeStats != null && response != null && !isRetryableResponse(response)){
+					hedgeStats.record(System.nanoTime() - startNanos);
+				}
+				return response;
+			}
+		};
+	}
+	
+	/*
+	 * Takes a permit of the client and the operation rate limiter. With a deadlineNanos (0 for none) 
+	 * it gives up instead of waiting past the deadline and returns false.
+	 */
+	private boolean acquirePermits(AdaptiveRateLimiter operationRateLimiter, long deadlineNanos) 
+			throws InterruptedException {
+		if(deadlineNanos == 0){
+			this.RATE_LIMITER.acquire();
+			operationRateLimiter.acquire();
+			return true;
+		}
+		return this.RATE_LIMITER.tryAcquire(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS)
+				&& operationRateLimiter.tryAcquire(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+	}
+	
+	private HedgeStats getHedgeStats(String operation){
+		HedgeStats hedgeStats = this.hedgeStats.get(operation);
+		if(hedgeStats == null){
+			HedgeStats created = new HedgeStats();
+			hedgeStats = this.hedgeStats.putIfAbsent(operation, created);
+			if(hedgeStats == null){
+				hedgeStats = created;
+			}
+		}
+		return hedgeStats;
+	}
+	
+	private static MTurkResponse deadlineExceeded(String operation, long deadlineMillis){
+		return MTurkResponse.clientError(MTurkError.DEADLINE_EXCEEDED, operation + ": no response within " 
+				+ deadlineMillis + " ms");
+	}
+	
+	private static boolean isRetryableResponse(MTurkResponse response){
+		return response.hasErrors() && RetryPolicy.isRetryableError(response.getErrorCode(), response.getErrorMessage());
+	}
+	
+	/*
+	 * encodes everything except Timestamp and Signature, which change with every attempt
+	 */
+	private EncodedRequest encodeRequest(String operation, Map<String, String> parameters){
+		int capacityHint = 0;
+		for(Map.Entry<String, String> entry : parameters.entrySet()){
+			capacityHint += entry.getKey().length() + entry.getValue().length() + 2;
+		}
+		
+		EncodedRequest request = new EncodedRequest(capacityHint + capacityHint / 4);
+		request.append("Service", MTURK_SERVICE_NAME);
+		request.append("AWSAccessKeyId", this.ACCESS_KEY);
+		request.append("Version", this.REST_API_VERSION);
+		request.append("Operation", operation);
+		for(Map.Entry<String, String> entry : parameters.entrySet()){
+			request.append(entry.getKey(), entry.getValue());
+		}
+		request.markFixed();
+		return request;
+	}
+	
+	private AdaptiveRateLimiter getOperationRateLimiter(String operation){
+		AdaptiveRateLimiter rateLimiter = this.operationRateLimiters.get(operation);
+		if(rateLimiter == null){
+			rateLimiter = new AdaptiveRateLimiter(this.CONFIG.getMaxOperationRequestsPerSecond(), 
+					this.CONFIG.getMinRequestsPerSecond());
+			AdaptiveRateLimiter existing = this.operationRateLimiters.putIfAbsent(operation, rateLimiter);
+			if(existing != null){
+				rateLimiter = existing;
+			}
+		}
+		return rateLimiter;
+	}
+	
+	private MTurkResult<CreatedHIT> toCreatedHIT(MTurkResponse response, Map<String, String> parameters, 
+			String hitTypeId){
+		if(response == null || !response.isValid()){
+			return failure(CREATE_HIT_OPERATION, parameters, response);
+		}
+		
+		String hitId = response.getField("HITId");
+		if(response.getField("HITTypeId") != null){
+			hitTypeId = response.getField("HITTypeId");
+		}
+		if(hitId == null || hitTypeId == null){
+			return MTurkResult.failure(new MTurkError(null, "CreateHIT response without HITId or HITTypeId", 
+					response.getRequestId()));
+		}
+		return MTurkResult.success(new CreatedHIT(hitId, hitTypeId, this.getPreviewUrl(hitTypeId)), 
+				response.getRequestId());
+	}
+	
+	/*
+	 * keys of the legacy createHIT result map
+	 */
+	private static Map<String, String> toMap(CreatedHIT hit){
+		Map<String, String> responseMap = new HashMap<String, String>(4);
+		responseMap.put("hitId", hit.getHITId());
+		responseMap.put("hitTypeId", hit.getHITTypeId());
+		responseMap.put("previewUrl", hit.getPreviewUrl());
+		return responseMap;
+	}
+	
+	/*
+	 * for operations that only report IsValid
+	 */
+	private MTurkResult<Void> makeStatusRequest(String operation, Map<String, String> parameters){
+		MTurkResponse response = this.makeMTurkRequest(operation, parameters, STATUS_PARSER);
+		if(response != null && response.isValid()){
+			return MTurkResult.success(null, response.getRequestId());
+		}
+		return failure(operation, parameters, response);
+	}
+	
+	/*
+	 * response is null when makeMTurkRequest got no response, which is retryable only for idempotent requests
+	 */
+	private static <T> MTurkResult<T> failure(String operation, Map<String, String> parameters, MTurkResponse response){
+		boolean isIdempotent = isIdempotent(operation, parameters);
+		if(response == null){
+			return MTurkResult.failure(MTurkError.noResponse(operation, isIdempotent));
+		}
+		return MTurkResult.failure(MTurkError.fromResponse(response, isIdempotent));
+	}
+	
+	/*
+	 * answer of the AssignmentStateCache for an assignment already reviewed the other way
+	 */
+	private static <T> MTurkResult<T> alreadyReviewed(String assignmentId, Assignment.Status status){
+		return MTurkResult.failure(new MTurkError(MTurkError.INVALID_ASSIGNMENT_STATE, 
+				"assignment " + assignmentId + " is already " + status + " (cached)", null));
+	}
+	
+	/*
+	 * GrantBonus only with a UniqueRequestToken, CreateHIT and ExtendHIT never
+	 */
+	private static boolean isIdempotent(String operation, Map<String, String> parameters){
+		if(GRANT_BONUS_OPERATION.equals(operation)){
+			return parameters.containsKey("UniqueRequestToken");
+		}
+		return IDEMPOTENT_OPERATIONS.contains(operation);
+	}
+	
+	private static boolean isDuplicateRequest(MTurkResponse response){
+		return response.getErrorCode() != null && response.getErrorCode().contains("DuplicateRequest");
+	}
+	
+	private static boolean isInvalidAssignmentState(MTurkResponse response){
+		return response.getErrorCode() != null && response.getErrorCode().contains("InvalidAssignmentState");
+	}
+	
+	
+	/*
+	 * Latencies of the recent successful calls of a hedged operation. Two histograms take turns
+	 * so that the hedge delay follows the endpoint instead of its whole history.
+	 */
+	private static final class HedgeStats {
+		
+		private static final long WINDOW_SIZE = 1000;
+		private static final long MIN_SAMPLES = 20;
+		
+		private volatile LatencyHistogram current = new LatencyHistogram();
+		private volatile LatencyHistogram previous = new LatencyHistogram();
+		
+		void record(long latencyNanos){
+			LatencyHistogram histogram = this.current;
+			histogram.recordMicros(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+			if(histogram.getCount() >= WINDOW_SIZE && this.current == histogram){
+				this.previous = histogram;
+				this.current = new LatencyHistogram();
+			}
+		}
+		
+		/*
+		 * 0 (no hedging) until enough calls were seen
+		 */
+		long getHedgeDelayNanos(double percentile){
+			LatencyHistogram histogram = this.current;
+			if(histogram.getCount() < MIN_SAMPLES){
+				histogram = this.previous;
+				if(histogram.getCount() < MIN_SAMPLES){
+					return 0;
+				}
+			}
+			return TimeUnit.MICROSECONDS.toNanos(Math.max(histogram.getPercentileMicros(percentile), 1));
+		}
+	}
+	
+	/*
+	 * operation, parameters and parser of a request; parameter order does not matter
+	 */
+	private static final class RequestKey {
+		
+		private final String operation;
+		private final Map<String, String> parameters;
+		private final MTurkResponseParser parser;
+		private final int hashCode;
+		
+		RequestKey(String operation, Map<String, String> parameters, MTurkResponseParser parser){
+			this.operation = operation;
+			this.parameters = parameters;
+			this.parser = parser;
+			this.hashCode = 31 * (31 * operation.hashCode() + parameters.hashCode()) + System.identityHashCode(parser);
+		}
+		
+		@Override
+		public int hashCode(){
+			return this.hashCode;
+		}
+		
+		@Override
+		public boolean equals(Object other){
+			if(!(other instanceof RequestKey)){
+				return false;
+			}
+			RequestKey key = (RequestKey) other;
+			return this.parser == key.parser && this.operation.equals(key.operation) 
+					&& this.parameters.equals(key.parameters);
+		}
+	}
 }
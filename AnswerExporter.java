@@ -0,0 +1,285 @@
+package com.cclo7;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Exports every answer of a set of HITs to a CSV or JSON lines file, one row per answer value
+ * (each selection of a multiple choice question gets its own row).
+ * 
+ * HITs are paged through concurrently, at most maxParallelism at a time. The rows of a HIT are 
+ * collected while its pages stream in and appended to the file in one piece once the HIT is complete,
+ * so memory is bounded by maxParallelism HITs rather than by the export. After each HIT the file is 
+ * forced to disk and "<HITId> TAB <file length>" is appended to <outputFile>.checkpoint.
+ * 
+ * Running an export again with the same output file resumes it: the file is truncated to the last
+ * checkpointed length (dropping rows of a HIT that was being written during a crash) and the HITs 
+ * in the checkpoint are skipped. Failed HITs are not checkpointed and are retried by the next run.
+ */
+public class AnswerExporter {
+	
+	public static final int DEFAULT_MAX_PARALLELISM = 8;
+	
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	
+	private final AmazonMTurkClient client;
+	private final File outputFile;
+	private final File checkpointFile;
+	private final ExportFormat format;
+	private final int maxParallelism;
+	
+	private volatile ProgressListener progressListener;
+	
+	public AnswerExporter(AmazonMTurkClient client, File outputFile, ExportFormat format, int maxParallelism){
+		if(maxParallelism < 1){
+			throw new IllegalArgumentException("maxParallelism must be positive: " + maxParallelism);
+		}
+		this.client = client;
+		this.outputFile = outputFile;
+		this.checkpointFile = new File(outputFile.getPath() + ".checkpoint");
+		this.format = format;
+		this.maxParallelism = maxParallelism;
+	}
+	
+	public AnswerExporter(AmazonMTurkClient client, File outputFile, ExportFormat format){
+		this(client, outputFile, format, DEFAULT_MAX_PARALLELISM);
+	}
+	
+	/*
+	 * counts HITs of this run; skipped HITs are not reported
+	 */
+	public void setProgressListener(ProgressListener progressListener){
+		this.progressListener = progressListener;
+	}
+	
+	public ExportReport export(Iterable<String> hitIds) throws IOException, InterruptedException {
+		return this.export(hitIds.iterator());
+	}
+	
+	/*
+	 * blocks until every HIT has been exported or has failed
+	 */
+	public ExportReport export(Iterator<String> hitIds) throws IOException, InterruptedException {
+		long start = System.currentTimeMillis();
+		Set<String> exported = new HashSet<String>();
+		long committedLength = this.readCheckpoint(exported);
+		
+		FileChannel output = FileChannel.open(this.outputFile.toPath(), StandardOpenOption.CREATE, 
+				StandardOpenOption.WRITE);
+		FileChannel checkpoint = FileChannel.open(this.checkpointFile.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		ExecutorService executor = MTurkExecutors.newFixedExecutor(this.maxParallelism);
+		
+		try{
+			if(output.size() > committedLength){
+				output.truncate(committedLength);
+			}
+			output.position(committedLength);
+			if(committedLength == 0){
+				writeFully(output, this.format.header().getBytes(UTF_8));
+			}
+			
+			Export run = new Export(output, checkpoint);
+			Semaphore inFlight = new Semaphore(this.maxParallelism);
+			int skipped = 0;
+			while(hitIds.hasNext()){
+				String hitId = hitIds.next();
+				if(exported.contains(hitId)){
+					skipped++;
+					continue;
+				}
+				inFlight.acquire();
+				executor.execute(run.newTask(hitId, inFlight));
+			}
+			
+			//all HITs are done once every slot is free again
+			inFlight.acquire(this.maxParallelism);
+			
+			if(run.writeError != null){
+				throw run.writeError;
+			}
+			return new ExportReport(run.exportedHITs.get(), skipped, run.rows, run.failedHITs, 
+					System.currentTimeMillis() - start);
+		}finally{
+			executor.shutdownNow();
+			output.close();
+			checkpoint.close();
+		}
+	}
+	
+	/*
+	 * Collects the HITs of the checkpoint and returns the file length recorded last. Only complete
+	 * lines whose length fits the output file count; the checkpoint is truncated after the last of
+	 * them, so a torn line left by a crash cannot merge with the next line appended.
+	 */
+	private long readCheckpoint(Set<String> exported) throws IOException {
+		if(!this.checkpointFile.exists()){
+			return 0;
+		}
+		
+		long outputLength = this.outputFile.length();
+		byte[] bytes = Files.readAllBytes(this.checkpointFile.toPath());
+		long committedLength = 0;
+		int validEnd = 0;
+		int lineStart = 0;
+		for(int i = 0; i < bytes.length; i++){
+			if(bytes[i] != '\n'){
+				continue;
+			}
+			String line = new String(bytes, lineStart, i - lineStart, UTF_8);
+			lineStart = i + 1;
+			
+			int separator = line.lastIndexOf('\t');
+			if(separator < 0){
+				break;
+			}
+			long length;
+			try{
+				length = Long.parseLong(line.substring(separator + 1));
+			}catch(NumberFormatException e){
+				break;
+			}
+			if(length < committedLength || length > outputLength){
+				//the output file lost rows the checkpoint refers to, export those HITs again
+				break;
+			}
+			exported.add(line.substring(0, separator));
+			committedLength = length;
+			validEnd = lineStart;
+		}
+		
+		if(validEnd < bytes.length){
+			FileChannel checkpoint = FileChannel.open(this.checkpointFile.toPath(), StandardOpenOption.WRITE);
+			try{
+				checkpoint.truncate(validEnd);
+				checkpoint.force(false);
+			}finally{
+				checkpoint.close();
+			}
+		}
+		return committedLength;
+	}
+	
+	private static void writeFully(FileChannel channel, byte[] bytes) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		while(buffer.hasRemaining()){
+			channel.write(buffer);
+		}
+	}
+	
+	/*
+	 * state of one export() call
+	 */
+	private class Export {
+		
+		final FileChannel output;
+		final FileChannel checkpoint;
+		final Map<String, String> failedHITs = new ConcurrentHashMap<String, String>();
+		final AtomicInteger exportedHITs = new AtomicInteger(0);
+		final AtomicInteger completedHITs = new AtomicInteger(0);
+		
+		//guarded by this
+		long rows = 0;
+		IOException writeError;
+		
+		Export(FileChannel output, FileChannel checkpoint){
+			this.output = output;
+			this.checkpoint = checkpoint;
+		}
+		
+		Runnable newTask(final String hitId, final Semaphore inFlight){
+			return new Runnable(){
+				public void run(){
+					try{
+						exportHIT(hitId);
+					}catch(RuntimeException e){
+						failedHITs.put(hitId, String.valueOf(e.getMessage()));
+					}finally{
+						int completed = completedHITs.incrementAndGet();
+						try{
+							ProgressListener listener = progressListener;
+							if(listener != null){
+								int failed = failedHITs.size();
+								listener.onProgress(completed, completed - failed, failed);
+							}
+						}catch(RuntimeException e){
+							e.printStackTrace();
+						}finally{
+							//a failing listener must not keep export() waiting for the slot
+							inFlight.release();
+						}
+					}
+				}
+			};
+		}
+		
+		void exportHIT(String hitId){
+			StringBuilder out = new StringBuilder(4096);
+			long count = 0;
+			
+			Iterator<Assignment> assignments = client.iterateAssignmentsForHIT(hitId);
+			while(assignments.hasNext()){
+				Assignment assignment = assignments.next();
+				for(QuestionAnswer answer : assignment.getQuestionAnswers()){
+					count += appendRows(out, assignment, answer);
+				}
+			}
+			
+			this.commit(hitId, out.toString().getBytes(UTF_8), count);
+		}
+		
+		int appendRows(StringBuilder out, Assignment assignment, QuestionAnswer answer){
+			String questionIdentifier = answer.getQuestionIdentifier();
+			switch(answer.getType()){
+				case UPLOADED_FILE:
+					format.appendRow(out, assignment, questionIdentifier, "UPLOADED_FILE", answer.getUploadedFileKey());
+					return 1;
+				case SELECTION:
+					for(String selection : answer.getSelectionIdentifiers()){
+						format.appendRow(out, assignment, questionIdentifier, "SELECTION", selection);
+					}
+					if(answer.getOtherSelectionText() != null){
+						format.appendRow(out, assignment, questionIdentifier, "OTHER_SELECTION", 
+								answer.getOtherSelectionText());
+						return answer.getSelectionIdentifiers().size() + 1;
+					}
+					return answer.getSelectionIdentifiers().size();
+				default:
+					format.appendRow(out, assignment, questionIdentifier, "FREE_TEXT", answer.getFreeText());
+					return 1;
+			}
+		}
+		
+		synchronized void commit(String hitId, byte[] bytes, long count){
+			if(this.writeError != null){
+				throw new MTurkException("export aborted after a write error", this.writeError);
+			}
+			
+			try{
+				writeFully(this.output, bytes);
+				this.output.force(false);
+				writeFully(this.checkpoint, (hitId + "\t" + this.output.position() + "\n").getBytes(UTF_8));
+				this.checkpoint.force(false);
+			}catch(IOException e){
+				this.writeError = e;
+				throw new MTurkException("cannot write the rows of HIT " + hitId, e);
+			}
+			
+			this.rows += count;
+			this.exportedHITs.incrementAndGet();
+		}
+	}
+}
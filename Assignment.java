@@ -0,0 +1,161 @@
+package com.cclo7;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+
+/*
+ * One assignment returned by GetAssignmentsForHIT.
+ */
+public class Assignment {
+	
+	public enum Status {
+		SUBMITTED,
+		APPROVED,
+		REJECTED;
+		
+		static Status fromValue(String value){
+			if(value == null){
+				return null;
+			}
+			for(Status status : values()){
+				if(status.name().equalsIgnoreCase(value)){
+					return status;
+				}
+			}
+			return null;
+		}
+	}
+	
+	private final String assignmentId;
+	private final String workerId;
+	private final String hitId;
+	private final Status status;
+	private final Instant autoApprovalTime;
+	private final Instant acceptTime;
+	private final Instant submitTime;
+	private final Instant approvalTime;
+	private final Instant rejectionTime;
+	private final String requesterFeedback;
+	private final String answerXML;
+	private volatile List<QuestionAnswer> questionAnswers;
+	
+	public Assignment(String assignmentId, String workerId, String hitId, Status status, 
+			Instant autoApprovalTime, Instant acceptTime, Instant submitTime, Instant approvalTime,
+			Instant rejectionTime, String requesterFeedback, String answerXML){
+		this.assignmentId = assignmentId;
+		this.workerId = workerId;
+		this.hitId = hitId;
+		this.status = status;
+		this.autoApprovalTime = autoApprovalTime;
+		this.acceptTime = acceptTime;
+		this.submitTime = submitTime;
+		this.approvalTime = approvalTime;
+		this.rejectionTime = rejectionTime;
+		this.requesterFeedback = requesterFeedback;
+		this.answerXML = answerXML;
+	}
+	
+	/*
+	 * builds an assignment from the fields collected by MTurkResponseParser for an Assignment element
+	 */
+	static Assignment fromRecord(Map<String, String> record){
+		return new Assignment(record.get("AssignmentId"), record.get("WorkerId"), record.get("HITId"),
+				Status.fromValue(record.get("AssignmentStatus")), 
+				parseTime(record.get("AutoApprovalTime")), parseTime(record.get("AcceptTime")),
+				parseTime(record.get("SubmitTime")), parseTime(record.get("ApprovalTime")),
+				parseTime(record.get("RejectionTime")), record.get("RequesterFeedback"), record.get("Answer"));
+	}
+	
+	private static Instant parseTime(String value){
+		return value == null || value.length() == 0 ? null : Instant.parse(value);
+	}
+	
+	public String getAssignmentId(){
+		return this.assignmentId;
+	}
+	
+	public String getWorkerId(){
+		return this.workerId;
+	}
+	
+	public String getHITId(){
+		return this.hitId;
+	}
+	
+	public Status getStatus(){
+		return this.status;
+	}
+	
+	public Instant getAutoApprovalTime(){
+		return this.autoApprovalTime;
+	}
+	
+	public Instant getAcceptTime(){
+		return this.acceptTime;
+	}
+	
+	public Instant getSubmitTime(){
+		return this.submitTime;
+	}
+	
+	/*
+	 * null unless the assignment was approved
+	 */
+	public Instant getApprovalTime(){
+		return this.approvalTime;
+	}
+	
+	/*
+	 * null unless the assignment was rejected
+	 */
+	public Instant getRejectionTime(){
+		return this.rejectionTime;
+	}
+	
+	public String getRequesterFeedback(){
+		return this.requesterFeedback;
+	}
+	
+	/*
+	 * the QuestionFormAnswers document as submitted by the worker
+	 */
+	public String getAnswerXML(){
+		return this.answerXML;
+	}
+	
+	/*
+	 * every answer of the answer document in document order, parsed on first use
+	 */
+	public List<QuestionAnswer> getQuestionAnswers(){
+		List<QuestionAnswer> parsed = this.questionAnswers;
+		if(parsed == null){
+			if(this.answerXML == null){
+				parsed = Collections.emptyList();
+			}else{
+				try{
+					parsed = Collections.unmodifiableList(MTurkResponseParser.parseQuestionFormAnswers(this.answerXML));
+				}catch(XMLStreamException e){
+					throw new MTurkException("malformed answer of assignment " + this.assignmentId, e);
+				}
+			}
+			this.questionAnswers = parsed;
+		}
+		return parsed;
+	}
+	
+	/*
+	 * answer text per QuestionIdentifier, see MTurkResponseParser.parseAnswers
+	 */
+	public Map<String, String> getAnswers(){
+		return Collections.unmodifiableMap(MTurkResponseParser.toAnswerMap(this.getQuestionAnswers()));
+	}
+	
+	@Override
+	public String toString(){
+		return "Assignment[" + this.assignmentId + ", worker " + this.workerId + ", " + this.status + "]";
+	}
+}
@@ -0,0 +1,51 @@
+package com.cclo7;
+
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * One page of a GetAssignmentsForHIT result.
+ */
+public class AssignmentPage {
+	
+	private final String hitId;
+	private final int pageNumber;
+	private final int pageSize;
+	private final int totalNumResults;
+	private final List<Assignment> assignments;
+	
+	public AssignmentPage(String hitId, int pageNumber, int pageSize, int totalNumResults, List<Assignment> assignments){
+		this.hitId = hitId;
+		this.pageNumber = pageNumber;
+		this.pageSize = pageSize;
+		this.totalNumResults = totalNumResults;
+		this.assignments = Collections.unmodifiableList(assignments);
+	}
+	
+	public String getHITId(){
+		return this.hitId;
+	}
+	
+	/*
+	 * 1-based
+	 */
+	public int getPageNumber(){
+		return this.pageNumber;
+	}
+	
+	public int getPageSize(){
+		return this.pageSize;
+	}
+	
+	public int getTotalNumResults(){
+		return this.totalNumResults;
+	}
+	
+	public List<Assignment> getAssignments(){
+		return this.assignments;
+	}
+	
+	public boolean hasNextPage(){
+		return (long) this.pageNumber * this.pageSize < this.totalNumResults;
+	}
+}
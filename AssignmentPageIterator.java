@@ -0,0 +1,72 @@
+package com.cclo7;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/*
+ * Walks the GetAssignmentsForHIT pages of one HIT lazily.
+ * 
+ * While the assignments of a page are consumed the next page is already being fetched
+ * on the client's internal executor, so at most two pages are held in memory at any time.
+ * The iterator may be consumed by a task running on the client executor.
+ */
+class AssignmentPageIterator implements Iterator<Assignment> {
+	
+	private final AmazonMTurkClient client;
+	private final String hitId;
+	private final int pageSize;
+	
+	private Iterator<Assignment> current = Collections.<Assignment>emptyList().iterator();
+	private CompletableFuture<AssignmentPage> nextPage;
+	
+	AssignmentPageIterator(AmazonMTurkClient client, String hitId, int pageSize){
+		this.client = client;
+		this.hitId = hitId;
+		this.pageSize = pageSize;
+		this.nextPage = client.prefetchAssignmentsForHITPage(hitId, 1, pageSize);
+	}
+	
+	public boolean hasNext(){
+		while(!this.current.hasNext()){
+			if(this.nextPage == null){
+				return false;
+			}
+			
+			AssignmentPage page = this.await(this.nextPage);
+			if(page.hasNextPage()){
+				this.nextPage = this.client.prefetchAssignmentsForHITPage(this.hitId, page.getPageNumber() + 1, 
+						this.pageSize);
+			}else{
+				this.nextPage = null;
+			}
+			this.current = page.getAssignments().iterator();
+		}
+		return true;
+	}
+	
+	public Assignment next(){
+		if(!this.hasNext()){
+			throw new NoSuchElementException();
+		}
+		return this.current.next();
+	}
+	
+	public void remove(){
+		throw new UnsupportedOperationException();
+	}
+	
+	private AssignmentPage await(CompletableFuture<AssignmentPage> page){
+		try{
+			return page.join();
+		}catch(CompletionException e){
+			this.nextPage = null;
+			if(e.getCause() instanceof MTurkException){
+				throw (MTurkException) e.getCause();
+			}
+			throw new MTurkException("GetAssignmentsForHIT failed for HIT " + this.hitId, e.getCause());
+		}
+	}
+}
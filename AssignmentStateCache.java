@@ -0,0 +1,180 @@
+package com.cclo7;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Remembers the last known status of assignments so that repeated polls only surface new or changed
+ * assignments and review calls on assignments already approved or rejected can be skipped.
+ * 
+ * Memory is bounded by maxEntries (least recently used assignments are evicted first) and entries 
+ * older than ttlMillis are treated as unknown. All methods are thread safe.
+ */
+public class AssignmentStateCache {
+	
+	public static final int DEFAULT_MAX_ENTRIES = 100000;
+	public static final long DEFAULT_TTL_MILLIS = 24L * 60 * 60 * 1000;
+	
+	private final int maxEntries;
+	private final long ttlMillis;
+	private final LinkedHashMap<String, Entry> entries;
+	private final Map<String, Set<String>> assignmentsByHIT = new HashMap<String, Set<String>>();
+	
+	public AssignmentStateCache(int maxEntries, long ttlMillis){
+		if(maxEntries < 1){
+			throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+		}
+		this.maxEntries = maxEntries;
+		this.ttlMillis = ttlMillis;
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	}
+	
+	public AssignmentStateCache(){
+		this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MILLIS);
+	}
+	
+	/*
+	 * Stores the assignment status, returns true if the assignment was unknown or its status changed.
+	 */
+	public synchronized boolean update(Assignment assignment){
+		Assignment.Status previous = this.getStatus(assignment.getAssignmentId());
+		this.put(assignment.getAssignmentId(), assignment.getHITId(), assignment.getStatus());
+		return previous == null || previous != assignment.getStatus();
+	}
+	
+	/*
+	 * Reads every assignment, then passes them through update and returns those that are new or changed.
+	 * If the iterator fails (e.g. a page fetch throws MTurkException) the cache is left untouched,
+	 * so the next poll reports the same assignments again.
+	 */
+	public List<Assignment> filterNewOrChanged(Iterator<Assignment> assignments){
+		List<Assignment> fetched = new ArrayList<Assignment>();
+		while(assignments.hasNext()){
+			fetched.add(assignments.next());
+		}
+		
+		List<Assignment> changed = new ArrayList<Assignment>();
+		synchronized(this){
+			for(Assignment assignment : fetched){
+				if(this.update(assignment)){
+					changed.add(assignment);
+				}
+			}
+		}
+		return changed;
+	}
+	
+	/*
+	 * records the outcome of a review call, hitId may be null when not known
+	 */
+	public synchronized void recordStatus(String assignmentId, String hitId, Assignment.Status status){
+		Entry entry = this.entries.get(assignmentId);
+		this.put(assignmentId, hitId != null || entry == null ? hitId : entry.hitId, status);
+	}
+	
+	/*
+	 * null when the assignment is unknown or its entry expired
+	 */
+	public synchronized Assignment.Status getStatus(String assignmentId){
+		Entry entry = this.entries.get(assignmentId);
+		if(entry == null){
+			return null;
+		}
+		if(System.currentTimeMillis() - entry.updatedAtMillis > this.ttlMillis){
+			this.remove(assignmentId);
+			return null;
+		}
+		return entry.status;
+	}
+	
+	/*
+	 * true if the assignment is known to be approved or rejected
+	 */
+	public boolean isFinal(String assignmentId){
+		Assignment.Status status = this.getStatus(assignmentId);
+		return status == Assignment.Status.APPROVED || status == Assignment.Status.REJECTED;
+	}
+	
+	public synchronized int getAssignmentCount(String hitId){
+		Set<String> assignmentIds = this.assignmentsByHIT.get(hitId);
+		return assignmentIds == null ? 0 : assignmentIds.size();
+	}
+	
+	public synchronized void invalidate(String assignmentId){
+		this.remove(assignmentId);
+	}
+	
+	public synchronized void invalidateHIT(String hitId){
+		Set<String> assignmentIds = this.assignmentsByHIT.remove(hitId);
+		if(assignmentIds != null){
+			for(String assignmentId : assignmentIds){
+				this.entries.remove(assignmentId);
+			}
+		}
+	}
+	
+	public synchronized int size(){
+		return this.entries.size();
+	}
+	
+	private void put(String assignmentId, String hitId, Assignment.Status status){
+		Entry previous = this.entries.put(assignmentId, new Entry(hitId, status, System.currentTimeMillis()));
+		if(previous != null && previous.hitId != null && !previous.hitId.equals(hitId)){
+			this.unindex(previous.hitId, assignmentId);
+		}
+		if(hitId != null){
+			Set<String> assignmentIds = this.assignmentsByHIT.get(hitId);
+			if(assignmentIds == null){
+				assignmentIds = new HashSet<String>();
+				this.assignmentsByHIT.put(hitId, assignmentIds);
+			}
+			assignmentIds.add(assignmentId);
+		}
+		
+		if(this.entries.size() > this.maxEntries){
+			Iterator<Map.Entry<String, Entry>> eldest = this.entries.entrySet().iterator();
+			Map.Entry<String, Entry> evicted = eldest.next();
+			eldest.remove();
+			this.unindex(evicted.getValue().hitId, evicted.getKey());
+		}
+	}
+	
+	private void remove(String assignmentId){
+		Entry entry = this.entries.remove(assignmentId);
+		if(entry != null){
+			this.unindex(entry.hitId, assignmentId);
+		}
+	}
+	
+	private void unindex(String hitId, String assignmentId){
+		if(hitId == null){
+			return;
+		}
+		Set<String> assignmentIds = this.assignmentsByHIT.get(hitId);
+		if(assignmentIds != null){
+			assignmentIds.remove(assignmentId);
+			if(assignmentIds.isEmpty()){
+				this.assignmentsByHIT.remove(hitId);
+			}
+		}
+	}
+	
+	private static class Entry {
+		
+		final String hitId;
+		final Assignment.Status status;
+		final long updatedAtMillis;
+		
+		Entry(String hitId, Assignment.Status status, long updatedAtMillis){
+			this.hitId = hitId;
+			this.status = status;
+			this.updatedAtMillis = updatedAtMillis;
+		}
+	}
+}
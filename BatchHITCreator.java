@@ -0,0 +1,149 @@
+package com.cclo7;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/*
+ * Creates many HITs that share title, description, reward, durations and qualification.
+ * 
+ * The shared properties are registered once as a HIT type, then one CreateHIT call per question
+ * is issued through the asynchronous client with at most maxParallelism calls in flight. Questions
+ * are pulled from the iterator only as slots free up, so the batch does not need to fit in memory;
+ * overall throughput is then bounded by the client rate limiters rather than by round trips.
+ */
+public class BatchHITCreator {
+	
+	public static final int DEFAULT_MAX_PARALLELISM = PooledHttpTransport.DEFAULT_MAX_CONNECTIONS;
+	
+	private final AmazonMTurkClient client;
+	private final String title;
+	private final String description;
+	private final double rewardAmt;
+	private final long assignmentDurationInSeconds;
+	private final long autoApprovalDelayInSeconds;
+	private final QualificationRequirement qualificationRequirement;
+	private final long maxAssignments;
+	private final long lifetimeInSeconds;
+	private final int maxParallelism;
+	
+	private volatile ProgressListener progressListener;
+	private String hitTypeId;
+	
+	public BatchHITCreator(AmazonMTurkClient client, String title, String description, double rewardAmt,
+			long maxAssignments, long assignmentDurationInSeconds, long lifetimeInSeconds,
+			long autoApprovalDelayInSeconds, QualificationRequirement qualificationRequirement, int maxParallelism){
+		if(maxParallelism < 1){
+			throw new IllegalArgumentException("maxParallelism must be positive: " + maxParallelism);
+		}
+		this.client = client;
+		this.title = title;
+		this.description = description;
+		this.rewardAmt = rewardAmt;
+		this.maxAssignments = maxAssignments;
+		this.assignmentDurationInSeconds = assignmentDurationInSeconds;
+		this.lifetimeInSeconds = lifetimeInSeconds;
+		this.autoApprovalDelayInSeconds = autoApprovalDelayInSeconds;
+		this.qualificationRequirement = qualificationRequirement;
+		this.maxParallelism = maxParallelism;
+	}
+	
+	public void setProgressListener(ProgressListener progressListener){
+		this.progressListener = progressListener;
+	}
+	
+	/*
+	 * Registers the HIT type on first use and returns its id; later batches reuse it.
+	 */
+	public synchronized String getHITTypeId(){
+		if(this.hitTypeId == null){
+			this.hitTypeId = this.client.registerHITTypeResult(this.title, this.description, this.rewardAmt,
+					this.assignmentDurationInSeconds, this.autoApprovalDelayInSeconds, this.qualificationRequirement)
+					.getValueOrThrow();
+		}
+		return this.hitTypeId;
+	}
+	
+	public BatchHITReport createHITs(Iterable<String> questions) throws InterruptedException {
+		return this.createHITs(questions.iterator());
+	}
+	
+	/*
+	 * blocks until a HIT has been created or has failed for every question
+	 */
+	public BatchHITReport createHITs(Iterator<String> questions) throws InterruptedException {
+		final String typeId = this.getHITTypeId();
+		final ConcurrentLinkedQueue<HITCreationResult> results = new ConcurrentLinkedQueue<HITCreationResult>();
+		final Semaphore inFlight = new Semaphore(this.maxParallelism);
+		final AtomicInteger completed = new AtomicInteger(0);
+		final AtomicInteger succeeded = new AtomicInteger(0);
+		final ProgressListener listener = this.progressListener;
+		
+		long start = System.currentTimeMillis();
+		int index = 0;
+		while(questions.hasNext()){
+			String question = questions.next();
+			inFlight.acquire();
+			
+			final int position = index++;
+			CompletableFuture<MTurkResult<CreatedHIT>> future;
+			try{
+				future = this.client.createHITWithHITTypeResultAsync(typeId, question, this.maxAssignments, 
+						this.lifetimeInSeconds);
+			}catch(RuntimeException e){
+				future = new CompletableFuture<MTurkResult<CreatedHIT>>();
+				future.completeExceptionally(e);
+			}
+			
+			future.whenComplete(new BiConsumer<MTurkResult<CreatedHIT>, Throwable>(){
+				public void accept(MTurkResult<CreatedHIT> response, Throwable error){
+					HITCreationResult result;
+					if(error != null){
+						result = new HITCreationResult(position, null, typeId, null, String.valueOf(error));
+					}else if(!response.isSuccess()){
+						result = new HITCreationResult(position, typeId, response.getError());
+					}else{
+						CreatedHIT hit = response.getValue();
+						result = new HITCreationResult(position, hit.getHITId(), hit.getHITTypeId(), 
+								hit.getPreviewUrl(), null);
+						succeeded.incrementAndGet();
+					}
+					results.add(result);
+					
+					int done = completed.incrementAndGet();
+					try{
+						if(listener != null){
+							int success = succeeded.get();
+							listener.onProgress(done, success, done - success);
+						}
+					}catch(RuntimeException e){
+						e.printStackTrace();
+					}finally{
+						//a failing listener must not keep createHITs waiting for the slot
+						inFlight.release();
+					}
+				}
+			});
+		}
+		
+		//all calls have finished once every slot is free again
+		inFlight.acquire(this.maxParallelism);
+		inFlight.release(this.maxParallelism);
+		long elapsed = System.currentTimeMillis() - start;
+		
+		List<HITCreationResult> ordered = new ArrayList<HITCreationResult>(results);
+		Collections.sort(ordered, new Comparator<HITCreationResult>(){
+			public int compare(HITCreationResult a, HITCreationResult b){
+				return a.getIndex() < b.getIndex() ? -1 : (a.getIndex() == b.getIndex() ? 0 : 1);
+			}
+		});
+		return new BatchHITReport(typeId, ordered, elapsed);
+	}
+}
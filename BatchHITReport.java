@@ -0,0 +1,67 @@
+package com.cclo7;
+
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Per-HIT results of a batch creation run, ordered like the submitted questions.
+ */
+public class BatchHITReport {
+	
+	private final String hitTypeId;
+	private final List<HITCreationResult> results;
+	private final long elapsedMillis;
+	private final int successCount;
+	
+	public BatchHITReport(String hitTypeId, List<HITCreationResult> results, long elapsedMillis){
+		this.hitTypeId = hitTypeId;
+		this.results = Collections.unmodifiableList(results);
+		this.elapsedMillis = elapsedMillis;
+		
+		int success = 0;
+		for(HITCreationResult result : results){
+			if(result.isSuccess()){
+				success++;
+			}
+		}
+		this.successCount = success;
+	}
+	
+	public String getHITTypeId(){
+		return this.hitTypeId;
+	}
+	
+	public List<HITCreationResult> getResults(){
+		return this.results;
+	}
+	
+	public int getTotalCount(){
+		return this.results.size();
+	}
+	
+	public int getSuccessCount(){
+		return this.successCount;
+	}
+	
+	public int getFailureCount(){
+		return this.results.size() - this.successCount;
+	}
+	
+	public long getElapsedMillis(){
+		return this.elapsedMillis;
+	}
+	
+	public double getHITsPerSecond(){
+		if(this.elapsedMillis == 0){
+			return this.results.size();
+		}
+		return this.results.size() * 1000.0 / this.elapsedMillis;
+	}
+	
+	@Override
+	public String toString(){
+		return String.format("%d HITs of type %s in %d ms (%.1f/s): %d created, %d failed",
+				this.results.size(), this.hitTypeId, this.elapsedMillis, this.getHITsPerSecond(),
+				this.successCount, this.getFailureCount());
+	}
+}
@@ -0,0 +1,172 @@
+package com.cclo7;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Runs at most maxConcurrent of its tasks at a time on a shared executor, queueing the rest in
+ * its own FIFO queue. Tasks waiting for their budget never hold a thread of the shared executor,
+ * so one busy BoundedExecutor cannot occupy the threads another one needs.
+ * 
+ * shutdown() only stops this view; the shared executor is left running.
+ */
+class BoundedExecutor extends AbstractExecutorService {
+	
+	private final Executor sharedExecutor;
+	private int maxConcurrent;
+	private final Queue<Runnable> queue = new ArrayDeque<Runnable>();
+	private int running = 0;
+	private boolean isShutdown = false;
+	
+	BoundedExecutor(Executor sharedExecutor, int maxConcurrent){
+		if(maxConcurrent < 1){
+			throw new IllegalArgumentException("maxConcurrent must be positive: " + maxConcurrent);
+		}
+		this.sharedExecutor = sharedExecutor;
+		this.maxConcurrent = maxConcurrent;
+	}
+	
+	public void execute(Runnable task){
+		synchronized(this){
+			if(this.isShutdown){
+				throw new RejectedExecutionException("executor has been shut down");
+			}
+			if(this.running >= this.maxConcurrent){
+				this.queue.add(task);
+				return;
+			}
+			this.running++;
+		}
+		
+		try{
+			this.dispatch(task);
+		}catch(RejectedExecutionException e){
+			this.onTaskDone();
+			throw e;
+		}
+	}
+	
+	public synchronized int getQueueSize(){
+		return this.queue.size();
+	}
+	
+	public synchronized int getRunningCount(){
+		return this.running;
+	}
+	
+	public synchronized int getMaxConcurrent(){
+		return this.maxConcurrent;
+	}
+	
+	/*
+	 * Tasks already running keep running when the budget is lowered; queued tasks start once the
+	 * running count is below the new budget.
+	 */
+	void setMaxConcurrent(int maxConcurrent){
+		if(maxConcurrent < 1){
+			throw new IllegalArgumentException("maxConcurrent must be positive: " + maxConcurrent);
+		}
+		synchronized(this){
+			this.maxConcurrent = maxConcurrent;
+		}
+		
+		while(true){
+			Runnable next;
+			synchronized(this){
+				if(this.running >= this.maxConcurrent){
+					return;
+				}
+				next = this.queue.poll();
+				if(next == null){
+					return;
+				}
+				this.running++;
+			}
+			
+			try{
+				this.dispatch(next);
+			}catch(RejectedExecutionException e){
+				//the shared executor is shutting down, the task is dropped
+				this.onTaskDone();
+				e.printStackTrace();
+				return;
+			}
+		}
+	}
+	
+	public synchronized void shutdown(){
+		this.isShutdown = true;
+		this.notifyAll();
+	}
+	
+	public synchronized List<Runnable> shutdownNow(){
+		this.isShutdown = true;
+		List<Runnable> pending = new ArrayList<Runnable>(this.queue);
+		this.queue.clear();
+		this.notifyAll();
+		return pending;
+	}
+	
+	public synchronized boolean isShutdown(){
+		return this.isShutdown;
+	}
+	
+	public synchronized boolean isTerminated(){
+		return this.isShutdown && this.running == 0 && this.queue.isEmpty();
+	}
+	
+	public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while(!this.isTerminated()){
+			long remaining = deadline - System.nanoTime();
+			if(remaining <= 0){
+				return false;
+			}
+			TimeUnit.NANOSECONDS.timedWait(this, remaining);
+		}
+		return true;
+	}
+	
+	private void dispatch(final Runnable task){
+		this.sharedExecutor.execute(new Runnable(){
+			public void run(){
+				try{
+					task.run();
+				}finally{
+					onTaskDone();
+				}
+			}
+		});
+	}
+	
+	/*
+	 * hands the freed slot to the next queued task, if any
+	 */
+	private void onTaskDone(){
+		while(true){
+			Runnable next;
+			synchronized(this){
+				next = this.queue.poll();
+				if(next == null){
+					this.running--;
+					this.notifyAll();
+					return;
+				}
+			}
+			
+			try{
+				this.dispatch(next);
+				return;
+			}catch(RejectedExecutionException e){
+				//the shared executor is shutting down, the task is dropped
+				e.printStackTrace();
+			}
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package com.cclo7;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+
+/*
+ * Runs approve, reject and bonus decisions concurrently through the asynchronous client operations.
+ * At most maxParallelism decisions are in flight at any time; submission blocks until a slot frees up,
+ * so arbitrarily large batches never queue more than that on the client executor.
+ * 
+ * Bonuses are sent with the decision's UniqueRequestToken: resubmitting decisions that ended in a
+ * retryable failure cannot pay a bonus twice, even when the first request reached the service.
+ */
+public class BulkReviewEngine {
+	
+	public static final int DEFAULT_MAX_PARALLELISM = PooledHttpTransport.DEFAULT_MAX_CONNECTIONS;
+	
+	private final AmazonMTurkClient client;
+	private final int maxParallelism;
+	
+	public BulkReviewEngine(AmazonMTurkClient client, int maxParallelism){
+		if(maxParallelism < 1){
+			throw new IllegalArgumentException("maxParallelism must be positive: " + maxParallelism);
+		}
+		this.client = client;
+		this.maxParallelism = maxParallelism;
+	}
+	
+	public BulkReviewEngine(AmazonMTurkClient client){
+		this(client, DEFAULT_MAX_PARALLELISM);
+	}
+	
+	/*
+	 * blocks until every decision has completed
+	 */
+	public BulkReviewReport review(Collection<ReviewDecision> decisions) throws InterruptedException {
+		final ReviewResult[] results = new ReviewResult[decisions.size()];
+		final CountDownLatch done = new CountDownLatch(results.length);
+		final Semaphore inFlight = new Semaphore(this.maxParallelism);
+		
+		long start = System.currentTimeMillis();
+		int index = 0;
+		for(final ReviewDecision decision : decisions){
+			inFlight.acquire();
+			
+			final int position = index++;
+			final long itemStart = System.currentTimeMillis();
+			CompletableFuture<MTurkResult<Void>> future;
+			try{
+				future = this.submit(decision);
+			}catch(RuntimeException e){
+				//executor rejected the task
+				future = new CompletableFuture<MTurkResult<Void>>();
+				future.completeExceptionally(e);
+			}
+			
+			future.whenComplete(new BiConsumer<MTurkResult<Void>, Throwable>(){
+				public void accept(MTurkResult<Void> result, Throwable error){
+					long elapsed = System.currentTimeMillis() - itemStart;
+					results[position] = toResult(decision, result, error, elapsed);
+					inFlight.release();
+					done.countDown();
+				}
+			});
+		}
+		
+		done.await();
+		long elapsed = System.currentTimeMillis() - start;
+		return new BulkReviewReport(new ArrayList<ReviewResult>(Arrays.asList(results)), elapsed);
+	}
+	
+	private CompletableFuture<MTurkResult<Void>> submit(ReviewDecision decision){
+		switch(decision.getAction()){
+			case APPROVE:
+				return this.client.approveAssignmentResultAsync(decision.getAssignmentId());
+			case REJECT:
+				return this.client.rejectAssignmentResultAsync(decision.getAssignmentId(), decision.getReason());
+			case GRANT_BONUS:
+				return this.client.grantBonusResultAsync(decision.getWorkerId(), decision.getAssignmentId(),
+						decision.getBonusAmt(), decision.getReason(), decision.getUniqueRequestToken());
+			default:
+				throw new IllegalArgumentException("unknown review action: " + decision.getAction());
+		}
+	}
+	
+	/*
+	 * Service errors are classified by their MTurkError; a failure to run the call at all 
+	 * (executor rejection or an unexpected exception) can be retried.
+	 */
+	private static ReviewResult toResult(ReviewDecision decision, MTurkResult<Void> result, Throwable error, 
+			long elapsed){
+		if(error != null){
+			return new ReviewResult(decision, ReviewResult.Status.RETRYABLE_FAILURE, String.valueOf(error), elapsed);
+		}
+		return new ReviewResult(decision, result, elapsed);
+	}
+}
@@ -0,0 +1,112 @@
+package com.cclo7;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Per-item results and throughput statistics of a bulk review run.
+ * Results are in the same order as the submitted decisions.
+ */
+public class BulkReviewReport {
+	
+	private final List<ReviewResult> results;
+	private final long elapsedMillis;
+	private final int successCount;
+	private final int retryableFailureCount;
+	private final int permanentFailureCount;
+	private final long totalItemMillis;
+	private final long maxItemMillis;
+	
+	public BulkReviewReport(List<ReviewResult> results, long elapsedMillis){
+		this.results = Collections.unmodifiableList(results);
+		this.elapsedMillis = elapsedMillis;
+		
+		int success = 0;
+		int retryable = 0;
+		int permanent = 0;
+		long total = 0;
+		long max = 0;
+		for(ReviewResult result : results){
+			switch(result.getStatus()){
+				case SUCCESS:
+					success++;
+					break;
+				case RETRYABLE_FAILURE:
+					retryable++;
+					break;
+				default:
+					permanent++;
+			}
+			total += result.getElapsedMillis();
+			max = Math.max(max, result.getElapsedMillis());
+		}
+		this.successCount = success;
+		this.retryableFailureCount = retryable;
+		this.permanentFailureCount = permanent;
+		this.totalItemMillis = total;
+		this.maxItemMillis = max;
+	}
+	
+	public List<ReviewResult> getResults(){
+		return this.results;
+	}
+	
+	/*
+	 * decisions that failed transiently and can be passed to the engine again
+	 */
+	public List<ReviewDecision> getRetryableDecisions(){
+		List<ReviewDecision> decisions = new ArrayList<ReviewDecision>(this.retryableFailureCount);
+		for(ReviewResult result : this.results){
+			if(result.getStatus() == ReviewResult.Status.RETRYABLE_FAILURE){
+				decisions.add(result.getDecision());
+			}
+		}
+		return decisions;
+	}
+	
+	public int getTotalCount(){
+		return this.results.size();
+	}
+	
+	public int getSuccessCount(){
+		return this.successCount;
+	}
+	
+	public int getRetryableFailureCount(){
+		return this.retryableFailureCount;
+	}
+	
+	public int getPermanentFailureCount(){
+		return this.permanentFailureCount;
+	}
+	
+	public long getElapsedMillis(){
+		return this.elapsedMillis;
+	}
+	
+	public double getItemsPerSecond(){
+		if(this.elapsedMillis == 0){
+			return this.results.size();
+		}
+		return this.results.size() * 1000.0 / this.elapsedMillis;
+	}
+	
+	public double getAverageItemMillis(){
+		if(this.results.isEmpty()){
+			return 0;
+		}
+		return (double) this.totalItemMillis / this.results.size();
+	}
+	
+	public long getMaxItemMillis(){
+		return this.maxItemMillis;
+	}
+	
+	@Override
+	public String toString(){
+		return String.format("%d decisions in %d ms (%.1f/s): %d succeeded, %d retryable, %d permanent failures",
+				this.results.size(), this.elapsedMillis, this.getItemsPerSecond(), 
+				this.successCount, this.retryableFailureCount, this.permanentFailureCount);
+	}
+}
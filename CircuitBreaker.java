@@ -0,0 +1,95 @@
+package com.cclo7;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Fails requests fast while the endpoint is degraded, set through MTurkClientConfig.setCircuitBreaker.
+ * 
+ * After failureThreshold consecutive failed attempts (no response, deadline exceeded or a server
+ * failure) the breaker opens and requests are answered with CircuitOpen without being sent. Once
+ * openMillis have passed a single probe request is let through: success closes the breaker,
+ * failure opens it for another openMillis. Throttling and client errors are not failures, the
+ * endpoint did answer. One breaker may be shared by the clients of the same endpoint.
+ */
+public class CircuitBreaker {
+	
+	public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+	public static final long DEFAULT_OPEN_MILLIS = 30000;
+	
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+	
+	private final int failureThreshold;
+	private final long openNanos;
+	
+	private State state = State.CLOSED;
+	private int consecutiveFailures = 0;
+	private long openedNanos;
+	private long probeNanos;
+	private long rejectedCount = 0;
+	
+	public CircuitBreaker(int failureThreshold, long openMillis){
+		if(failureThreshold < 1){
+			throw new IllegalArgumentException("failureThreshold must be positive: " + failureThreshold);
+		}
+		this.failureThreshold = failureThreshold;
+		this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+	}
+	
+	public CircuitBreaker(){
+		this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS);
+	}
+	
+	/*
+	 * false when the attempt must not be sent; true lets it through and, when the open period
+	 * is over, makes it the probe
+	 */
+	public synchronized boolean allowRequest(){
+		long now = System.nanoTime();
+		switch(this.state){
+		case CLOSED:
+			return true;
+		case OPEN:
+			if(now - this.openedNanos >= this.openNanos){
+				this.state = State.HALF_OPEN;
+				this.probeNanos = now;
+				return true;
+			}
+			break;
+		case HALF_OPEN:
+			//a probe that never reported back (e.g. interrupted caller) is replaced
+			if(now - this.probeNanos >= this.openNanos){
+				this.probeNanos = now;
+				return true;
+			}
+			break;
+		}
+		this.rejectedCount++;
+		return false;
+	}
+	
+	public synchronized void onSuccess(){
+		this.consecutiveFailures = 0;
+		this.state = State.CLOSED;
+	}
+	
+	public synchronized void onFailure(){
+		this.consecutiveFailures++;
+		if(this.state == State.HALF_OPEN || this.consecutiveFailures >= this.failureThreshold){
+			this.state = State.OPEN;
+			this.openedNanos = System.nanoTime();
+		}
+	}
+	
+	public synchronized State getState(){
+		return this.state;
+	}
+	
+	/*
+	 * requests answered with CircuitOpen
+	 */
+	public synchronized long getRejectedCount(){
+		return this.rejectedCount;
+	}
+}
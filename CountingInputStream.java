@@ -0,0 +1,51 @@
+package com.cclo7;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/*
+ * Counts the bytes read through it, used for the bytes received metric.
+ */
+class CountingInputStream extends FilterInputStream {
+	
+	private long count = 0;
+	
+	CountingInputStream(InputStream in){
+		super(in);
+	}
+	
+	long getCount(){
+		return this.count;
+	}
+	
+	@Override
+	public int read() throws IOException {
+		int b = this.in.read();
+		if(b != -1){
+			this.count++;
+		}
+		return b;
+	}
+	
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		int read = this.in.read(buffer, offset, length);
+		if(read > 0){
+			this.count += read;
+		}
+		return read;
+	}
+	
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = this.in.skip(n);
+		this.count += skipped;
+		return skipped;
+	}
+	
+	@Override
+	public boolean markSupported(){
+		return false;
+	}
+}
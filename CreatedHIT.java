@@ -0,0 +1,37 @@
+package com.cclo7;
+
+/*
+ * A HIT returned by CreateHIT.
+ */
+public final class CreatedHIT {
+	
+	private final String hitId;
+	private final String hitTypeId;
+	private final String previewUrl;
+	
+	public CreatedHIT(String hitId, String hitTypeId, String previewUrl){
+		this.hitId = hitId;
+		this.hitTypeId = hitTypeId;
+		this.previewUrl = previewUrl;
+	}
+	
+	public String getHITId(){
+		return this.hitId;
+	}
+	
+	public String getHITTypeId(){
+		return this.hitTypeId;
+	}
+	
+	/*
+	 * worker preview page of the HIT group
+	 */
+	public String getPreviewUrl(){
+		return this.previewUrl;
+	}
+	
+	@Override
+	public String toString(){
+		return this.hitId + " (" + this.hitTypeId + ")";
+	}
+}
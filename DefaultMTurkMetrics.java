@@ -0,0 +1,104 @@
+package com.cclo7;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/*
+ * In-memory MTurkMetrics keeping one OperationStats per operation name, optionally exposed over JMX
+ * as com.cclo7:type=MTurkClient,name=<clientName>,operation=<operation>.
+ */
+public class DefaultMTurkMetrics implements MTurkMetrics {
+	
+	private final ConcurrentMap<String, OperationStats> stats = new ConcurrentHashMap<String, OperationStats>();
+	private volatile String jmxClientName;
+	
+	public void requestStarted(String operation){
+		this.getOperationStats(operation).started();
+	}
+	
+	public void requestCompleted(String operation, long latencyNanos, int attempts, String errorCode,
+			long bytesSent, long bytesReceived){
+		this.getOperationStats(operation).completed(latencyNanos, attempts, errorCode, bytesSent, bytesReceived);
+	}
+	
+	public OperationStats getOperationStats(String operation){
+		OperationStats operationStats = this.stats.get(operation);
+		if(operationStats == null){
+			OperationStats created = new OperationStats(operation);
+			operationStats = this.stats.putIfAbsent(operation, created);
+			if(operationStats == null){
+				operationStats = created;
+				this.register(created);
+			}
+		}
+		return operationStats;
+	}
+	
+	public Collection<OperationStats> getAllOperationStats(){
+		return new ArrayList<OperationStats>(this.stats.values());
+	}
+	
+	/*
+	 * Registers the stats of every operation seen so far, and of every later one, with the platform MBean server.
+	 */
+	public void registerMBeans(String clientName){
+		this.jmxClientName = clientName;
+		for(OperationStats operationStats : this.stats.values()){
+			this.register(operationStats);
+		}
+	}
+	
+	public void unregisterMBeans(){
+		String clientName = this.jmxClientName;
+		if(clientName == null){
+			return;
+		}
+		this.jmxClientName = null;
+		
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		List<OperationStats> all = new ArrayList<OperationStats>(this.stats.values());
+		for(OperationStats operationStats : all){
+			try{
+				ObjectName name = objectName(clientName, operationStats.getOperation());
+				if(server.isRegistered(name)){
+					server.unregisterMBean(name);
+				}
+			}catch(JMException e){
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	private void register(OperationStats operationStats){
+		String clientName = this.jmxClientName;
+		if(clientName == null){
+			return;
+		}
+		
+		try{
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = objectName(clientName, operationStats.getOperation());
+			if(!server.isRegistered(name)){
+				server.registerMBean(operationStats, name);
+			}
+		}catch(InstanceAlreadyExistsException e){
+			//registered concurrently by registerMBeans
+		}catch(JMException e){
+			e.printStackTrace();
+		}
+	}
+	
+	private static ObjectName objectName(String clientName, String operation) throws JMException {
+		return new ObjectName("com.cclo7:type=MTurkClient,name=" + ObjectName.quote(clientName) 
+				+ ",operation=" + operation);
+	}
+}
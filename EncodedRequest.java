@@ -0,0 +1,121 @@
+package com.cclo7;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/*
+ * Form/query encoded request parameters in a growable byte buffer.
+ * 
+ * The parameters that stay the same between retries are encoded once and marked as fixed;
+ * each attempt only truncates back to the mark and appends its Timestamp and Signature.
+ * Values are percent-encoded straight into the buffer (same rules as URLEncoder with UTF-8).
+ * Not thread safe, one instance belongs to one call.
+ */
+class EncodedRequest {
+	
+	private static final Charset US_ASCII = Charset.forName("US-ASCII");
+	private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes(US_ASCII);
+	private static final int DEFAULT_CAPACITY = 512;
+	
+	private byte[] buffer;
+	private int length = 0;
+	private int fixedLength = 0;
+	
+	EncodedRequest(int capacityHint){
+		this.buffer = new byte[Math.max(capacityHint, DEFAULT_CAPACITY)];
+	}
+	
+	EncodedRequest append(String key, String value){
+		if(this.length > 0){
+			this.put((byte) '&');
+		}
+		this.encode(key);
+		this.put((byte) '=');
+		this.encode(value);
+		return this;
+	}
+	
+	/*
+	 * everything appended so far survives resetToFixed()
+	 */
+	void markFixed(){
+		this.fixedLength = this.length;
+	}
+	
+	void resetToFixed(){
+		this.length = this.fixedLength;
+	}
+	
+	byte[] getBuffer(){
+		return this.buffer;
+	}
+	
+	int getLength(){
+		return this.length;
+	}
+	
+	String toUrl(String serviceUrl){
+		StringBuilder url = new StringBuilder(serviceUrl.length() + 1 + this.length);
+		url.append(serviceUrl).append('?');
+		for(int i = 0; i < this.length; i++){
+			url.append((char) this.buffer[i]);
+		}
+		return url.toString();
+	}
+	
+	@Override
+	public String toString(){
+		return new String(this.buffer, 0, this.length, US_ASCII);
+	}
+	
+	private void encode(String s){
+		int n = s.length();
+		this.ensureCapacity(n);
+		
+		for(int i = 0; i < n; i++){
+			char c = s.charAt(i);
+			if((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+					|| c == '.' || c == '-' || c == '*' || c == '_'){
+				this.put((byte) c);
+			}else if(c == ' '){
+				this.put((byte) '+');
+			}else if(c < 0x80){
+				this.putEscaped(c);
+			}else if(c < 0x800){
+				this.putEscaped(0xC0 | (c >> 6));
+				this.putEscaped(0x80 | (c & 0x3F));
+			}else if(Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))){
+				int codePoint = Character.toCodePoint(c, s.charAt(++i));
+				this.putEscaped(0xF0 | (codePoint >> 18));
+				this.putEscaped(0x80 | ((codePoint >> 12) & 0x3F));
+				this.putEscaped(0x80 | ((codePoint >> 6) & 0x3F));
+				this.putEscaped(0x80 | (codePoint & 0x3F));
+			}else if(Character.isSurrogate(c)){
+				//unpaired surrogate, encoded as '?' like String.getBytes
+				this.putEscaped('?');
+			}else{
+				this.putEscaped(0xE0 | (c >> 12));
+				this.putEscaped(0x80 | ((c >> 6) & 0x3F));
+				this.putEscaped(0x80 | (c & 0x3F));
+			}
+		}
+	}
+	
+	private void putEscaped(int b){
+		this.ensureCapacity(3);
+		this.buffer[this.length++] = '%';
+		this.buffer[this.length++] = HEX_DIGITS[(b >> 4) & 0xF];
+		this.buffer[this.length++] = HEX_DIGITS[b & 0xF];
+	}
+	
+	private void put(byte b){
+		this.ensureCapacity(1);
+		this.buffer[this.length++] = b;
+	}
+	
+	private void ensureCapacity(int additional){
+		if(this.length + additional > this.buffer.length){
+			this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length * 2, this.length + additional));
+		}
+	}
+}
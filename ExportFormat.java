@@ -0,0 +1,127 @@
+package com.cclo7;
+
+import java.time.Instant;
+
+/*
+ * Row formats of AnswerExporter. Every row is one answer:
+ * hit_id, assignment_id, worker_id, assignment_status, accept_time, submit_time, question_identifier, 
+ * answer_type (FREE_TEXT, SELECTION, OTHER_SELECTION or UPLOADED_FILE), answer
+ */
+public enum ExportFormat {
+	
+	//RFC 4180 with a header line
+	CSV {
+		String header(){
+			return "hit_id,assignment_id,worker_id,assignment_status,accept_time,submit_time,question_identifier,answer_type,answer\r\n";
+		}
+		
+		void appendRow(StringBuilder out, Assignment assignment, String questionIdentifier, String answerType, 
+				String answer){
+			appendCsv(out, assignment.getHITId()).append(',');
+			appendCsv(out, assignment.getAssignmentId()).append(',');
+			appendCsv(out, assignment.getWorkerId()).append(',');
+			appendCsv(out, assignment.getStatus() != null ? assignment.getStatus().toString() : null).append(',');
+			appendCsv(out, format(assignment.getAcceptTime())).append(',');
+			appendCsv(out, format(assignment.getSubmitTime())).append(',');
+			appendCsv(out, questionIdentifier).append(',');
+			appendCsv(out, answerType).append(',');
+			appendCsv(out, answer).append("\r\n");
+		}
+	},
+	
+	//one JSON object per line, no header
+	JSON_LINES {
+		String header(){
+			return "";
+		}
+		
+		void appendRow(StringBuilder out, Assignment assignment, String questionIdentifier, String answerType, 
+				String answer){
+			out.append("{\"hit_id\":");
+			appendJson(out, assignment.getHITId());
+			out.append(",\"assignment_id\":");
+			appendJson(out, assignment.getAssignmentId());
+			out.append(",\"worker_id\":");
+			appendJson(out, assignment.getWorkerId());
+			out.append(",\"assignment_status\":");
+			appendJson(out, assignment.getStatus() != null ? assignment.getStatus().toString() : null);
+			out.append(",\"accept_time\":");
+			appendJson(out, format(assignment.getAcceptTime()));
+			out.append(",\"submit_time\":");
+			appendJson(out, format(assignment.getSubmitTime()));
+			out.append(",\"question_identifier\":");
+			appendJson(out, questionIdentifier);
+			out.append(",\"answer_type\":");
+			appendJson(out, answerType);
+			out.append(",\"answer\":");
+			appendJson(out, answer);
+			out.append("}\n");
+		}
+	};
+	
+	/*
+	 * written once at the start of an empty file
+	 */
+	abstract String header();
+	
+	abstract void appendRow(StringBuilder out, Assignment assignment, String questionIdentifier, String answerType,
+			String answer);
+	
+	private static String format(Instant time){
+		return time != null ? time.toString() : null;
+	}
+	
+	/*
+	 * null is written as an empty field
+	 */
+	private static StringBuilder appendCsv(StringBuilder out, String value){
+		if(value == null){
+			return out;
+		}
+		
+		boolean isQuoted = false;
+		for(int i = 0; i < value.length() && !isQuoted; i++){
+			char c = value.charAt(i);
+			isQuoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+		}
+		if(!isQuoted){
+			return out.append(value);
+		}
+		
+		out.append('"');
+		for(int i = 0; i < value.length(); i++){
+			char c = value.charAt(i);
+			if(c == '"'){
+				out.append('"');
+			}
+			out.append(c);
+		}
+		return out.append('"');
+	}
+	
+	private static void appendJson(StringBuilder out, String value){
+		if(value == null){
+			out.append("null");
+			return;
+		}
+		
+		out.append('"');
+		for(int i = 0; i < value.length(); i++){
+			char c = value.charAt(i);
+			switch(c){
+				case '"': out.append("\\\""); break;
+				case '\\': out.append("\\\\"); break;
+				case '\n': out.append("\\n"); break;
+				case '\r': out.append("\\r"); break;
+				case '\t': out.append("\\t"); break;
+				default:
+					if(c < 0x20){
+						out.append(String.format("\\u%04x", (int) c));
+					}else{
+						out.append(c);
+					}
+			}
+		}
+		out.append('"');
+	}
+}
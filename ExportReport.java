@@ -0,0 +1,60 @@
+package com.cclo7;
+
+import java.util.Collections;
+import java.util.Map;
+
+/*
+ * Outcome of an AnswerExporter run.
+ */
+public class ExportReport {
+	
+	private final int exportedHITs;
+	private final int skippedHITs;
+	private final long rows;
+	private final Map<String, String> failedHITs;
+	private final long elapsedMillis;
+	
+	public ExportReport(int exportedHITs, int skippedHITs, long rows, Map<String, String> failedHITs, 
+			long elapsedMillis){
+		this.exportedHITs = exportedHITs;
+		this.skippedHITs = skippedHITs;
+		this.rows = rows;
+		this.failedHITs = Collections.unmodifiableMap(failedHITs);
+		this.elapsedMillis = elapsedMillis;
+	}
+	
+	public int getExportedHITs(){
+		return this.exportedHITs;
+	}
+	
+	/*
+	 * HITs already recorded in the checkpoint of an earlier run
+	 */
+	public int getSkippedHITs(){
+		return this.skippedHITs;
+	}
+	
+	/*
+	 * rows written by this run
+	 */
+	public long getRows(){
+		return this.rows;
+	}
+	
+	/*
+	 * error message per HIT that could not be exported; running the export again retries them
+	 */
+	public Map<String, String> getFailedHITs(){
+		return this.failedHITs;
+	}
+	
+	public long getElapsedMillis(){
+		return this.elapsedMillis;
+	}
+	
+	@Override
+	public String toString(){
+		return String.format("%d HITs exported (%d rows), %d skipped, %d failed in %d ms",
+				this.exportedHITs, this.rows, this.skippedHITs, this.failedHITs.size(), this.elapsedMillis);
+	}
+}
@@ -0,0 +1,81 @@
+package com.cclo7;
+
+/*
+ * Outcome of creating one HIT of a batch.
+ */
+public class HITCreationResult {
+	
+	private final int index;
+	private final String hitId;
+	private final String hitTypeId;
+	private final String previewUrl;
+	private final String errorMessage;
+	private final MTurkError error;
+	
+	public HITCreationResult(int index, String hitId, String hitTypeId, String previewUrl, String errorMessage){
+		this.index = index;
+		this.hitId = hitId;
+		this.hitTypeId = hitTypeId;
+		this.previewUrl = previewUrl;
+		this.errorMessage = errorMessage;
+		this.error = null;
+	}
+	
+	/*
+	 * a HIT that MTurk did not create, or may have created without a response (see MTurkError.isRetryable)
+	 */
+	public HITCreationResult(int index, String hitTypeId, MTurkError error){
+		this.index = index;
+		this.hitId = null;
+		this.hitTypeId = hitTypeId;
+		this.previewUrl = null;
+		this.errorMessage = error.toString();
+		this.error = error;
+	}
+	
+	/*
+	 * position of the question in the submitted stream, 0-based
+	 */
+	public int getIndex(){
+		return this.index;
+	}
+	
+	public boolean isSuccess(){
+		return this.hitId != null;
+	}
+	
+	/*
+	 * null if the HIT could not be created
+	 */
+	public String getHITId(){
+		return this.hitId;
+	}
+	
+	public String getHITTypeId(){
+		return this.hitTypeId;
+	}
+	
+	public String getPreviewUrl(){
+		return this.previewUrl;
+	}
+	
+	/*
+	 * null for successfully created HITs
+	 */
+	public String getErrorMessage(){
+		return this.errorMessage;
+	}
+	
+	/*
+	 * the MTurk error behind the failure, null on success or when the call itself could not run;
+	 * only a retryable error means the question can be submitted again without a duplicate HIT
+	 */
+	public MTurkError getError(){
+		return this.error;
+	}
+	
+	@Override
+	public String toString(){
+		return "HIT #" + this.index + (this.isSuccess() ? " " + this.hitId : " failed: " + this.errorMessage);
+	}
+}
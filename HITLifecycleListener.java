@@ -0,0 +1,11 @@
+package com.cclo7;
+
+/*
+ * Receives the outcome of every action run by a HITLifecycleScheduler, including failures that are
+ * going to be retried. Called from the client executor or review threads, implementations must be thread safe 
+ * and return quickly.
+ */
+public interface HITLifecycleListener {
+	
+	void onActionCompleted(ScheduledHITAction action, MTurkResult<Void> result);
+}
@@ -0,0 +1,344 @@
+package com.cclo7;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/*
+ * Runs extend, expire, dispose and review actions on HITs at their due times.
+ * 
+ * Pending actions are kept in a priority queue ordered by due time, so a single scheduler thread
+ * sleeps until the earliest one is due and never rescans the live HITs; scheduling and cancelling
+ * cost O(log n). Every action due at a wake-up is dispatched as one batch through the asynchronous
+ * client operations with at most maxInFlight running, the client rate limiters pace the calls.
+ * 
+ * An action failing with a retryable error is retried after retryDelayMillis * attempt, up to
+ * maxAttempts. ExtendHIT adds to the HIT on every call, so an EXTEND is only sent again when the 
+ * failed call provably was not applied (throttling, service failure, circuit open), never after a 
+ * lost or abandoned response. Recurring reviews are scheduled again repeatIntervalMillis after each run.
+ * Cancelled actions are only marked and are dropped when they reach the head of the queue.
+ * 
+ * Reviews run the HITReviewHandler on the scheduler's own threads (at most maxInFlight), so a handler
+ * may wait for asynchronous client operations, e.g. through BulkReviewEngine, without starving the
+ * client executor.
+ */
+public class HITLifecycleScheduler {
+	
+	public static final int DEFAULT_MAX_IN_FLIGHT = PooledHttpTransport.DEFAULT_MAX_CONNECTIONS;
+	public static final int DEFAULT_MAX_ATTEMPTS = 3;
+	public static final long DEFAULT_RETRY_DELAY_MILLIS = 60000;
+	
+	private final AmazonMTurkClient client;
+	private final HITReviewHandler reviewHandler;
+	private final Semaphore inFlight;
+	private final ExecutorService reviewExecutor = MTurkExecutors.newCachedExecutor();
+	
+	//guarded by this
+	private final PriorityQueue<ScheduledHITAction> queue = new PriorityQueue<ScheduledHITAction>(1024, 
+			new Comparator<ScheduledHITAction>(){
+				public int compare(ScheduledHITAction a, ScheduledHITAction b){
+					if(a.getDueMillis() != b.getDueMillis()){
+						return a.getDueMillis() < b.getDueMillis() ? -1 : 1;
+					}
+					return Long.compare(a.getSequence(), b.getSequence());
+				}
+			});
+	//actions that are queued or running, per HIT
+	private final Map<String, List<ScheduledHITAction>> actionsByHIT = new HashMap<String, List<ScheduledHITAction>>();
+	private int pendingCount = 0;
+	private long nextSequence = 0;
+	private boolean isShutdown = false;
+	private Thread schedulerThread;
+	
+	private volatile int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+	private volatile long retryDelayMillis = DEFAULT_RETRY_DELAY_MILLIS;
+	private volatile HITLifecycleListener listener;
+	
+	/*
+	 * reviewHandler may be null when no REVIEW actions are scheduled
+	 */
+	public HITLifecycleScheduler(AmazonMTurkClient client, HITReviewHandler reviewHandler, int maxInFlight){
+		if(maxInFlight < 1){
+			throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+		}
+		this.client = client;
+		this.reviewHandler = reviewHandler;
+		this.inFlight = new Semaphore(maxInFlight);
+	}
+	
+	public HITLifecycleScheduler(AmazonMTurkClient client, HITReviewHandler reviewHandler){
+		this(client, reviewHandler, DEFAULT_MAX_IN_FLIGHT);
+	}
+	
+	public void setListener(HITLifecycleListener listener){
+		this.listener = listener;
+	}
+	
+	public void setRetryPolicy(int maxAttempts, long retryDelayMillis){
+		this.maxAttempts = maxAttempts;
+		this.retryDelayMillis = retryDelayMillis;
+	}
+	
+	public synchronized void start(){
+		if(this.schedulerThread != null){
+			throw new IllegalStateException("scheduler already started");
+		}
+		this.schedulerThread = new Thread(new Runnable(){
+			public void run(){
+				runScheduler();
+			}
+		}, "HITLifecycleScheduler");
+		this.schedulerThread.setDaemon(true);
+		this.schedulerThread.start();
+	}
+	
+	/*
+	 * stops dispatching; actions already running complete, queued actions are dropped
+	 */
+	public void shutdown(){
+		Thread thread;
+		synchronized(this){
+			this.isShutdown = true;
+			this.notifyAll();
+			thread = this.schedulerThread;
+		}
+		if(thread != null){
+			thread.interrupt();
+		}
+		this.reviewExecutor.shutdown();
+	}
+	
+	public ScheduledHITAction scheduleExtend(String hitId, Instant dueTime, int maxAssignmentsIncrement, 
+			long expirationIncrementInSeconds){
+		return this.schedule(hitId, ScheduledHITAction.Type.EXTEND, dueTime, maxAssignmentsIncrement, 
+				expirationIncrementInSeconds, 0);
+	}
+	
+	public ScheduledHITAction scheduleExpire(String hitId, Instant dueTime){
+		return this.schedule(hitId, ScheduledHITAction.Type.EXPIRE, dueTime, 0, 0, 0);
+	}
+	
+	public ScheduledHITAction scheduleDispose(String hitId, Instant dueTime){
+		return this.schedule(hitId, ScheduledHITAction.Type.DISPOSE, dueTime, 0, 0, 0);
+	}
+	
+	/*
+	 * hands the assignments of the HIT to the review handler at dueTime, then every 
+	 * repeatIntervalMillis until cancelled (0 reviews once)
+	 */
+	public ScheduledHITAction scheduleReview(String hitId, Instant dueTime, long repeatIntervalMillis){
+		if(this.reviewHandler == null){
+			throw new IllegalStateException("REVIEW actions require a HITReviewHandler");
+		}
+		return this.schedule(hitId, ScheduledHITAction.Type.REVIEW, dueTime, 0, 0, repeatIntervalMillis);
+	}
+	
+	/*
+	 * cancels every pending action of the HIT, including recurring reviews and pending retries; 
+	 * returns the number of actions cancelled
+	 */
+	public synchronized int cancel(String hitId){
+		List<ScheduledHITAction> actions = this.actionsByHIT.remove(hitId);
+		if(actions == null){
+			return 0;
+		}
+		for(ScheduledHITAction action : actions){
+			action.cancel();
+		}
+		this.pendingCount -= actions.size();
+		return actions.size();
+	}
+	
+	/*
+	 * actions that are queued or running
+	 */
+	public synchronized int getPendingCount(){
+		return this.pendingCount;
+	}
+	
+	private ScheduledHITAction schedule(String hitId, ScheduledHITAction.Type type, Instant dueTime,
+			int maxAssignmentsIncrement, long expirationIncrementInSeconds, long repeatIntervalMillis){
+		synchronized(this){
+			ScheduledHITAction action = new ScheduledHITAction(hitId, type, dueTime.toEpochMilli(), this.nextSequence++,
+					1, maxAssignmentsIncrement, expirationIncrementInSeconds, repeatIntervalMillis);
+			this.enqueue(action);
+			return action;
+		}
+	}
+	
+	//must hold the lock
+	private void enqueue(ScheduledHITAction action){
+		List<ScheduledHITAction> actions = this.actionsByHIT.get(action.getHITId());
+		if(actions == null){
+			actions = new ArrayList<ScheduledHITAction>(2);
+			this.actionsByHIT.put(action.getHITId(), actions);
+		}
+		actions.add(action);
+		this.pendingCount++;
+		
+		ScheduledHITAction head = this.queue.peek();
+		this.queue.add(action);
+		if(head == null || action.getDueMillis() < head.getDueMillis()){
+			this.notifyAll();
+		}
+	}
+	
+	//must hold the lock
+	private void remove(ScheduledHITAction action){
+		List<ScheduledHITAction> actions = this.actionsByHIT.get(action.getHITId());
+		if(actions != null && actions.remove(action)){
+			this.pendingCount--;
+			if(actions.isEmpty()){
+				this.actionsByHIT.remove(action.getHITId());
+			}
+		}
+	}
+	
+	private void runScheduler(){
+		List<ScheduledHITAction> batch = new ArrayList<ScheduledHITAction>();
+		try{
+			while(true){
+				synchronized(this){
+					while(true){
+						if(this.isShutdown){
+							return;
+						}
+						
+						ScheduledHITAction head = this.queue.peek();
+						while(head != null && head.isCancelled()){
+							this.queue.poll();
+							head = this.queue.peek();
+						}
+						
+						long now = System.currentTimeMillis();
+						if(head != null && head.getDueMillis() <= now){
+							break;
+						}
+						this.wait(head == null ? 0 : head.getDueMillis() - now);
+					}
+					
+					long now = System.currentTimeMillis();
+					while(!this.queue.isEmpty() && this.queue.peek().getDueMillis() <= now){
+						ScheduledHITAction action = this.queue.poll();
+						if(!action.isCancelled()){
+							batch.add(action);
+						}
+					}
+				}
+				
+				for(Iterator<ScheduledHITAction> iterator = batch.iterator(); iterator.hasNext();){
+					ScheduledHITAction action = iterator.next();
+					iterator.remove();
+					if(!action.isCancelled()){
+						this.inFlight.acquire();
+						this.dispatch(action);
+					}
+				}
+			}
+		}catch(InterruptedException e){
+			//shutdown
+		}
+	}
+	
+	private void dispatch(final ScheduledHITAction action){
+		CompletableFuture<MTurkResult<Void>> future;
+		try{
+			switch(action.getType()){
+				case EXTEND:
+					future = this.client.extendHITResultAsync(action.getHITId(), action.getMaxAssignmentsIncrement(),
+							action.getExpirationIncrementInSeconds());
+					break;
+				case EXPIRE:
+					future = this.client.forceExpireHITResultAsync(action.getHITId());
+					break;
+				case DISPOSE:
+					future = this.client.disposeHITResultAsync(action.getHITId());
+					break;
+				default:
+					future = CompletableFuture.supplyAsync(new Supplier<MTurkResult<Void>>(){
+						public MTurkResult<Void> get(){
+							return review(action.getHITId());
+						}
+					}, this.reviewExecutor);
+			}
+		}catch(RuntimeException e){
+			//executor rejected the task
+			future = new CompletableFuture<MTurkResult<Void>>();
+			future.completeExceptionally(e);
+		}
+		
+		future.whenComplete(new BiConsumer<MTurkResult<Void>, Throwable>(){
+			public void accept(MTurkResult<Void> result, Throwable error){
+				inFlight.release();
+				if(error != null){
+					result = MTurkResult.failure(new MTurkError(null, String.valueOf(error), null));
+				}
+				onCompleted(action, result);
+			}
+		});
+	}
+	
+	private MTurkResult<Void> review(String hitId){
+		List<Assignment> assignments = new ArrayList<Assignment>();
+		try{
+			Iterator<Assignment> iterator = this.client.iterateAssignmentsForHIT(hitId);
+			while(iterator.hasNext()){
+				assignments.add(iterator.next());
+			}
+		}catch(MTurkException e){
+			if(e.getError() != null){
+				return MTurkResult.failure(e.getError());
+			}
+			throw e;
+		}
+		
+		this.reviewHandler.review(hitId, assignments);
+		return MTurkResult.success(null, null);
+	}
+	
+	private void onCompleted(ScheduledHITAction action, MTurkResult<Void> result){
+		HITLifecycleListener currentListener = this.listener;
+		if(currentListener != null){
+			try{
+				currentListener.onActionCompleted(action, result);
+			}catch(RuntimeException e){
+				e.printStackTrace();
+			}
+		}
+		
+		synchronized(this){
+			if(action.isCancelled()){
+				return;
+			}
+			this.remove(action);
+			if(this.isShutdown){
+				return;
+			}
+			
+			long now = System.currentTimeMillis();
+			if(!result.isSuccess() && isRetryable(action, result.getError()) && action.getAttempt() < this.maxAttempts){
+				this.enqueue(action.reschedule(now + this.retryDelayMillis * action.getAttempt(), 
+						this.nextSequence++, action.getAttempt() + 1));
+			}else if(action.getType() == ScheduledHITAction.Type.REVIEW && action.getRepeatIntervalMillis() > 0){
+				this.enqueue(action.reschedule(now + action.getRepeatIntervalMillis(), this.nextSequence++, 1));
+			}
+		}
+	}
+	
+	private static boolean isRetryable(ScheduledHITAction action, MTurkError error){
+		if(action.getType() == ScheduledHITAction.Type.EXTEND && error.isRequestMaybeApplied()){
+			return false;
+		}
+		return error.isRetryable();
+	}
+}
@@ -0,0 +1,16 @@
+package com.cclo7;
+
+import java.util.List;
+
+/*
+ * Decides on the assignments of a HIT when a REVIEW action of HITLifecycleScheduler is due.
+ * Called from the scheduler's review threads, implementations must be thread safe and may wait for
+ * asynchronous client operations.
+ */
+public interface HITReviewHandler {
+	
+	/*
+	 * assignments holds every assignment of the HIT, whatever its status
+	 */
+	void review(String hitId, List<Assignment> assignments);
+}
@@ -0,0 +1,37 @@
+package com.cclo7;
+
+/*
+ * A review decision recorded in an OperationJournal before it was sent.
+ */
+public class JournalEntry {
+	
+	private final long entryId;
+	private final ReviewDecision decision;
+	private final String requestToken;
+	
+	JournalEntry(long entryId, ReviewDecision decision, String requestToken){
+		this.entryId = entryId;
+		this.decision = decision;
+		this.requestToken = requestToken;
+	}
+	
+	public long getEntryId(){
+		return this.entryId;
+	}
+	
+	public ReviewDecision getDecision(){
+		return this.decision;
+	}
+	
+	/*
+	 * UniqueRequestToken sent with bonuses so that replaying the entry cannot pay twice, null for other actions
+	 */
+	public String getRequestToken(){
+		return this.requestToken;
+	}
+	
+	@Override
+	public String toString(){
+		return "#" + this.entryId + " " + this.decision;
+	}
+}
@@ -0,0 +1,73 @@
+package com.cclo7;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Executes review decisions through an OperationJournal so that no approval or bonus is lost
+ * or paid twice across timeouts and crashes.
+ * 
+ * Call recover() once on startup to replay the decisions whose outcome was never recorded, 
+ * including those that ended in a retryable failure. Approvals and rejections are safe to repeat 
+ * (on replay an InvalidAssignmentState error means the first attempt went through), bonuses are 
+ * replayed with their original UniqueRequestToken.
+ */
+public class JournaledReviewer {
+	
+	private final AmazonMTurkClient client;
+	private final OperationJournal journal;
+	
+	public JournaledReviewer(AmazonMTurkClient client, OperationJournal journal){
+		this.client = client;
+		this.journal = journal;
+	}
+	
+	public ReviewResult execute(ReviewDecision decision) throws IOException, InterruptedException {
+		return this.execute(this.journal.appendIntent(decision), false);
+	}
+	
+	/*
+	 * replays every pending journal entry, in the order the intents were recorded
+	 */
+	public List<ReviewResult> recover() throws IOException {
+		List<JournalEntry> pending = this.journal.getPendingEntries();
+		List<ReviewResult> results = new ArrayList<ReviewResult>(pending.size());
+		for(JournalEntry entry : pending){
+			results.add(this.execute(entry, true));
+		}
+		return results;
+	}
+	
+	/*
+	 * a retryable failure records no outcome, the entry stays pending and is replayed by recover()
+	 */
+	private ReviewResult execute(JournalEntry entry, boolean isReplay) throws IOException {
+		ReviewDecision decision = entry.getDecision();
+		long start = System.currentTimeMillis();
+		
+		MTurkResult<Void> result;
+		switch(decision.getAction()){
+			case APPROVE:
+				result = this.client.approveAssignmentResult(decision.getAssignmentId());
+				break;
+			case REJECT:
+				result = this.client.rejectAssignmentResult(decision.getAssignmentId(), decision.getReason());
+				break;
+			default:
+				result = this.client.grantBonusResult(decision.getWorkerId(), decision.getAssignmentId(), 
+						decision.getBonusAmt(), decision.getReason(), entry.getRequestToken());
+		}
+		
+		if(isReplay && !result.isSuccess() && result.getError().isInvalidAssignmentState()){
+			result = MTurkResult.success(null, result.getRequestId());
+		}
+		
+		long elapsed = System.currentTimeMillis() - start;
+		ReviewResult reviewResult = new ReviewResult(decision, result, elapsed);
+		if(reviewResult.getStatus() != ReviewResult.Status.RETRYABLE_FAILURE){
+			this.journal.appendOutcome(entry, result.isSuccess());
+		}
+		return reviewResult;
+	}
+}
@@ -0,0 +1,88 @@
+package com.cclo7;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Lock-free log-linear histogram of latencies in microseconds (HdrHistogram style).
+ * 
+ * Every power of two range is split into 32 linear sub-buckets, so recorded values keep about
+ * 3% precision from 1 microsecond up to the 2^40 microsecond ceiling at a fixed ~9 KB footprint.
+ * Recording is a couple of shifts and one atomic increment.
+ */
+public class LatencyHistogram {
+	
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int MAX_VALUE_BITS = 40;
+	private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+	private static final int BUCKET_COUNT = SUB_BUCKET_COUNT * (MAX_VALUE_BITS - SUB_BUCKET_BITS + 1);
+	
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong totalCount = new AtomicLong(0);
+	private final AtomicLong totalMicros = new AtomicLong(0);
+	private final AtomicLong maxMicros = new AtomicLong(0);
+	
+	public void recordMicros(long micros){
+		long value = Math.max(0, Math.min(micros, MAX_VALUE));
+		this.counts.incrementAndGet(indexOf(value));
+		this.totalCount.incrementAndGet();
+		this.totalMicros.addAndGet(value);
+		
+		long max = this.maxMicros.get();
+		while(value > max && !this.maxMicros.compareAndSet(max, value)){
+			max = this.maxMicros.get();
+		}
+	}
+	
+	public long getCount(){
+		return this.totalCount.get();
+	}
+	
+	public long getMaxMicros(){
+		return this.maxMicros.get();
+	}
+	
+	public double getMeanMicros(){
+		long count = this.totalCount.get();
+		return count == 0 ? 0 : (double) this.totalMicros.get() / count;
+	}
+	
+	/*
+	 * upper bound of the bucket holding the given percentile (0-100), 0 when nothing was recorded
+	 */
+	public long getPercentileMicros(double percentile){
+		long count = this.totalCount.get();
+		if(count == 0){
+			return 0;
+		}
+		
+		long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+		long seen = 0;
+		for(int i = 0; i < BUCKET_COUNT; i++){
+			seen += this.counts.get(i);
+			if(seen >= rank){
+				return Math.min(upperBoundOf(i), this.maxMicros.get());
+			}
+		}
+		return this.maxMicros.get();
+	}
+	
+	static int indexOf(long value){
+		if(value < SUB_BUCKET_COUNT){
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+		return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+	}
+	
+	static long upperBoundOf(int index){
+		if(index < SUB_BUCKET_COUNT){
+			return index;
+		}
+		int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+		long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+		return ((SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+	}
+}
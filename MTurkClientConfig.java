@@ -0,0 +1,182 @@
+package com.cclo7;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Optional tuning of an AmazonMTurkClient; a client built without one uses the defaults below.
+ */
+public class MTurkClientConfig {
+	
+	public static final double DEFAULT_MAX_REQUESTS_PER_SECOND = 100;
+	public static final double DEFAULT_MIN_REQUESTS_PER_SECOND = 1;
+	public static final int DEFAULT_POST_THRESHOLD_BYTES = 4096;
+	public static final double DEFAULT_HEDGE_PERCENTILE = 95;
+	
+	private double maxRequestsPerSecond = DEFAULT_MAX_REQUESTS_PER_SECOND;
+	private double maxOperationRequestsPerSecond = DEFAULT_MAX_REQUESTS_PER_SECOND;
+	private double minRequestsPerSecond = DEFAULT_MIN_REQUESTS_PER_SECOND;
+	private RetryPolicy retryPolicy = new RetryPolicy();
+	private int postThresholdBytes = DEFAULT_POST_THRESHOLD_BYTES;
+	private AssignmentStateCache assignmentStateCache;
+	private MTurkMetrics metrics;
+	private String serviceUrl;
+	private boolean isCoalesceRequests = true;
+	private long requestDeadlineMillis = 0;
+	private final Map<String, Long> operationDeadlineMillis = new HashMap<String, Long>();
+	private CircuitBreaker circuitBreaker;
+	private boolean isHedgeReads = false;
+	private double hedgePercentile = DEFAULT_HEDGE_PERCENTILE;
+	
+	/*
+	 * upper bound of the rate shared by all operations of the client, 100 requests per second by default
+	 */
+	public double getMaxRequestsPerSecond(){
+		return this.maxRequestsPerSecond;
+	}
+	
+	public void setMaxRequestsPerSecond(double maxRequestsPerSecond){
+		this.maxRequestsPerSecond = maxRequestsPerSecond;
+	}
+	
+	/*
+	 * upper bound of the rate of each single operation, e.g. GrantBonus
+	 */
+	public double getMaxOperationRequestsPerSecond(){
+		return this.maxOperationRequestsPerSecond;
+	}
+	
+	public void setMaxOperationRequestsPerSecond(double maxOperationRequestsPerSecond){
+		this.maxOperationRequestsPerSecond = maxOperationRequestsPerSecond;
+	}
+	
+	/*
+	 * floor the rate limiters back off to while the service keeps throttling
+	 */
+	public double getMinRequestsPerSecond(){
+		return this.minRequestsPerSecond;
+	}
+	
+	public void setMinRequestsPerSecond(double minRequestsPerSecond){
+		this.minRequestsPerSecond = minRequestsPerSecond;
+	}
+	
+	public RetryPolicy getRetryPolicy(){
+		return this.retryPolicy;
+	}
+	
+	public void setRetryPolicy(RetryPolicy retryPolicy){
+		this.retryPolicy = retryPolicy;
+	}
+	
+	/*
+	 * requests whose encoded parameters are longer than this are sent as a POST body instead of a GET url,
+	 * e.g. CreateHIT with a large Question
+	 */
+	public int getPostThresholdBytes(){
+		return this.postThresholdBytes;
+	}
+	
+	public void setPostThresholdBytes(int postThresholdBytes){
+		this.postThresholdBytes = postThresholdBytes;
+	}
+	
+	/*
+	 * when set, approve/reject calls on assignments already known to be approved or rejected are skipped
+	 * and pollAssignmentsForHIT becomes available; null by default
+	 */
+	public AssignmentStateCache getAssignmentStateCache(){
+		return this.assignmentStateCache;
+	}
+	
+	public void setAssignmentStateCache(AssignmentStateCache assignmentStateCache){
+		this.assignmentStateCache = assignmentStateCache;
+	}
+	
+	/*
+	 * receives latency, retry, error and traffic figures of every request, e.g. a DefaultMTurkMetrics; null by default
+	 */
+	public MTurkMetrics getMetrics(){
+		return this.metrics;
+	}
+	
+	public void setMetrics(MTurkMetrics metrics){
+		this.metrics = metrics;
+	}
+	
+	/*
+	 * overrides the production/sandbox endpoint, e.g. with MockMTurkServer.getServiceUrl(); null by default
+	 */
+	public String getServiceUrl(){
+		return this.serviceUrl;
+	}
+	
+	public void setServiceUrl(String serviceUrl){
+		this.serviceUrl = serviceUrl;
+	}
+	
+	/*
+	 * Concurrent identical reads and idempotent writes (same operation and parameters) share one
+	 * call and its result. CreateHIT, ExtendHIT and GrantBonus without a UniqueRequestToken are 
+	 * never shared. Enabled by default.
+	 */
+	public boolean isCoalesceRequests(){
+		return this.isCoalesceRequests;
+	}
+	
+	public void setCoalesceRequests(boolean isCoalesceRequests){
+		this.isCoalesceRequests = isCoalesceRequests;
+	}
+	
+	/*
+	 * Time a request may take including rate limiting, retries and backoff, after which it fails with 
+	 * MTurkError.DEADLINE_EXCEEDED. A call still running at the deadline is abandoned, not aborted, 
+	 * so a write may still be applied. 0 (the default) means no deadline.
+	 */
+	public long getRequestDeadlineMillis(String operation){
+		Long deadlineMillis = this.operationDeadlineMillis.get(operation);
+		return deadlineMillis != null ? deadlineMillis : this.requestDeadlineMillis;
+	}
+	
+	public void setRequestDeadlineMillis(long requestDeadlineMillis){
+		this.requestDeadlineMillis = requestDeadlineMillis;
+	}
+	
+	/*
+	 * deadline of a single operation, e.g. GetAssignmentsForHIT, overriding setRequestDeadlineMillis(long)
+	 */
+	public void setRequestDeadlineMillis(String operation, long requestDeadlineMillis){
+		this.operationDeadlineMillis.put(operation, requestDeadlineMillis);
+	}
+	
+	/*
+	 * when set, requests fail fast with MTurkError.CIRCUIT_OPEN while the endpoint keeps failing; null by default
+	 */
+	public CircuitBreaker getCircuitBreaker(){
+		return this.circuitBreaker;
+	}
+	
+	public void setCircuitBreaker(CircuitBreaker circuitBreaker){
+		this.circuitBreaker = circuitBreaker;
+	}
+	
+	/*
+	 * Sends GetAssignmentsForHIT a second time when the first call takes longer than the hedge 
+	 * percentile of its recent latencies, the first response wins. Disabled by default.
+	 */
+	public boolean isHedgeReads(){
+		return this.isHedgeReads;
+	}
+	
+	public void setHedgeReads(boolean isHedgeReads){
+		this.isHedgeReads = isHedgeReads;
+	}
+	
+	public double getHedgePercentile(){
+		return this.hedgePercentile;
+	}
+	
+	public void setHedgePercentile(double hedgePercentile){
+		this.hedgePercentile = hedgePercentile;
+	}
+}
@@ -0,0 +1,190 @@
+package com.cclo7;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+/*
+ * Clients for several requester accounts (and sandbox/production endpoints) that share one connection
+ * pool, one executor and one RequestSigner per access key.
+ * 
+ * Each account keeps its own MTurkClientConfig, hence its own rate limiters and retry policy, and its
+ * own budget of concurrently running *Async operations on the shared executor. Requests beyond the
+ * budget wait in the account's queue, so a large payout job on one account cannot hold every thread
+ * and connection while HIT creation on another account waits.
+ * 
+ * The budgets together never exceed the connections of a shared PooledHttpTransport: when the
+ * requested budgets add up to more, every account gets one connection and the rest is shared in
+ * proportion to the requested budgets, which are scaled again as accounts are added. An account
+ * beyond the number of connections is rejected. Other transports are taken as unbounded.
+ * 
+ * Synchronous calls run on the caller's thread outside of any budget, limited only by the account
+ * rate limiters and the shared connection pool. They compete with the *Async operations of every
+ * account for the connections, so applications mixing both should size the transport accordingly.
+ * 
+ * Code running on an account's executor (e.g. a callback chained to its *Async operations) must not
+ * wait for another operation submitted to the same account: with every slot of the budget taken by
+ * waiting tasks the queued operations would never start. The client's own blocking helpers, like the
+ * page prefetch of iterateAssignmentsForHIT, run on a separate executor for this reason.
+ */
+public class MTurkClientPool {
+	
+	public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = PooledHttpTransport.DEFAULT_MAX_CONNECTIONS / 2;
+	
+	private final MTurkTransport transport;
+	private final ExecutorService executor;
+	private final boolean isOwnResources;
+	
+	private final Map<String, AmazonMTurkClient> clients = new LinkedHashMap<String, AmazonMTurkClient>();
+	private final Map<String, BoundedExecutor> accountExecutors = new HashMap<String, BoundedExecutor>();
+	private final Map<String, Integer> requestedBudgets = new LinkedHashMap<String, Integer>();
+	private final Map<String, RequestSigner> signers = new HashMap<String, RequestSigner>();
+	private final Map<String, String> secretKeys = new HashMap<String, String>();
+	
+	/*
+	 * transport and executor stay open on shutdown()
+	 */
+	public MTurkClientPool(MTurkTransport transport, ExecutorService executor){
+		this.transport = transport;
+		this.executor = executor;
+		this.isOwnResources = false;
+	}
+	
+	public MTurkClientPool(){
+		this.transport = new PooledHttpTransport();
+		this.executor = MTurkExecutors.newDefaultExecutor();
+		this.isOwnResources = true;
+	}
+	
+	/*
+	 * Adds a client under a unique name. maxConcurrentRequests bounds the account's *Async
+	 * operations running on the shared executor at the same time, scaled down when the budgets 
+	 * exceed the transport's connections; see the class comment about waiting on the account's 
+	 * own operations.
+	 */
+	public synchronized AmazonMTurkClient addAccount(String name, String accessKey, String secretKey, 
+			boolean isUseSandbox, MTurkClientConfig config, int maxConcurrentRequests){
+		if(this.clients.containsKey(name)){
+			throw new IllegalArgumentException("account already registered: " + name);
+		}
+		if(this.clients.size() >= this.getMaxConnections()){
+			throw new IllegalArgumentException("every connection of the transport is already budgeted to an account: "
+					+ this.getMaxConnections());
+		}
+		
+		BoundedExecutor accountExecutor = new BoundedExecutor(this.executor, maxConcurrentRequests);
+		AmazonMTurkClient client = new AmazonMTurkClient(accessKey, this.getSigner(accessKey, secretKey), 
+				AmazonMTurkClient.DEFAULT_REST_API_VERSION, isUseSandbox, this.transport, false, accountExecutor,
+				config);
+		
+		this.clients.put(name, client);
+		this.accountExecutors.put(name, accountExecutor);
+		this.requestedBudgets.put(name, maxConcurrentRequests);
+		this.scaleBudgets();
+		return client;
+	}
+	
+	public AmazonMTurkClient addAccount(String name, String accessKey, String secretKey, boolean isUseSandbox){
+		return this.addAccount(name, accessKey, secretKey, isUseSandbox, new MTurkClientConfig(), 
+				DEFAULT_MAX_CONCURRENT_REQUESTS);
+	}
+	
+	public synchronized AmazonMTurkClient getClient(String name){
+		AmazonMTurkClient client = this.clients.get(name);
+		if(client == null){
+			throw new IllegalArgumentException("unknown account: " + name);
+		}
+		return client;
+	}
+	
+	public synchronized Set<String> getAccountNames(){
+		return Collections.unmodifiableSet(new LinkedHashSet<String>(this.clients.keySet()));
+	}
+	
+	/*
+	 * the account's budget of concurrently running *Async operations, after scaling
+	 */
+	public synchronized int getMaxConcurrentRequests(String name){
+		BoundedExecutor accountExecutor = this.accountExecutors.get(name);
+		if(accountExecutor == null){
+			throw new IllegalArgumentException("unknown account: " + name);
+		}
+		return accountExecutor.getMaxConcurrent();
+	}
+	
+	/*
+	 * *Async operations of the account waiting for its concurrency budget
+	 */
+	public synchronized int getQueuedRequests(String name){
+		BoundedExecutor accountExecutor = this.accountExecutors.get(name);
+		if(accountExecutor == null){
+			throw new IllegalArgumentException("unknown account: " + name);
+		}
+		return accountExecutor.getQueueSize();
+	}
+	
+	/*
+	 * Stops accepting *Async operations on every account; queued operations still run. The shared
+	 * transport and executor are closed only if the pool created them.
+	 */
+	public synchronized void shutdown(){
+		for(AmazonMTurkClient client : this.clients.values()){
+			client.shutdown();
+		}
+		for(BoundedExecutor accountExecutor : this.accountExecutors.values()){
+			accountExecutor.shutdown();
+		}
+		if(this.isOwnResources){
+			this.executor.shutdown();
+			this.transport.shutdown();
+		}
+	}
+	
+	private int getMaxConnections(){
+		if(this.transport instanceof PooledHttpTransport){
+			return ((PooledHttpTransport) this.transport).getMaxConnections();
+		}
+		return Integer.MAX_VALUE;
+	}
+	
+	/*
+	 * One connection per account, the remaining connections in proportion to the requested budgets
+	 * beyond the first. Each term is rounded down, so the budgets never add up to more than the
+	 * connections.
+	 */
+	private void scaleBudgets(){
+		long maxConnections = this.getMaxConnections();
+		long requestedTotal = 0;
+		for(int budget : this.requestedBudgets.values()){
+			requestedTotal += budget;
+		}
+		
+		long accounts = this.requestedBudgets.size();
+		for(Map.Entry<String, Integer> entry : this.requestedBudgets.entrySet()){
+			long budget = entry.getValue();
+			if(requestedTotal > maxConnections){
+				budget = 1 + (budget - 1) * (maxConnections - accounts) / (requestedTotal - accounts);
+			}
+			this.accountExecutors.get(entry.getKey()).setMaxConcurrent((int) budget);
+		}
+	}
+	
+	/*
+	 * clients of the same access key, e.g. its sandbox and production clients, share a signer
+	 */
+	private RequestSigner getSigner(String accessKey, String secretKey){
+		RequestSigner signer = this.signers.get(accessKey);
+		if(signer == null){
+			signer = AmazonMTurkClient.newSigner(secretKey);
+			this.signers.put(accessKey, signer);
+			this.secretKeys.put(accessKey, secretKey);
+		}else if(!this.secretKeys.get(accessKey).equals(secretKey)){
+			throw new IllegalArgumentException("access key " + accessKey + " registered with a different secret key");
+		}
+		return signer;
+	}
+}
@@ -0,0 +1,123 @@
+package com.cclo7;
+
+/*
+ * Error reported by MTurk (or by the client when no response could be obtained), with the
+ * RequestId of the failed call when the service returned one.
+ */
+public final class MTurkError {
+	
+	public static final String INVALID_ASSIGNMENT_STATE = "AWS.MechanicalTurk.InvalidAssignmentState";
+	public static final String INVALID_PARAMETER_VALUE = "AWS.MechanicalTurk.InvalidParameterValue";
+	public static final String UNKNOWN_ERROR_CODE = "Unknown";
+	public static final String DEADLINE_EXCEEDED = "DeadlineExceeded";
+	public static final String CIRCUIT_OPEN = "CircuitOpen";
+	
+	private final String code;
+	private final String message;
+	private final String requestId;
+	private final boolean isRetryable;
+	private final boolean isThrottling;
+	private final boolean isRequestMaybeApplied;
+	
+	/*
+	 * a lost response is not retryable, the request is taken as not idempotent
+	 */
+	public MTurkError(String code, String message, String requestId){
+		this(code, message, requestId, false);
+	}
+	
+	/*
+	 * isIdempotent: repeating the request is harmless (see AmazonMTurkClient), which makes a lost response retryable
+	 */
+	MTurkError(String code, String message, String requestId, boolean isIdempotent){
+		this.code = code != null ? code : UNKNOWN_ERROR_CODE;
+		this.message = message;
+		this.requestId = requestId;
+		this.isThrottling = RetryPolicy.isThrottlingError(code, message);
+		this.isRequestMaybeApplied = MTurkMetrics.NO_RESPONSE_ERROR_CODE.equals(code) || DEADLINE_EXCEEDED.equals(code);
+		this.isRetryable = (this.isRequestMaybeApplied && isIdempotent) || CIRCUIT_OPEN.equals(code) 
+				|| RetryPolicy.isRetryableError(code, message);
+	}
+	
+	static MTurkError fromResponse(MTurkResponse response, boolean isIdempotent){
+		return new MTurkError(response.getErrorCode(), response.getErrorMessage(), response.getRequestId(), isIdempotent);
+	}
+	
+	/*
+	 * the transport failed or the response could not be parsed on every attempt
+	 */
+	static MTurkError noResponse(String operation, boolean isIdempotent){
+		return new MTurkError(MTurkMetrics.NO_RESPONSE_ERROR_CODE, operation + ": no response", null, isIdempotent);
+	}
+	
+	/*
+	 * e.g. AWS.MechanicalTurk.InvalidAssignmentState, never null
+	 */
+	public String getCode(){
+		return this.code;
+	}
+	
+	public String getMessage(){
+		return this.message;
+	}
+	
+	/*
+	 * null when the error was not returned by the service
+	 */
+	public String getRequestId(){
+		return this.requestId;
+	}
+	
+	/*
+	 * the same call may succeed when repeated later and repeating it is safe (throttling, service failure, 
+	 * circuit open, and no response or deadline exceeded for idempotent requests)
+	 */
+	public boolean isRetryable(){
+		return this.isRetryable;
+	}
+	
+	/*
+	 * The request was sent but no response arrived (NoResponse, DeadlineExceeded), the service may 
+	 * have applied it. Such an error 
+	 * is only retryable for idempotent requests: a CreateHIT, ExtendHIT or GrantBonus without 
+	 * UniqueRequestToken must be checked (e.g. with GetHIT) before it is sent again.
+	 */
+	public boolean isRequestMaybeApplied(){
+		return this.isRequestMaybeApplied;
+	}
+	
+	public boolean isThrottling(){
+		return this.isThrottling;
+	}
+	
+	/*
+	 * the assignment was already approved or rejected, or is not yet submitted
+	 */
+	public boolean isInvalidAssignmentState(){
+		return this.code.contains("InvalidAssignmentState");
+	}
+	
+	public boolean isDuplicateRequest(){
+		return this.code.contains("DuplicateRequest");
+	}
+	
+	/*
+	 * the request deadline passed; a write may still have been applied by the abandoned call, so 
+	 * this is only retryable for idempotent requests
+	 */
+	public boolean isDeadlineExceeded(){
+		return DEADLINE_EXCEEDED.equals(this.code);
+	}
+	
+	/*
+	 * the request was not sent because the CircuitBreaker is open
+	 */
+	public boolean isCircuitOpen(){
+		return CIRCUIT_OPEN.equals(this.code);
+	}
+	
+	@Override
+	public String toString(){
+		return this.code + ": " + this.message + (this.requestId != null ? " (RequestId " + this.requestId + ")" : "");
+	}
+}
@@ -0,0 +1,34 @@
+package com.cclo7;
+
+/*
+ * Thrown by the operations that cannot report a failure through their return value,
+ * e.g. while iterating over assignment pages.
+ */
+public class MTurkException extends RuntimeException {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private final MTurkError error;
+	
+	public MTurkException(String message){
+		super(message);
+		this.error = null;
+	}
+	
+	public MTurkException(String message, Throwable cause){
+		super(message, cause);
+		this.error = null;
+	}
+	
+	public MTurkException(MTurkError error){
+		super(error.toString());
+		this.error = error;
+	}
+	
+	/*
+	 * null when the failure was not an MTurk error, e.g. an interrupted page fetch
+	 */
+	public MTurkError getError(){
+		return this.error;
+	}
+}
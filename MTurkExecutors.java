@@ -0,0 +1,68 @@
+package com.cclo7;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Factory for the executors that run the asynchronous client operations.
+ */
+public final class MTurkExecutors {
+	
+	private static final String THREAD_NAME_PREFIX = "mturk-client-";
+	
+	private MTurkExecutors(){
+	}
+	
+	/*
+	 * Uses one virtual thread per task when the running JDK supports it (JDK 21+), 
+	 * otherwise a fixed pool of daemon threads sized to the default connection pool.
+	 * Requests beyond the pool size are queued instead of getting a thread each.
+	 */
+	public static ExecutorService newDefaultExecutor(){
+		ExecutorService virtualThreadExecutor = newVirtualThreadExecutor();
+		if(virtualThreadExecutor != null){
+			return virtualThreadExecutor;
+		}
+		return newFixedExecutor(PooledHttpTransport.DEFAULT_MAX_CONNECTIONS);
+	}
+	
+	public static ExecutorService newFixedExecutor(int threads){
+		return Executors.newFixedThreadPool(threads, new DaemonThreadFactory());
+	}
+	
+	/*
+	 * daemon threads created on demand and dropped after a minute idle
+	 */
+	public static ExecutorService newCachedExecutor(){
+		return Executors.newCachedThreadPool(new DaemonThreadFactory());
+	}
+	
+	/*
+	 * returns null when virtual threads are not available
+	 */
+	public static ExecutorService newVirtualThreadExecutor(){
+		try{
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		}catch(NoSuchMethodException e){
+			return null;
+		}catch(Exception e){
+			//preview feature disabled or blocked by a security manager
+			return null;
+		}
+	}
+	
+	private static class DaemonThreadFactory implements ThreadFactory {
+		
+		private final AtomicInteger threadCount = new AtomicInteger(0);
+		
+		public Thread newThread(Runnable r){
+			Thread thread = new Thread(r, THREAD_NAME_PREFIX + this.threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
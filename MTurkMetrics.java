@@ -0,0 +1,19 @@
+package com.cclo7;
+
+/*
+ * Instrumentation hook of the client request path, set through MTurkClientConfig.setMetrics.
+ * Called on the request threads; implementations must be thread safe and cheap.
+ */
+public interface MTurkMetrics {
+	
+	void requestStarted(String operation);
+	
+	/*
+	 * attempts includes the first one; errorCode is null on success, the service error code otherwise,
+	 * or NO_RESPONSE_ERROR_CODE when no response could be read
+	 */
+	void requestCompleted(String operation, long latencyNanos, int attempts, String errorCode, 
+			long bytesSent, long bytesReceived);
+	
+	String NO_RESPONSE_ERROR_CODE = "NoResponse";
+}
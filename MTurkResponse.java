@@ -0,0 +1,79 @@
+package com.cclo7;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * The fields of an MTurk response that an operation asked MTurkResponseParser for.
+ */
+public class MTurkResponse {
+	
+	private final boolean isValid;
+	private final String errorCode;
+	private final String errorMessage;
+	private final String requestId;
+	private final Map<String, String> fields;
+	private final List<Map<String, String>> records;
+	
+	MTurkResponse(boolean isValid, String errorCode, String errorMessage, String requestId, 
+			Map<String, String> fields, List<Map<String, String>> records){
+		this.isValid = isValid;
+		this.errorCode = errorCode;
+		this.errorMessage = errorMessage;
+		this.requestId = requestId;
+		this.fields = Collections.unmodifiableMap(fields);
+		this.records = Collections.unmodifiableList(records);
+	}
+	
+	/*
+	 * error produced by the client itself, e.g. MTurkError.DEADLINE_EXCEEDED
+	 */
+	static MTurkResponse clientError(String errorCode, String errorMessage){
+		return new MTurkResponse(false, errorCode, errorMessage, null, Collections.<String, String>emptyMap(), 
+				Collections.<Map<String, String>>emptyList());
+	}
+	
+	/*
+	 * value of the first IsValid element
+	 */
+	public boolean isValid(){
+		return this.isValid;
+	}
+	
+	public boolean hasErrors(){
+		return this.errorCode != null || this.errorMessage != null;
+	}
+	
+	/*
+	 * Code of the first Error element, e.g. AWS.MechanicalTurk.InvalidAssignmentState
+	 */
+	public String getErrorCode(){
+		return this.errorCode;
+	}
+	
+	public String getErrorMessage(){
+		return this.errorMessage;
+	}
+	
+	/*
+	 * RequestId of the OperationRequest element, quoted in support requests
+	 */
+	public String getRequestId(){
+		return this.requestId;
+	}
+	
+	/*
+	 * first occurrence of the field outside of any record element, or null
+	 */
+	public String getField(String name){
+		return this.fields.get(name);
+	}
+	
+	/*
+	 * one map of field values per record element, in document order
+	 */
+	public List<Map<String, String>> getRecords(){
+		return this.records;
+	}
+}
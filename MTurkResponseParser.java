@@ -0,0 +1,190 @@
+package com.cclo7;
+
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/*
+ * Single pass StAX parser for MTurk REST responses.
+ * 
+ * IsValid, RequestId and the first Error are always read; other elements are only materialised when their 
+ * name was passed in fieldNames. Fields found inside a recordElement (e.g. Assignment) are collected
+ * per record instead. Instances are immutable and can be shared by all threads.
+ */
+public class MTurkResponseParser {
+	
+	private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+	
+	private final String recordElement;
+	private final Set<String> fieldNames;
+	
+	/*
+	 * recordElement may be null when the response has no repeated elements of interest
+	 */
+	public MTurkResponseParser(String recordElement, String... fieldNames){
+		this.recordElement = recordElement;
+		this.fieldNames = new HashSet<String>(Arrays.asList(fieldNames));
+	}
+	
+	public MTurkResponse parse(InputStream in) throws XMLStreamException {
+		XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+		
+		String isValid = null;
+		String errorCode = null;
+		String errorMessage = null;
+		String requestId = null;
+		boolean isInError = false;
+		Map<String, String> fields = new HashMap<String, String>();
+		List<Map<String, String>> records = new ArrayList<Map<String, String>>();
+		Map<String, String> record = null;
+		
+		try{
+			while(reader.hasNext()){
+				int event = reader.next();
+				
+				if(event == XMLStreamConstants.START_ELEMENT){
+					String name = reader.getLocalName();
+					
+					if(name.equals(this.recordElement)){
+						record = new HashMap<String, String>();
+					}else if(name.equals("Error")){
+						isInError = true;
+					}else if(isInError && name.equals("Code")){
+						String code = reader.getElementText();
+						if(errorCode == null){
+							errorCode = code;
+						}
+					}else if(isInError && name.equals("Message")){
+						String message = reader.getElementText();
+						if(errorMessage == null){
+							errorMessage = message;
+						}
+					}else if(isValid == null && name.equals("IsValid")){
+						isValid = reader.getElementText();
+					}else if(requestId == null && name.equals("RequestId")){
+						requestId = reader.getElementText();
+					}else if(this.fieldNames.contains(name)){
+						String value = reader.getElementText();
+						if(record != null){
+							record.put(name, value);
+						}else if(!fields.containsKey(name)){
+							fields.put(name, value);
+						}
+					}
+					
+				}else if(event == XMLStreamConstants.END_ELEMENT){
+					String name = reader.getLocalName();
+					if(record != null && name.equals(this.recordElement)){
+						records.add(record);
+						record = null;
+					}else if(name.equals("Error")){
+						isInError = false;
+					}
+				}
+			}
+		}finally{
+			reader.close();
+		}
+		
+		return new MTurkResponse("True".equals(isValid), errorCode, errorMessage, requestId, fields, records);
+	}
+	
+	/*
+	 * Text of every answer per QuestionIdentifier (see QuestionAnswer.getText()) in document order,
+	 * answers repeating a QuestionIdentifier are joined with '|'.
+	 */
+	public static Map<String, String> parseAnswers(String questionFormAnswers) throws XMLStreamException {
+		return toAnswerMap(parseQuestionFormAnswers(questionFormAnswers));
+	}
+	
+	static Map<String, String> toAnswerMap(List<QuestionAnswer> questionAnswers){
+		Map<String, String> answers = new LinkedHashMap<String, String>();
+		for(QuestionAnswer answer : questionAnswers){
+			String previous = answers.get(answer.getQuestionIdentifier());
+			answers.put(answer.getQuestionIdentifier(), 
+					previous == null ? answer.getText() : previous + "|" + answer.getText());
+		}
+		return answers;
+	}
+	
+	/*
+	 * Reads the QuestionFormAnswers document carried (already unescaped) in an Answer field in a single 
+	 * streaming pass. Returns one QuestionAnswer per Answer element, in document order.
+	 */
+	public static List<QuestionAnswer> parseQuestionFormAnswers(String questionFormAnswers) throws XMLStreamException {
+		List<QuestionAnswer> answers = new ArrayList<QuestionAnswer>();
+		XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(new StringReader(questionFormAnswers));
+		
+		String questionIdentifier = null;
+		String freeText = null;
+		List<String> selectionIdentifiers = null;
+		String otherSelectionText = null;
+		String uploadedFileKey = null;
+		long uploadedFileSize = -1;
+		try{
+			while(reader.hasNext()){
+				int event = reader.next();
+				
+				if(event == XMLStreamConstants.START_ELEMENT){
+					String name = reader.getLocalName();
+					if(name.equals("Answer")){
+						questionIdentifier = null;
+						freeText = null;
+						selectionIdentifiers = new ArrayList<String>(2);
+						otherSelectionText = null;
+						uploadedFileKey = null;
+						uploadedFileSize = -1;
+					}else if(selectionIdentifiers == null){
+						//outside of an Answer element
+						continue;
+					}else if(name.equals("QuestionIdentifier")){
+						questionIdentifier = reader.getElementText();
+					}else if(name.equals("FreeText")){
+						freeText = reader.getElementText();
+					}else if(name.equals("SelectionIdentifier")){
+						selectionIdentifiers.add(reader.getElementText());
+					}else if(name.equals("OtherSelectionText")){
+						otherSelectionText = reader.getElementText();
+					}else if(name.equals("UploadedFileKey")){
+						uploadedFileKey = reader.getElementText();
+					}else if(name.equals("UploadedFileSizeInBytes")){
+						uploadedFileSize = Long.parseLong(reader.getElementText().trim());
+					}
+					
+				}else if(event == XMLStreamConstants.END_ELEMENT && selectionIdentifiers != null 
+						&& reader.getLocalName().equals("Answer")){
+					if(questionIdentifier != null){
+						answers.add(new QuestionAnswer(questionIdentifier, freeText, selectionIdentifiers, 
+								otherSelectionText, uploadedFileKey, uploadedFileSize));
+					}
+					selectionIdentifiers = null;
+				}
+			}
+		}finally{
+			reader.close();
+		}
+		
+		return answers;
+	}
+	
+	private static XMLInputFactory createInputFactory(){
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		return factory;
+	}
+}
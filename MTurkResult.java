@@ -0,0 +1,66 @@
+package com.cclo7;
+
+/*
+ * Outcome of an MTurk operation: either a value or an MTurkError, never both.
+ * Operations without a result value return MTurkResult<Void> whose value is null on success.
+ */
+public final class MTurkResult<T> {
+	
+	private final T value;
+	private final MTurkError error;
+	private final String requestId;
+	
+	private MTurkResult(T value, MTurkError error, String requestId){
+		this.value = value;
+		this.error = error;
+		this.requestId = requestId;
+	}
+	
+	/*
+	 * requestId may be null when the outcome did not come from the service (e.g. answered by a cache)
+	 */
+	public static <T> MTurkResult<T> success(T value, String requestId){
+		return new MTurkResult<T>(value, null, requestId);
+	}
+	
+	public static <T> MTurkResult<T> failure(MTurkError error){
+		if(error == null){
+			throw new IllegalArgumentException("error must not be null");
+		}
+		return new MTurkResult<T>(null, error, error.getRequestId());
+	}
+	
+	public boolean isSuccess(){
+		return this.error == null;
+	}
+	
+	public T getValue(){
+		return this.value;
+	}
+	
+	/*
+	 * null on success
+	 */
+	public MTurkError getError(){
+		return this.error;
+	}
+	
+	public String getRequestId(){
+		return this.requestId;
+	}
+	
+	/*
+	 * the value on success, otherwise throws an MTurkException carrying the error
+	 */
+	public T getValueOrThrow(){
+		if(this.error != null){
+			throw new MTurkException(this.error);
+		}
+		return this.value;
+	}
+	
+	@Override
+	public String toString(){
+		return this.error == null ? "success " + this.value : "failure " + this.error;
+	}
+}
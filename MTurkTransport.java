@@ -0,0 +1,28 @@
+package com.cclo7;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/*
+ * Sends signed REST requests to the MTurk endpoint.
+ * Implementations must be thread safe; one instance is shared by every operation of a client.
+ */
+public interface MTurkTransport {
+
+	/*
+	 * Returns the response body of the request. The caller must read the stream to the end
+	 * and close it so that the underlying connection can be handed back for reuse.
+	 */
+	InputStream execute(String requestUrl) throws IOException;
+	
+	/*
+	 * Same as execute but sends the first length bytes of formBody as an 
+	 * application/x-www-form-urlencoded POST body, for requests too large for a URL.
+	 */
+	InputStream executePost(String serviceUrl, byte[] formBody, int length) throws IOException;
+	
+	/*
+	 * stops accepting requests, connections are not reused once their current response has been read
+	 */
+	void shutdown();
+}
@@ -0,0 +1,117 @@
+package com.cclo7;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * One event of an MTurk REST notification, see setHITTypeNotification.
+ */
+public class NotificationEvent {
+	
+	public enum Type {
+		ASSIGNMENT_ACCEPTED("AssignmentAccepted"),
+		ASSIGNMENT_ABANDONED("AssignmentAbandoned"),
+		ASSIGNMENT_RETURNED("AssignmentReturned"),
+		ASSIGNMENT_SUBMITTED("AssignmentSubmitted"),
+		HIT_REVIEWABLE("HITReviewable"),
+		HIT_EXPIRED("HITExpired"),
+		PING("Ping"),
+		UNKNOWN(null);
+		
+		private final String eventTypeName;
+		
+		private Type(String eventTypeName){
+			this.eventTypeName = eventTypeName;
+		}
+		
+		/*
+		 * name used by the MTurk API, e.g. in setHITTypeNotification event types
+		 */
+		public String getEventTypeName(){
+			return this.eventTypeName;
+		}
+		
+		static Type fromEventTypeName(String name){
+			for(Type type : values()){
+				if(type.eventTypeName != null && type.eventTypeName.equals(name)){
+					return type;
+				}
+			}
+			return UNKNOWN;
+		}
+	}
+	
+	private final Type type;
+	private final String eventTypeName;
+	private final Instant eventTime;
+	private final String hitTypeId;
+	private final String hitId;
+	private final String assignmentId;
+	
+	public NotificationEvent(String eventTypeName, Instant eventTime, String hitTypeId, String hitId, String assignmentId){
+		this.type = Type.fromEventTypeName(eventTypeName);
+		this.eventTypeName = eventTypeName;
+		this.eventTime = eventTime;
+		this.hitTypeId = hitTypeId;
+		this.hitId = hitId;
+		this.assignmentId = assignmentId;
+	}
+	
+	/*
+	 * Reads Event.1.*, Event.2.*, ... from the decoded notification parameters.
+	 */
+	static List<NotificationEvent> parseAll(Map<String, String> parameters){
+		List<NotificationEvent> events = new ArrayList<NotificationEvent>(1);
+		for(int i = 1; ; i++){
+			String prefix = "Event." + i + ".";
+			String eventType = parameters.get(prefix + "EventType");
+			if(eventType == null){
+				break;
+			}
+			
+			String eventTime = parameters.get(prefix + "EventTime");
+			events.add(new NotificationEvent(eventType, 
+					eventTime == null || eventTime.length() == 0 ? null : Instant.parse(eventTime),
+					parameters.get(prefix + "HITTypeId"), parameters.get(prefix + "HITId"), 
+					parameters.get(prefix + "AssignmentId")));
+		}
+		return events;
+	}
+	
+	public Type getType(){
+		return this.type;
+	}
+	
+	/*
+	 * raw event type, useful for types this library does not know yet
+	 */
+	public String getEventTypeName(){
+		return this.eventTypeName;
+	}
+	
+	public Instant getEventTime(){
+		return this.eventTime;
+	}
+	
+	public String getHITTypeId(){
+		return this.hitTypeId;
+	}
+	
+	public String getHITId(){
+		return this.hitId;
+	}
+	
+	/*
+	 * null for HIT level events
+	 */
+	public String getAssignmentId(){
+		return this.assignmentId;
+	}
+	
+	@Override
+	public String toString(){
+		return this.eventTypeName + "[HIT " + this.hitId + (this.assignmentId != null ? ", assignment " + this.assignmentId : "") + "]";
+	}
+}
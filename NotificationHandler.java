@@ -0,0 +1,10 @@
+package com.cclo7;
+
+/*
+ * Processes notification events delivered by a NotificationReceiver.
+ * Called concurrently from the dispatcher threads.
+ */
+public interface NotificationHandler {
+	
+	void handle(NotificationEvent event) throws Exception;
+}
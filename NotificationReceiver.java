@@ -0,0 +1,306 @@
+package com.cclo7;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/*
+ * Embedded HTTP endpoint for MTurk REST notifications (transport "REST" in setHITTypeNotification).
+ * 
+ * Incoming events are parsed into NotificationEvents and put on a bounded queue that a fixed number
+ * of dispatcher threads drain into the NotificationHandler. When the queue stays full for longer than
+ * the enqueue timeout the request is answered with 503, so MTurk delivers the notification again 
+ * later instead of the receiver buffering without limit. Handlers should therefore be idempotent.
+ * 
+ * Request bodies larger than the maximum body size are refused with 413. With a secret key, signed 
+ * notifications are also refused (403) when their Timestamp is further than the maximum timestamp 
+ * skew from the local clock, so a captured notification can only be replayed within that window.
+ */
+public class NotificationReceiver {
+	
+	public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+	public static final int DEFAULT_DISPATCHER_THREADS = 4;
+	public static final int DEFAULT_HTTP_THREADS = 4;
+	public static final long DEFAULT_ENQUEUE_TIMEOUT_MILLIS = 100;
+	public static final int DEFAULT_MAX_BODY_BYTES = 64 * 1024;
+	public static final long DEFAULT_MAX_TIMESTAMP_SKEW_MILLIS = 15 * 60 * 1000;
+	
+	private static final String NOTIFICATION_SERVICE_NAME = "AWSMechanicalTurkRequesterNotification";
+	private static final String NOTIFICATION_OPERATION = "Notify";
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final long DISPATCH_POLL_MILLIS = 200;
+	
+	private final int port;
+	private final String path;
+	private final NotificationHandler handler;
+	private final BlockingQueue<NotificationEvent> queue;
+	private final int dispatcherThreads;
+	
+	private final AtomicLong receivedCount = new AtomicLong(0);
+	private final AtomicLong rejectedCount = new AtomicLong(0);
+	private final AtomicLong handledCount = new AtomicLong(0);
+	private final AtomicLong failedCount = new AtomicLong(0);
+	
+	private RequestSigner signer;
+	private long enqueueTimeoutMillis = DEFAULT_ENQUEUE_TIMEOUT_MILLIS;
+	private int maxBodyBytes = DEFAULT_MAX_BODY_BYTES;
+	private long maxTimestampSkewMillis = DEFAULT_MAX_TIMESTAMP_SKEW_MILLIS;
+	private HttpServer server;
+	private ExecutorService httpExecutor;
+	private ExecutorService dispatchExecutor;
+	private volatile boolean isRunning = false;
+	
+	/*
+	 * port 0 binds an ephemeral port, see getPort()
+	 */
+	public NotificationReceiver(int port, String path, NotificationHandler handler, int queueCapacity, 
+			int dispatcherThreads){
+		this.port = port;
+		this.path = path;
+		this.handler = handler;
+		this.queue = new ArrayBlockingQueue<NotificationEvent>(queueCapacity);
+		this.dispatcherThreads = dispatcherThreads;
+	}
+	
+	public NotificationReceiver(int port, String path, NotificationHandler handler){
+		this(port, path, handler, DEFAULT_QUEUE_CAPACITY, DEFAULT_DISPATCHER_THREADS);
+	}
+	
+	/*
+	 * When set, notifications whose Signature does not match the requester secret key are refused with 403.
+	 * Must be called before start().
+	 */
+	public void setSecretKey(String secretKey){
+		this.signer = new RequestSigner(NOTIFICATION_SERVICE_NAME, secretKey);
+	}
+	
+	public void setEnqueueTimeoutMillis(long enqueueTimeoutMillis){
+		this.enqueueTimeoutMillis = enqueueTimeoutMillis;
+	}
+	
+	/*
+	 * must be called before start()
+	 */
+	public void setMaxBodyBytes(int maxBodyBytes){
+		this.maxBodyBytes = maxBodyBytes;
+	}
+	
+	/*
+	 * how far the Timestamp of a signed notification may be from the local clock, in either direction.
+	 * Must be called before start().
+	 */
+	public void setMaxTimestampSkewMillis(long maxTimestampSkewMillis){
+		this.maxTimestampSkewMillis = maxTimestampSkewMillis;
+	}
+	
+	public synchronized void start() throws IOException {
+		if(this.isRunning){
+			return;
+		}
+		
+		this.server = HttpServer.create(new InetSocketAddress(this.port), 0);
+		this.server.createContext(this.path, new NotificationHttpHandler());
+		this.httpExecutor = MTurkExecutors.newFixedExecutor(DEFAULT_HTTP_THREADS);
+		this.server.setExecutor(this.httpExecutor);
+		
+		this.isRunning = true;
+		this.dispatchExecutor = MTurkExecutors.newFixedExecutor(this.dispatcherThreads);
+		for(int i = 0; i < this.dispatcherThreads; i++){
+			this.dispatchExecutor.execute(new Dispatcher());
+		}
+		this.server.start();
+	}
+	
+	/*
+	 * stops accepting notifications and waits until the events already queued have been handled
+	 */
+	public synchronized void stop() throws InterruptedException {
+		if(!this.isRunning){
+			return;
+		}
+		
+		this.server.stop(0);
+		this.httpExecutor.shutdown();
+		this.isRunning = false;
+		this.dispatchExecutor.shutdown();
+		this.dispatchExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+	}
+	
+	/*
+	 * the bound port, only valid after start()
+	 */
+	public int getPort(){
+		return this.server.getAddress().getPort();
+	}
+	
+	public int getQueueSize(){
+		return this.queue.size();
+	}
+	
+	public long getReceivedCount(){
+		return this.receivedCount.get();
+	}
+	
+	/*
+	 * events refused because the queue was full
+	 */
+	public long getRejectedCount(){
+		return this.rejectedCount.get();
+	}
+	
+	public long getHandledCount(){
+		return this.handledCount.get();
+	}
+	
+	/*
+	 * events whose handler threw
+	 */
+	public long getFailedCount(){
+		return this.failedCount.get();
+	}
+	
+	private boolean isSignatureValid(Map<String, String> parameters){
+		String timestamp = parameters.get("Timestamp");
+		String signature = parameters.get("Signature");
+		if(timestamp == null || signature == null){
+			return false;
+		}
+		if(!this.isTimestampFresh(timestamp)){
+			return false;
+		}
+		String expected = this.signer.sign(NOTIFICATION_OPERATION, timestamp);
+		return MessageDigest.isEqual(expected.getBytes(UTF_8), signature.getBytes(UTF_8));
+	}
+	
+	private boolean isTimestampFresh(String timestamp){
+		long timestampMillis;
+		try{
+			timestampMillis = Instant.parse(timestamp).toEpochMilli();
+		}catch(DateTimeParseException e){
+			return false;
+		}
+		return Math.abs(System.currentTimeMillis() - timestampMillis) <= this.maxTimestampSkewMillis;
+	}
+	
+	private static void decodeForm(String encoded, Map<String, String> parameters) throws UnsupportedEncodingException {
+		if(encoded == null || encoded.length() == 0){
+			return;
+		}
+		for(String pair : encoded.split("&")){
+			int separator = pair.indexOf('=');
+			if(separator > 0){
+				parameters.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"), 
+						URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+			}
+		}
+	}
+	
+	/*
+	 * null when the body is longer than maxBytes
+	 */
+	private static String readBody(InputStream in, int maxBytes) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read;
+		while((read = in.read(buffer)) != -1){
+			if(body.size() + read > maxBytes){
+				return null;
+			}
+			body.write(buffer, 0, read);
+		}
+		return new String(body.toByteArray(), UTF_8);
+	}
+	
+	private class NotificationHttpHandler implements HttpHandler {
+		
+		public void handle(HttpExchange exchange) throws IOException {
+			int status;
+			try{
+				Map<String, String> parameters = new HashMap<String, String>();
+				decodeForm(exchange.getRequestURI().getRawQuery(), parameters);
+				boolean isTooLarge = false;
+				if("POST".equalsIgnoreCase(exchange.getRequestMethod())){
+					String body = readBody(exchange.getRequestBody(), maxBodyBytes);
+					if(body == null){
+						isTooLarge = true;
+					}else{
+						decodeForm(body, parameters);
+					}
+				}
+				
+				if(isTooLarge){
+					status = 413;
+				}else if(signer != null && !isSignatureValid(parameters)){
+					status = 403;
+				}else{
+					status = this.enqueue(NotificationEvent.parseAll(parameters));
+				}
+				
+			}catch(RuntimeException e){
+				e.printStackTrace();
+				status = 400;
+			}catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				status = 503;
+			}
+			
+			exchange.sendResponseHeaders(status, -1);
+			exchange.close();
+		}
+		
+		private int enqueue(List<NotificationEvent> events) throws InterruptedException {
+			for(NotificationEvent event : events){
+				receivedCount.incrementAndGet();
+				if(!queue.offer(event, enqueueTimeoutMillis, TimeUnit.MILLISECONDS)){
+					rejectedCount.incrementAndGet();
+					return 503;
+				}
+			}
+			return 200;
+		}
+	}
+	
+	private class Dispatcher implements Runnable {
+		
+		public void run(){
+			while(isRunning || !queue.isEmpty()){
+				NotificationEvent event;
+				try{
+					event = queue.poll(DISPATCH_POLL_MILLIS, TimeUnit.MILLISECONDS);
+				}catch(InterruptedException e){
+					return;
+				}
+				if(event == null){
+					continue;
+				}
+				
+				try{
+					handler.handle(event);
+					handledCount.incrementAndGet();
+				}catch(Exception e){
+					failedCount.incrementAndGet();
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,460 @@
+package com.cclo7;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/*
+ * Append-only, memory-mapped write-ahead journal of money-moving review operations.
+ * 
+ * Every decision is appended as an intent record and made durable before it is sent; its outcome is 
+ * appended afterwards. Intents without an outcome are returned by getPendingEntries() after a restart 
+ * so they can be replayed. Bonus intents carry the UniqueRequestToken of their decision, which makes 
+ * the replay idempotent, also against a caller submitting the same decision again.
+ * 
+ * The journal is a sequence of fixed size segment files next to the journal file, named after it 
+ * with the segment number appended (reviews.journal.0, reviews.journal.1, ...), each mapped whole. 
+ * Records are [length][crc32][body] and never span segments; a length of 0 marks the end of the log, 
+ * -1 the unused tail of a segment. A torn record at the tail (crc mismatch) is treated as the end of 
+ * the log and overwritten. A record with a valid crc that cannot be decoded fails the recovery.
+ * 
+ * Each new segment starts with a checkpoint: the intents still pending are copied into it and, once 
+ * it is forced, all older segments are deleted. Recovery therefore reads only the last segment or two 
+ * instead of the whole history. The checkpoint is skipped, and the older segments kept until the next 
+ * one, while the pending intents would fill more than half a segment.
+ * 
+ * Durability uses group commit: appenders wait on a single flusher thread, which forces all segments
+ * written since its previous pass at once, so concurrent callers share one fsync.
+ */
+public class OperationJournal {
+	
+	public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+	
+	private static final byte INTENT_RECORD = 1;
+	private static final byte OUTCOME_RECORD = 2;
+	private static final int RECORD_HEADER_SIZE = 8;
+	private static final int END_OF_SEGMENT = -1;
+	
+	private final File journalFile;
+	private final int segmentSize;
+	private final SortedMap<Integer, MappedByteBuffer> segments = new TreeMap<Integer, MappedByteBuffer>();
+	private final Map<Long, JournalEntry> pendingEntries = new LinkedHashMap<Long, JournalEntry>();
+	private final Set<Integer> dirtySegments = new LinkedHashSet<Integer>();
+	
+	private long nextEntryId = 1;
+	private int currentSegment = 0;
+	private long appendedPosition = 0;
+	
+	private final ReentrantLock flushLock = new ReentrantLock();
+	private final Condition flushNeeded = this.flushLock.newCondition();
+	private final Condition flushDone = this.flushLock.newCondition();
+	private long durablePosition = 0;
+	private boolean isFlushRequested = false;
+	private volatile boolean isOpen = true;
+	private final Thread flusher;
+	
+	public OperationJournal(File journalFile, int segmentSize) throws IOException {
+		this.journalFile = journalFile.getAbsoluteFile();
+		this.segmentSize = segmentSize;
+		
+		this.recover();
+		this.durablePosition = this.appendedPosition;
+		
+		this.flusher = new Thread(new Flusher(), "mturk-journal-flusher");
+		this.flusher.setDaemon(true);
+		this.flusher.start();
+	}
+	
+	public OperationJournal(File journalFile) throws IOException {
+		this(journalFile, DEFAULT_SEGMENT_SIZE);
+	}
+	
+	/*
+	 * Records the intent and returns once it is durable. Bonuses get ReviewDecision.getUniqueRequestToken().
+	 */
+	public JournalEntry appendIntent(ReviewDecision decision) throws IOException, InterruptedException {
+		long end;
+		JournalEntry entry;
+		synchronized(this){
+			entry = new JournalEntry(this.nextEntryId++, decision, decision.getUniqueRequestToken());
+			end = this.append(encodeIntent(entry));
+			this.pendingEntries.put(Long.valueOf(entry.getEntryId()), entry);
+		}
+		this.awaitDurable(end);
+		return entry;
+	}
+	
+	/*
+	 * Records the outcome without waiting for the disk: if it is lost in a crash the entry is
+	 * replayed, which is harmless because replays are idempotent.
+	 */
+	public void appendOutcome(JournalEntry entry, boolean isSuccess) throws IOException {
+		synchronized(this){
+			this.append(encodeOutcome(entry.getEntryId(), isSuccess));
+			this.pendingEntries.remove(Long.valueOf(entry.getEntryId()));
+		}
+		this.requestFlush();
+	}
+	
+	/*
+	 * intents without an outcome, in the order they were recorded
+	 */
+	public synchronized List<JournalEntry> getPendingEntries(){
+		return new ArrayList<JournalEntry>(this.pendingEntries.values());
+	}
+	
+	/*
+	 * forces everything appended so far to disk
+	 */
+	public void sync() throws InterruptedException, IOException {
+		long end;
+		synchronized(this){
+			end = this.appendedPosition;
+		}
+		this.awaitDurable(end);
+	}
+	
+	public void close() throws IOException, InterruptedException {
+		this.sync();
+		this.isOpen = false;
+		this.requestFlush();
+		this.flusher.join();
+	}
+	
+	/*
+	 * the segment files currently making up the journal, oldest first
+	 */
+	public synchronized List<File> getSegmentFiles(){
+		List<File> files = new ArrayList<File>(this.segments.size());
+		for(Integer index : this.segments.keySet()){
+			files.add(this.segmentFile(index.intValue()));
+		}
+		return files;
+	}
+	
+	private long append(byte[] body) throws IOException {
+		if(!this.isOpen){
+			throw new IOException("journal is closed");
+		}
+		
+		//at most half a segment, so that a record always fits next to a checkpoint
+		int recordSize = RECORD_HEADER_SIZE + body.length;
+		if(recordSize + 4 > this.segmentSize / 2){
+			throw new IOException("record of " + recordSize + " bytes does not fit a journal segment");
+		}
+		
+		MappedByteBuffer segment = this.segment(this.currentSegment);
+		if(segment.remaining() < recordSize + 4){
+			//keep room for the end marker, continue in the next segment
+			segment.putInt(END_OF_SEGMENT);
+			this.dirtySegments.add(Integer.valueOf(this.currentSegment));
+			this.currentSegment++;
+			segment = this.segment(this.currentSegment);
+			this.checkpoint(segment);
+		}
+		
+		putRecord(segment, body);
+		this.dirtySegments.add(Integer.valueOf(this.currentSegment));
+		
+		this.appendedPosition = (long) this.currentSegment * this.segmentSize + segment.position();
+		return this.appendedPosition;
+	}
+	
+	private static void putRecord(MappedByteBuffer segment, byte[] body){
+		CRC32 crc = new CRC32();
+		crc.update(body);
+		segment.putInt(body.length);
+		segment.putInt((int) crc.getValue());
+		segment.put(body);
+	}
+	
+	/*
+	 * Copies the pending intents into the fresh current segment, forces it and deletes the older segments. 
+	 * Runs once per segment, the single fsync holds up appenders only for that moment.
+	 */
+	private void checkpoint(MappedByteBuffer segment) throws IOException {
+		List<byte[]> intents = new ArrayList<byte[]>(this.pendingEntries.size());
+		int size = 0;
+		for(JournalEntry entry : this.pendingEntries.values()){
+			byte[] body = encodeIntent(entry);
+			size += RECORD_HEADER_SIZE + body.length;
+			if(size > this.segmentSize / 2){
+				return;
+			}
+			intents.add(body);
+		}
+		
+		for(byte[] body : intents){
+			putRecord(segment, body);
+		}
+		segment.force();
+		
+		Iterator<Integer> retired = this.segments.headMap(Integer.valueOf(this.currentSegment)).keySet().iterator();
+		while(retired.hasNext()){
+			Integer index = retired.next();
+			//a flusher pass that already picked up the segment may still force it, which is harmless once it is deleted
+			retired.remove();
+			this.dirtySegments.remove(index);
+			File file = this.segmentFile(index.intValue());
+			if(!file.delete() && file.exists()){
+				throw new IOException("could not delete journal segment " + file);
+			}
+		}
+	}
+	
+	private File segmentFile(int index){
+		return new File(this.journalFile.getParentFile(), this.journalFile.getName() + "." + index);
+	}
+	
+	private MappedByteBuffer segment(int index) throws IOException {
+		MappedByteBuffer segment = this.segments.get(Integer.valueOf(index));
+		if(segment == null){
+			//the mapping stays valid after the file is closed
+			RandomAccessFile file = new RandomAccessFile(this.segmentFile(index), "rw");
+			try{
+				segment = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, this.segmentSize);
+			}finally{
+				file.close();
+			}
+			this.segments.put(Integer.valueOf(index), segment);
+		}
+		return segment;
+	}
+	
+	/*
+	 * segment numbers found on disk, oldest first
+	 */
+	private List<Integer> findSegments(){
+		SortedMap<Integer, File> found = new TreeMap<Integer, File>();
+		String prefix = this.journalFile.getName() + ".";
+		File[] files = this.journalFile.getParentFile().listFiles();
+		if(files != null){
+			for(File file : files){
+				String name = file.getName();
+				if(name.startsWith(prefix) && name.length() > prefix.length() && name.length() - prefix.length() < 10){
+					String suffix = name.substring(prefix.length());
+					boolean isNumber = true;
+					for(int i = 0; i < suffix.length(); i++){
+						isNumber &= Character.isDigit(suffix.charAt(i));
+					}
+					if(isNumber){
+						found.put(Integer.valueOf(suffix), file);
+					}
+				}
+			}
+		}
+		return new ArrayList<Integer>(found.keySet());
+	}
+	
+	private void recover() throws IOException {
+		List<Integer> indexes = this.findSegments();
+		if(indexes.isEmpty()){
+			indexes.add(Integer.valueOf(0));
+		}
+		
+		for(Integer index : indexes){
+			MappedByteBuffer segment = this.segment(index.intValue());
+			this.currentSegment = index.intValue();
+			this.appendedPosition = (long) this.currentSegment * this.segmentSize;
+			
+			while(segment.remaining() >= RECORD_HEADER_SIZE){
+				int start = segment.position();
+				int length = segment.getInt();
+				if(length == END_OF_SEGMENT){
+					//the log continues in the next segment, which is mapped on the next append if it does not exist yet
+					this.currentSegment = index.intValue() + 1;
+					this.appendedPosition = (long) this.currentSegment * this.segmentSize;
+					break;
+				}
+				if(length <= 0 || length > segment.remaining() - 4){
+					//end of log or torn record, a later segment only exists if this tail was never acknowledged
+					segment.position(start);
+					break;
+				}
+				
+				int checksum = segment.getInt();
+				byte[] body = new byte[length];
+				segment.get(body);
+				CRC32 crc = new CRC32();
+				crc.update(body);
+				if((int) crc.getValue() != checksum){
+					segment.position(start);
+					break;
+				}
+				
+				try{
+					this.replayRecord(body);
+				}catch(IOException e){
+					throw new IOException("corrupt journal record in " + this.segmentFile(index.intValue()) + " at offset " + start, e);
+				}
+				this.appendedPosition = (long) index.intValue() * this.segmentSize + segment.position();
+			}
+		}
+	}
+	
+	private void replayRecord(byte[] body) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+		byte type = in.readByte();
+		long entryId = in.readLong();
+		this.nextEntryId = Math.max(this.nextEntryId, entryId + 1);
+		
+		if(type == INTENT_RECORD){
+			int ordinal = in.readUnsignedByte();
+			ReviewDecision.Action[] actions = ReviewDecision.Action.values();
+			if(ordinal >= actions.length){
+				throw new IOException("unknown action " + ordinal);
+			}
+			ReviewDecision.Action action = actions[ordinal];
+			String assignmentId = in.readUTF();
+			String workerId = readNullable(in);
+			double bonusAmt = in.readDouble();
+			String reason = readNullable(in);
+			String token = readNullable(in);
+			
+			ReviewDecision decision;
+			switch(action){
+				case APPROVE:
+					decision = ReviewDecision.approve(assignmentId);
+					break;
+				case REJECT:
+					decision = ReviewDecision.reject(assignmentId, reason);
+					break;
+				default:
+					decision = ReviewDecision.grantBonus(workerId, assignmentId, bonusAmt, reason);
+			}
+			this.pendingEntries.put(Long.valueOf(entryId), new JournalEntry(entryId, decision, token));
+		}else if(type == OUTCOME_RECORD){
+			this.pendingEntries.remove(Long.valueOf(entryId));
+		}else{
+			throw new IOException("unknown record type " + type);
+		}
+	}
+	
+	private static byte[] encodeIntent(JournalEntry entry) throws IOException {
+		ReviewDecision decision = entry.getDecision();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(INTENT_RECORD);
+		out.writeLong(entry.getEntryId());
+		out.writeByte(decision.getAction().ordinal());
+		out.writeUTF(decision.getAssignmentId());
+		writeNullable(out, decision.getWorkerId());
+		out.writeDouble(decision.getBonusAmt());
+		writeNullable(out, decision.getReason());
+		writeNullable(out, entry.getRequestToken());
+		out.flush();
+		return bytes.toByteArray();
+	}
+	
+	private static byte[] encodeOutcome(long entryId, boolean isSuccess) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(10);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(OUTCOME_RECORD);
+		out.writeLong(entryId);
+		out.writeBoolean(isSuccess);
+		out.flush();
+		return bytes.toByteArray();
+	}
+	
+	private static void writeNullable(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if(value != null){
+			out.writeUTF(value);
+		}
+	}
+	
+	private static String readNullable(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+	
+	private void requestFlush(){
+		this.flushLock.lock();
+		try{
+			this.isFlushRequested = true;
+			this.flushNeeded.signal();
+		}finally{
+			this.flushLock.unlock();
+		}
+	}
+	
+	private void awaitDurable(long position) throws InterruptedException, IOException {
+		this.flushLock.lock();
+		try{
+			while(this.durablePosition < position){
+				if(!this.flusher.isAlive()){
+					throw new IOException("journal flusher stopped");
+				}
+				if(!this.isFlushRequested){
+					this.isFlushRequested = true;
+					this.flushNeeded.signal();
+				}
+				this.flushDone.await();
+			}
+		}finally{
+			this.flushLock.unlock();
+		}
+	}
+	
+	private class Flusher implements Runnable {
+		
+		public void run(){
+			while(true){
+				flushLock.lock();
+				try{
+					while(!isFlushRequested && isOpen){
+						flushNeeded.await();
+					}
+					isFlushRequested = false;
+				}catch(InterruptedException e){
+					return;
+				}finally{
+					flushLock.unlock();
+				}
+				
+				long target;
+				Collection<MappedByteBuffer> dirty = new ArrayList<MappedByteBuffer>();
+				synchronized(OperationJournal.this){
+					target = appendedPosition;
+					for(Integer index : dirtySegments){
+						dirty.add(segments.get(index));
+					}
+					dirtySegments.clear();
+				}
+				
+				for(MappedByteBuffer segment : dirty){
+					segment.force();
+				}
+				
+				flushLock.lock();
+				try{
+					durablePosition = Math.max(durablePosition, target);
+					flushDone.signalAll();
+					if(!isOpen){
+						return;
+					}
+				}finally{
+					flushLock.unlock();
+				}
+			}
+		}
+	}
+}
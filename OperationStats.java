@@ -0,0 +1,122 @@
+package com.cclo7;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Counters and latency histogram of one MTurk operation.
+ */
+public class OperationStats implements OperationStatsMXBean {
+	
+	private final String operation;
+	private final LatencyHistogram latency = new LatencyHistogram();
+	private final AtomicLong requestCount = new AtomicLong(0);
+	private final AtomicLong errorCount = new AtomicLong(0);
+	private final AtomicLong retryCount = new AtomicLong(0);
+	private final AtomicLong inFlightCount = new AtomicLong(0);
+	private final AtomicLong bytesSent = new AtomicLong(0);
+	private final AtomicLong bytesReceived = new AtomicLong(0);
+	private final ConcurrentMap<String, AtomicLong> errorCodeCounts = new ConcurrentHashMap<String, AtomicLong>();
+	
+	public OperationStats(String operation){
+		this.operation = operation;
+	}
+	
+	void started(){
+		this.inFlightCount.incrementAndGet();
+	}
+	
+	void completed(long latencyNanos, int attempts, String errorCode, long sent, long received){
+		this.inFlightCount.decrementAndGet();
+		this.requestCount.incrementAndGet();
+		this.latency.recordMicros(latencyNanos / 1000);
+		if(attempts > 1){
+			this.retryCount.addAndGet(attempts - 1);
+		}
+		this.bytesSent.addAndGet(sent);
+		this.bytesReceived.addAndGet(received);
+		
+		if(errorCode != null){
+			this.errorCount.incrementAndGet();
+			AtomicLong count = this.errorCodeCounts.get(errorCode);
+			if(count == null){
+				AtomicLong created = new AtomicLong(0);
+				count = this.errorCodeCounts.putIfAbsent(errorCode, created);
+				if(count == null){
+					count = created;
+				}
+			}
+			count.incrementAndGet();
+		}
+	}
+	
+	public LatencyHistogram getLatencyHistogram(){
+		return this.latency;
+	}
+	
+	public String getOperation(){
+		return this.operation;
+	}
+	
+	public long getRequestCount(){
+		return this.requestCount.get();
+	}
+	
+	public long getErrorCount(){
+		return this.errorCount.get();
+	}
+	
+	public long getRetryCount(){
+		return this.retryCount.get();
+	}
+	
+	public long getInFlightCount(){
+		return this.inFlightCount.get();
+	}
+	
+	public long getBytesSent(){
+		return this.bytesSent.get();
+	}
+	
+	public long getBytesReceived(){
+		return this.bytesReceived.get();
+	}
+	
+	public double getLatencyMeanMillis(){
+		return this.latency.getMeanMicros() / 1000.0;
+	}
+	
+	public double getLatencyP50Millis(){
+		return this.latency.getPercentileMicros(50) / 1000.0;
+	}
+	
+	public double getLatencyP95Millis(){
+		return this.latency.getPercentileMicros(95) / 1000.0;
+	}
+	
+	public double getLatencyP99Millis(){
+		return this.latency.getPercentileMicros(99) / 1000.0;
+	}
+	
+	public double getLatencyMaxMillis(){
+		return this.latency.getMaxMicros() / 1000.0;
+	}
+	
+	public Map<String, Long> getErrorCodeCounts(){
+		Map<String, Long> counts = new HashMap<String, Long>();
+		for(Map.Entry<String, AtomicLong> entry : this.errorCodeCounts.entrySet()){
+			counts.put(entry.getKey(), Long.valueOf(entry.getValue().get()));
+		}
+		return counts;
+	}
+	
+	@Override
+	public String toString(){
+		return String.format("%s: %d requests, %d errors, %d retries, p50 %.1f ms, p99 %.1f ms, max %.1f ms",
+				this.operation, this.getRequestCount(), this.getErrorCount(), this.getRetryCount(),
+				this.getLatencyP50Millis(), this.getLatencyP99Millis(), this.getLatencyMaxMillis());
+	}
+}
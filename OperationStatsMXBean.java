@@ -0,0 +1,35 @@
+package com.cclo7;
+
+import java.util.Map;
+
+/*
+ * JMX view of the statistics of one MTurk operation, see DefaultMTurkMetrics.registerMBeans.
+ */
+public interface OperationStatsMXBean {
+	
+	String getOperation();
+	
+	long getRequestCount();
+	
+	long getErrorCount();
+	
+	long getRetryCount();
+	
+	long getInFlightCount();
+	
+	long getBytesSent();
+	
+	long getBytesReceived();
+	
+	double getLatencyMeanMillis();
+	
+	double getLatencyP50Millis();
+	
+	double getLatencyP95Millis();
+	
+	double getLatencyP99Millis();
+	
+	double getLatencyMaxMillis();
+	
+	Map<String, Long> getErrorCodeCounts();
+}
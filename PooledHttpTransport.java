@@ -0,0 +1,188 @@
+package com.cclo7;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+
+/*
+ * Keep-alive transport on top of HttpURLConnection.
+ * 
+ * The JDK keeps idle persistent connections in its keep-alive cache as long as every response
+ * body is read to the end and closed, so the stream returned here drains itself on close.
+ * The number of connections open at the same time is bounded by a semaphore; callers
+ * beyond the limit wait for a connection to be released.
+ * 
+ * The JDK cache keeps at most http.maxConnections (5 by default) idle connections per destination,
+ * a JVM-wide setting read once. Applications that run more than 5 requests at a time should start 
+ * the JVM with -Dhttp.maxConnections set to maxConnections, otherwise the connections beyond 5 are 
+ * closed after each response instead of being reused.
+ */
+public class PooledHttpTransport implements MTurkTransport {
+
+	public static final int DEFAULT_MAX_CONNECTIONS = 20;
+	public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 10000;
+	public static final int DEFAULT_READ_TIMEOUT_MILLIS = 30000;
+	
+	private static final int DRAIN_BUFFER_SIZE = 4096;
+	private static final String FORM_CONTENT_TYPE = "application/x-www-form-urlencoded; charset=UTF-8";
+	
+	private final int MAX_CONNECTIONS;
+	private final int CONNECT_TIMEOUT_MILLIS;
+	private final int READ_TIMEOUT_MILLIS;
+	private final Semaphore connectionPermits;
+	private volatile boolean isShutdown = false;
+	
+	public PooledHttpTransport(int maxConnections, int connectTimeoutMillis, int readTimeoutMillis){
+		if(maxConnections < 1){
+			throw new IllegalArgumentException("maxConnections must be positive: " + maxConnections);
+		}
+		this.MAX_CONNECTIONS = maxConnections;
+		this.CONNECT_TIMEOUT_MILLIS = connectTimeoutMillis;
+		this.READ_TIMEOUT_MILLIS = readTimeoutMillis;
+		this.connectionPermits = new Semaphore(maxConnections, true);
+	}
+	
+	public PooledHttpTransport(){
+		this(DEFAULT_MAX_CONNECTIONS, DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS);
+	}
+	
+	public InputStream execute(String requestUrl) throws IOException {
+		return this.send(requestUrl, null, 0);
+	}
+	
+	public InputStream executePost(String serviceUrl, byte[] formBody, int length) throws IOException {
+		return this.send(serviceUrl, formBody, length);
+	}
+	
+	/*
+	 * GET when body is null, form encoded POST otherwise
+	 */
+	private InputStream send(String url, byte[] body, int length) throws IOException {
+		if(this.isShutdown){
+			throw new IOException("transport has been shut down");
+		}
+		
+		try {
+			this.connectionPermits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for a connection");
+		}
+		
+		HttpURLConnection connection = null;
+		try{
+			connection = (HttpURLConnection) new URL(url).openConnection();
+			connection.setConnectTimeout(this.CONNECT_TIMEOUT_MILLIS);
+			connection.setReadTimeout(this.READ_TIMEOUT_MILLIS);
+			connection.setUseCaches(false);
+			connection.setRequestProperty("Accept-Encoding", "gzip");
+			
+			if(body != null){
+				connection.setRequestMethod("POST");
+				connection.setDoOutput(true);
+				connection.setRequestProperty("Content-Type", FORM_CONTENT_TYPE);
+				connection.setFixedLengthStreamingMode(length);
+				OutputStream out = connection.getOutputStream();
+				try{
+					out.write(body, 0, length);
+				}finally{
+					out.close();
+				}
+			}
+			
+			//error responses still carry an XML body, reading it keeps the connection reusable
+			InputStream in;
+			if(connection.getResponseCode() >= HttpURLConnection.HTTP_BAD_REQUEST){
+				in = connection.getErrorStream();
+				if(in == null){
+					throw new IOException("HTTP " + connection.getResponseCode() + " without response body");
+				}
+			}else{
+				in = connection.getInputStream();
+			}
+			
+			if("gzip".equalsIgnoreCase(connection.getContentEncoding())){
+				in = new GZIPInputStream(in);
+			}
+			
+			return new PooledInputStream(in, connection);
+			
+		}catch(IOException e){
+			this.connectionPermits.release();
+			throw e;
+		}catch(RuntimeException e){
+			this.connectionPermits.release();
+			throw e;
+		}
+	}
+	
+	/*
+	 * Rejects new requests. Responses still being read close their connection instead of handing it 
+	 * back for reuse; idle connections in the JDK keep-alive cache are closed by the JDK once their
+	 * keep-alive timeout expires.
+	 */
+	public void shutdown(){
+		this.isShutdown = true;
+	}
+	
+	public int getMaxConnections(){
+		return this.MAX_CONNECTIONS;
+	}
+	
+	public int getAvailableConnections(){
+		return this.connectionPermits.availablePermits();
+	}
+	
+	/*
+	 * Drains the remaining body on close and gives the connection permit back exactly once.
+	 * After shutdown() the connection is closed instead.
+	 */
+	private class PooledInputStream extends FilterInputStream {
+		
+		private final HttpURLConnection connection;
+		private final AtomicBoolean isReleased = new AtomicBoolean(false);
+		
+		PooledInputStream(InputStream in, HttpURLConnection connection){
+			super(in);
+			this.connection = connection;
+		}
+		
+		@Override
+		public void close() throws IOException {
+			if(!this.isReleased.compareAndSet(false, true)){
+				return;
+			}
+			
+			if(PooledHttpTransport.this.isShutdown){
+				try{
+					this.connection.disconnect();
+				}finally{
+					PooledHttpTransport.this.connectionPermits.release();
+				}
+				return;
+			}
+			
+			try{
+				byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+				while(this.in.read(buffer) != -1){
+					//discard
+				}
+			}catch(IOException e){
+				//connection is not reusable, the JDK will not cache it
+			}finally{
+				try{
+					this.in.close();
+				}finally{
+					PooledHttpTransport.this.connectionPermits.release();
+				}
+			}
+		}
+	}
+}
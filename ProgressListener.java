@@ -0,0 +1,11 @@
+package com.cclo7;
+
+/*
+ * Receives progress of a batch run. Called from the client executor threads after every completed item,
+ * implementations must be thread safe and return quickly. An exception thrown by the listener is printed 
+ * and does not stop the batch.
+ */
+public interface ProgressListener {
+	
+	void onProgress(int completed, int succeeded, int failed);
+}
@@ -0,0 +1,119 @@
+package com.cclo7;
+
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * The answer to one question of a QuestionFormAnswers document. Depending on the question it holds
+ * free text, one or more selections (plus the text of an "other" selection), or an uploaded file.
+ */
+public final class QuestionAnswer {
+	
+	public enum Type {
+		FREE_TEXT,
+		SELECTION,
+		UPLOADED_FILE
+	}
+	
+	private final String questionIdentifier;
+	private final Type type;
+	private final String freeText;
+	private final List<String> selectionIdentifiers;
+	private final String otherSelectionText;
+	private final String uploadedFileKey;
+	private final long uploadedFileSizeInBytes;
+	
+	QuestionAnswer(String questionIdentifier, String freeText, List<String> selectionIdentifiers, 
+			String otherSelectionText, String uploadedFileKey, long uploadedFileSizeInBytes){
+		this.questionIdentifier = questionIdentifier;
+		this.freeText = freeText;
+		this.selectionIdentifiers = Collections.unmodifiableList(selectionIdentifiers);
+		this.otherSelectionText = otherSelectionText;
+		this.uploadedFileKey = uploadedFileKey;
+		this.uploadedFileSizeInBytes = uploadedFileSizeInBytes;
+		
+		if(uploadedFileKey != null){
+			this.type = Type.UPLOADED_FILE;
+		}else if(!selectionIdentifiers.isEmpty() || otherSelectionText != null){
+			this.type = Type.SELECTION;
+		}else{
+			this.type = Type.FREE_TEXT;
+		}
+	}
+	
+	public String getQuestionIdentifier(){
+		return this.questionIdentifier;
+	}
+	
+	public Type getType(){
+		return this.type;
+	}
+	
+	/*
+	 * null unless the type is FREE_TEXT
+	 */
+	public String getFreeText(){
+		return this.freeText;
+	}
+	
+	/*
+	 * every selected SelectionIdentifier in document order, empty unless the type is SELECTION
+	 */
+	public List<String> getSelectionIdentifiers(){
+		return this.selectionIdentifiers;
+	}
+	
+	/*
+	 * text entered for the "other" option of a selection, or null
+	 */
+	public String getOtherSelectionText(){
+		return this.otherSelectionText;
+	}
+	
+	/*
+	 * key of the uploaded file, passed to GetFileUploadURL
+	 */
+	public String getUploadedFileKey(){
+		return this.uploadedFileKey;
+	}
+	
+	/*
+	 * -1 when no file was uploaded
+	 */
+	public long getUploadedFileSizeInBytes(){
+		return this.uploadedFileSizeInBytes;
+	}
+	
+	/*
+	 * Single string form of the answer: the free text, the selections separated by '|' 
+	 * (followed by the other selection text), or the uploaded file key.
+	 */
+	public String getText(){
+		switch(this.type){
+			case UPLOADED_FILE:
+				return this.uploadedFileKey;
+			case SELECTION:
+				StringBuilder text = new StringBuilder();
+				for(String selection : this.selectionIdentifiers){
+					if(text.length() > 0){
+						text.append('|');
+					}
+					text.append(selection);
+				}
+				if(this.otherSelectionText != null){
+					if(text.length() > 0){
+						text.append('|');
+					}
+					text.append(this.otherSelectionText);
+				}
+				return text.toString();
+			default:
+				return this.freeText;
+		}
+	}
+	
+	@Override
+	public String toString(){
+		return this.questionIdentifier + "=" + this.getText();
+	}
+}
@@ -0,0 +1,229 @@
+package com.cclo7;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Question document compiled once from a template with ${name} placeholders; $${ stands for a literal ${.
+ * 
+ * Compiling splits the template into its static segments and placeholder slots, so rendering 
+ * a HIT only appends the precomputed segments and the escaped values into one presized builder.
+ * Values are escaped for where their slot is: XML escaped in text and attribute values, copied 
+ * as they are inside a CDATA section (e.g. the HTML of an HTMLQuestion, where entities would 
+ * reach scripts undecoded) with only "]]>" split across two sections. Instances are immutable 
+ * and thread safe.
+ */
+public class QuestionTemplate {
+	
+	private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+	private static final String EXTERNAL_QUESTION_SCHEMA = 
+			"http://mechanicalturk.amazonaws.com/AWSMechanicalTurkDataSchemas/2006-07-14/ExternalQuestion.xsd";
+	private static final String HTML_QUESTION_SCHEMA = 
+			"http://mechanicalturk.amazonaws.com/AWSMechanicalTurkDataSchemas/2011-11-11/HTMLQuestion.xsd";
+	private static final int ESTIMATED_VALUE_LENGTH = 32;
+	private static final String CDATA_START = "<![CDATA[";
+	private static final String CDATA_END = "]]>";
+	
+	//segments[i] is followed by the value of slots[i], the last segment has no slot
+	private final String[] segments;
+	private final int[] slots;
+	//whether slots[i] is inside a CDATA section
+	private final boolean[] isCdataSlot;
+	private final List<String> placeholderNames;
+	private final int staticLength;
+	
+	private QuestionTemplate(String template){
+		List<String> segmentList = new ArrayList<String>();
+		List<Integer> slotList = new ArrayList<Integer>();
+		List<Boolean> cdataList = new ArrayList<Boolean>();
+		Map<String, Integer> names = new LinkedHashMap<String, Integer>();
+		
+		StringBuilder segment = new StringBuilder();
+		boolean isInCdata = false;
+		int position = 0;
+		int length = 0;
+		while(true){
+			int start = template.indexOf("${", position);
+			if(start < 0){
+				break;
+			}
+			if(start > position && template.charAt(start - 1) == '$'){
+				//escaped, "$${" is a literal "${"
+				segment.append(template, position, start - 1).append("${");
+				position = start + 2;
+				continue;
+			}
+			int end = template.indexOf('}', start + 2);
+			if(end < 0){
+				throw new IllegalArgumentException("unterminated placeholder at " + start);
+			}
+			
+			String name = template.substring(start + 2, end);
+			Integer slot = names.get(name);
+			if(slot == null){
+				slot = Integer.valueOf(names.size());
+				names.put(name, slot);
+			}
+			segment.append(template, position, start);
+			isInCdata = isInCdata(segment, isInCdata);
+			segmentList.add(segment.toString());
+			slotList.add(slot);
+			cdataList.add(Boolean.valueOf(isInCdata));
+			length += segment.length();
+			segment.setLength(0);
+			position = end + 1;
+		}
+		segment.append(template, position, template.length());
+		segmentList.add(segment.toString());
+		length += segment.length();
+		
+		this.segments = segmentList.toArray(new String[segmentList.size()]);
+		this.slots = new int[slotList.size()];
+		this.isCdataSlot = new boolean[slotList.size()];
+		for(int i = 0; i < this.slots.length; i++){
+			this.slots[i] = slotList.get(i).intValue();
+			this.isCdataSlot[i] = cdataList.get(i).booleanValue();
+		}
+		this.placeholderNames = Collections.unmodifiableList(new ArrayList<String>(names.keySet()));
+		this.staticLength = length;
+	}
+	
+	/*
+	 * whether the end of text is inside a CDATA section, given whether its start is
+	 */
+	private static boolean isInCdata(CharSequence text, boolean isInCdata){
+		String value = text.toString();
+		int position = 0;
+		while(true){
+			String marker = isInCdata ? CDATA_END : CDATA_START;
+			int found = value.indexOf(marker, position);
+			if(found < 0){
+				return isInCdata;
+			}
+			isInCdata = !isInCdata;
+			position = found + marker.length();
+		}
+	}
+	
+	/*
+	 * any question document, typically a QuestionForm, with ${name} placeholders in text, attribute values
+	 * or CDATA sections
+	 */
+	public static QuestionTemplate compile(String template){
+		return new QuestionTemplate(template);
+	}
+	
+	public static QuestionTemplate questionForm(String questionFormTemplate){
+		return compile(questionFormTemplate);
+	}
+	
+	/*
+	 * ExternalQuestion with placeholders ExternalURL and FrameHeight
+	 */
+	public static QuestionTemplate externalQuestion(){
+		return compile(XML_DECLARATION
+				+ "<ExternalQuestion xmlns=\"" + EXTERNAL_QUESTION_SCHEMA + "\">"
+				+ "	<ExternalURL>${ExternalURL}</ExternalURL>"
+				+ "	<FrameHeight>${FrameHeight}</FrameHeight>"
+				+ "</ExternalQuestion>");
+	}
+	
+	/*
+	 * HTMLQuestion wrapping the given HTML, which may itself contain ${name} placeholders
+	 */
+	public static QuestionTemplate htmlQuestion(String htmlTemplate, int frameHeight){
+		//a literal "]]>" would end the CDATA section early
+		String html = htmlTemplate.replace(CDATA_END, "]]]]><![CDATA[>");
+		return compile(XML_DECLARATION
+				+ "<HTMLQuestion xmlns=\"" + HTML_QUESTION_SCHEMA + "\">"
+				+ "	<HTMLContent><![CDATA[" + html + "]]></HTMLContent>"
+				+ "	<FrameHeight>" + frameHeight + "</FrameHeight>"
+				+ "</HTMLQuestion>");
+	}
+	
+	/*
+	 * distinct placeholder names in order of first appearance, the order expected by render(String...)
+	 */
+	public List<String> getPlaceholderNames(){
+		return this.placeholderNames;
+	}
+	
+	public String render(Map<String, String> values){
+		String[] ordered = new String[this.placeholderNames.size()];
+		for(int i = 0; i < ordered.length; i++){
+			String name = this.placeholderNames.get(i);
+			ordered[i] = values.get(name);
+			if(ordered[i] == null){
+				throw new IllegalArgumentException("no value for placeholder " + name);
+			}
+		}
+		return this.render(ordered);
+	}
+	
+	/*
+	 * values in the order of getPlaceholderNames()
+	 */
+	public String render(String... values){
+		if(values.length != this.placeholderNames.size()){
+			throw new IllegalArgumentException("expected " + this.placeholderNames.size() + " values, got " + values.length);
+		}
+		
+		StringBuilder out = new StringBuilder(this.staticLength + this.slots.length * ESTIMATED_VALUE_LENGTH);
+		for(int i = 0; i < this.slots.length; i++){
+			out.append(this.segments[i]);
+			if(this.isCdataSlot[i]){
+				appendCdata(out, values[this.slots[i]]);
+			}else{
+				appendEscaped(out, values[this.slots[i]]);
+			}
+		}
+		out.append(this.segments[this.segments.length - 1]);
+		return out.toString();
+	}
+	
+	/*
+	 * CDATA content is not decoded, only "]]>" needs to be split so that it does not end the section
+	 */
+	static void appendCdata(StringBuilder out, String value){
+		int copied = 0;
+		int found;
+		while((found = value.indexOf(CDATA_END, copied)) >= 0){
+			out.append(value, copied, found + 2).append("]]><![CDATA[");
+			copied = found + 2;
+		}
+		out.append(value, copied, value.length());
+	}
+	
+	static void appendEscaped(StringBuilder out, String value){
+		int n = value.length();
+		int copied = 0;
+		for(int i = 0; i < n; i++){
+			String replacement;
+			switch(value.charAt(i)){
+				case '&':
+					replacement = "&amp;";
+					break;
+				case '<':
+					replacement = "&lt;";
+					break;
+				case '>':
+					replacement = "&gt;";
+					break;
+				case '"':
+					replacement = "&quot;";
+					break;
+				case '\'':
+					replacement = "&#39;";
+					break;
+				default:
+					continue;
+			}
+			out.append(value, copied, i).append(replacement);
+			copied = i + 1;
+		}
+		out.append(value, copied, n);
+	}
+}
@@ -0,0 +1,107 @@
+package com.cclo7;
+
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.commons.codec.binary.Base64;
+
+/*
+ * HMAC-SHA1 request signing for the MTurk REST API.
+ * 
+ * The signature only covers service, operation and a timestamp with one second resolution, so 
+ * the timestamp is formatted once per second and the signature of each operation is computed 
+ * once per second as well. Signing that does happen uses a per-thread Mac that is initialised
+ * with the key only once.
+ */
+public class RequestSigner {
+	
+	private static final String HMAC_ALGORITHM = "HmacSHA1";
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final DateTimeFormatter TIMESTAMP_FORMAT = 
+			DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'").withZone(ZoneOffset.UTC);
+	
+	private static volatile CachedValue cachedTimestamp = new CachedValue(Long.MIN_VALUE, null);
+	
+	private final String serviceName;
+	private final SecretKeySpec signingKey;
+	private final ThreadLocal<Mac> macs;
+	private final ConcurrentMap<String, CachedValue> cachedSignatures = new ConcurrentHashMap<String, CachedValue>();
+	
+	public RequestSigner(String serviceName, String secretKey){
+		this.serviceName = serviceName;
+		this.signingKey = new SecretKeySpec(secretKey.getBytes(UTF_8), HMAC_ALGORITHM);
+		this.macs = new ThreadLocal<Mac>(){
+			@Override
+			protected Mac initialValue(){
+				return newMac();
+			}
+		};
+		
+		//fail on construction rather than on the first request if the key is unusable
+		newMac();
+	}
+	
+	/*
+	 * current time formatted as yyyy-MM-dd'T'HH:mm:ss'Z' in UTC
+	 */
+	public static String getTimestamp(){
+		long second = System.currentTimeMillis() / 1000;
+		CachedValue cached = cachedTimestamp;
+		if(cached.second != second){
+			cached = new CachedValue(second, TIMESTAMP_FORMAT.format(Instant.ofEpochSecond(second)));
+			cachedTimestamp = cached;
+		}
+		return cached.value;
+	}
+	
+	public String sign(String operation, String timestamp){
+		CachedValue cached = this.cachedSignatures.get(operation);
+		if(cached != null && timestamp.equals(cached.key)){
+			return cached.value;
+		}
+		
+		Mac mac = this.macs.get();
+		byte[] rawHmac = mac.doFinal((this.serviceName + operation + timestamp).getBytes(UTF_8));
+		String signature = new String(Base64.encodeBase64(rawHmac), UTF_8);
+		
+		this.cachedSignatures.put(operation, new CachedValue(timestamp, signature));
+		return signature;
+	}
+	
+	private Mac newMac(){
+		try{
+			Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+			mac.init(this.signingKey);
+			return mac;
+		}catch(GeneralSecurityException e){
+			throw new IllegalStateException("cannot initialise " + HMAC_ALGORITHM, e);
+		}
+	}
+	
+	private static class CachedValue {
+		
+		final long second;
+		final String key;
+		final String value;
+		
+		CachedValue(long second, String value){
+			this.second = second;
+			this.key = null;
+			this.value = value;
+		}
+		
+		CachedValue(String key, String value){
+			this.second = Long.MIN_VALUE;
+			this.key = key;
+			this.value = value;
+		}
+	}
+}
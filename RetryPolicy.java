@@ -0,0 +1,70 @@
+package com.cclo7;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * Decides which failed requests are retried and how long to wait between attempts
+ * (exponential backoff with full jitter).
+ */
+public class RetryPolicy {
+	
+	public static final int DEFAULT_MAX_ATTEMPTS = 15;
+	public static final long DEFAULT_BASE_DELAY_MILLIS = 50;
+	public static final long DEFAULT_MAX_DELAY_MILLIS = 10000;
+	
+	private final int maxAttempts;
+	private final long baseDelayMillis;
+	private final long maxDelayMillis;
+	
+	public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis){
+		if(maxAttempts < 1){
+			throw new IllegalArgumentException("maxAttempts must be positive: " + maxAttempts);
+		}
+		this.maxAttempts = maxAttempts;
+		this.baseDelayMillis = baseDelayMillis;
+		this.maxDelayMillis = maxDelayMillis;
+	}
+	
+	public RetryPolicy(){
+		this(DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS);
+	}
+	
+	/*
+	 * total number of attempts including the first one
+	 */
+	public int getMaxAttempts(){
+		return this.maxAttempts;
+	}
+	
+	/*
+	 * random delay in [0, min(maxDelay, baseDelay * 2^retry)), retry is 1-based
+	 */
+	public long getBackoffMillis(int retry){
+		int shift = Math.min(Math.max(retry - 1, 0), 30);
+		long ceiling = Math.min(this.maxDelayMillis, this.baseDelayMillis << shift);
+		if(ceiling <= 0){
+			return 0;
+		}
+		return ThreadLocalRandom.current().nextLong(ceiling);
+	}
+	
+	public static boolean isThrottlingError(String errorCode, String errorMessage){
+		if(errorCode != null && (errorCode.contains("Throttl") || errorCode.contains("ServiceUnavailable")
+				|| errorCode.contains("RequestLimitExceeded"))){
+			return true;
+		}
+		return errorMessage != null && errorMessage.contains("Rate exceeded");
+	}
+	
+	/*
+	 * Throttling and server side failures are transient; anything else (invalid parameters, 
+	 * invalid state, authentication) fails the same way when repeated.
+	 */
+	public static boolean isRetryableError(String errorCode, String errorMessage){
+		if(isThrottlingError(errorCode, errorMessage)){
+			return true;
+		}
+		return errorCode != null && (errorCode.contains("InternalError") || errorCode.contains("ServiceFailure")
+				|| errorCode.contains("ServiceException"));
+	}
+}
@@ -0,0 +1,92 @@
+package com.cclo7;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/*
+ * A single approve, reject or bonus decision for the bulk review engine.
+ */
+public class ReviewDecision {
+	
+	public enum Action {
+		APPROVE,
+		REJECT,
+		GRANT_BONUS
+	}
+	
+	private final Action action;
+	private final String assignmentId;
+	private final String workerId;
+	private final double bonusAmt;
+	private final String reason;
+	
+	private ReviewDecision(Action action, String assignmentId, String workerId, double bonusAmt, String reason){
+		if(assignmentId == null){
+			throw new IllegalArgumentException("assignmentId must not be null");
+		}
+		this.action = action;
+		this.assignmentId = assignmentId;
+		this.workerId = workerId;
+		this.bonusAmt = bonusAmt;
+		this.reason = reason;
+	}
+	
+	public static ReviewDecision approve(String assignmentId){
+		return new ReviewDecision(Action.APPROVE, assignmentId, null, 0, null);
+	}
+	
+	/*
+	 * requesterFeedback is optional and may be null
+	 */
+	public static ReviewDecision reject(String assignmentId, String requesterFeedback){
+		return new ReviewDecision(Action.REJECT, assignmentId, null, 0, requesterFeedback);
+	}
+	
+	public static ReviewDecision grantBonus(String workerId, String assignmentId, double bonusAmt, String reason){
+		if(workerId == null){
+			throw new IllegalArgumentException("workerId must not be null");
+		}
+		return new ReviewDecision(Action.GRANT_BONUS, assignmentId, workerId, bonusAmt, reason);
+	}
+	
+	public Action getAction(){
+		return this.action;
+	}
+	
+	public String getAssignmentId(){
+		return this.assignmentId;
+	}
+	
+	public String getWorkerId(){
+		return this.workerId;
+	}
+	
+	public double getBonusAmt(){
+		return this.bonusAmt;
+	}
+	
+	/*
+	 * requester feedback for rejections, bonus reason for bonuses
+	 */
+	public String getReason(){
+		return this.reason;
+	}
+	
+	/*
+	 * UniqueRequestToken of a bonus, derived from assignment, worker and amount so that sending the same
+	 * decision again (e.g. after a lost response) is reported as a duplicate instead of paying twice.
+	 * Null for approvals and rejections.
+	 */
+	public String getUniqueRequestToken(){
+		if(this.action != Action.GRANT_BONUS){
+			return null;
+		}
+		String key = this.assignmentId + "\n" + this.workerId + "\n" + this.bonusAmt;
+		return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+	}
+	
+	@Override
+	public String toString(){
+		return this.action + "[" + this.assignmentId + "]";
+	}
+}
@@ -0,0 +1,81 @@
+package com.cclo7;
+
+/*
+ * Outcome of one ReviewDecision.
+ */
+public class ReviewResult {
+	
+	public enum Status {
+		SUCCESS,
+		//transient problem (network, throttling), the decision can be submitted again
+		RETRYABLE_FAILURE,
+		//the service refused the decision, resubmitting it will fail again, or its request may have been 
+		//applied without a response and resubmitting it is not safe (see MTurkError.isRequestMaybeApplied)
+		PERMANENT_FAILURE
+	}
+	
+	private final ReviewDecision decision;
+	private final Status status;
+	private final String errorMessage;
+	private final MTurkError error;
+	private final long elapsedMillis;
+	
+	public ReviewResult(ReviewDecision decision, Status status, String errorMessage, long elapsedMillis){
+		this.decision = decision;
+		this.status = status;
+		this.errorMessage = errorMessage;
+		this.error = null;
+		this.elapsedMillis = elapsedMillis;
+	}
+	
+	/*
+	 * SUCCESS when result succeeded, otherwise RETRYABLE_FAILURE or PERMANENT_FAILURE as classified by its error
+	 */
+	public ReviewResult(ReviewDecision decision, MTurkResult<?> result, long elapsedMillis){
+		this.decision = decision;
+		this.error = result.getError();
+		if(this.error == null){
+			this.status = Status.SUCCESS;
+			this.errorMessage = null;
+		}else{
+			this.status = this.error.isRetryable() ? Status.RETRYABLE_FAILURE : Status.PERMANENT_FAILURE;
+			this.errorMessage = this.error.toString();
+		}
+		this.elapsedMillis = elapsedMillis;
+	}
+	
+	public ReviewDecision getDecision(){
+		return this.decision;
+	}
+	
+	public Status getStatus(){
+		return this.status;
+	}
+	
+	public boolean isSuccess(){
+		return this.status == Status.SUCCESS;
+	}
+	
+	/*
+	 * null for successful decisions
+	 */
+	public String getErrorMessage(){
+		return this.errorMessage;
+	}
+	
+	/*
+	 * the MTurk error behind the failure, null on success or when the call itself could not run
+	 */
+	public MTurkError getError(){
+		return this.error;
+	}
+	
+	public long getElapsedMillis(){
+		return this.elapsedMillis;
+	}
+	
+	@Override
+	public String toString(){
+		return this.decision + " " + this.status + (this.errorMessage != null ? ": " + this.errorMessage : "");
+	}
+}
@@ -0,0 +1,101 @@
+package com.cclo7;
+
+import java.time.Instant;
+
+/*
+ * An action a HITLifecycleScheduler runs on a HIT at its due time.
+ */
+public final class ScheduledHITAction {
+	
+	public enum Type {
+		EXTEND,
+		EXPIRE,
+		DISPOSE,
+		REVIEW
+	}
+	
+	private final String hitId;
+	private final Type type;
+	private final long dueMillis;
+	private final long sequence;
+	private final int attempt;
+	private final int maxAssignmentsIncrement;
+	private final long expirationIncrementInSeconds;
+	private final long repeatIntervalMillis;
+	private volatile boolean isCancelled = false;
+	
+	ScheduledHITAction(String hitId, Type type, long dueMillis, long sequence, int attempt, 
+			int maxAssignmentsIncrement, long expirationIncrementInSeconds, long repeatIntervalMillis){
+		this.hitId = hitId;
+		this.type = type;
+		this.dueMillis = dueMillis;
+		this.sequence = sequence;
+		this.attempt = attempt;
+		this.maxAssignmentsIncrement = maxAssignmentsIncrement;
+		this.expirationIncrementInSeconds = expirationIncrementInSeconds;
+		this.repeatIntervalMillis = repeatIntervalMillis;
+	}
+	
+	/*
+	 * the same action due at another time, e.g. a retry or the next review
+	 */
+	ScheduledHITAction reschedule(long dueMillis, long sequence, int attempt){
+		return new ScheduledHITAction(this.hitId, this.type, dueMillis, sequence, attempt, 
+				this.maxAssignmentsIncrement, this.expirationIncrementInSeconds, this.repeatIntervalMillis);
+	}
+	
+	public String getHITId(){
+		return this.hitId;
+	}
+	
+	public Type getType(){
+		return this.type;
+	}
+	
+	public Instant getDueTime(){
+		return Instant.ofEpochMilli(this.dueMillis);
+	}
+	
+	long getDueMillis(){
+		return this.dueMillis;
+	}
+	
+	long getSequence(){
+		return this.sequence;
+	}
+	
+	/*
+	 * 1 for the first execution, incremented for every retry after a retryable failure
+	 */
+	public int getAttempt(){
+		return this.attempt;
+	}
+	
+	public int getMaxAssignmentsIncrement(){
+		return this.maxAssignmentsIncrement;
+	}
+	
+	public long getExpirationIncrementInSeconds(){
+		return this.expirationIncrementInSeconds;
+	}
+	
+	/*
+	 * 0 for actions that run once
+	 */
+	public long getRepeatIntervalMillis(){
+		return this.repeatIntervalMillis;
+	}
+	
+	public boolean isCancelled(){
+		return this.isCancelled;
+	}
+	
+	void cancel(){
+		this.isCancelled = true;
+	}
+	
+	@Override
+	public String toString(){
+		return this.type + "[" + this.hitId + "] at " + this.getDueTime() + (this.attempt > 1 ? " attempt " + this.attempt : "");
+	}
+}
@@ -0,0 +1,72 @@
+package com.cclo7;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/*
+ * Collapses concurrent calls with the same key into one: the first caller runs the call, callers
+ * arriving while it is in flight wait for it and get the same result (or exception). The key is
+ * forgotten as soon as the call completes, nothing is cached.
+ */
+class SingleFlight<K, V> {
+	
+	private final ConcurrentMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<K, CompletableFuture<V>>();
+	private final AtomicLong coalescedCount = new AtomicLong(0);
+	
+	/*
+	 * Returns null if the thread is interrupted while waiting for another caller's call, with the
+	 * interrupt flag set again. The shared call is not affected and may still succeed; the waiter
+	 * only does not learn its result.
+	 */
+	V execute(K key, Supplier<V> call){
+		CompletableFuture<V> flight = new CompletableFuture<V>();
+		CompletableFuture<V> existing = this.flights.putIfAbsent(key, flight);
+		if(existing != null){
+			this.coalescedCount.incrementAndGet();
+			return await(existing);
+		}
+		
+		try{
+			V value = call.get();
+			flight.complete(value);
+			return value;
+		}catch(RuntimeException e){
+			flight.completeExceptionally(e);
+			throw e;
+		}catch(Error e){
+			flight.completeExceptionally(e);
+			throw e;
+		}finally{
+			this.flights.remove(key, flight);
+		}
+	}
+	
+	/*
+	 * calls answered by another caller's call
+	 */
+	long getCoalescedCount(){
+		return this.coalescedCount.get();
+	}
+	
+	private static <V> V await(CompletableFuture<V> flight){
+		try{
+			return flight.get();
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			return null;
+		}catch(ExecutionException e){
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException){
+				throw (RuntimeException) cause;
+			}
+			if(cause instanceof Error){
+				throw (Error) cause;
+			}
+			throw new MTurkException("coalesced call failed", cause);
+		}
+	}
+}
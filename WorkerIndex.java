@@ -0,0 +1,560 @@
+package com.cclo7;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/*
+ * In-memory per-worker counters (assignments, approvals, rejections, answer agreement, bonuses)
+ * fed incrementally from fetched assignments and review outcomes, so that bonus and quality rules
+ * can be evaluated without fetching the history again.
+ *
+ * Workers and assignments are interned to int slots and their counters kept in primitive arrays
+ * indexed by slot. Assignments are remembered with their last counted status, so feeding the same
+ * assignment again (e.g. from repeated polls) only applies its status change. Top-K queries keep
+ * a heap of K slots, threshold queries are a scan of the arrays. Bonuses are remembered by their
+ * UniqueRequestToken, so a bonus resubmitted (and reported as a duplicate) or a report fed twice
+ * is counted once.
+ *
+ * The index can be written to a snapshot file and read back for a warm start. All methods are
+ * thread safe.
+ */
+public class WorkerIndex {
+	
+	public enum Metric {
+		ASSIGNMENT_COUNT,
+		APPROVAL_RATE,
+		AGREEMENT_RATE,
+		BONUS_TOTAL
+	}
+	
+	private static final int SNAPSHOT_MAGIC = 0x4D545749;	//"MTWI"
+	private static final int SNAPSHOT_VERSION = 2;
+	//smallest record of a worker, an assignment and a bonus token in a snapshot, to reject damaged counts
+	private static final int MIN_WORKER_SIZE = 2 + 5 * 4 + 8 + 4;
+	private static final int MIN_ASSIGNMENT_SIZE = 2 + 4 + 1 + 4 + 4;
+	private static final int MIN_TOKEN_SIZE = 2;
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final byte NO_STATUS = -1;
+	private static final Assignment.Status[] STATUSES = Assignment.Status.values();
+	
+	//workers
+	private final Map<String, Integer> workerSlots = new HashMap<String, Integer>();
+	private final List<String> workerIds = new ArrayList<String>();
+	private int[] assignmentCounts = new int[INITIAL_CAPACITY];
+	private int[] approvedCounts = new int[INITIAL_CAPACITY];
+	private int[] rejectedCounts = new int[INITIAL_CAPACITY];
+	private int[] agreedCounts = new int[INITIAL_CAPACITY];
+	private int[] comparedCounts = new int[INITIAL_CAPACITY];
+	private long[] bonusCents = new long[INITIAL_CAPACITY];
+	private int[] lastAssignments = new int[INITIAL_CAPACITY];
+	
+	//assignments
+	private final Map<String, Integer> assignmentSlots = new HashMap<String, Integer>();
+	private final List<String> assignmentIds = new ArrayList<String>();
+	private int[] assignmentWorkers = new int[INITIAL_CAPACITY];
+	private byte[] assignmentStatuses = new byte[INITIAL_CAPACITY];
+	private int[] assignmentAgreed = new int[INITIAL_CAPACITY];
+	private int[] assignmentCompared = new int[INITIAL_CAPACITY];
+	
+	//UniqueRequestTokens of the bonuses counted
+	private final Set<String> bonusTokens = new HashSet<String>();
+	
+	/*
+	 * counts a new assignment or applies the status change of a known one;
+	 * assignments without AssignmentId or WorkerId are ignored
+	 */
+	public synchronized void add(Assignment assignment){
+		if(assignment.getAssignmentId() == null || assignment.getWorkerId() == null){
+			return;
+		}
+		int slot = this.assignmentSlot(assignment.getAssignmentId(), assignment.getWorkerId());
+		this.setStatus(slot, assignment.getStatus());
+	}
+	
+	public void addAll(Iterator<Assignment> assignments){
+		while(assignments.hasNext()){
+			this.add(assignments.next());
+		}
+	}
+	
+	/*
+	 * Adds the assignments of one HIT and scores their answer agreement: an answer agrees when it
+	 * equals the most frequent answer to its question, which must be unique and given at least twice.
+	 * Scoring the HIT again (e.g. once more assignments are in) replaces the previous scores.
+	 */
+	public synchronized void addHIT(Collection<Assignment> assignments){
+		Map<String, Map<String, Integer>> answerCounts = new HashMap<String, Map<String, Integer>>();
+		List<Assignment> scored = new ArrayList<Assignment>();
+		for(Assignment assignment : assignments){
+			if(assignment.getAssignmentId() == null || assignment.getWorkerId() == null){
+				continue;
+			}
+			this.add(assignment);
+			scored.add(assignment);
+			
+			for(QuestionAnswer answer : assignment.getQuestionAnswers()){
+				Map<String, Integer> counts = answerCounts.get(answer.getQuestionIdentifier());
+				if(counts == null){
+					counts = new HashMap<String, Integer>();
+					answerCounts.put(answer.getQuestionIdentifier(), counts);
+				}
+				Integer count = counts.get(answer.getText());
+				counts.put(answer.getText(), count == null ? 1 : count + 1);
+			}
+		}
+		
+		Map<String, String> majorityAnswers = new HashMap<String, String>();
+		for(Map.Entry<String, Map<String, Integer>> question : answerCounts.entrySet()){
+			String majority = null;
+			int majorityCount = 0;
+			boolean isUnique = false;
+			for(Map.Entry<String, Integer> answer : question.getValue().entrySet()){
+				if(answer.getValue() > majorityCount){
+					majority = answer.getKey();
+					majorityCount = answer.getValue();
+					isUnique = true;
+				}else if(answer.getValue() == majorityCount){
+					isUnique = false;
+				}
+			}
+			if(isUnique && majorityCount >= 2){
+				majorityAnswers.put(question.getKey(), majority);
+			}
+		}
+		
+		for(Assignment assignment : scored){
+			int agreed = 0;
+			int compared = 0;
+			for(QuestionAnswer answer : assignment.getQuestionAnswers()){
+				String majority = majorityAnswers.get(answer.getQuestionIdentifier());
+				if(majority != null){
+					compared++;
+					if(majority.equals(answer.getText())){
+						agreed++;
+					}
+				}
+			}
+			
+			int slot = this.assignmentSlots.get(assignment.getAssignmentId());
+			int worker = this.assignmentWorkers[slot];
+			this.agreedCounts[worker] += agreed - this.assignmentAgreed[slot];
+			this.comparedCounts[worker] += compared - this.assignmentCompared[slot];
+			this.assignmentAgreed[slot] = agreed;
+			this.assignmentCompared[slot] = compared;
+		}
+	}
+	
+	/*
+	 * Applies a successful review: approvals and rejections of known assignments update their status,
+	 * bonuses are added to the worker's total unless their UniqueRequestToken was counted before. 
+	 * Failed reviews are ignored.
+	 */
+	public synchronized void recordReview(ReviewResult result){
+		if(!result.isSuccess()){
+			return;
+		}
+		
+		ReviewDecision decision = result.getDecision();
+		Integer slot = this.assignmentSlots.get(decision.getAssignmentId());
+		switch(decision.getAction()){
+		case APPROVE:
+			if(slot != null){
+				this.setStatus(slot, Assignment.Status.APPROVED);
+			}
+			break;
+		case REJECT:
+			if(slot != null){
+				this.setStatus(slot, Assignment.Status.REJECTED);
+			}
+			break;
+		case GRANT_BONUS:
+			if(decision.getWorkerId() != null && this.bonusTokens.add(decision.getUniqueRequestToken())){
+				this.bonusCents[this.workerSlot(decision.getWorkerId())] += Math.round(decision.getBonusAmt() * 100);
+			}
+			break;
+		}
+	}
+	
+	public void recordReviews(BulkReviewReport report){
+		for(ReviewResult result : report.getResults()){
+			this.recordReview(result);
+		}
+	}
+	
+	/*
+	 * null for an unknown worker
+	 */
+	public synchronized WorkerStats getStats(String workerId){
+		Integer worker = this.workerSlots.get(workerId);
+		return worker == null ? null : this.toStats(worker);
+	}
+	
+	/*
+	 * the k workers with the highest value of the metric, highest first; workers with fewer than
+	 * minAssignments assignments are skipped
+	 */
+	public synchronized List<WorkerStats> getTopWorkers(Metric metric, int k, int minAssignments){
+		if(k <= 0){
+			return new ArrayList<WorkerStats>();
+		}
+		
+		//min-heap of worker slots, the root is the weakest of the current top k
+		int[] heap = new int[Math.min(k, this.workerIds.size())];
+		int size = 0;
+		for(int worker = 0; worker < this.workerIds.size(); worker++){
+			if(this.assignmentCounts[worker] < minAssignments){
+				continue;
+			}
+			if(size < heap.length){
+				heap[size] = worker;
+				this.siftUp(heap, size, metric);
+				size++;
+			}else if(this.isHigher(metric, worker, heap[0])){
+				heap[0] = worker;
+				this.siftDown(heap, size, metric);
+			}
+		}
+		
+		WorkerStats[] top = new WorkerStats[size];
+		while(size > 0){
+			top[size - 1] = this.toStats(heap[0]);
+			size--;
+			heap[0] = heap[size];
+			this.siftDown(heap, size, metric);
+		}
+		return Arrays.asList(top);
+	}
+	
+	/*
+	 * workers whose metric is at least minValue, in the order they were first seen;
+	 * workers with fewer than minAssignments assignments are skipped
+	 */
+	public synchronized List<WorkerStats> findWorkers(Metric metric, double minValue, int minAssignments){
+		List<WorkerStats> found = new ArrayList<WorkerStats>();
+		for(int worker = 0; worker < this.workerIds.size(); worker++){
+			if(this.assignmentCounts[worker] >= minAssignments && this.valueOf(metric, worker) >= minValue){
+				found.add(this.toStats(worker));
+			}
+		}
+		return found;
+	}
+	
+	/*
+	 * one GrantBonus decision per worker for its last assignment, to be submitted through
+	 * BulkReviewEngine or JournaledReviewer and fed back through recordReviews
+	 */
+	public static List<ReviewDecision> bonusDecisions(Collection<WorkerStats> workers, double bonusAmt, String reason){
+		List<ReviewDecision> decisions = new ArrayList<ReviewDecision>();
+		for(WorkerStats worker : workers){
+			if(worker.getLastAssignmentId() != null){
+				decisions.add(ReviewDecision.grantBonus(worker.getWorkerId(), worker.getLastAssignmentId(), bonusAmt, reason));
+			}
+		}
+		return decisions;
+	}
+	
+	public synchronized int getWorkerCount(){
+		return this.workerIds.size();
+	}
+	
+	public synchronized int getAssignmentCount(){
+		return this.assignmentIds.size();
+	}
+	
+	/*
+	 * Writes the index to a temporary file next to snapshotFile and renames it over snapshotFile,
+	 * so a crash leaves the previous snapshot intact.
+	 */
+	public synchronized void writeSnapshot(File snapshotFile) throws IOException {
+		File tempFile = new File(snapshotFile.getPath() + ".tmp");
+		CRC32 crc = new CRC32();
+		FileOutputStream fileOut = new FileOutputStream(tempFile);
+		try{
+			DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(fileOut), crc));
+			out.writeInt(SNAPSHOT_MAGIC);
+			out.writeInt(SNAPSHOT_VERSION);
+			
+			out.writeInt(this.workerIds.size());
+			for(int worker = 0; worker < this.workerIds.size(); worker++){
+				out.writeUTF(this.workerIds.get(worker));
+				out.writeInt(this.assignmentCounts[worker]);
+				out.writeInt(this.approvedCounts[worker]);
+				out.writeInt(this.rejectedCounts[worker]);
+				out.writeInt(this.agreedCounts[worker]);
+				out.writeInt(this.comparedCounts[worker]);
+				out.writeLong(this.bonusCents[worker]);
+				out.writeInt(this.lastAssignments[worker]);
+			}
+			
+			out.writeInt(this.assignmentIds.size());
+			for(int slot = 0; slot < this.assignmentIds.size(); slot++){
+				out.writeUTF(this.assignmentIds.get(slot));
+				out.writeInt(this.assignmentWorkers[slot]);
+				out.writeByte(this.assignmentStatuses[slot]);
+				out.writeInt(this.assignmentAgreed[slot]);
+				out.writeInt(this.assignmentCompared[slot]);
+			}
+			
+			out.writeInt(this.bonusTokens.size());
+			for(String token : this.bonusTokens){
+				out.writeUTF(token);
+			}
+			out.writeLong(crc.getValue());
+			out.flush();
+			fileOut.getFD().sync();
+		}finally{
+			fileOut.close();
+		}
+		Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	/*
+	 * reads an index written by writeSnapshot, throws IOException when the file is damaged or truncated; 
+	 * a version 1 snapshot has no bonus tokens
+	 */
+	public static WorkerIndex readSnapshot(File snapshotFile) throws IOException {
+		WorkerIndex index = new WorkerIndex();
+		CRC32 crc = new CRC32();
+		DataInputStream in = new DataInputStream(new CheckedInputStream(
+				new BufferedInputStream(new FileInputStream(snapshotFile)), crc));
+		try{
+			if(in.readInt() != SNAPSHOT_MAGIC){
+				throw new IOException("not a worker index snapshot: " + snapshotFile);
+			}
+			int version = in.readInt();
+			if(version != 1 && version != SNAPSHOT_VERSION){
+				throw new IOException("unsupported worker index snapshot version " + version + ": " + snapshotFile);
+			}
+			
+			long length = snapshotFile.length();
+			int workerCount = readCount(in, MIN_WORKER_SIZE, length, snapshotFile);
+			index.ensureWorkerCapacity(workerCount);
+			for(int worker = 0; worker < workerCount; worker++){
+				String workerId = in.readUTF();
+				index.workerSlots.put(workerId, worker);
+				index.workerIds.add(workerId);
+				index.assignmentCounts[worker] = in.readInt();
+				index.approvedCounts[worker] = in.readInt();
+				index.rejectedCounts[worker] = in.readInt();
+				index.agreedCounts[worker] = in.readInt();
+				index.comparedCounts[worker] = in.readInt();
+				index.bonusCents[worker] = in.readLong();
+				index.lastAssignments[worker] = in.readInt();
+			}
+			
+			int assignmentCount = readCount(in, MIN_ASSIGNMENT_SIZE, length, snapshotFile);
+			index.ensureAssignmentCapacity(assignmentCount);
+			for(int slot = 0; slot < assignmentCount; slot++){
+				String assignmentId = in.readUTF();
+				index.assignmentSlots.put(assignmentId, slot);
+				index.assignmentIds.add(assignmentId);
+				index.assignmentWorkers[slot] = in.readInt();
+				index.assignmentStatuses[slot] = in.readByte();
+				index.assignmentAgreed[slot] = in.readInt();
+				index.assignmentCompared[slot] = in.readInt();
+			}
+			
+			if(version >= 2){
+				int tokenCount = readCount(in, MIN_TOKEN_SIZE, length, snapshotFile);
+				for(int i = 0; i < tokenCount; i++){
+					index.bonusTokens.add(in.readUTF());
+				}
+			}
+			
+			long expectedCrc = crc.getValue();
+			long storedCrc = in.readLong();
+			if(storedCrc != expectedCrc){
+				throw new IOException("worker index snapshot checksum mismatch: " + snapshotFile);
+			}
+		}finally{
+			in.close();
+		}
+		return index;
+	}
+	
+	/*
+	 * a count of records, which cannot be more than the file can hold
+	 */
+	private static int readCount(DataInputStream in, int minRecordSize, long fileLength, File snapshotFile) 
+			throws IOException {
+		int count = in.readInt();
+		if(count < 0 || count > fileLength / minRecordSize){
+			throw new IOException("worker index snapshot is damaged, invalid count " + count + ": " + snapshotFile);
+		}
+		return count;
+	}
+	
+	private int workerSlot(String workerId){
+		Integer worker = this.workerSlots.get(workerId);
+		if(worker != null){
+			return worker;
+		}
+		
+		int slot = this.workerIds.size();
+		this.ensureWorkerCapacity(slot + 1);
+		this.workerSlots.put(workerId, slot);
+		this.workerIds.add(workerId);
+		this.lastAssignments[slot] = -1;
+		return slot;
+	}
+	
+	private int assignmentSlot(String assignmentId, String workerId){
+		Integer existing = this.assignmentSlots.get(assignmentId);
+		if(existing != null){
+			return existing;
+		}
+		
+		int worker = this.workerSlot(workerId);
+		int slot = this.assignmentIds.size();
+		this.ensureAssignmentCapacity(slot + 1);
+		this.assignmentSlots.put(assignmentId, slot);
+		this.assignmentIds.add(assignmentId);
+		this.assignmentWorkers[slot] = worker;
+		this.assignmentStatuses[slot] = NO_STATUS;
+		this.assignmentCounts[worker]++;
+		this.lastAssignments[worker] = slot;
+		return slot;
+	}
+	
+	/*
+	 * moves the assignment from the approved/rejected count of its worker to the one of status
+	 */
+	private void setStatus(int slot, Assignment.Status status){
+		byte ordinal = status == null ? NO_STATUS : (byte) status.ordinal();
+		byte previous = this.assignmentStatuses[slot];
+		if(previous == ordinal){
+			return;
+		}
+		
+		int worker = this.assignmentWorkers[slot];
+		if(previous != NO_STATUS){
+			this.count(worker, STATUSES[previous], -1);
+		}
+		if(status != null){
+			this.count(worker, status, 1);
+		}
+		this.assignmentStatuses[slot] = ordinal;
+	}
+	
+	private void count(int worker, Assignment.Status status, int delta){
+		if(status == Assignment.Status.APPROVED){
+			this.approvedCounts[worker] += delta;
+		}else if(status == Assignment.Status.REJECTED){
+			this.rejectedCounts[worker] += delta;
+		}
+	}
+	
+	private double valueOf(Metric metric, int worker){
+		switch(metric){
+		case ASSIGNMENT_COUNT:
+			return this.assignmentCounts[worker];
+		case APPROVAL_RATE:
+			int reviewed = this.approvedCounts[worker] + this.rejectedCounts[worker];
+			return reviewed == 0 ? 0 : (double) this.approvedCounts[worker] / reviewed;
+		case AGREEMENT_RATE:
+			return this.comparedCounts[worker] == 0 ? 0 : (double) this.agreedCounts[worker] / this.comparedCounts[worker];
+		case BONUS_TOTAL:
+			return this.bonusCents[worker];
+		default:
+			throw new IllegalArgumentException("unknown metric: " + metric);
+		}
+	}
+	
+	/*
+	 * ties go to the worker seen first
+	 */
+	private boolean isHigher(Metric metric, int worker, int other){
+		double value = this.valueOf(metric, worker);
+		double otherValue = this.valueOf(metric, other);
+		return value > otherValue || (value == otherValue && worker < other);
+	}
+	
+	private void siftUp(int[] heap, int index, Metric metric){
+		int worker = heap[index];
+		while(index > 0){
+			int parent = (index - 1) >>> 1;
+			if(!this.isHigher(metric, heap[parent], worker)){
+				break;
+			}
+			heap[index] = heap[parent];
+			index = parent;
+		}
+		heap[index] = worker;
+	}
+	
+	private void siftDown(int[] heap, int size, Metric metric){
+		if(size == 0){
+			return;
+		}
+		int worker = heap[0];
+		int index = 0;
+		while(true){
+			int child = 2 * index + 1;
+			if(child >= size){
+				break;
+			}
+			if(child + 1 < size && this.isHigher(metric, heap[child], heap[child + 1])){
+				child++;
+			}
+			if(!this.isHigher(metric, worker, heap[child])){
+				break;
+			}
+			heap[index] = heap[child];
+			index = child;
+		}
+		heap[index] = worker;
+	}
+	
+	private WorkerStats toStats(int worker){
+		int lastAssignment = this.lastAssignments[worker];
+		return new WorkerStats(this.workerIds.get(worker), this.assignmentCounts[worker], this.approvedCounts[worker],
+				this.rejectedCounts[worker], this.agreedCounts[worker], this.comparedCounts[worker],
+				this.bonusCents[worker], lastAssignment >= 0 ? this.assignmentIds.get(lastAssignment) : null);
+	}
+	
+	private void ensureWorkerCapacity(int capacity){
+		if(capacity <= this.assignmentCounts.length){
+			return;
+		}
+		int newCapacity = Math.max(capacity, this.assignmentCounts.length * 2);
+		this.assignmentCounts = Arrays.copyOf(this.assignmentCounts, newCapacity);
+		this.approvedCounts = Arrays.copyOf(this.approvedCounts, newCapacity);
+		this.rejectedCounts = Arrays.copyOf(this.rejectedCounts, newCapacity);
+		this.agreedCounts = Arrays.copyOf(this.agreedCounts, newCapacity);
+		this.comparedCounts = Arrays.copyOf(this.comparedCounts, newCapacity);
+		this.bonusCents = Arrays.copyOf(this.bonusCents, newCapacity);
+		this.lastAssignments = Arrays.copyOf(this.lastAssignments, newCapacity);
+	}
+	
+	private void ensureAssignmentCapacity(int capacity){
+		if(capacity <= this.assignmentWorkers.length){
+			return;
+		}
+		int newCapacity = Math.max(capacity, this.assignmentWorkers.length * 2);
+		this.assignmentWorkers = Arrays.copyOf(this.assignmentWorkers, newCapacity);
+		this.assignmentStatuses = Arrays.copyOf(this.assignmentStatuses, newCapacity);
+		this.assignmentAgreed = Arrays.copyOf(this.assignmentAgreed, newCapacity);
+		this.assignmentCompared = Arrays.copyOf(this.assignmentCompared, newCapacity);
+	}
+}
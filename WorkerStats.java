@@ -0,0 +1,96 @@
+package com.cclo7;
+
+/*
+ * Counters of one worker at the time they were read from a WorkerIndex.
+ */
+public class WorkerStats {
+	
+	private final String workerId;
+	private final int assignmentCount;
+	private final int approvedCount;
+	private final int rejectedCount;
+	private final int agreedCount;
+	private final int comparedCount;
+	private final long bonusCents;
+	private final String lastAssignmentId;
+	
+	WorkerStats(String workerId, int assignmentCount, int approvedCount, int rejectedCount, int agreedCount, 
+			int comparedCount, long bonusCents, String lastAssignmentId){
+		this.workerId = workerId;
+		this.assignmentCount = assignmentCount;
+		this.approvedCount = approvedCount;
+		this.rejectedCount = rejectedCount;
+		this.agreedCount = agreedCount;
+		this.comparedCount = comparedCount;
+		this.bonusCents = bonusCents;
+		this.lastAssignmentId = lastAssignmentId;
+	}
+	
+	public String getWorkerId(){
+		return this.workerId;
+	}
+	
+	/*
+	 * assignments seen, whatever their status
+	 */
+	public int getAssignmentCount(){
+		return this.assignmentCount;
+	}
+	
+	public int getApprovedCount(){
+		return this.approvedCount;
+	}
+	
+	public int getRejectedCount(){
+		return this.rejectedCount;
+	}
+	
+	/*
+	 * approved / (approved + rejected), 0 before the first review
+	 */
+	public double getApprovalRate(){
+		int reviewed = this.approvedCount + this.rejectedCount;
+		return reviewed == 0 ? 0 : (double) this.approvedCount / reviewed;
+	}
+	
+	/*
+	 * answers that matched the majority answer of their question
+	 */
+	public int getAgreedCount(){
+		return this.agreedCount;
+	}
+	
+	/*
+	 * answers that could be compared with a majority answer
+	 */
+	public int getComparedCount(){
+		return this.comparedCount;
+	}
+	
+	/*
+	 * agreed / compared, 0 before the first comparison
+	 */
+	public double getAgreementRate(){
+		return this.comparedCount == 0 ? 0 : (double) this.agreedCount / this.comparedCount;
+	}
+	
+	/*
+	 * sum of the successful bonuses in USD
+	 */
+	public double getBonusTotal(){
+		return this.bonusCents / 100.0;
+	}
+	
+	/*
+	 * most recently added assignment of the worker, the AssignmentId a bonus is granted for
+	 */
+	public String getLastAssignmentId(){
+		return this.lastAssignmentId;
+	}
+	
+	@Override
+	public String toString(){
+		return String.format("%s: %d assignments, approval %.3f, agreement %.3f, bonus %.2f", this.workerId, 
+				this.assignmentCount, this.getApprovalRate(), this.getAgreementRate(), this.getBonusTotal());
+	}
+}
@@ -0,0 +1,139 @@
+package com.cclo7;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+/*
+ * Parse latency of a GetAssignmentsForHIT page: the shared streaming MTurkResponseParser against 
+ * a new DocumentBuilderFactory and DOM per call, the way responses used to be read. Both read every 
+ * assignment field and the answers of every assignment. Add -prof gc for the allocation per page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GetAssignmentsForHITParseBenchmark {
+	
+	private static final String[] ASSIGNMENT_FIELDS = new String[]{"AssignmentId", "WorkerId", "HITId", 
+		"AssignmentStatus", "AutoApprovalTime", "AcceptTime", "SubmitTime", "ApprovalTime", "RejectionTime",
+		"RequesterFeedback", "Answer"};
+	
+	private static final MTurkResponseParser PAGE_PARSER = new MTurkResponseParser("Assignment", 
+			"AssignmentId", "WorkerId", "HITId", "AssignmentStatus", "AutoApprovalTime", "AcceptTime", "SubmitTime",
+			"ApprovalTime", "RejectionTime", "RequesterFeedback", "Answer", "PageNumber", "TotalNumResults");
+	
+	@Param({"10", "100"})
+	public int pageSize;
+	
+	@Param({"10"})
+	public int questionsPerAssignment;
+	
+	private byte[] response;
+	
+	@Setup
+	public void fetchPage() throws Exception {
+		MockMTurkServer server = new MockMTurkServer();
+		server.setAssignmentsPerHIT(this.pageSize);
+		server.setQuestionsPerAssignment(this.questionsPerAssignment);
+		server.start();
+		try{
+			URL url = new URL(server.getServiceUrl() + "?Operation=GetAssignmentsForHIT&HITId=BENCHHIT&PageSize=" 
+					+ this.pageSize);
+			InputStream in = url.openStream();
+			try{
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				byte[] buffer = new byte[8192];
+				int read;
+				while((read = in.read(buffer)) != -1){
+					out.write(buffer, 0, read);
+				}
+				this.response = out.toByteArray();
+			}finally{
+				in.close();
+			}
+		}finally{
+			server.stop();
+		}
+	}
+	
+	@Benchmark
+	public List<Assignment> streaming() throws Exception {
+		MTurkResponse response = PAGE_PARSER.parse(new ByteArrayInputStream(this.response));
+		List<Assignment> assignments = new ArrayList<Assignment>(response.getRecords().size());
+		for(Map<String, String> record : response.getRecords()){
+			Assignment assignment = Assignment.fromRecord(record);
+			assignment.getQuestionAnswers();
+			assignments.add(assignment);
+		}
+		return assignments;
+	}
+	
+	@Benchmark
+	public List<Map<String, String>> dom() throws Exception {
+		String responseXML = new String(this.response, "UTF-8");
+		DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
+		DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
+		Document doc = dBuilder.parse(new InputSource(new StringReader(responseXML)));
+		doc.getDocumentElement().normalize();
+		
+		NodeList isValidNodeList = doc.getElementsByTagName("IsValid");
+		if(!"True".equals(isValidNodeList.item(0).getTextContent())){
+			throw new IllegalStateException("invalid response");
+		}
+		
+		NodeList assignmentNodeList = doc.getElementsByTagName("Assignment");
+		List<Map<String, String>> assignments = new ArrayList<Map<String, String>>(assignmentNodeList.getLength());
+		for(int i = 0; i < assignmentNodeList.getLength(); i++){
+			Element assignmentElement = (Element) assignmentNodeList.item(i);
+			Map<String, String> assignment = new HashMap<String, String>();
+			for(String field : ASSIGNMENT_FIELDS){
+				Node node = assignmentElement.getElementsByTagName(field).item(0);
+				if(node != null){
+					assignment.put(field, node.getTextContent());
+				}
+			}
+			
+			//the answer is a document of its own
+			Document answers = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(
+					new InputSource(new StringReader(assignment.get("Answer"))));
+			NodeList answerNodeList = answers.getElementsByTagName("Answer");
+			for(int j = 0; j < answerNodeList.getLength(); j++){
+				Element answerElement = (Element) answerNodeList.item(j);
+				String id = answerElement.getElementsByTagName("QuestionIdentifier").item(0).getTextContent();
+				assignment.put(id, answerElement.getTextContent());
+			}
+			assignments.add(assignment);
+		}
+		return assignments;
+	}
+}
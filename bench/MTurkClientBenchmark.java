@@ -0,0 +1,94 @@
+package com.cclo7;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * End-to-end throughput and latency of every client operation against an in-process MockMTurkServer.
+ * 
+ * Throughput mode reports ops/ms, SampleTime mode the latency distribution including p0.99.
+ * Concurrency is the number of benchmark threads (-t), the mock server latency the serverLatencyMillis 
+ * parameter, e.g. -p serverLatencyMillis=20 -t 64. The fork lets the JDK keep every pooled connection
+ * alive (see PooledHttpTransport).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(32)
+@Fork(value = 1, jvmArgsAppend = "-Dhttp.maxConnections=" + PooledHttpTransport.DEFAULT_MAX_CONNECTIONS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MTurkClientBenchmark {
+	
+	private static final String[] NOTIFICATION_EVENTS = new String[]{"AssignmentSubmitted"};
+	
+	@Param({"CreateHIT", "GetAssignmentsForHIT", "ApproveAssignment", "RejectAssignment", "GrantBonus",
+		"ExtendHIT", "SetHITTypeNotification"})
+	public String operation;
+	
+	@Param({"0"})
+	public long serverLatencyMillis;
+	
+	private MockMTurkServer server;
+	private AmazonMTurkClient client;
+	private final AtomicLong ids = new AtomicLong(0);
+	
+	@Setup
+	public void start() throws Exception {
+		this.server = new MockMTurkServer();
+		this.server.setLatencyMillis(this.serverLatencyMillis, this.serverLatencyMillis);
+		this.server.start();
+		
+		MTurkClientConfig config = new MTurkClientConfig();
+		config.setServiceUrl(this.server.getServiceUrl());
+		config.setMaxRequestsPerSecond(1000000);
+		config.setMaxOperationRequestsPerSecond(1000000);
+		config.setMinRequestsPerSecond(1000000);
+		this.client = new AmazonMTurkClient("BENCHMARKACCESSKEY", "BENCHMARKSECRETKEY",
+				AmazonMTurkClient.DEFAULT_REST_API_VERSION, true, new PooledHttpTransport(), null, config);
+	}
+	
+	@TearDown
+	public void stop(){
+		this.client.shutdown();
+		this.server.stop();
+	}
+	
+	@Benchmark
+	public Object call(){
+		String id = Long.toString(this.ids.incrementAndGet());
+		switch(this.operation){
+		case "CreateHIT":
+			return this.client.createHITWithHITTypeResult("BENCHTYPE", "<Question/>", 1, 3600);
+		case "GetAssignmentsForHIT":
+			return this.client.getAssignmentsForHITPage("HIT" + id, 1, 10);
+		case "ApproveAssignment":
+			return this.client.approveAssignmentResult("APPROVE" + id);
+		case "RejectAssignment":
+			return this.client.rejectAssignmentResult("REJECT" + id, "benchmark");
+		case "GrantBonus":
+			return this.client.grantBonusResult("WORKER" + id, "BONUS" + id, 0.05, "benchmark", "BONUS" + id);
+		case "ExtendHIT":
+			return this.client.extendHITResult("HIT" + id, 1);
+		case "SetHITTypeNotification":
+			return this.client.setHITTypeNotificationResult("TYPE" + id, "https://localhost/notify", 
+					NOTIFICATION_EVENTS, "REST", true);
+		default:
+			throw new IllegalArgumentException("unknown operation: " + this.operation);
+		}
+	}
+}
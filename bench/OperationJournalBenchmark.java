@@ -0,0 +1,72 @@
+package com.cclo7;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Journaled operations per second: each operation is a durable intent followed by its outcome, as
+ * JournaledReviewer records them, with concurrent reviewers sharing fsyncs through group commit.
+ * The journal rolls over (and checkpoints) every 1 MB segment during the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(64)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class OperationJournalBenchmark {
+	
+	private static final int SEGMENT_SIZE = 1024 * 1024;
+	
+	private final AtomicLong assignments = new AtomicLong();
+	private File directory;
+	private OperationJournal journal;
+	
+	@Setup(Level.Trial)
+	public void open() throws IOException {
+		this.directory = Files.createTempDirectory("mturk-journal").toFile();
+		this.journal = new OperationJournal(new File(this.directory, "reviews.journal"), SEGMENT_SIZE);
+	}
+	
+	@TearDown(Level.Trial)
+	public void close() throws IOException, InterruptedException {
+		this.journal.close();
+		for(File file : this.directory.listFiles()){
+			file.delete();
+		}
+		this.directory.delete();
+	}
+	
+	@Benchmark
+	public JournalEntry approve() throws IOException, InterruptedException {
+		JournalEntry entry = this.journal.appendIntent(ReviewDecision.approve("A" + this.assignments.incrementAndGet()));
+		this.journal.appendOutcome(entry, true);
+		return entry;
+	}
+	
+	@Benchmark
+	public JournalEntry grantBonus() throws IOException, InterruptedException {
+		long assignment = this.assignments.incrementAndGet();
+		JournalEntry entry = this.journal.appendIntent(ReviewDecision.grantBonus("W" + (assignment % 1000), "A" + assignment, 0.25, "bonus"));
+		this.journal.appendOutcome(entry, true);
+		return entry;
+	}
+}
@@ -0,0 +1,51 @@
+package com.cclo7;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Parsing throughput of MTurkResponseParser.parseQuestionFormAnswers on large multi-question forms.
+ * The forms mix free text, multiple selection and file upload answers as served by MockMTurkServer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class QuestionFormAnswersBenchmark {
+	
+	@Param({"10", "200"})
+	public int questions;
+	
+	private String document;
+	
+	@Setup
+	public void buildForm(){
+		StringBuilder form = new StringBuilder(this.questions * 128);
+		form.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>");
+		form.append("<QuestionFormAnswers xmlns=\"http://mechanicalturk.amazonaws.com/AWSMechanicalTurkDataSchemas/2005-10-01/QuestionFormAnswers.xsd\">");
+		for(int q = 0; q < this.questions; q++){
+			MockMTurkServer.appendAnswer(form, q, q);
+		}
+		form.append("</QuestionFormAnswers>");
+		this.document = form.toString();
+	}
+	
+	@Benchmark
+	public List<QuestionAnswer> parse() throws Exception {
+		return MTurkResponseParser.parseQuestionFormAnswers(this.document);
+	}
+}
@@ -0,0 +1,107 @@
+package com.cclo7;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*
+ * Renders per second while building the questions of a 10k HIT batch from one template, for each 
+ * question type. concatenatedExternalQuestion is the former getExternalQuestion (StringBuffer and 
+ * string concatenation, no escaping) for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class QuestionTemplateBenchmark {
+	
+	private static final int BATCH_SIZE = 10000;
+	
+	private static final String QUESTION_FORM = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+			+ "<QuestionForm xmlns=\"http://mechanicalturk.amazonaws.com/AWSMechanicalTurkDataSchemas/2005-10-01/QuestionForm.xsd\">"
+			+ "<Question><QuestionIdentifier>label</QuestionIdentifier><IsRequired>true</IsRequired>"
+			+ "<QuestionContent><Text>Which label fits ${item}?</Text><Binary><MimeType><Type>image</Type>"
+			+ "<SubType>jpg</SubType></MimeType><DataURL>${imageUrl}</DataURL><AltText>${item}</AltText></Binary>"
+			+ "</QuestionContent><AnswerSpecification><SelectionAnswer><Selections>"
+			+ "<Selection><SelectionIdentifier>a</SelectionIdentifier><Text>${labelA}</Text></Selection>"
+			+ "<Selection><SelectionIdentifier>b</SelectionIdentifier><Text>${labelB}</Text></Selection>"
+			+ "</Selections></SelectionAnswer></AnswerSpecification></Question></QuestionForm>";
+	
+	private static final String HTML = "<!DOCTYPE html><html><head><script src=\"https://assets.crowd.aws/crowd-html-elements.js\">"
+			+ "</script></head><body><crowd-form><p>Which label fits ${item}?</p><img src=\"${imageUrl}\"/>"
+			+ "<script>var labels = [\"${labelA}\", \"${labelB}\"];</script></crowd-form></body></html>";
+	
+	private QuestionTemplate externalQuestion;
+	private QuestionTemplate htmlQuestion;
+	private QuestionTemplate questionForm;
+	private String[][] values;
+	
+	@Setup
+	public void compile(){
+		this.externalQuestion = QuestionTemplate.externalQuestion();
+		this.htmlQuestion = QuestionTemplate.htmlQuestion(HTML, 600);
+		this.questionForm = QuestionTemplate.questionForm(QUESTION_FORM);
+		
+		this.values = new String[BATCH_SIZE][];
+		for(int i = 0; i < BATCH_SIZE; i++){
+			this.values[i] = new String[]{"item " + i + " & co", "https://example.com/images/" + i + ".jpg?size=large&v=2",
+				"cat", "dog"};
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void externalQuestion(Blackhole blackhole){
+		for(int i = 0; i < BATCH_SIZE; i++){
+			blackhole.consume(this.externalQuestion.render(this.values[i][1], "600"));
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void htmlQuestion(Blackhole blackhole){
+		for(int i = 0; i < BATCH_SIZE; i++){
+			blackhole.consume(this.htmlQuestion.render(this.values[i]));
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void questionForm(Blackhole blackhole){
+		for(int i = 0; i < BATCH_SIZE; i++){
+			blackhole.consume(this.questionForm.render(this.values[i]));
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void concatenatedExternalQuestion(Blackhole blackhole){
+		for(int i = 0; i < BATCH_SIZE; i++){
+			blackhole.consume(getExternalQuestion(this.values[i][1], 600));
+		}
+	}
+	
+	private static String getExternalQuestion(String url, int externalFrameHeight){
+		StringBuffer q = new StringBuffer();
+		q.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+		q.append("<ExternalQuestion xmlns=\"http://mechanicalturk.amazonaws.com/AWSMechanicalTurkDataSchemas/2006-07-14/ExternalQuestion.xsd\">");
+		q.append("	<ExternalURL>" + url + "</ExternalURL>");
+		q.append("	<FrameHeight>" + externalFrameHeight + "</FrameHeight>");
+		q.append("</ExternalQuestion>");
+		
+		return q.toString();
+	}
+}
@@ -0,0 +1,102 @@
+package com.cclo7;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Signatures per second of RequestSigner with many threads signing at once, e.g. -t 64.
+ * 
+ * signCurrent is what every request attempt does (cached timestamp and signature), signEveryTime 
+ * forces an HMAC per call with the per-thread Mac, and perCallMac is the former getTimestamp and 
+ * getSignature, which created a SimpleDateFormat, a Mac and a key for every attempt.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(32)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RequestSignerBenchmark {
+	
+	private static final String SERVICE_NAME = "AWSMechanicalTurkRequester";
+	private static final String SECRET_KEY = "BENCHMARKSECRETKEY";
+	private static final String[] OPERATIONS = new String[]{"CreateHIT", "GetAssignmentsForHIT", 
+		"ApproveAssignment", "GrantBonus"};
+	
+	@State(Scope.Benchmark)
+	public static class Signer {
+		
+		final RequestSigner signer = new RequestSigner(SERVICE_NAME, SECRET_KEY);
+	}
+	
+	@State(Scope.Thread)
+	public static class Calls {
+		
+		final String[] timestamps = new String[1024];
+		int call = 0;
+		
+		@Setup
+		public void buildTimestamps(){
+			for(int i = 0; i < this.timestamps.length; i++){
+				this.timestamps[i] = String.format("2012-01-01T00:%02d:%02dZ", i / 60 % 60, i % 60);
+			}
+		}
+		
+		String nextOperation(){
+			return OPERATIONS[this.call & (OPERATIONS.length - 1)];
+		}
+		
+		String nextTimestamp(){
+			return this.timestamps[this.call++ & (this.timestamps.length - 1)];
+		}
+	}
+	
+	@Benchmark
+	public String signCurrent(Signer signer, Calls calls){
+		String operation = calls.nextOperation();
+		calls.call++;
+		return signer.signer.sign(operation, RequestSigner.getTimestamp());
+	}
+	
+	@Benchmark
+	public String signEveryTime(Signer signer, Calls calls){
+		String operation = calls.nextOperation();
+		return signer.signer.sign(operation, calls.nextTimestamp());
+	}
+	
+	@Benchmark
+	public String perCallMac(Calls calls) throws Exception {
+		String operation = calls.nextOperation();
+		calls.call++;
+		
+		Calendar cal = Calendar.getInstance();
+		DateFormat dfm = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+		dfm.setTimeZone(TimeZone.getTimeZone("GMT"));
+		String timestamp = dfm.format(cal.getTime());
+		
+		Mac mac = Mac.getInstance("HmacSHA1");
+		SecretKeySpec signingKey = new SecretKeySpec(SECRET_KEY.getBytes("UTF-8"), mac.getAlgorithm());
+		mac.init(signingKey);
+		byte[] rawHmac = mac.doFinal((SERVICE_NAME + operation + timestamp).getBytes("UTF-8"));
+		return new String(Base64.encodeBase64(rawHmac), "UTF-8");
+	}
+}
@@ -0,0 +1,30 @@
+package com.cclo7;
+
+/*
+ * Compile-time stand-in for the QualificationRequirement class supplied by the application.
+ * Only the accessors used by AmazonMTurkClient are declared; the class is left out of the jar.
+ */
+public class QualificationRequirement {
+	
+	private final String typeId;
+	private final String comparator;
+	private final int integerValue;
+	
+	public QualificationRequirement(String typeId, String comparator, int integerValue){
+		this.typeId = typeId;
+		this.comparator = comparator;
+		this.integerValue = integerValue;
+	}
+	
+	public String getTypeId(){
+		return this.typeId;
+	}
+	
+	public String getComparator(){
+		return this.comparator;
+	}
+	
+	public int getIntegerValue(){
+		return this.integerValue;
+	}
+}
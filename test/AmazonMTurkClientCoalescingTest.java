@@ -0,0 +1,114 @@
+package com.cclo7;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AmazonMTurkClientCoalescingTest {
+	
+	private static final int CALLERS = 8;
+	
+	private MockMTurkServer server;
+	private AmazonMTurkClient client;
+	
+	@Before
+	public void setUp() throws Exception {
+		this.server = new MockMTurkServer();
+		this.server.start();
+		//every call is still in flight when the identical ones arrive
+		this.server.setLatencyMillis(300, 300);
+		this.client = AmazonMTurkClientTest.newClient(this.server, new MTurkClientConfig());
+	}
+	
+	@After
+	public void tearDown(){
+		this.client.shutdown();
+		this.server.stop();
+	}
+	
+	/*
+	 * runs the call on CALLERS threads at once, returns how many calls returned a result
+	 */
+	private static int callConcurrently(final Runnable call) throws InterruptedException {
+		final CountDownLatch start = new CountDownLatch(1);
+		final AtomicInteger completed = new AtomicInteger(0);
+		Thread[] callers = new Thread[CALLERS];
+		for(int i = 0; i < CALLERS; i++){
+			callers[i] = new Thread(){
+				public void run(){
+					try{
+						start.await();
+						call.run();
+						completed.incrementAndGet();
+					}catch(InterruptedException e){
+						Thread.currentThread().interrupt();
+					}
+				}
+			};
+			callers[i].start();
+		}
+		start.countDown();
+		for(Thread caller : callers){
+			caller.join();
+		}
+		return completed.get();
+	}
+	
+	@Test(timeout = 20000)
+	public void identicalReadsShareOneCall() throws Exception {
+		final AtomicInteger pages = new AtomicInteger(0);
+		assertEquals(CALLERS, callConcurrently(new Runnable(){
+			public void run(){
+				AssignmentPage page = client.getAssignmentsForHITPage("HIT1", 1, 10);
+				assertNotNull(page);
+				pages.incrementAndGet();
+			}
+		}));
+		assertEquals(CALLERS, pages.get());
+		assertEquals(1, this.server.getOperationCount("GetAssignmentsForHIT"));
+		assertEquals(CALLERS - 1, this.client.getCoalescedRequestCount());
+		
+		//the completed call is not cached
+		assertNotNull(this.client.getAssignmentsForHITPage("HIT1", 1, 10));
+		assertEquals(2, this.server.getOperationCount("GetAssignmentsForHIT"));
+		
+		//different parameters are different calls
+		callConcurrently(new Runnable(){
+			public void run(){
+				client.getAssignmentsForHITPage("HIT" + Thread.currentThread().getId(), 1, 10);
+			}
+		});
+		assertEquals(2 + CALLERS, this.server.getOperationCount("GetAssignmentsForHIT"));
+		assertEquals(CALLERS - 1, this.client.getCoalescedRequestCount());
+	}
+	
+	@Test(timeout = 20000)
+	public void nonIdempotentWritesAreNeverShared() throws Exception {
+		callConcurrently(new Runnable(){
+			public void run(){
+				client.createHIT("title", "description", "<Question/>", 0.1, 1, 60, 3600, 86400, null);
+			}
+		});
+		callConcurrently(new Runnable(){
+			public void run(){
+				client.extendHIT("HIT1", 1);
+			}
+		});
+		callConcurrently(new Runnable(){
+			public void run(){
+				client.grantBonus("W1", "A1", 0.5, "thanks");
+			}
+		});
+		assertEquals(CALLERS, this.server.getOperationCount("CreateHIT"));
+		assertEquals(CALLERS, this.server.getOperationCount("ExtendHIT"));
+		assertEquals(CALLERS, this.server.getOperationCount("GrantBonus"));
+		assertEquals(CALLERS, this.server.getBonusCount());
+		assertEquals(0, this.client.getCoalescedRequestCount());
+	}
+}
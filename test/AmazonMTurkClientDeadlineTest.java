@@ -0,0 +1,156 @@
+package com.cclo7;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AmazonMTurkClientDeadlineTest {
+	
+	private MockMTurkServer server;
+	private AmazonMTurkClient client;
+	
+	@Before
+	public void setUp() throws Exception {
+		this.server = new MockMTurkServer(0, 16);
+		this.server.start();
+	}
+	
+	@After
+	public void tearDown(){
+		if(this.client != null){
+			this.client.shutdown();
+		}
+		this.server.stop();
+	}
+	
+	private AmazonMTurkClient newClient(MTurkClientConfig config, double requestsPerSecond){
+		config.setServiceUrl(this.server.getServiceUrl());
+		config.setMaxRequestsPerSecond(requestsPerSecond);
+		config.setMinRequestsPerSecond(requestsPerSecond);
+		config.setMaxOperationRequestsPerSecond(100000);
+		config.setRetryPolicy(new RetryPolicy(15, 5, 20));
+		this.client = new AmazonMTurkClient("TESTACCESSKEY", "TESTSECRETKEY", AmazonMTurkClient.DEFAULT_REST_API_VERSION,
+				true, new PooledHttpTransport(), MTurkExecutors.newFixedExecutor(4), config);
+		return this.client;
+	}
+	
+	private static long millisSince(long startNanos){
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+	}
+	
+	@Test
+	public void slowResponseEndsAtTheDeadline(){
+		MTurkClientConfig config = new MTurkClientConfig();
+		config.setRequestDeadlineMillis(200);
+		AmazonMTurkClient client = this.newClient(config, 100000);
+		this.server.setSlowResponses(1.0, 2000);
+		
+		long start = System.nanoTime();
+		MTurkResult<Void> result = client.approveAssignmentResult("ASSIGNMENT1");
+		assertTrue(result.getError().isDeadlineExceeded());
+		assertTrue(result.getError().isRequestMaybeApplied());
+		//approving again is harmless
+		assertTrue(result.getError().isRetryable());
+		assertTrue(millisSince(start) < 1000);
+	}
+	
+	@Test
+	public void abandonedNonIdempotentWriteIsNotRetryable(){
+		MTurkClientConfig config = new MTurkClientConfig();
+		config.setRequestDeadlineMillis(200);
+		AmazonMTurkClient client = this.newClient(config, 100000);
+		this.server.setSlowResponses(1.0, 2000);
+		
+		MTurkResult<Void> extended = client.extendHITResult("HIT1", 1);
+		assertTrue(extended.getError().isDeadlineExceeded());
+		assertTrue(extended.getError().isRequestMaybeApplied());
+		assertFalse(extended.getError().isRetryable());
+		
+		MTurkResult<Void> bonus = client.grantBonusResult("W1", "ASSIGNMENT1", 0.5, "thanks", null);
+		assertTrue(bonus.getError().isDeadlineExceeded());
+		assertFalse(bonus.getError().isRetryable());
+		
+		MTurkResult<Void> tokenBonus = client.grantBonusResult("W1", "ASSIGNMENT1", 0.5, "thanks", "TOKEN");
+		assertTrue(tokenBonus.getError().isDeadlineExceeded());
+		assertTrue(tokenBonus.getError().isRetryable());
+	}
+	
+	@Test
+	public void rateLimiterWaitEndsAtTheDeadline(){
+		MTurkClientConfig config = new MTurkClientConfig();
+		config.setRequestDeadlineMillis(200);
+		//one token, the next one is due in a second
+		AmazonMTurkClient client = this.newClient(config, 1);
+		assertTrue(client.approveAssignmentResult("ASSIGNMENT1").isSuccess());
+		
+		long start = System.nanoTime();
+		MTurkResult<Void> result = client.approveAssignmentResult("ASSIGNMENT2");
+		assertTrue(result.getError().isDeadlineExceeded());
+		assertTrue(millisSince(start) < 500);
+		assertEquals(1, this.server.getOperationCount("ApproveAssignment"));
+	}
+	
+	@Test
+	public void openCircuitStopsRequests() throws Exception {
+		CircuitBreaker circuitBreaker = new CircuitBreaker(3, 300);
+		MTurkClientConfig config = new MTurkClientConfig();
+		config.setCircuitBreaker(circuitBreaker);
+		AmazonMTurkClient client = this.newClient(config, 100000);
+		this.server.setErrorRate(1.0);
+		
+		MTurkResult<Void> result = client.approveAssignmentResult("ASSIGNMENT1");
+		assertTrue(result.getError().isCircuitOpen());
+		assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+		long sent = this.server.getRequestCount();
+		assertEquals(3, sent);
+		
+		//nothing was sent, even a non-idempotent write may be sent again
+		MTurkResult<Void> extended = client.extendHITResult("HIT1", 1);
+		assertTrue(extended.getError().isCircuitOpen());
+		assertFalse(extended.getError().isRequestMaybeApplied());
+		assertTrue(extended.getError().isRetryable());
+		assertEquals(sent, this.server.getRequestCount());
+		
+		for(int i = 0; i < 20; i++){
+			assertTrue(client.approveAssignmentResult("ASSIGNMENT1").getError().isCircuitOpen());
+		}
+		assertEquals(sent, this.server.getRequestCount());
+		
+		this.server.setErrorRate(0);
+		Thread.sleep(400);
+		assertTrue(client.approveAssignmentResult("ASSIGNMENT1").isSuccess());
+		assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+	}
+	
+	@Test
+	public void hedgedReadsSkipSlowResponses(){
+		MTurkClientConfig config = new MTurkClientConfig();
+		config.setHedgeReads(true);
+		config.setCoalesceRequests(false);
+		AmazonMTurkClient client = this.newClient(config, 100000);
+		this.server.setLatencyMillis(5, 10);
+		for(int i = 0; i < 50; i++){
+			client.getAssignmentsForHITPage("HIT" + i, 1, 10);
+		}
+		
+		this.server.setSlowResponses(0.1, 1000);
+		long sent = this.server.getOperationCount("GetAssignmentsForHIT");
+		int slowReads = 0;
+		for(int i = 0; i < 30; i++){
+			long start = System.nanoTime();
+			client.getAssignmentsForHITPage("HIT" + i, 1, 10);
+			if(millisSince(start) >= 900){
+				slowReads++;
+			}
+		}
+		//a read is slow only when its hedge is slow too
+		assertTrue("slow reads: " + slowReads, slowReads <= 3);
+		assertTrue(this.server.getOperationCount("GetAssignmentsForHIT") - sent > 30);
+	}
+}
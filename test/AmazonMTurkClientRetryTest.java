@@ -0,0 +1,86 @@
+package com.cclo7;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AmazonMTurkClientRetryTest {
+	
+	private static final int MAX_ATTEMPTS = 3;
+	
+	private FailingTransport transport;
+	private AmazonMTurkClient client;
+	
+	@Before
+	public void setUp(){
+		this.transport = new FailingTransport();
+		MTurkClientConfig config = new MTurkClientConfig();
+		config.setServiceUrl("http://localhost:1/");
+		config.setRetryPolicy(new RetryPolicy(MAX_ATTEMPTS, 1, 2));
+		this.client = new AmazonMTurkClient("TESTACCESSKEY", "TESTSECRETKEY", AmazonMTurkClient.DEFAULT_REST_API_VERSION,
+				true, this.transport, MTurkExecutors.newFixedExecutor(1), config);
+	}
+	
+	@After
+	public void tearDown(){
+		this.client.shutdown();
+	}
+	
+	@Test
+	public void lostResponseOfNonIdempotentWriteIsNotRetried(){
+		MTurkResult<CreatedHIT> created = this.client.createHITWithHITTypeResult("TYPE", "<Question/>", 1, 60);
+		assertFalse(created.isSuccess());
+		assertEquals(MTurkMetrics.NO_RESPONSE_ERROR_CODE, created.getError().getCode());
+		assertTrue(created.getError().isRequestMaybeApplied());
+		assertFalse(created.getError().isRetryable());
+		assertEquals(1, this.transport.calls.getAndSet(0));
+		
+		MTurkResult<Void> extended = this.client.extendHITResult("HIT", 1);
+		assertFalse(extended.getError().isRetryable());
+		assertEquals(1, this.transport.calls.getAndSet(0));
+		
+		MTurkResult<Void> bonus = this.client.grantBonusResult("W1", "A1", 0.5, "thanks", null);
+		assertFalse(bonus.getError().isRetryable());
+		assertEquals(ReviewResult.Status.PERMANENT_FAILURE, 
+				new ReviewResult(ReviewDecision.grantBonus("W1", "A1", 0.5, "thanks"), bonus, 0).getStatus());
+		assertEquals(1, this.transport.calls.getAndSet(0));
+	}
+	
+	@Test
+	public void lostResponseOfIdempotentRequestIsRetried(){
+		MTurkResult<Void> approved = this.client.approveAssignmentResult("A1");
+		assertFalse(approved.isSuccess());
+		assertTrue(approved.getError().isRetryable());
+		assertTrue(approved.getError().isRequestMaybeApplied());
+		assertEquals(MAX_ATTEMPTS, this.transport.calls.getAndSet(0));
+		
+		MTurkResult<Void> bonus = this.client.grantBonusResult("W1", "A1", 0.5, "thanks", "TOKEN");
+		assertTrue(bonus.getError().isRetryable());
+		assertEquals(MAX_ATTEMPTS, this.transport.calls.getAndSet(0));
+	}
+	
+	private static class FailingTransport implements MTurkTransport {
+		
+		final AtomicInteger calls = new AtomicInteger(0);
+		
+		public InputStream execute(String requestUrl) throws IOException {
+			this.calls.incrementAndGet();
+			throw new IOException("connection reset");
+		}
+		
+		public InputStream executePost(String serviceUrl, byte[] formBody, int length) throws IOException {
+			return this.execute(serviceUrl);
+		}
+		
+		public void shutdown(){
+		}
+	}
+}
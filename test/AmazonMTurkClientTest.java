@@ -0,0 +1,74 @@
+package com.cclo7;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AmazonMTurkClientTest {
+	
+	private MockMTurkServer server;
+	private AmazonMTurkClient client;
+	
+	@Before
+	public void setUp() throws Exception {
+		this.server = new MockMTurkServer();
+		this.server.start();
+		this.client = newClient(this.server, new MTurkClientConfig());
+	}
+	
+	@After
+	public void tearDown(){
+		this.client.shutdown();
+		this.server.stop();
+	}
+	
+	/*
+	 * client against the mock without rate limiting
+	 */
+	static AmazonMTurkClient newClient(MockMTurkServer server, MTurkClientConfig config){
+		config.setServiceUrl(server.getServiceUrl());
+		config.setMaxRequestsPerSecond(100000);
+		config.setMaxOperationRequestsPerSecond(100000);
+		config.setMinRequestsPerSecond(100000);
+		return new AmazonMTurkClient("TESTACCESSKEY", "TESTSECRETKEY", AmazonMTurkClient.DEFAULT_REST_API_VERSION, 
+				true, new PooledHttpTransport(), MTurkExecutors.newFixedExecutor(4), config);
+	}
+	
+	@Test
+	public void everyOperationSucceeds(){
+		MTurkResult<CreatedHIT> created = this.client.createHITWithHITTypeResult("TYPE", "<Question/>", 1, 60);
+		assertTrue(created.isSuccess());
+		assertNotNull(created.getValue().getHITId());
+		
+		this.server.setAssignmentsPerHIT(7);
+		assertEquals(7, this.client.getAssignmentsForHITPage("HIT", 1, 100).getAssignments().size());
+		assertTrue(this.client.approveAssignmentResult("A1").isSuccess());
+		assertTrue(this.client.rejectAssignmentResult("A2", "no").isSuccess());
+		assertTrue(this.client.grantBonusResult("W1", "A1", 0.5, "thanks", "T1").isSuccess());
+		assertTrue(this.client.extendHITResult("HIT", 1).isSuccess());
+		assertTrue(this.client.registerHITTypeResult("title", "description", 0.1, 60, 60, null).isSuccess());
+		assertTrue(this.client.setHITTypeNotificationResult("TYPE", "https://localhost/", 
+				new String[]{"AssignmentSubmitted"}, "REST", true).isSuccess());
+		assertTrue(this.client.forceExpireHITResult("HIT").isSuccess());
+		assertTrue(this.client.disposeHITResult("HIT").isSuccess());
+	}
+	
+	@Test
+	public void reportsServiceErrors(){
+		assertTrue(this.client.approveAssignmentResult("A1").isSuccess());
+		MTurkResult<Void> again = this.client.approveAssignmentResult("A1");
+		assertFalse(again.isSuccess());
+		assertTrue(again.getError().isInvalidAssignmentState());
+		assertFalse(again.getError().isRetryable());
+		
+		//a repeated token was already paid, the repeat counts as success
+		assertTrue(this.client.grantBonusResult("W1", "A1", 0.5, "thanks", "T1").isSuccess());
+		assertTrue(this.client.grantBonusResult("W1", "A1", 0.5, "thanks", "T1").isSuccess());
+		assertEquals(2, this.server.getOperationCount("GrantBonus"));
+	}
+}
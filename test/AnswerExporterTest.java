@@ -0,0 +1,183 @@
+package com.cclo7;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AnswerExporterTest {
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	private MockMTurkServer server;
+	private AmazonMTurkClient client;
+	private File outputFile;
+	private File checkpointFile;
+	
+	@Before
+	public void setUp() throws Exception {
+		this.server = new MockMTurkServer();
+		this.server.setAssignmentsPerHIT(5);
+		this.server.start();
+		this.client = AmazonMTurkClientTest.newClient(this.server, new MTurkClientConfig());
+		this.outputFile = new File(this.folder.getRoot(), "answers.csv");
+		this.checkpointFile = new File(this.outputFile.getPath() + ".checkpoint");
+	}
+	
+	@After
+	public void tearDown(){
+		this.client.shutdown();
+		this.server.stop();
+	}
+	
+	private ExportReport export(String... hitIds) throws Exception {
+		return new AnswerExporter(this.client, this.outputFile, ExportFormat.CSV, 1).export(Arrays.asList(hitIds));
+	}
+	
+	@Test
+	public void resumeSkipsCheckpointedHITs() throws Exception {
+		ExportReport first = this.export("HIT1", "HIT2");
+		assertEquals(2, first.getExportedHITs());
+		long length = this.outputFile.length();
+		
+		ExportReport second = this.export("HIT1", "HIT2");
+		assertEquals(0, second.getExportedHITs());
+		assertEquals(2, second.getSkippedHITs());
+		assertEquals(length, this.outputFile.length());
+	}
+	
+	@Test
+	public void tornCheckpointLineIsIgnored() throws Exception {
+		this.export("HIT1", "HIT2");
+		long length = this.outputFile.length();
+		append(this.checkpointFile, "HIT3\t" + length);
+		
+		ExportReport report = this.export("HIT1", "HIT2", "HIT3");
+		assertEquals(2, report.getSkippedHITs());
+		assertEquals(1, report.getExportedHITs());
+		
+		List<String> lines = readLines(this.checkpointFile);
+		assertEquals(3, lines.size());
+		assertTrue(lines.get(2).startsWith("HIT3\t"));
+		assertEquals(Long.parseLong(lines.get(2).substring(5)), this.outputFile.length());
+	}
+	
+	@Test
+	public void checkpointBeyondTheOutputIsIgnored() throws Exception {
+		this.export("HIT1", "HIT2");
+		long fullLength = this.outputFile.length();
+		long firstLength = Long.parseLong(readLines(this.checkpointFile).get(0).substring(5));
+		
+		//rows of HIT2 never reached the disk
+		RandomAccessFile output = new RandomAccessFile(this.outputFile, "rw");
+		try{
+			output.setLength(firstLength);
+		}finally{
+			output.close();
+		}
+		
+		ExportReport report = this.export("HIT1", "HIT2");
+		assertEquals(1, report.getSkippedHITs());
+		assertEquals(1, report.getExportedHITs());
+		assertEquals(fullLength, this.outputFile.length());
+		assertEquals(2, readLines(this.checkpointFile).size());
+	}
+	
+	/*
+	 * one row per answer value of the mock's free text, selection (with other text for even workers) 
+	 * and file upload questions
+	 */
+	@Test
+	public void csvRowsAreQuotedPerAnswerType() throws Exception {
+		this.server.setQuestionsPerAssignment(3);
+		ExportReport report = this.export("HIT1");
+		assertEquals(5 * 4 + 3, report.getRows());
+		
+		List<String> lines = readLines(this.outputFile);
+		assertEquals(1 + 5 * 4 + 3, lines.size());
+		assertEquals("hit_id,assignment_id,worker_id,assignment_status,accept_time,submit_time,question_identifier,"
+				+ "answer_type,answer", lines.get(0));
+		
+		String prefix = "HIT1,HIT1A0,MOCKWORKER0,SUBMITTED,";
+		for(int i = 1; i <= 5; i++){
+			assertTrue(lines.get(i), lines.get(i).startsWith(prefix));
+		}
+		assertTrue(lines.get(1), lines.get(1).endsWith(",q0,FREE_TEXT,answer 0 of worker 0 & more"));
+		assertTrue(lines.get(2), lines.get(2).endsWith(",q1,SELECTION,option0"));
+		assertTrue(lines.get(3), lines.get(3).endsWith(",q1,SELECTION,option4"));
+		assertTrue(lines.get(4), lines.get(4).endsWith(",q1,OTHER_SELECTION,\"other, \"\"quoted\"\"\""));
+		assertTrue(lines.get(5), lines.get(5).endsWith(",q2,UPLOADED_FILE,upload-2-0"));
+		//worker 1 gave no other selection text
+		assertTrue(lines.get(8), lines.get(8).endsWith(",q1,SELECTION,option5"));
+		assertTrue(lines.get(9), lines.get(9).endsWith(",q2,UPLOADED_FILE,upload-2-1"));
+		
+		String[] fields = lines.get(1).split(",");
+		assertEquals(9, fields.length);
+		assertEquals(fields[4], Instant.parse(fields[4]).toString());
+		assertTrue(new String(Files.readAllBytes(this.outputFile.toPath()), StandardCharsets.UTF_8).endsWith("\r\n"));
+	}
+	
+	@Test
+	public void jsonLinesEscapeEveryField() throws Exception {
+		this.server.setQuestionsPerAssignment(3);
+		File jsonFile = new File(this.folder.getRoot(), "answers.jsonl");
+		ExportReport report = new AnswerExporter(this.client, jsonFile, ExportFormat.JSON_LINES, 1)
+				.export(Arrays.asList("HIT1"));
+		
+		List<String> lines = readLines(jsonFile);
+		assertEquals(report.getRows(), lines.size());
+		assertTrue(lines.get(0), lines.get(0).startsWith("{\"hit_id\":\"HIT1\",\"assignment_id\":\"HIT1A0\","
+				+ "\"worker_id\":\"MOCKWORKER0\",\"assignment_status\":\"SUBMITTED\",\"accept_time\":\""));
+		assertTrue(lines.get(0), lines.get(0).endsWith(
+				"\"question_identifier\":\"q0\",\"answer_type\":\"FREE_TEXT\",\"answer\":\"answer 0 of worker 0 & more\"}"));
+		assertTrue(lines.get(2), lines.get(2).endsWith("\"answer_type\":\"SELECTION\",\"answer\":\"option4\"}"));
+		assertTrue(lines.get(3), lines.get(3).endsWith(
+				"\"answer_type\":\"OTHER_SELECTION\",\"answer\":\"other, \\\"quoted\\\"\"}"));
+		assertTrue(lines.get(4), lines.get(4).endsWith("\"answer_type\":\"UPLOADED_FILE\",\"answer\":\"upload-2-0\"}"));
+	}
+	
+	@Test(timeout = 10000)
+	public void failingListenerDoesNotBlockTheExport() throws Exception {
+		final AtomicInteger calls = new AtomicInteger(0);
+		AnswerExporter exporter = new AnswerExporter(this.client, this.outputFile, ExportFormat.CSV, 2);
+		exporter.setProgressListener(new ProgressListener(){
+			public void onProgress(int completed, int succeeded, int failed){
+				calls.incrementAndGet();
+				throw new IllegalStateException("listener failure");
+			}
+		});
+		
+		ExportReport report = exporter.export(Arrays.asList("HIT1", "HIT2", "HIT3", "HIT4", "HIT5"));
+		assertEquals(5, report.getExportedHITs());
+		assertEquals(5, calls.get());
+	}
+	
+	private static void append(File file, String text) throws IOException {
+		FileOutputStream out = new FileOutputStream(file, true);
+		try{
+			out.write(text.getBytes(StandardCharsets.UTF_8));
+		}finally{
+			out.close();
+		}
+	}
+	
+	private static List<String> readLines(File file) throws IOException {
+		return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,70 @@
+package com.cclo7;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AssignmentPageIteratorTest {
+	
+	private static final int ASSIGNMENTS_PER_HIT = 250;
+	
+	private MockMTurkServer server;
+	private AmazonMTurkClient client;
+	
+	@Before
+	public void setUp() throws Exception {
+		this.server = new MockMTurkServer();
+		this.server.setAssignmentsPerHIT(ASSIGNMENTS_PER_HIT);
+		this.server.start();
+		//fewer executor threads than concurrent iterators
+		this.client = AmazonMTurkClientTest.newClient(this.server, new MTurkClientConfig());
+	}
+	
+	@After
+	public void tearDown(){
+		this.client.shutdown();
+		this.server.stop();
+	}
+	
+	@Test
+	public void iteratesEveryPage(){
+		assertEquals(ASSIGNMENTS_PER_HIT, countAssignments(this.client, "HIT1"));
+		assertEquals(3, this.server.getOperationCount("GetAssignmentsForHIT"));
+	}
+	
+	@Test(timeout = 10000)
+	public void consumedByTasksOfTheClientExecutor() throws Exception {
+		List<Future<Integer>> counts = new ArrayList<Future<Integer>>();
+		for(int i = 0; i < 12; i++){
+			final String hitId = "HIT" + i;
+			counts.add(this.client.getExecutor().submit(new Callable<Integer>(){
+				public Integer call(){
+					return countAssignments(client, hitId);
+				}
+			}));
+		}
+		for(Future<Integer> count : counts){
+			assertEquals(ASSIGNMENTS_PER_HIT, (int) count.get(10, TimeUnit.SECONDS));
+		}
+	}
+	
+	private static int countAssignments(AmazonMTurkClient client, String hitId){
+		Set<String> assignmentIds = new HashSet<String>();
+		Iterator<Assignment> assignments = client.iterateAssignmentsForHIT(hitId);
+		while(assignments.hasNext()){
+			assignmentIds.add(assignments.next().getAssignmentId());
+		}
+		return assignmentIds.size();
+	}
+}
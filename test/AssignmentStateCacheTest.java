@@ -0,0 +1,89 @@
+package com.cclo7;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class AssignmentStateCacheTest {
+	
+	private static Assignment assignment(String assignmentId, Assignment.Status status){
+		return new Assignment(assignmentId, "W" + assignmentId, "HIT", status, null, null, null, null, null, null, null);
+	}
+	
+	@Test
+	public void reportsOnlyNewOrChangedAssignments(){
+		AssignmentStateCache cache = new AssignmentStateCache();
+		List<Assignment> assignments = Arrays.asList(assignment("A1", Assignment.Status.SUBMITTED), 
+				assignment("A2", Assignment.Status.SUBMITTED));
+		assertEquals(2, cache.filterNewOrChanged(assignments.iterator()).size());
+		assertEquals(0, cache.filterNewOrChanged(assignments.iterator()).size());
+		
+		List<Assignment> changed = cache.filterNewOrChanged(Arrays.asList(assignment("A1", Assignment.Status.APPROVED), 
+				assignment("A2", Assignment.Status.SUBMITTED)).iterator());
+		assertEquals(1, changed.size());
+		assertEquals("A1", changed.get(0).getAssignmentId());
+	}
+	
+	@Test
+	public void failedIterationLeavesCacheUntouched(){
+		AssignmentStateCache cache = new AssignmentStateCache();
+		final List<Assignment> assignments = Arrays.asList(assignment("A1", Assignment.Status.SUBMITTED), 
+				assignment("A2", Assignment.Status.SUBMITTED), assignment("A3", Assignment.Status.SUBMITTED));
+		
+		//second page fails after the first two assignments
+		Iterator<Assignment> failing = new Iterator<Assignment>(){
+			private int next = 0;
+			public boolean hasNext(){
+				if(this.next == 2){
+					throw new MTurkException("GetAssignmentsForHIT failed");
+				}
+				return true;
+			}
+			public Assignment next(){
+				return assignments.get(this.next++);
+			}
+			public void remove(){
+				throw new UnsupportedOperationException();
+			}
+		};
+		try{
+			cache.filterNewOrChanged(failing);
+			fail();
+		}catch(MTurkException e){
+			//expected
+		}
+		assertEquals(0, cache.size());
+		assertEquals(3, cache.filterNewOrChanged(assignments.iterator()).size());
+	}
+	
+	@Test(timeout = 10000)
+	public void concurrentAsyncPollsComplete() throws Exception {
+		MockMTurkServer server = new MockMTurkServer();
+		server.setAssignmentsPerHIT(250);
+		server.start();
+		MTurkClientConfig config = new MTurkClientConfig();
+		config.setAssignmentStateCache(new AssignmentStateCache());
+		AmazonMTurkClient client = AmazonMTurkClientTest.newClient(server, config);
+		try{
+			//more polls than executor threads, each waits for prefetched pages
+			List<CompletableFuture<List<Assignment>>> polls = new ArrayList<CompletableFuture<List<Assignment>>>();
+			for(int i = 0; i < 20; i++){
+				polls.add(client.pollAssignmentsForHITAsync("HIT" + i));
+			}
+			for(CompletableFuture<List<Assignment>> poll : polls){
+				assertEquals(250, poll.get(10, TimeUnit.SECONDS).size());
+			}
+		}finally{
+			client.shutdown();
+			server.stop();
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package com.cclo7;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BatchHITCreatorTest {
+	
+	private MockMTurkServer server;
+	private AmazonMTurkClient client;
+	
+	@Before
+	public void setUp() throws Exception {
+		this.server = new MockMTurkServer();
+		this.server.start();
+		MTurkClientConfig config = new MTurkClientConfig();
+		//one attempt per call, injected errors reach the results
+		config.setRetryPolicy(new RetryPolicy(1, 1, 1));
+		this.client = AmazonMTurkClientTest.newClient(this.server, config);
+	}
+	
+	@After
+	public void tearDown(){
+		this.client.shutdown();
+		this.server.stop();
+	}
+	
+	private BatchHITCreator newCreator(int maxParallelism){
+		return new BatchHITCreator(this.client, "title", "description", 0.1, 1, 600, 3600, 86400, null, maxParallelism);
+	}
+	
+	private static List<String> questions(int count){
+		List<String> questions = new ArrayList<String>();
+		for(int i = 0; i < count; i++){
+			questions.add("<Question>" + i + "</Question>");
+		}
+		return questions;
+	}
+	
+	@Test
+	public void createsOneHITPerQuestionInOrder() throws Exception {
+		BatchHITCreator creator = this.newCreator(8);
+		BatchHITReport report = creator.createHITs(questions(50));
+		assertEquals(50, report.getSuccessCount());
+		for(int i = 0; i < 50; i++){
+			HITCreationResult result = report.getResults().get(i);
+			assertEquals(i, result.getIndex());
+			assertNotNull(result.getHITId());
+			assertEquals(creator.getHITTypeId(), result.getHITTypeId());
+		}
+		
+		creator.createHITs(questions(10));
+		assertEquals(1, this.server.getOperationCount("RegisterHITType"));
+		assertEquals(60, this.server.getOperationCount("CreateHIT"));
+	}
+	
+	@Test
+	public void failuresKeepTheirMTurkError() throws Exception {
+		BatchHITCreator creator = this.newCreator(4);
+		creator.getHITTypeId();
+		this.server.setErrorRate(1.0);
+		
+		BatchHITReport report = creator.createHITs(questions(20));
+		assertEquals(20, report.getFailureCount());
+		for(HITCreationResult result : report.getResults()){
+			assertEquals("AWS.MechanicalTurk.ServiceFailure", result.getError().getCode());
+			//the service refused the call, the question can be submitted again
+			assertTrue(result.getError().isRetryable());
+			assertTrue(result.getErrorMessage().contains("ServiceFailure"));
+		}
+	}
+	
+	@Test(timeout = 10000)
+	public void failingListenerDoesNotBlockTheBatch() throws Exception {
+		final AtomicInteger calls = new AtomicInteger(0);
+		BatchHITCreator creator = this.newCreator(2);
+		creator.setProgressListener(new ProgressListener(){
+			public void onProgress(int completed, int succeeded, int failed){
+				calls.incrementAndGet();
+				throw new IllegalStateException("listener failure");
+			}
+		});
+		
+		BatchHITReport report = creator.createHITs(questions(10));
+		assertEquals(10, report.getSuccessCount());
+		assertEquals(10, calls.get());
+	}
+}
@@ -0,0 +1,70 @@
+package com.cclo7;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BulkReviewEngineTest {
+	
+	private MockMTurkServer server;
+	private AmazonMTurkClient client;
+	
+	@Before
+	public void setUp() throws Exception {
+		this.server = new MockMTurkServer();
+		this.server.start();
+		MTurkClientConfig config = new MTurkClientConfig();
+		config.setRequestDeadlineMillis(200);
+		this.client = AmazonMTurkClientTest.newClient(this.server, config);
+	}
+	
+	@After
+	public void tearDown(){
+		this.client.shutdown();
+		this.server.stop();
+	}
+	
+	@Test
+	public void bonusTokenIdentifiesTheDecision(){
+		ReviewDecision bonus = ReviewDecision.grantBonus("WORKER1", "ASSIGNMENT1", 0.5, "thanks");
+		assertNotNull(bonus.getUniqueRequestToken());
+		assertEquals(bonus.getUniqueRequestToken(), 
+				ReviewDecision.grantBonus("WORKER1", "ASSIGNMENT1", 0.5, "thank you").getUniqueRequestToken());
+		assertFalse(bonus.getUniqueRequestToken().equals(
+				ReviewDecision.grantBonus("WORKER1", "ASSIGNMENT1", 0.75, "thanks").getUniqueRequestToken()));
+		assertFalse(bonus.getUniqueRequestToken().equals(
+				ReviewDecision.grantBonus("WORKER1", "ASSIGNMENT2", 0.5, "thanks").getUniqueRequestToken()));
+		assertNull(ReviewDecision.approve("ASSIGNMENT1").getUniqueRequestToken());
+	}
+	
+	@Test
+	public void resubmittedBonusesArePaidOnce() throws Exception {
+		List<ReviewDecision> bonuses = new ArrayList<ReviewDecision>();
+		for(int i = 0; i < 4; i++){
+			bonuses.add(ReviewDecision.grantBonus("WORKER" + i, "ASSIGNMENT" + i, 0.5, "thanks"));
+		}
+		BulkReviewEngine engine = new BulkReviewEngine(this.client, 4);
+		
+		//the service pays every bonus but answers after the deadline
+		this.server.setSlowResponses(1.0, 500);
+		for(ReviewResult result : engine.review(bonuses).getResults()){
+			assertEquals(ReviewResult.Status.RETRYABLE_FAILURE, result.getStatus());
+		}
+		Thread.sleep(1000);
+		assertEquals(bonuses.size(), this.server.getBonusCount());
+		
+		this.server.setSlowResponses(0, 0);
+		for(ReviewResult result : engine.review(bonuses).getResults()){
+			assertEquals(ReviewResult.Status.SUCCESS, result.getStatus());
+		}
+		assertEquals(bonuses.size(), this.server.getBonusCount());
+	}
+}
@@ -0,0 +1,101 @@
+package com.cclo7;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DefaultMTurkMetricsTest {
+	
+	private MockMTurkServer server;
+	private AmazonMTurkClient client;
+	private DefaultMTurkMetrics metrics;
+	
+	@Before
+	public void setUp() throws Exception {
+		this.server = new MockMTurkServer();
+		this.server.start();
+		this.metrics = new DefaultMTurkMetrics();
+		MTurkClientConfig config = new MTurkClientConfig();
+		config.setRetryPolicy(new RetryPolicy(3, 1, 1));
+		config.setMetrics(this.metrics);
+		this.client = AmazonMTurkClientTest.newClient(this.server, config);
+	}
+	
+	@After
+	public void tearDown(){
+		this.metrics.unregisterMBeans();
+		this.client.shutdown();
+		this.server.stop();
+	}
+	
+	@Test
+	public void countsRequestsRetriesAndBytesPerOperation(){
+		for(int i = 0; i < 3; i++){
+			this.client.getAssignmentsForHITPage("HIT" + i, 1, 10);
+		}
+		assertTrue(this.client.approveAssignmentResult("ASSIGNMENT1").isSuccess());
+		OperationStats approvals = this.metrics.getOperationStats("ApproveAssignment");
+		long singleAttemptBytes = approvals.getBytesSent();
+		assertTrue(singleAttemptBytes > 0);
+		assertTrue(approvals.getBytesReceived() > 0);
+		
+		this.server.setErrorRate(1.0);
+		assertFalse(this.client.approveAssignmentResult("ASSIGNMENT2").isSuccess());
+		
+		OperationStats reads = this.metrics.getOperationStats("GetAssignmentsForHIT");
+		assertEquals(3, reads.getRequestCount());
+		assertEquals(0, reads.getErrorCount());
+		assertEquals(0, reads.getRetryCount());
+		assertEquals(0, reads.getInFlightCount());
+		assertEquals(3, reads.getLatencyHistogram().getCount());
+		//assignment pages are larger than an approval response
+		assertTrue(reads.getBytesReceived() > 3 * approvals.getBytesReceived() / 2);
+		
+		assertEquals(2, approvals.getRequestCount());
+		assertEquals(1, approvals.getErrorCount());
+		assertEquals(2, approvals.getRetryCount());
+		assertEquals(Collections.singletonMap("AWS.MechanicalTurk.ServiceFailure", Long.valueOf(1)), 
+				approvals.getErrorCodeCounts());
+		assertEquals(4, this.server.getOperationCount("ApproveAssignment"));
+		//every attempt is sent again in full
+		assertTrue(approvals.getBytesSent() - singleAttemptBytes > 2 * singleAttemptBytes);
+		assertEquals(2, this.metrics.getAllOperationStats().size());
+	}
+	
+	@Test
+	public void operationStatsAreReadableOverJMX() throws Exception {
+		this.client.approveAssignment("ASSIGNMENT1");
+		this.metrics.registerMBeans("metrics-test");
+		MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		ObjectName approvals = new ObjectName("com.cclo7:type=MTurkClient,name=\"metrics-test\",operation=ApproveAssignment");
+		assertTrue(mbeanServer.isRegistered(approvals));
+		assertEquals(Long.valueOf(1), mbeanServer.getAttribute(approvals, "RequestCount"));
+		
+		//operations seen after registration are registered as well
+		this.client.getAssignmentsForHITPage("HIT1", 1, 10);
+		this.client.getAssignmentsForHITPage("HIT2", 1, 10);
+		ObjectName reads = new ObjectName("com.cclo7:type=MTurkClient,name=\"metrics-test\",operation=GetAssignmentsForHIT");
+		OperationStatsMXBean proxy = JMX.newMXBeanProxy(mbeanServer, reads, OperationStatsMXBean.class);
+		assertEquals("GetAssignmentsForHIT", proxy.getOperation());
+		assertEquals(2, proxy.getRequestCount());
+		assertTrue(proxy.getBytesReceived() > 0);
+		assertTrue(proxy.getLatencyMaxMillis() >= proxy.getLatencyP50Millis());
+		assertNull(proxy.getErrorCodeCounts().get("AWS.MechanicalTurk.ServiceFailure"));
+		
+		this.metrics.unregisterMBeans();
+		assertFalse(mbeanServer.isRegistered(approvals));
+		assertFalse(mbeanServer.isRegistered(reads));
+	}
+}
@@ -0,0 +1,180 @@
+package com.cclo7;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class EncodedRequestTest {
+	
+	private static String urlEncode(String s) throws Exception {
+		return URLEncoder.encode(s, "UTF-8");
+	}
+	
+	private static void assertEncodedLikeURLEncoder(String value) throws Exception {
+		EncodedRequest request = new EncodedRequest(0);
+		request.append("Key " + value, value);
+		assertEquals(urlEncode("Key " + value) + "=" + urlEncode(value), request.toString());
+	}
+	
+	@Test
+	public void encodingMatchesURLEncoder() throws Exception {
+		String[] values = {
+			"",
+			"plain-value_1.0",
+			"!\"#$%&'()+,/:;<=>?@[\\]^`{|}",
+			" spaces  around ",
+			"*",
+			"~",
+			"\u0000\t\n\r\u007f",
+			"\u0080\u00e9\u07ff",
+			"\u0800\u20ac\u65e5\u672c\uffff",
+			//surrogate pairs, U+1F600 and U+10FFFF
+			"\ud83d\ude00 \udbff\udfff",
+			//unpaired surrogates
+			"\ud83d", "\ud83dx", "\ude00", "x\ude00\ud83d"
+		};
+		for(String value : values){
+			assertEncodedLikeURLEncoder(value);
+		}
+		
+		StringBuilder everyChar = new StringBuilder();
+		for(char c = 0; c < 0x3000; c++){
+			everyChar.append(c);
+		}
+		assertEncodedLikeURLEncoder(everyChar.toString());
+	}
+	
+	@Test
+	public void fixedPartSurvivesReset() throws Exception {
+		EncodedRequest request = new EncodedRequest(0);
+		request.append("Operation", "CreateHIT");
+		StringBuilder question = new StringBuilder();
+		for(int i = 0; i < 1000; i++){
+			question.append("<Text>caf\u00e9 & cr\u00e8me</Text>");
+		}
+		request.append("Question", question.toString());
+		request.markFixed();
+		String fixed = request.toString();
+		
+		for(int attempt = 0; attempt < 3; attempt++){
+			request.resetToFixed();
+			request.append("Timestamp", "2026-10-17T12:00:0" + attempt + "Z");
+			request.append("Signature", "a+b/c=");
+			assertEquals(fixed + "&Timestamp=" + urlEncode("2026-10-17T12:00:0" + attempt + "Z") + "&Signature=a%2Bb%2Fc%3D",
+					request.toString());
+		}
+		assertEquals("http://host/?" + request.toString(), request.toUrl("http://host/"));
+		assertEquals(request.getLength(), request.toString().length());
+	}
+	
+	/*
+	 * form parameters of a request and whether they were posted
+	 */
+	private static class SentRequest {
+		
+		final String form;
+		final boolean isPost;
+		
+		SentRequest(String form, boolean isPost){
+			this.form = form;
+			this.isPost = isPost;
+		}
+	}
+	
+	/*
+	 * records each call and answers it with the wrapped transport
+	 */
+	private static class RecordingTransport implements MTurkTransport {
+		
+		final MTurkTransport transport = new PooledHttpTransport();
+		final List<SentRequest> requests = Collections.synchronizedList(new ArrayList<SentRequest>());
+		
+		public InputStream execute(String requestUrl) throws IOException {
+			this.requests.add(new SentRequest(requestUrl.substring(requestUrl.indexOf('?') + 1), false));
+			return this.transport.execute(requestUrl);
+		}
+		
+		public InputStream executePost(String serviceUrl, byte[] formBody, int length) throws IOException {
+			this.requests.add(new SentRequest(new String(formBody, 0, length, "US-ASCII"), true));
+			return this.transport.executePost(serviceUrl, formBody, length);
+		}
+		
+		public void shutdown(){
+			this.transport.shutdown();
+		}
+		
+		SentRequest last(){
+			return this.requests.get(this.requests.size() - 1);
+		}
+	}
+	
+	private static Map<String, String> decode(String form) throws Exception {
+		Map<String, String> parameters = new HashMap<String, String>();
+		for(String pair : form.split("&")){
+			int separator = pair.indexOf('=');
+			parameters.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"), 
+					URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+		}
+		return parameters;
+	}
+	
+	@Test
+	public void requestsAboveTheThresholdArePosted() throws Exception {
+		MockMTurkServer server = new MockMTurkServer();
+		server.start();
+		RecordingTransport transport = new RecordingTransport();
+		MTurkClientConfig config = new MTurkClientConfig();
+		config.setServiceUrl(server.getServiceUrl());
+		config.setMaxRequestsPerSecond(100000);
+		config.setMaxOperationRequestsPerSecond(100000);
+		config.setMinRequestsPerSecond(100000);
+		config.setPostThresholdBytes(1000);
+		AmazonMTurkClient client = new AmazonMTurkClient("TESTACCESSKEY", "TESTSECRETKEY", 
+				AmazonMTurkClient.DEFAULT_REST_API_VERSION, true, transport, MTurkExecutors.newFixedExecutor(1), config);
+		try{
+			String small = "<Question>\u00e9 \ud83d\ude00</Question>";
+			StringBuilder large = new StringBuilder("<Question>");
+			while(large.length() < 2000){
+				large.append("caf\u00e9 & cr\u00e8me ~*");
+			}
+			large.append("</Question>");
+			
+			assertTrue(client.createHITWithHITTypeResult("TYPE", small, 1, 60).isSuccess());
+			SentRequest sent = transport.last();
+			assertFalse(sent.isPost);
+			assertEquals(small, decode(sent.form).get("Question"));
+			assertTrue(client.createHITWithHITTypeResult("TYPE", large.toString(), 1, 60).isSuccess());
+			assertTrue(transport.last().isPost);
+			assertEquals(large.toString(), decode(transport.last().form).get("Question"));
+			
+			//a request exactly at the threshold is still a GET, one byte above it is posted; the signature
+			//of a new second may escape to another length, such a request is sent again
+			for(int offset = 0; offset >= -1; offset--){
+				int threshold;
+				do{
+					threshold = sent.form.length() + offset;
+					config.setPostThresholdBytes(threshold);
+					assertTrue(client.createHITWithHITTypeResult("TYPE", small, 1, 60).isSuccess());
+					sent = transport.last();
+					assertEquals(sent.form.length() > threshold, sent.isPost);
+				}while(sent.form.length() != threshold - offset);
+				assertEquals(offset < 0, sent.isPost);
+			}
+		}finally{
+			client.shutdown();
+			server.stop();
+		}
+	}
+}
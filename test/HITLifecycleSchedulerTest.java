@@ -0,0 +1,226 @@
+package com.cclo7;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HITLifecycleSchedulerTest {
+	
+	private MockMTurkServer server;
+	private AmazonMTurkClient client;
+	
+	@Before
+	public void setUp() throws Exception {
+		this.server = new MockMTurkServer();
+		this.server.setAssignmentsPerHIT(150);
+		this.server.start();
+		this.client = AmazonMTurkClientTest.newClient(this.server, new MTurkClientConfig());
+	}
+	
+	@After
+	public void tearDown(){
+		this.client.shutdown();
+		this.server.stop();
+	}
+	
+	/*
+	 * replaces the client by one that does not retry itself, so every scheduler attempt is one request
+	 */
+	private void useSingleAttemptClient(MTurkClientConfig config){
+		config.setRetryPolicy(new RetryPolicy(1, 1, 1));
+		this.client.shutdown();
+		this.client = AmazonMTurkClientTest.newClient(this.server, config);
+	}
+	
+	private static HITLifecycleListener queueResults(final BlockingQueue<MTurkResult<Void>> results){
+		return new HITLifecycleListener(){
+			public void onActionCompleted(ScheduledHITAction action, MTurkResult<Void> result){
+				results.add(result);
+			}
+		};
+	}
+	
+	@Test
+	public void runsDueActions() throws Exception {
+		final CountDownLatch done = new CountDownLatch(3);
+		final AtomicInteger failures = new AtomicInteger(0);
+		HITLifecycleScheduler scheduler = new HITLifecycleScheduler(this.client, null);
+		scheduler.setListener(new HITLifecycleListener(){
+			public void onActionCompleted(ScheduledHITAction action, MTurkResult<Void> result){
+				if(!result.isSuccess()){
+					failures.incrementAndGet();
+				}
+				done.countDown();
+			}
+		});
+		scheduler.start();
+		try{
+			scheduler.scheduleExtend("HIT1", Instant.now(), 1, 60);
+			scheduler.scheduleExpire("HIT2", Instant.now().plusMillis(50));
+			scheduler.scheduleDispose("HIT3", Instant.now().plusMillis(100));
+			assertTrue(done.await(10, TimeUnit.SECONDS));
+			assertEquals(0, failures.get());
+			assertEquals(1, this.server.getOperationCount("DisposeHIT"));
+		}finally{
+			scheduler.shutdown();
+		}
+	}
+	
+	/*
+	 * more concurrent reviews than client executor threads, each waiting for client operations
+	 */
+	@Test
+	public void reviewHandlerMayWaitForAsyncOperations() throws Exception {
+		final BulkReviewEngine engine = new BulkReviewEngine(this.client);
+		final AtomicInteger approved = new AtomicInteger(0);
+		HITLifecycleScheduler scheduler = new HITLifecycleScheduler(this.client, new HITReviewHandler(){
+			public void review(String hitId, List<Assignment> assignments){
+				List<ReviewDecision> decisions = new ArrayList<ReviewDecision>();
+				for(Assignment assignment : assignments){
+					decisions.add(ReviewDecision.approve(assignment.getAssignmentId()));
+				}
+				try{
+					approved.addAndGet(engine.review(decisions).getSuccessCount());
+				}catch(InterruptedException e){
+					Thread.currentThread().interrupt();
+				}
+			}
+		}, 16);
+		
+		final CountDownLatch done = new CountDownLatch(16);
+		scheduler.setListener(new HITLifecycleListener(){
+			public void onActionCompleted(ScheduledHITAction action, MTurkResult<Void> result){
+				done.countDown();
+			}
+		});
+		scheduler.start();
+		try{
+			for(int i = 0; i < 16; i++){
+				scheduler.scheduleReview("HIT" + i, Instant.now(), 0);
+			}
+			assertTrue(done.await(20, TimeUnit.SECONDS));
+			assertEquals(16 * 150, approved.get());
+		}finally{
+			scheduler.shutdown();
+		}
+	}
+	
+	@Test
+	public void retriesServiceFailuresUpToMaxAttempts() throws Exception {
+		this.useSingleAttemptClient(new MTurkClientConfig());
+		this.server.setErrorRate(1.0);
+		BlockingQueue<MTurkResult<Void>> results = new LinkedBlockingQueue<MTurkResult<Void>>();
+		HITLifecycleScheduler scheduler = new HITLifecycleScheduler(this.client, null);
+		scheduler.setRetryPolicy(3, 10);
+		scheduler.setListener(queueResults(results));
+		scheduler.start();
+		try{
+			scheduler.scheduleExpire("HIT1", Instant.now());
+			scheduler.scheduleExtend("HIT2", Instant.now(), 1, 0);
+			for(int i = 0; i < 6; i++){
+				MTurkResult<Void> result = results.poll(10, TimeUnit.SECONDS);
+				assertTrue(result.getError().isRetryable());
+			}
+			Thread.sleep(200);
+			assertTrue(results.isEmpty());
+			assertEquals(0, scheduler.getPendingCount());
+			assertEquals(3, this.server.getOperationCount("ForceExpireHIT"));
+			//the failure response proves that the HIT was not extended
+			assertEquals(3, this.server.getOperationCount("ExtendHIT"));
+			
+			this.server.setErrorRate(0);
+			scheduler.scheduleExpire("HIT3", Instant.now());
+			assertTrue(results.poll(10, TimeUnit.SECONDS).isSuccess());
+			assertEquals(4, this.server.getOperationCount("ForceExpireHIT"));
+		}finally{
+			scheduler.shutdown();
+		}
+	}
+	
+	@Test
+	public void abandonedExtendIsNotSentAgain() throws Exception {
+		MTurkClientConfig config = new MTurkClientConfig();
+		config.setRequestDeadlineMillis(100);
+		this.useSingleAttemptClient(config);
+		this.server.setSlowResponses(1.0, 500);
+		BlockingQueue<MTurkResult<Void>> results = new LinkedBlockingQueue<MTurkResult<Void>>();
+		HITLifecycleScheduler scheduler = new HITLifecycleScheduler(this.client, null);
+		scheduler.setRetryPolicy(3, 10);
+		scheduler.setListener(queueResults(results));
+		scheduler.start();
+		try{
+			scheduler.scheduleExtend("HIT1", Instant.now(), 1, 60);
+			scheduler.scheduleExpire("HIT2", Instant.now());
+			int extendFailures = 0;
+			int expireFailures = 0;
+			for(int i = 0; i < 4; i++){
+				MTurkResult<Void> result = results.poll(10, TimeUnit.SECONDS);
+				assertTrue(result.getError().isDeadlineExceeded());
+				if(result.getError().getMessage().startsWith("ExtendHIT")){
+					extendFailures++;
+				}else{
+					expireFailures++;
+				}
+			}
+			Thread.sleep(300);
+			assertTrue(results.isEmpty());
+			//ForceExpireHIT is idempotent and retried, ExtendHIT may have been applied
+			assertEquals(1, extendFailures);
+			assertEquals(3, expireFailures);
+			assertEquals(1, this.server.getOperationCount("ExtendHIT"));
+			assertEquals(0, scheduler.getPendingCount());
+		}finally{
+			scheduler.shutdown();
+		}
+	}
+	
+	@Test
+	public void cancelStopsRecurringReviewsAndRetries() throws Exception {
+		final AtomicInteger reviews = new AtomicInteger(0);
+		HITLifecycleScheduler scheduler = new HITLifecycleScheduler(this.client, new HITReviewHandler(){
+			public void review(String hitId, List<Assignment> assignments){
+				reviews.incrementAndGet();
+			}
+		});
+		BlockingQueue<MTurkResult<Void>> results = new LinkedBlockingQueue<MTurkResult<Void>>();
+		scheduler.setListener(queueResults(results));
+		scheduler.start();
+		try{
+			scheduler.scheduleReview("HIT1", Instant.now(), 50);
+			ScheduledHITAction later = scheduler.scheduleDispose("HIT1", Instant.now().plusMillis(60000));
+			scheduler.scheduleDispose("HIT2", Instant.now().plusMillis(60000));
+			for(int i = 0; i < 3; i++){
+				assertTrue(results.poll(10, TimeUnit.SECONDS).isSuccess());
+			}
+			assertEquals(3, scheduler.getPendingCount());
+			
+			assertEquals(2, scheduler.cancel("HIT1"));
+			assertTrue(later.isCancelled());
+			assertEquals(0, scheduler.cancel("HIT1"));
+			assertEquals(1, scheduler.getPendingCount());
+			
+			//a review running while cancelled may still report, but none is scheduled after it
+			Thread.sleep(100);
+			int reviewed = reviews.get();
+			Thread.sleep(200);
+			assertEquals(reviewed, reviews.get());
+			assertTrue(reviewed >= 3);
+			assertFalse(results.size() > 1);
+		}finally{
+			scheduler.shutdown();
+		}
+	}
+}
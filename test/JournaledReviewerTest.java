@@ -0,0 +1,103 @@
+package com.cclo7;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JournaledReviewerTest {
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	private MockMTurkServer server;
+	private AmazonMTurkClient client;
+	private File journalFile;
+	
+	@Before
+	public void setUp() throws Exception {
+		this.server = new MockMTurkServer();
+		this.server.start();
+		MTurkClientConfig config = new MTurkClientConfig();
+		//one attempt per call, failures reach the journal
+		config.setRetryPolicy(new RetryPolicy(1, 1, 1));
+		config.setRequestDeadlineMillis(200);
+		this.client = AmazonMTurkClientTest.newClient(this.server, config);
+		this.journalFile = new File(this.folder.getRoot(), "reviews.journal");
+	}
+	
+	@After
+	public void tearDown(){
+		this.client.shutdown();
+		this.server.stop();
+	}
+	
+	@Test
+	public void retryableFailureIsReplayedAfterARestart() throws Exception {
+		ReviewDecision approval = ReviewDecision.approve("A1");
+		ReviewDecision bonus = ReviewDecision.grantBonus("W1", "A1", 0.5, "thanks");
+		ReviewDecision rejection = ReviewDecision.reject("A2", "spam");
+		
+		OperationJournal journal = new OperationJournal(this.journalFile);
+		JournaledReviewer reviewer = new JournaledReviewer(this.client, journal);
+		this.server.setErrorRate(1.0);
+		assertEquals(ReviewResult.Status.RETRYABLE_FAILURE, reviewer.execute(approval).getStatus());
+		assertEquals(ReviewResult.Status.RETRYABLE_FAILURE, reviewer.execute(bonus).getStatus());
+		this.server.setErrorRate(0);
+		assertTrue(reviewer.execute(rejection).isSuccess());
+		assertEquals(2, journal.getPendingEntries().size());
+		journal.close();
+		
+		journal = new OperationJournal(this.journalFile);
+		reviewer = new JournaledReviewer(this.client, journal);
+		List<ReviewResult> replayed = reviewer.recover();
+		assertEquals(2, replayed.size());
+		assertEquals(ReviewDecision.Action.APPROVE, replayed.get(0).getDecision().getAction());
+		assertEquals(bonus.getUniqueRequestToken(), replayed.get(1).getDecision().getUniqueRequestToken());
+		assertTrue(replayed.get(0).isSuccess());
+		assertTrue(replayed.get(1).isSuccess());
+		assertEquals(0, journal.getPendingEntries().size());
+		assertEquals(1, this.server.getBonusCount());
+		journal.close();
+		
+		journal = new OperationJournal(this.journalFile);
+		assertEquals(0, journal.getPendingEntries().size());
+		journal.close();
+	}
+	
+	/*
+	 * the first call is applied but its response is not awaited
+	 */
+	@Test
+	public void abandonedBonusIsPaidOnce() throws Exception {
+		ReviewDecision bonus = ReviewDecision.grantBonus("W1", "A1", 0.5, "thanks");
+		OperationJournal journal = new OperationJournal(this.journalFile);
+		JournaledReviewer reviewer = new JournaledReviewer(this.client, journal);
+		
+		this.server.setSlowResponses(1.0, 500);
+		ReviewResult result = reviewer.execute(bonus);
+		assertTrue(result.getError().isDeadlineExceeded());
+		assertEquals(ReviewResult.Status.RETRYABLE_FAILURE, result.getStatus());
+		Thread.sleep(600);
+		this.server.setSlowResponses(0, 0);
+		
+		//the caller submits the decision again while its entry is still pending
+		assertTrue(reviewer.execute(bonus).isSuccess());
+		List<JournalEntry> pending = journal.getPendingEntries();
+		assertEquals(1, pending.size());
+		assertEquals(bonus.getUniqueRequestToken(), pending.get(0).getRequestToken());
+		
+		List<ReviewResult> replayed = reviewer.recover();
+		assertTrue(replayed.get(0).isSuccess());
+		assertEquals(0, journal.getPendingEntries().size());
+		assertEquals(1, this.server.getBonusCount());
+		journal.close();
+	}
+}
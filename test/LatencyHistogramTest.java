@@ -0,0 +1,79 @@
+package com.cclo7;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+	
+	private static final long MAX_VALUE = (1L << 40) - 1;
+	
+	@Test
+	public void bucketsAreContiguousAndWithinThreePercent(){
+		assertEquals(0, LatencyHistogram.indexOf(0));
+		assertEquals(31, LatencyHistogram.indexOf(31));
+		assertEquals(31, LatencyHistogram.upperBoundOf(31));
+		//from 32 on, each power of two range is split into 32 buckets
+		assertEquals(32, LatencyHistogram.indexOf(32));
+		assertEquals(32, LatencyHistogram.upperBoundOf(32));
+		assertEquals(63, LatencyHistogram.upperBoundOf(LatencyHistogram.indexOf(63)));
+		assertEquals(LatencyHistogram.indexOf(64), LatencyHistogram.indexOf(65));
+		assertEquals(65, LatencyHistogram.upperBoundOf(LatencyHistogram.indexOf(64)));
+		assertEquals(LatencyHistogram.indexOf(65) + 1, LatencyHistogram.indexOf(66));
+		
+		for(long value = 0; value < (1 << 20); value++){
+			int index = LatencyHistogram.indexOf(value);
+			long upperBound = LatencyHistogram.upperBoundOf(index);
+			assertTrue(value + " above its bucket", upperBound >= value);
+			assertTrue(value + " bucket too wide", upperBound - value <= value / 32);
+			if(upperBound == value){
+				assertEquals(index + 1, LatencyHistogram.indexOf(value + 1));
+			}
+		}
+		
+		int last = LatencyHistogram.indexOf(MAX_VALUE);
+		assertEquals(MAX_VALUE, LatencyHistogram.upperBoundOf(last));
+		assertEquals(last - 31, LatencyHistogram.indexOf(1L << 39));
+		assertEquals(LatencyHistogram.indexOf((1L << 39) - 1) + 1, LatencyHistogram.indexOf(1L << 39));
+	}
+	
+	@Test
+	public void percentilesAreBucketUpperBounds(){
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getPercentileMicros(50));
+		assertEquals(0, histogram.getMeanMicros(), 0);
+		
+		for(long value = 1; value <= 100; value++){
+			histogram.recordMicros(value);
+		}
+		assertEquals(100, histogram.getCount());
+		assertEquals(50.5, histogram.getMeanMicros(), 0);
+		assertEquals(1, histogram.getPercentileMicros(0));
+		assertEquals(1, histogram.getPercentileMicros(1));
+		assertEquals(50, histogram.getPercentileMicros(50));
+		assertEquals(95, histogram.getPercentileMicros(95));
+		assertEquals(99, histogram.getPercentileMicros(99));
+		//the bucket of 100 ends at 101, the percentile never exceeds the largest value recorded
+		assertEquals(100, histogram.getPercentileMicros(100));
+		assertEquals(100, histogram.getMaxMicros());
+		
+		histogram = new LatencyHistogram();
+		histogram.recordMicros(64);
+		histogram.recordMicros(1000);
+		assertEquals(65, histogram.getPercentileMicros(50));
+		assertEquals(1000, histogram.getPercentileMicros(51));
+		assertEquals(1000, histogram.getPercentileMicros(100));
+	}
+	
+	@Test
+	public void outOfRangeValuesAreClamped(){
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.recordMicros(-5);
+		histogram.recordMicros(Long.MAX_VALUE);
+		assertEquals(2, histogram.getCount());
+		assertEquals(0, histogram.getPercentileMicros(50));
+		assertEquals(MAX_VALUE, histogram.getPercentileMicros(100));
+		assertEquals(MAX_VALUE, histogram.getMaxMicros());
+	}
+}
@@ -0,0 +1,133 @@
+package com.cclo7;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MTurkClientPoolTest {
+	
+	private static final int ASSIGNMENTS_PER_HIT = 250;
+	
+	private MockMTurkServer server;
+	private MTurkClientPool pool;
+	
+	@Before
+	public void setUp() throws Exception {
+		this.server = new MockMTurkServer();
+		this.server.setAssignmentsPerHIT(ASSIGNMENTS_PER_HIT);
+		this.server.start();
+		this.pool = new MTurkClientPool(new PooledHttpTransport(), MTurkExecutors.newFixedExecutor(4));
+	}
+	
+	@After
+	public void tearDown(){
+		this.pool.shutdown();
+		this.server.stop();
+	}
+	
+	private MTurkClientConfig newConfig(){
+		MTurkClientConfig config = new MTurkClientConfig();
+		config.setServiceUrl(this.server.getServiceUrl());
+		config.setMaxRequestsPerSecond(100000);
+		config.setMaxOperationRequestsPerSecond(100000);
+		config.setMinRequestsPerSecond(100000);
+		config.setAssignmentStateCache(new AssignmentStateCache());
+		return config;
+	}
+	
+	@Test(timeout = 10000)
+	public void pagedPollsFitInASmallBudget() throws Exception {
+		//every poll reads three pages, more polls than the account may run at once
+		AmazonMTurkClient client = this.pool.addAccount("small", "ACCESSKEY1", "SECRETKEY1", true, 
+				this.newConfig(), 2);
+		
+		List<CompletableFuture<List<Assignment>>> polls = new ArrayList<CompletableFuture<List<Assignment>>>();
+		for(int i = 0; i < 10; i++){
+			polls.add(client.pollAssignmentsForHITAsync("HIT" + i));
+		}
+		for(CompletableFuture<List<Assignment>> poll : polls){
+			assertEquals(ASSIGNMENTS_PER_HIT, poll.get(10, TimeUnit.SECONDS).size());
+		}
+		assertEquals(0, this.pool.getQueuedRequests("small"));
+	}
+	
+	@Test(timeout = 10000)
+	public void accountsShareTheExecutor() throws Exception {
+		AmazonMTurkClient first = this.pool.addAccount("first", "ACCESSKEY1", "SECRETKEY1", true, 
+				this.newConfig(), 1);
+		AmazonMTurkClient second = this.pool.addAccount("second", "ACCESSKEY2", "SECRETKEY2", true, 
+				this.newConfig(), 1);
+		
+		CompletableFuture<List<Assignment>> firstPoll = first.pollAssignmentsForHITAsync("HIT1");
+		CompletableFuture<List<Assignment>> secondPoll = second.pollAssignmentsForHITAsync("HIT2");
+		assertEquals(ASSIGNMENTS_PER_HIT, firstPoll.get(10, TimeUnit.SECONDS).size());
+		assertEquals(ASSIGNMENTS_PER_HIT, secondPoll.get(10, TimeUnit.SECONDS).size());
+	}
+	
+	@Test
+	public void budgetsAreScaledToTheTransportConnections(){
+		//three accounts at the default budget, more than the 20 connections of the shared transport
+		for(String name : new String[]{ "payout1", "payout2", "creation" }){
+			this.pool.addAccount(name, "ACCESSKEY" + name, "SECRETKEY", true);
+		}
+		int total = 0;
+		for(String name : this.pool.getAccountNames()){
+			assertEquals(6, this.pool.getMaxConcurrentRequests(name));
+			total += this.pool.getMaxConcurrentRequests(name);
+		}
+		assertEquals(18, total);
+		
+		MTurkClientPool small = new MTurkClientPool(new PooledHttpTransport(5, 1000, 1000), MTurkExecutors.newFixedExecutor(4));
+		try{
+			small.addAccount("first", "ACCESSKEY1", "SECRETKEY1", true, this.newConfig(), 3);
+			small.addAccount("second", "ACCESSKEY2", "SECRETKEY2", true, this.newConfig(), 1);
+			assertEquals(3, small.getMaxConcurrentRequests("first"));
+			//every account keeps one connection, the remaining two go to the larger budgets
+			small.addAccount("third", "ACCESSKEY3", "SECRETKEY3", true, this.newConfig(), 3);
+			assertEquals(2, small.getMaxConcurrentRequests("first"));
+			assertEquals(1, small.getMaxConcurrentRequests("second"));
+			assertEquals(2, small.getMaxConcurrentRequests("third"));
+			small.addAccount("fourth", "ACCESSKEY4", "SECRETKEY4", true, this.newConfig(), 100);
+			small.addAccount("fifth", "ACCESSKEY5", "SECRETKEY5", true, this.newConfig(), 1);
+			for(String name : small.getAccountNames()){
+				assertEquals(1, small.getMaxConcurrentRequests(name));
+			}
+			try{
+				small.addAccount("sixth", "ACCESSKEY6", "SECRETKEY6", true, this.newConfig(), 1);
+				fail("more accounts than connections");
+			}catch(IllegalArgumentException e){
+				//expected
+			}
+		}finally{
+			small.shutdown();
+		}
+	}
+	
+	@Test(timeout = 10000)
+	public void scaledBudgetStillRunsEveryOperation() throws Exception {
+		this.pool.shutdown();
+		this.pool = new MTurkClientPool(new PooledHttpTransport(2, 1000, 5000), MTurkExecutors.newFixedExecutor(4));
+		AmazonMTurkClient first = this.pool.addAccount("first", "ACCESSKEY1", "SECRETKEY1", true, 
+				this.newConfig(), 4);
+		AmazonMTurkClient second = this.pool.addAccount("second", "ACCESSKEY2", "SECRETKEY2", true, 
+				this.newConfig(), 4);
+		assertEquals(1, this.pool.getMaxConcurrentRequests("first"));
+		
+		List<CompletableFuture<List<Assignment>>> polls = new ArrayList<CompletableFuture<List<Assignment>>>();
+		for(int i = 0; i < 4; i++){
+			polls.add(first.pollAssignmentsForHITAsync("HIT" + i));
+			polls.add(second.pollAssignmentsForHITAsync("HIT" + i));
+		}
+		for(CompletableFuture<List<Assignment>> poll : polls){
+			assertEquals(ASSIGNMENTS_PER_HIT, poll.get(10, TimeUnit.SECONDS).size());
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package com.cclo7;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class MTurkResponseParserTest {
+	
+	private static final String FORM_START = "<QuestionFormAnswers xmlns=\"http://mechanicalturk.amazonaws.com/"
+			+ "AWSMechanicalTurkDataSchemas/2005-10-01/QuestionFormAnswers.xsd\">";
+	private static final String FORM_END = "</QuestionFormAnswers>";
+	
+	@Test
+	public void parsesEveryAnswerType() throws Exception {
+		StringBuilder form = new StringBuilder(FORM_START);
+		//free text, two selections with an "other" text, and an uploaded file, as the mock answers them
+		MockMTurkServer.appendAnswer(form, 0, 2);
+		MockMTurkServer.appendAnswer(form, 1, 2);
+		MockMTurkServer.appendAnswer(form, 2, 2);
+		form.append("<Answer><QuestionIdentifier>color</QuestionIdentifier>")
+				.append("<OtherSelectionText>teal</OtherSelectionText></Answer>");
+		//an answer without QuestionIdentifier is skipped
+		form.append("<Answer><FreeText>orphan</FreeText></Answer>");
+		form.append(FORM_END);
+		
+		List<QuestionAnswer> answers = MTurkResponseParser.parseQuestionFormAnswers(form.toString());
+		assertEquals(4, answers.size());
+		
+		QuestionAnswer freeText = answers.get(0);
+		assertEquals("q0", freeText.getQuestionIdentifier());
+		assertEquals(QuestionAnswer.Type.FREE_TEXT, freeText.getType());
+		assertEquals("answer 0 of worker 2 & more", freeText.getFreeText());
+		assertEquals(freeText.getFreeText(), freeText.getText());
+		assertEquals(Collections.<String>emptyList(), freeText.getSelectionIdentifiers());
+		assertNull(freeText.getUploadedFileKey());
+		assertEquals(-1, freeText.getUploadedFileSizeInBytes());
+		
+		QuestionAnswer selection = answers.get(1);
+		assertEquals(QuestionAnswer.Type.SELECTION, selection.getType());
+		assertEquals(Arrays.asList("option2", "option6"), selection.getSelectionIdentifiers());
+		assertEquals("other, \"quoted\"", selection.getOtherSelectionText());
+		assertEquals("option2|option6|other, \"quoted\"", selection.getText());
+		assertNull(selection.getFreeText());
+		
+		QuestionAnswer upload = answers.get(2);
+		assertEquals(QuestionAnswer.Type.UPLOADED_FILE, upload.getType());
+		assertEquals("upload-2-2", upload.getUploadedFileKey());
+		assertEquals(1026, upload.getUploadedFileSizeInBytes());
+		assertEquals("upload-2-2", upload.getText());
+		assertEquals("q2=upload-2-2", upload.toString());
+		
+		QuestionAnswer otherOnly = answers.get(3);
+		assertEquals(QuestionAnswer.Type.SELECTION, otherOnly.getType());
+		assertEquals("teal", otherOnly.getText());
+	}
+	
+	@Test
+	public void repeatedQuestionsAreJoinedInDocumentOrder() throws Exception {
+		String form = FORM_START
+				+ "<Answer><QuestionIdentifier>tags</QuestionIdentifier><FreeText>first</FreeText></Answer>"
+				+ "<Answer><QuestionIdentifier>size</QuestionIdentifier><SelectionIdentifier>L</SelectionIdentifier></Answer>"
+				+ "<Answer><QuestionIdentifier>tags</QuestionIdentifier><SelectionIdentifier>a</SelectionIdentifier>"
+				+ "<SelectionIdentifier>b</SelectionIdentifier><OtherSelectionText>c</OtherSelectionText></Answer>"
+				+ "<Answer><QuestionIdentifier>tags</QuestionIdentifier><FreeText></FreeText></Answer>"
+				+ FORM_END;
+		
+		Map<String, String> answers = MTurkResponseParser.parseAnswers(form);
+		assertEquals(Arrays.asList("tags", "size"), Arrays.asList(answers.keySet().toArray()));
+		assertEquals("first|a|b|c|", answers.get("tags"));
+		assertEquals("L", answers.get("size"));
+		assertEquals(answers, MTurkResponseParser.toAnswerMap(MTurkResponseParser.parseQuestionFormAnswers(form)));
+	}
+	
+	/*
+	 * the answer document is escaped inside the response, its elements never reach the record
+	 */
+	@Test
+	public void questionNamedWorkerIdIsOnlyAnAnswer() throws Exception {
+		String form = FORM_START
+				+ "<Answer><QuestionIdentifier>workerId</QuestionIdentifier><FreeText>FAKEWORKER</FreeText></Answer>"
+				+ "<Answer><QuestionIdentifier>WorkerId</QuestionIdentifier><FreeText>FAKEWORKER2</FreeText></Answer>"
+				+ FORM_END;
+		StringBuilder response = new StringBuilder("<?xml version=\"1.0\"?><GetAssignmentsForHITResponse>"
+				+ "<GetAssignmentsForHITResult><Request><IsValid>True</IsValid></Request><Assignment>"
+				+ "<AssignmentId>ASSIGNMENT1</AssignmentId><WorkerId>WORKER1</WorkerId><HITId>HIT1</HITId>"
+				+ "<AssignmentStatus>Submitted</AssignmentStatus><Answer>");
+		QuestionTemplate.appendEscaped(response, form);
+		response.append("</Answer></Assignment></GetAssignmentsForHITResult></GetAssignmentsForHITResponse>");
+		
+		MTurkResponse parsed = new MTurkResponseParser("Assignment", "AssignmentId", "WorkerId", "HITId", 
+				"AssignmentStatus", "Answer").parse(new ByteArrayInputStream(response.toString().getBytes("UTF-8")));
+		assertEquals(1, parsed.getRecords().size());
+		Assignment assignment = Assignment.fromRecord(parsed.getRecords().get(0));
+		assertEquals("WORKER1", assignment.getWorkerId());
+		assertEquals(form, assignment.getAnswerXML());
+		assertEquals("FAKEWORKER", assignment.getAnswers().get("workerId"));
+		assertEquals("FAKEWORKER2", assignment.getAnswers().get("WorkerId"));
+		assertEquals(2, assignment.getQuestionAnswers().size());
+		
+		//the single map of getAssignmentsForHIT keeps the real ids
+		final byte[] body = response.toString().getBytes("UTF-8");
+		AmazonMTurkClient client = new AmazonMTurkClient("TESTACCESSKEY", "TESTSECRETKEY", 
+				AmazonMTurkClient.DEFAULT_REST_API_VERSION, true, new MTurkTransport(){
+					public InputStream execute(String requestUrl){
+						return new ByteArrayInputStream(body);
+					}
+					
+					public InputStream executePost(String serviceUrl, byte[] formBody, int length){
+						return new ByteArrayInputStream(body);
+					}
+					
+					public void shutdown(){
+					}
+				}, MTurkExecutors.newFixedExecutor(1), new MTurkClientConfig());
+		try{
+			Map<String, String> answers = client.getAssignmentsForHIT("HIT1");
+			assertEquals("WORKER1", answers.get("workerId"));
+			assertEquals("ASSIGNMENT1", answers.get("assignmentId"));
+			assertEquals("FAKEWORKER2", answers.get("WorkerId"));
+		}finally{
+			client.shutdown();
+		}
+	}
+}
@@ -0,0 +1,419 @@
+package com.cclo7;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/*
+ * In-process stand-in for the AWSMechanicalTurkRequester REST endpoint, for offline tests and benchmarks.
+ * Point a client at it with MTurkClientConfig.setServiceUrl(server.getServiceUrl()).
+ * 
+ * Serves the operations implemented by AmazonMTurkClient with responses shaped like the real service,
+ * keeps just enough state to report InvalidAssignmentState and DuplicateRequest errors, and can inject
+ * latency, slow responses, service failures and throttling. Signatures are not checked.
+ * 
+ * Run it with -Dsun.net.httpserver.nodelay=true (the build sets it for tests and benchmarks): the JDK
+ * server writes headers and body separately, and with Nagle's algorithm every response on a
+ * kept-alive connection can wait ~40 ms for a delayed ACK.
+ */
+public class MockMTurkServer {
+	
+	public static final int DEFAULT_THREADS = 64;
+	
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	
+	private final int port;
+	private final int threads;
+	private HttpServer server;
+	private ExecutorService executor;
+	
+	private volatile long minLatencyMillis = 0;
+	private volatile long maxLatencyMillis = 0;
+	private volatile double slowResponseRate = 0;
+	private volatile long slowResponseMillis = 0;
+	private volatile double errorRate = 0;
+	private volatile double throttleRate = 0;
+	private volatile double maxRequestsPerSecond = 0;
+	private volatile int assignmentsPerHIT = 10;
+	private volatile int questionsPerAssignment = 3;
+	
+	private final AtomicLong requestCount = new AtomicLong(0);
+	private final AtomicLong throttledCount = new AtomicLong(0);
+	private final AtomicLong hitCount = new AtomicLong(0);
+	private final AtomicLong bonusCount = new AtomicLong(0);
+	private final ConcurrentMap<String, AtomicLong> operationCounts = new ConcurrentHashMap<String, AtomicLong>();
+	private final Set<InetSocketAddress> connections = 
+			Collections.newSetFromMap(new ConcurrentHashMap<InetSocketAddress, Boolean>());
+	private final ConcurrentMap<String, String> assignmentStatuses = new ConcurrentHashMap<String, String>();
+	private final Set<String> bonusTokens = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	
+	private final Object rateWindowLock = new Object();
+	private long rateWindowSecond = 0;
+	private long rateWindowCount = 0;
+	
+	/*
+	 * port 0 binds an ephemeral port
+	 */
+	public MockMTurkServer(int port, int threads){
+		this.port = port;
+		this.threads = threads;
+	}
+	
+	public MockMTurkServer(){
+		this(0, DEFAULT_THREADS);
+	}
+	
+	public synchronized void start() throws IOException {
+		// without TCP_NODELAY the separate header and body writes of HttpServer meet delayed ACKs 
+		// on keep-alive connections and every response takes ~40ms; read once when the first server starts
+		if(System.getProperty("sun.net.httpserver.nodelay") == null){
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		}
+		this.server = HttpServer.create(new InetSocketAddress("localhost", this.port), 0);
+		this.server.createContext("/", new RequesterHandler());
+		this.executor = MTurkExecutors.newFixedExecutor(this.threads);
+		this.server.setExecutor(this.executor);
+		this.server.start();
+	}
+	
+	public synchronized void stop(){
+		if(this.server != null){
+			this.server.stop(0);
+			this.executor.shutdownNow();
+			this.server = null;
+		}
+	}
+	
+	public String getServiceUrl(){
+		return "http://localhost:" + this.server.getAddress().getPort() + "/";
+	}
+	
+	/*
+	 * every response is delayed by a uniformly random time in [min, max]
+	 */
+	public void setLatencyMillis(long minLatencyMillis, long maxLatencyMillis){
+		this.minLatencyMillis = minLatencyMillis;
+		this.maxLatencyMillis = Math.max(minLatencyMillis, maxLatencyMillis);
+	}
+	
+	/*
+	 * the given fraction of responses takes an additional delayMillis
+	 */
+	public void setSlowResponses(double rate, long delayMillis){
+		this.slowResponseRate = rate;
+		this.slowResponseMillis = delayMillis;
+	}
+	
+	/*
+	 * fraction of requests answered with a retryable AWS.MechanicalTurk.ServiceFailure
+	 */
+	public void setErrorRate(double errorRate){
+		this.errorRate = errorRate;
+	}
+	
+	/*
+	 * fraction of requests answered with HTTP 503 AWS.ServiceUnavailable
+	 */
+	public void setThrottleRate(double throttleRate){
+		this.throttleRate = throttleRate;
+	}
+	
+	/*
+	 * requests beyond this rate within a one second window are throttled, 0 disables the limit
+	 */
+	public void setMaxRequestsPerSecond(double maxRequestsPerSecond){
+		this.maxRequestsPerSecond = maxRequestsPerSecond;
+	}
+	
+	public void setAssignmentsPerHIT(int assignmentsPerHIT){
+		this.assignmentsPerHIT = assignmentsPerHIT;
+	}
+	
+	public void setQuestionsPerAssignment(int questionsPerAssignment){
+		this.questionsPerAssignment = questionsPerAssignment;
+	}
+	
+	public long getRequestCount(){
+		return this.requestCount.get();
+	}
+	
+	public long getThrottledCount(){
+		return this.throttledCount.get();
+	}
+	
+	public long getOperationCount(String operation){
+		AtomicLong count = this.operationCounts.get(operation);
+		return count == null ? 0 : count.get();
+	}
+	
+	/*
+	 * bonuses paid, duplicates of a UniqueRequestToken excluded
+	 */
+	public long getBonusCount(){
+		return this.bonusCount.get();
+	}
+	
+	/*
+	 * number of distinct TCP connections the server has seen
+	 */
+	public int getConnectionCount(){
+		return this.connections.size();
+	}
+	
+	private boolean isOverRateLimit(){
+		double limit = this.maxRequestsPerSecond;
+		if(limit <= 0){
+			return false;
+		}
+		synchronized(this.rateWindowLock){
+			long second = System.currentTimeMillis() / 1000;
+			if(second != this.rateWindowSecond){
+				this.rateWindowSecond = second;
+				this.rateWindowCount = 0;
+			}
+			return ++this.rateWindowCount > limit;
+		}
+	}
+	
+	private String respond(String operation, Map<String, String> parameters){
+		if("ApproveAssignment".equals(operation)){
+			return this.review(operation, parameters.get("AssignmentId"), "Approved");
+		}else if("RejectAssignment".equals(operation)){
+			return this.review(operation, parameters.get("AssignmentId"), "Rejected");
+		}else if("CreateHIT".equals(operation)){
+			String hitTypeId = parameters.get("HITTypeId");
+			if(hitTypeId == null){
+				hitTypeId = "MOCKTYPE" + Math.abs(String.valueOf(parameters.get("Title")).hashCode());
+			}
+			return result(operation, "HIT", "<HITId>MOCKHIT" + this.hitCount.incrementAndGet() + "</HITId>"
+					+ "<HITTypeId>" + hitTypeId + "</HITTypeId>");
+		}else if("RegisterHITType".equals(operation)){
+			return result(operation, "RegisterHITTypeResult", "<HITTypeId>MOCKTYPE" 
+					+ Math.abs(String.valueOf(parameters.get("Title")).hashCode()) + "</HITTypeId>");
+		}else if("GetAssignmentsForHIT".equals(operation)){
+			return this.assignments(parameters);
+		}else if("GrantBonus".equals(operation)){
+			String token = parameters.get("UniqueRequestToken");
+			if(token != null && !this.bonusTokens.add(token)){
+				return invalid(operation, "GrantBonusResult", "AWS.MechanicalTurk.DuplicateRequest", 
+						"The request has already been processed: " + token);
+			}
+			this.bonusCount.incrementAndGet();
+			return result(operation, "GrantBonusResult", "");
+		}else if("ExtendHIT".equals(operation) || "SetHITTypeNotification".equals(operation)
+				|| "ForceExpireHIT".equals(operation) || "DisposeHIT".equals(operation)){
+			return result(operation, operation + "Result", "");
+		}
+		return invalid(operation, operation + "Result", "AWS.BadOperation", "unsupported operation " + operation);
+	}
+	
+	private String review(String operation, String assignmentId, String newStatus){
+		String previous = this.assignmentStatuses.putIfAbsent(String.valueOf(assignmentId), newStatus);
+		if(previous != null){
+			return invalid(operation, operation + "Result", "AWS.MechanicalTurk.InvalidAssignmentState",
+					"This operation can be called with a status of: Submitted (" + previous + ")");
+		}
+		return result(operation, operation + "Result", "");
+	}
+	
+	private String assignments(Map<String, String> parameters){
+		String hitId = parameters.get("HITId");
+		int pageSize = parameters.containsKey("PageSize") ? Integer.parseInt(parameters.get("PageSize")) : 10;
+		int pageNumber = parameters.containsKey("PageNumber") ? Integer.parseInt(parameters.get("PageNumber")) : 1;
+		int total = this.assignmentsPerHIT;
+		int first = (pageNumber - 1) * pageSize;
+		int last = Math.min(total, first + pageSize);
+		
+		String now = Instant.ofEpochSecond(System.currentTimeMillis() / 1000).toString();
+		StringBuilder body = new StringBuilder(512 * Math.max(1, last - first));
+		body.append("<NumResults>").append(Math.max(0, last - first)).append("</NumResults>");
+		body.append("<TotalNumResults>").append(total).append("</TotalNumResults>");
+		body.append("<PageNumber>").append(pageNumber).append("</PageNumber>");
+		
+		for(int i = first; i < last; i++){
+			String assignmentId = hitId + "A" + i;
+			String status = this.assignmentStatuses.get(assignmentId);
+			
+			StringBuilder answer = new StringBuilder(256);
+			answer.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>");
+			answer.append("<QuestionFormAnswers xmlns=\"http://mechanicalturk.amazonaws.com/AWSMechanicalTurkDataSchemas/2005-10-01/QuestionFormAnswers.xsd\">");
+			for(int q = 0; q < this.questionsPerAssignment; q++){
+				appendAnswer(answer, q, i);
+			}
+			answer.append("</QuestionFormAnswers>");
+			
+			body.append("<Assignment>");
+			body.append("<AssignmentId>").append(assignmentId).append("</AssignmentId>");
+			body.append("<WorkerId>MOCKWORKER").append(i).append("</WorkerId>");
+			body.append("<HITId>").append(hitId).append("</HITId>");
+			body.append("<AssignmentStatus>").append(status != null ? status : "Submitted").append("</AssignmentStatus>");
+			body.append("<AutoApprovalTime>").append(now).append("</AutoApprovalTime>");
+			body.append("<AcceptTime>").append(now).append("</AcceptTime>");
+			body.append("<SubmitTime>").append(now).append("</SubmitTime>");
+			body.append("<Answer>");
+			QuestionTemplate.appendEscaped(body, answer.toString());
+			body.append("</Answer>");
+			body.append("</Assignment>");
+		}
+		return result("GetAssignmentsForHIT", "GetAssignmentsForHITResult", body.toString());
+	}
+	
+	/*
+	 * cycles through free text, multiple selection and file upload answers
+	 */
+	static void appendAnswer(StringBuilder answer, int question, int worker){
+		answer.append("<Answer><QuestionIdentifier>q").append(question).append("</QuestionIdentifier>");
+		switch(question % 3){
+			case 0:
+				answer.append("<FreeText>answer ").append(question).append(" of worker ").append(worker)
+						.append(" &amp; more</FreeText>");
+				break;
+			case 1:
+				answer.append("<SelectionIdentifier>option").append(worker % 4).append("</SelectionIdentifier>");
+				answer.append("<SelectionIdentifier>option").append(worker % 4 + 4).append("</SelectionIdentifier>");
+				if(worker % 2 == 0){
+					answer.append("<OtherSelectionText>other, \"quoted\"</OtherSelectionText>");
+				}
+				break;
+			default:
+				answer.append("<UploadedFileSizeInBytes>").append(1024 + worker).append("</UploadedFileSizeInBytes>");
+				answer.append("<UploadedFileKey>upload-").append(question).append('-').append(worker)
+						.append("</UploadedFileKey>");
+		}
+		answer.append("</Answer>");
+	}
+	
+	private static String result(String operation, String resultElement, String content){
+		return "<?xml version=\"1.0\"?><" + operation + "Response>"
+				+ "<OperationRequest><RequestId>" + UUID.randomUUID() + "</RequestId></OperationRequest>"
+				+ "<" + resultElement + "><Request><IsValid>True</IsValid></Request>" + content + "</" + resultElement + ">"
+				+ "</" + operation + "Response>";
+	}
+	
+	private static String invalid(String operation, String resultElement, String code, String message){
+		return "<?xml version=\"1.0\"?><" + operation + "Response>"
+				+ "<OperationRequest><RequestId>" + UUID.randomUUID() + "</RequestId></OperationRequest>"
+				+ "<" + resultElement + "><Request><IsValid>False</IsValid><Errors><Error>"
+				+ "<Code>" + code + "</Code><Message>" + message + "</Message>"
+				+ "</Error></Errors></Request></" + resultElement + ">"
+				+ "</" + operation + "Response>";
+	}
+	
+	private static String serviceError(String operation, String code, String message){
+		return "<?xml version=\"1.0\"?><" + operation + "Response>"
+				+ "<OperationRequest><RequestId>" + UUID.randomUUID() + "</RequestId>"
+				+ "<Errors><Error><Code>" + code + "</Code><Message>" + message + "</Message></Error></Errors>"
+				+ "</OperationRequest></" + operation + "Response>";
+	}
+	
+	private static void decodeForm(String encoded, Map<String, String> parameters) throws UnsupportedEncodingException {
+		if(encoded == null || encoded.length() == 0){
+			return;
+		}
+		for(String pair : encoded.split("&")){
+			int separator = pair.indexOf('=');
+			if(separator > 0){
+				parameters.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"),
+						URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+			}
+		}
+	}
+	
+	private static String readBody(InputStream in) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while((read = in.read(buffer)) != -1){
+			body.write(buffer, 0, read);
+		}
+		return new String(body.toByteArray(), UTF_8);
+	}
+	
+	private class RequesterHandler implements HttpHandler {
+		
+		public void handle(HttpExchange exchange) throws IOException {
+			requestCount.incrementAndGet();
+			connections.add(exchange.getRemoteAddress());
+			
+			Map<String, String> parameters = new HashMap<String, String>();
+			decodeForm(exchange.getRequestURI().getRawQuery(), parameters);
+			if("POST".equalsIgnoreCase(exchange.getRequestMethod())){
+				decodeForm(readBody(exchange.getRequestBody()), parameters);
+			}
+			String operation = String.valueOf(parameters.get("Operation"));
+			
+			AtomicLong count = operationCounts.get(operation);
+			if(count == null){
+				AtomicLong created = new AtomicLong(0);
+				count = operationCounts.putIfAbsent(operation, created);
+				if(count == null){
+					count = created;
+				}
+			}
+			count.incrementAndGet();
+			
+			this.delay();
+			
+			int status = 200;
+			String response;
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			if(isOverRateLimit() || random.nextDouble() < throttleRate){
+				throttledCount.incrementAndGet();
+				status = 503;
+				response = serviceError(operation, "AWS.ServiceUnavailable", "Rate exceeded");
+			}else if(random.nextDouble() < errorRate){
+				response = serviceError(operation, "AWS.MechanicalTurk.ServiceFailure", "Injected service failure");
+			}else{
+				response = respond(operation, parameters);
+			}
+			
+			byte[] bytes = response.getBytes(UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=UTF-8");
+			exchange.sendResponseHeaders(status, bytes.length);
+			OutputStream out = exchange.getResponseBody();
+			try{
+				out.write(bytes);
+			}finally{
+				out.close();
+			}
+		}
+		
+		private void delay(){
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			long millis = minLatencyMillis;
+			if(maxLatencyMillis > minLatencyMillis){
+				millis += random.nextLong(maxLatencyMillis - minLatencyMillis + 1);
+			}
+			if(slowResponseRate > 0 && random.nextDouble() < slowResponseRate){
+				millis += slowResponseMillis;
+			}
+			if(millis > 0){
+				try{
+					Thread.sleep(millis);
+				}catch(InterruptedException e){
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+}
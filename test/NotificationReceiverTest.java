@@ -0,0 +1,109 @@
+package com.cclo7;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NotificationReceiverTest {
+	
+	private static final String SECRET_KEY = "TESTSECRETKEY";
+	
+	private final List<NotificationEvent> events = Collections.synchronizedList(new ArrayList<NotificationEvent>());
+	private NotificationReceiver receiver;
+	
+	@Before
+	public void setUp() throws Exception {
+		this.receiver = new NotificationReceiver(0, "/notify", new NotificationHandler(){
+			public void handle(NotificationEvent event){
+				events.add(event);
+			}
+		});
+		this.receiver.setSecretKey(SECRET_KEY);
+		this.receiver.setMaxBodyBytes(4096);
+		this.receiver.start();
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		this.receiver.stop();
+	}
+	
+	private static String notification(String timestamp, String assignmentId) throws IOException {
+		String signature = new RequestSigner("AWSMechanicalTurkRequesterNotification", SECRET_KEY).sign("Notify", timestamp);
+		return "method=Notify&Version=2006-05-05"
+				+ "&Timestamp=" + URLEncoder.encode(timestamp, "UTF-8")
+				+ "&Signature=" + URLEncoder.encode(signature, "UTF-8")
+				+ "&Event.1.EventType=AssignmentSubmitted"
+				+ "&Event.1.EventTime=" + URLEncoder.encode(timestamp, "UTF-8")
+				+ "&Event.1.HITTypeId=TYPE1&Event.1.HITId=HIT1"
+				+ "&Event.1.AssignmentId=" + assignmentId;
+	}
+	
+	private int post(String body) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + this.receiver.getPort() 
+				+ "/notify").openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+		byte[] bytes = body.getBytes("UTF-8");
+		connection.setFixedLengthStreamingMode(bytes.length);
+		OutputStream out = connection.getOutputStream();
+		try{
+			out.write(bytes);
+		}finally{
+			out.close();
+		}
+		try{
+			return connection.getResponseCode();
+		}finally{
+			connection.disconnect();
+		}
+	}
+	
+	@Test
+	public void acceptsSignedNotification() throws Exception {
+		assertEquals(200, this.post(notification(RequestSigner.getTimestamp(), "A1")));
+		this.receiver.stop();
+		assertEquals(1, this.events.size());
+		assertEquals("A1", this.events.get(0).getAssignmentId());
+	}
+	
+	@Test
+	public void refusesWrongSignature() throws Exception {
+		String body = notification(RequestSigner.getTimestamp(), "A1").replace("&Signature=", "&Signature=x");
+		assertEquals(403, this.post(body));
+	}
+	
+	@Test
+	public void refusesStaleTimestamp() throws Exception {
+		String hourAgo = Instant.ofEpochSecond(System.currentTimeMillis() / 1000 - 3600).toString();
+		assertEquals(403, this.post(notification(hourAgo, "A1")));
+		
+		String hourAhead = Instant.ofEpochSecond(System.currentTimeMillis() / 1000 + 3600).toString();
+		assertEquals(403, this.post(notification(hourAhead, "A1")));
+		assertEquals(0, this.receiver.getReceivedCount());
+	}
+	
+	@Test
+	public void refusesOversizedBody() throws Exception {
+		StringBuilder body = new StringBuilder(notification(RequestSigner.getTimestamp(), "A1"));
+		body.append("&padding=");
+		while(body.length() <= 4096){
+			body.append("xxxxxxxxxxxxxxxx");
+		}
+		assertEquals(413, this.post(body.toString()));
+		assertEquals(0, this.receiver.getReceivedCount());
+	}
+}
@@ -0,0 +1,146 @@
+package com.cclo7;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class OperationJournalTest {
+	
+	private static final int SEGMENT_SIZE = 4096;
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	private File journalFile(){
+		return new File(this.folder.getRoot(), "reviews.journal");
+	}
+	
+	@Test
+	public void pendingEntriesSurviveARestart() throws Exception {
+		OperationJournal journal = new OperationJournal(this.journalFile(), SEGMENT_SIZE);
+		JournalEntry approval = journal.appendIntent(ReviewDecision.approve("A1"));
+		JournalEntry bonus = journal.appendIntent(ReviewDecision.grantBonus("W1", "A2", 0.5, "thanks"));
+		journal.appendOutcome(approval, true);
+		journal.close();
+		
+		journal = new OperationJournal(this.journalFile(), SEGMENT_SIZE);
+		List<JournalEntry> pending = journal.getPendingEntries();
+		assertEquals(1, pending.size());
+		assertEquals(bonus.getEntryId(), pending.get(0).getEntryId());
+		assertEquals(bonus.getRequestToken(), pending.get(0).getRequestToken());
+		assertEquals("W1", pending.get(0).getDecision().getWorkerId());
+		
+		JournalEntry next = journal.appendIntent(ReviewDecision.approve("A3"));
+		assertTrue(next.getEntryId() > bonus.getEntryId());
+		journal.close();
+	}
+	
+	@Test
+	public void checkpointsRetireOldSegments() throws Exception {
+		OperationJournal journal = new OperationJournal(this.journalFile(), SEGMENT_SIZE);
+		JournalEntry stuck = journal.appendIntent(ReviewDecision.grantBonus("W1", "A0", 1.0, "stuck"));
+		for(int i = 1; i <= 2000; i++){
+			JournalEntry entry = journal.appendIntent(ReviewDecision.approve("A" + i));
+			journal.appendOutcome(entry, true);
+		}
+		JournalEntry last = journal.appendIntent(ReviewDecision.approve("A2001"));
+		
+		List<File> segmentFiles = journal.getSegmentFiles();
+		assertTrue(segmentFiles.toString(), segmentFiles.size() <= 2);
+		assertEquals(segmentFiles.size(), this.folder.getRoot().listFiles().length);
+		assertTrue(!segmentFiles.get(0).getName().endsWith(".0"));
+		journal.close();
+		
+		journal = new OperationJournal(this.journalFile(), SEGMENT_SIZE);
+		List<JournalEntry> pending = journal.getPendingEntries();
+		assertEquals(2, pending.size());
+		assertEquals(stuck.getEntryId(), pending.get(0).getEntryId());
+		assertEquals(stuck.getRequestToken(), pending.get(0).getRequestToken());
+		assertEquals(last.getEntryId(), pending.get(1).getEntryId());
+		journal.close();
+	}
+	
+	@Test
+	public void tornTailIsOverwritten() throws Exception {
+		OperationJournal journal = new OperationJournal(this.journalFile(), SEGMENT_SIZE);
+		journal.appendIntent(ReviewDecision.approve("A1"));
+		journal.appendIntent(ReviewDecision.approve("A2"));
+		List<File> segmentFiles = journal.getSegmentFiles();
+		journal.close();
+		
+		//flip a byte in the body of the second record, its crc no longer matches
+		RandomAccessFile file = new RandomAccessFile(segmentFiles.get(0), "rw");
+		try{
+			int firstLength = file.readInt();
+			long second = 8 + firstLength;
+			file.seek(second + 8 + 12);
+			int value = file.read();
+			file.seek(second + 8 + 12);
+			file.write(value ^ 0xff);
+		}finally{
+			file.close();
+		}
+		
+		journal = new OperationJournal(this.journalFile(), SEGMENT_SIZE);
+		assertEquals(1, journal.getPendingEntries().size());
+		journal.appendIntent(ReviewDecision.approve("A3"));
+		journal.close();
+		
+		journal = new OperationJournal(this.journalFile(), SEGMENT_SIZE);
+		List<JournalEntry> pending = journal.getPendingEntries();
+		assertEquals(2, pending.size());
+		assertEquals("A3", pending.get(1).getDecision().getAssignmentId());
+		journal.close();
+	}
+	
+	@Test
+	public void unknownActionIsACorruptRecord() throws Exception {
+		OperationJournal journal = new OperationJournal(this.journalFile(), SEGMENT_SIZE);
+		journal.appendIntent(ReviewDecision.approve("A1"));
+		List<File> segmentFiles = journal.getSegmentFiles();
+		journal.close();
+		
+		//rewrite the action ordinal of the intent (after the type byte and the entry id) with a valid crc
+		RandomAccessFile file = new RandomAccessFile(segmentFiles.get(0), "rw");
+		try{
+			byte[] body = new byte[file.readInt()];
+			file.seek(8);
+			file.readFully(body);
+			body[9] = 42;
+			CRC32 crc = new CRC32();
+			crc.update(body);
+			file.seek(4);
+			file.writeInt((int) crc.getValue());
+			file.write(body);
+		}finally{
+			file.close();
+		}
+		
+		try{
+			new OperationJournal(this.journalFile(), SEGMENT_SIZE);
+			fail("corrupt record was replayed");
+		}catch(IOException e){
+			assertNotNull(e.getCause());
+			assertTrue(e.getCause().getMessage(), e.getCause().getMessage().contains("unknown action 42"));
+		}
+	}
+	
+	@Test
+	public void nonBonusEntriesHaveNoToken() throws Exception {
+		OperationJournal journal = new OperationJournal(this.journalFile(), SEGMENT_SIZE);
+		assertNull(journal.appendIntent(ReviewDecision.reject("A1", "spam")).getRequestToken());
+		journal.close();
+	}
+}
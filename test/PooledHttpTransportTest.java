@@ -0,0 +1,93 @@
+package com.cclo7;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PooledHttpTransportTest {
+	
+	private MockMTurkServer server;
+	private PooledHttpTransport transport;
+	
+	@Before
+	public void setUp() throws Exception {
+		this.server = new MockMTurkServer(0, 8);
+		this.server.start();
+		this.transport = new PooledHttpTransport(4, PooledHttpTransport.DEFAULT_CONNECT_TIMEOUT_MILLIS, 
+				PooledHttpTransport.DEFAULT_READ_TIMEOUT_MILLIS);
+	}
+	
+	@After
+	public void tearDown(){
+		this.transport.shutdown();
+		this.server.stop();
+	}
+	
+	private void approve(String assignmentId) throws IOException {
+		InputStream in = this.transport.execute(this.server.getServiceUrl() 
+				+ "?Operation=ApproveAssignment&AssignmentId=" + assignmentId);
+		in.close();
+	}
+	
+	@Test
+	public void sequentialRequestsReuseOneConnection() throws Exception {
+		for(int i = 0; i < 50; i++){
+			this.approve("A" + i);
+		}
+		assertEquals(50, this.server.getRequestCount());
+		assertEquals(1, this.server.getConnectionCount());
+		assertEquals(4, this.transport.getAvailableConnections());
+	}
+	
+	@Test
+	public void concurrentRequestsStayWithinMaxConnections() throws Exception {
+		this.server.setLatencyMillis(1, 5);
+		ExecutorService callers = Executors.newFixedThreadPool(16);
+		try{
+			List<Future<Void>> calls = new ArrayList<Future<Void>>();
+			for(int i = 0; i < 400; i++){
+				final String assignmentId = "A" + i;
+				calls.add(callers.submit(new Callable<Void>(){
+					public Void call() throws IOException {
+						approve(assignmentId);
+						return null;
+					}
+				}));
+			}
+			for(Future<Void> call : calls){
+				call.get();
+			}
+		}finally{
+			callers.shutdown();
+		}
+		assertEquals(400, this.server.getRequestCount());
+		assertTrue("connections: " + this.server.getConnectionCount(), this.server.getConnectionCount() <= 4);
+		assertEquals(4, this.transport.getAvailableConnections());
+	}
+	
+	@Test
+	public void rejectsRequestsAfterShutdown() throws Exception {
+		this.approve("A1");
+		this.transport.shutdown();
+		try{
+			this.approve("A2");
+			fail("request after shutdown");
+		}catch(IOException e){
+			//expected
+		}
+		assertEquals(1, this.server.getRequestCount());
+	}
+}
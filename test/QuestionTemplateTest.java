@@ -0,0 +1,55 @@
+package com.cclo7;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class QuestionTemplateTest {
+	
+	@Test
+	public void escapesValuesInText(){
+		QuestionTemplate template = QuestionTemplate.compile("<Text a=\"${a}\">${b}</Text>");
+		assertEquals(Arrays.asList("a", "b"), template.getPlaceholderNames());
+		assertEquals("<Text a=\"&quot;x&quot;\">&lt;b&gt; &amp; &#39;c&#39;</Text>", 
+				template.render("\"x\"", "<b> & 'c'"));
+	}
+	
+	@Test
+	public void externalQuestionEscapesTheUrl(){
+		String question = QuestionTemplate.externalQuestion().render("https://example.com/task?a=1&b=2", "400");
+		assertTrue(question.contains("<ExternalURL>https://example.com/task?a=1&amp;b=2</ExternalURL>"));
+	}
+	
+	@Test
+	public void doubledDollarIsALiteralPlaceholder(){
+		QuestionTemplate template = QuestionTemplate.compile("<Text>$${price} costs ${price}</Text>");
+		assertEquals(Arrays.asList("price"), template.getPlaceholderNames());
+		assertEquals("<Text>${price} costs 5</Text>", template.render("5"));
+	}
+	
+	@Test
+	public void copiesValuesInCdataUnescaped(){
+		QuestionTemplate template = QuestionTemplate.htmlQuestion(
+				"<script>var task = ${task};</script><p>${task}</p>", 600);
+		String question = template.render("{\"a\": 1 && 2 < 3}");
+		assertTrue(question, question.contains("<![CDATA[<script>var task = {\"a\": 1 && 2 < 3};</script><p>"));
+	}
+	
+	@Test
+	public void splitsCdataEndInValues(){
+		QuestionTemplate template = QuestionTemplate.htmlQuestion("<p>${text}</p>", 600);
+		String question = template.render("a]]>b");
+		assertTrue(question, question.contains("<![CDATA[<p>a]]]]><![CDATA[>b</p>]]>"));
+	}
+	
+	@Test
+	public void escapesAgainAfterTheCdataSection(){
+		QuestionTemplate template = QuestionTemplate.compile(
+				"<A><![CDATA[${v}]]></A><B>${v}</B><C><![CDATA[x]]]]><![CDATA[>${v}]]></C>");
+		assertEquals("<A><![CDATA[<i>]]></A><B>&lt;i&gt;</B><C><![CDATA[x]]]]><![CDATA[><i>]]></C>", 
+				template.render("<i>"));
+	}
+}
@@ -0,0 +1,74 @@
+package com.cclo7;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Test;
+
+public class RequestSignerTest {
+	
+	private static final String SERVICE_NAME = "AWSMechanicalTurkRequester";
+	private static final String TIMESTAMP = "2026-10-17T12:00:00Z";
+	
+	/*
+	 * the signature as the client computed it before signatures were cached, a new Mac per request
+	 */
+	private static String baselineSignature(String secretKey, String operation, String timestamp) throws Exception {
+		Mac mac = Mac.getInstance("HmacSHA1");
+		mac.init(new SecretKeySpec(secretKey.getBytes(), mac.getAlgorithm()));
+		byte[] rawHmac = mac.doFinal((SERVICE_NAME + operation + timestamp).getBytes());
+		return new String(new Base64().encode(rawHmac));
+	}
+	
+	@Test
+	public void signaturesMatchKnownAnswers() throws Exception {
+		RequestSigner signer = new RequestSigner(SERVICE_NAME, "TESTSECRETKEY");
+		assertEquals("dPyvAs8JJK4WCzAcrmYxE0xKYbg=", signer.sign("ApproveAssignment", TIMESTAMP));
+		//served from the per-operation cache
+		assertEquals("dPyvAs8JJK4WCzAcrmYxE0xKYbg=", signer.sign("ApproveAssignment", TIMESTAMP));
+		assertEquals("pHMLu6FK2U74RZCZjVNTsWZVSZM=", signer.sign("GrantBonus", TIMESTAMP));
+		assertEquals("5RepDdpMv83PkGcc9kNmUGJUYUU=", signer.sign("ApproveAssignment", "2026-10-17T12:00:01Z"));
+		//an older timestamp is signed again, not answered from the cache
+		assertEquals("dPyvAs8JJK4WCzAcrmYxE0xKYbg=", signer.sign("ApproveAssignment", TIMESTAMP));
+		
+		for(String operation : new String[]{ "CreateHIT", "GetAssignmentsForHIT", "SetHITTypeNotification" }){
+			assertEquals(baselineSignature("TESTSECRETKEY", operation, TIMESTAMP), signer.sign(operation, TIMESTAMP));
+		}
+	}
+	
+	/*
+	 * secret keys are encoded as UTF-8 whatever the platform charset
+	 */
+	@Test
+	public void nonAsciiKeyIsEncodedAsUTF8(){
+		RequestSigner signer = new RequestSigner(SERVICE_NAME, "cl\u00e9-secr\u00e8te");
+		assertEquals("aCl4Id0Uv08f7GyRaMotW1nvDnA=", signer.sign("ApproveAssignment", TIMESTAMP));
+	}
+	
+	@Test
+	public void everyThreadSignsWithItsOwnMac() throws Exception {
+		final RequestSigner signer = new RequestSigner(SERVICE_NAME, "TESTSECRETKEY");
+		final AtomicReference<String> signature = new AtomicReference<String>();
+		Thread thread = new Thread(){
+			public void run(){
+				signature.set(signer.sign("ApproveAssignment", TIMESTAMP));
+			}
+		};
+		thread.start();
+		thread.join();
+		assertEquals("dPyvAs8JJK4WCzAcrmYxE0xKYbg=", signature.get());
+		assertEquals("5RepDdpMv83PkGcc9kNmUGJUYUU=", signer.sign("ApproveAssignment", "2026-10-17T12:00:01Z"));
+	}
+	
+	@Test
+	public void timestampIsUTCWithSecondResolution(){
+		String timestamp = RequestSigner.getTimestamp();
+		assertTrue(timestamp, timestamp.matches("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}Z"));
+	}
+}
@@ -0,0 +1,159 @@
+package com.cclo7;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+public class SingleFlightTest {
+	
+	private static final int CALLERS = 8;
+	
+	/*
+	 * a call that counts its runs and blocks until released
+	 */
+	private static class BlockingCall implements Supplier<String> {
+		
+		private final CountDownLatch release = new CountDownLatch(1);
+		private final AtomicInteger runs = new AtomicInteger(0);
+		private final RuntimeException failure;
+		
+		BlockingCall(RuntimeException failure){
+			this.failure = failure;
+		}
+		
+		public String get(){
+			this.runs.incrementAndGet();
+			try{
+				this.release.await();
+			}catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+			}
+			if(this.failure != null){
+				throw this.failure;
+			}
+			return "value " + this.runs.get();
+		}
+	}
+	
+	/*
+	 * starts one caller, then the others once its call runs, and releases the call when all of them wait
+	 */
+	private static Thread[] executeConcurrently(final SingleFlight<String, String> flight, final BlockingCall call, 
+			final AtomicReferenceArray<Object> outcomes) throws InterruptedException {
+		Thread[] callers = new Thread[CALLERS];
+		for(int i = 0; i < CALLERS; i++){
+			final int index = i;
+			callers[i] = new Thread(){
+				public void run(){
+					try{
+						outcomes.set(index, flight.execute("key", call));
+					}catch(RuntimeException e){
+						outcomes.set(index, e);
+					}
+				}
+			};
+		}
+		callers[0].start();
+		while(call.runs.get() == 0){
+			Thread.sleep(1);
+		}
+		for(int i = 1; i < CALLERS; i++){
+			callers[i].start();
+		}
+		while(flight.getCoalescedCount() < CALLERS - 1){
+			Thread.sleep(1);
+		}
+		return callers;
+	}
+	
+	private static void join(Thread[] callers) throws InterruptedException {
+		for(Thread caller : callers){
+			caller.join();
+		}
+	}
+	
+	@Test(timeout = 10000)
+	public void concurrentCallersShareOneCall() throws Exception {
+		SingleFlight<String, String> flight = new SingleFlight<String, String>();
+		BlockingCall call = new BlockingCall(null);
+		AtomicReferenceArray<Object> outcomes = new AtomicReferenceArray<Object>(CALLERS);
+		
+		Thread[] callers = executeConcurrently(flight, call, outcomes);
+		call.release.countDown();
+		join(callers);
+		
+		assertEquals(1, call.runs.get());
+		assertEquals(CALLERS - 1, flight.getCoalescedCount());
+		for(int i = 0; i < CALLERS; i++){
+			assertEquals("value 1", outcomes.get(i));
+		}
+		
+		//the key is forgotten once the call completed, the next caller runs it again
+		assertEquals("value 2", flight.execute("key", call));
+		assertEquals(CALLERS - 1, flight.getCoalescedCount());
+	}
+	
+	@Test(timeout = 10000)
+	public void exceptionReachesEveryCaller() throws Exception {
+		SingleFlight<String, String> flight = new SingleFlight<String, String>();
+		IllegalStateException failure = new IllegalStateException("call failed");
+		BlockingCall call = new BlockingCall(failure);
+		AtomicReferenceArray<Object> outcomes = new AtomicReferenceArray<Object>(CALLERS);
+		
+		Thread[] callers = executeConcurrently(flight, call, outcomes);
+		call.release.countDown();
+		join(callers);
+		
+		assertEquals(1, call.runs.get());
+		for(int i = 0; i < CALLERS; i++){
+			assertSame(failure, outcomes.get(i));
+		}
+		
+		//a failed call is not remembered either
+		assertEquals("value 2", flight.execute("key", new BlockingCall(null){
+			public String get(){
+				return "value 2";
+			}
+		}));
+	}
+	
+	@Test(timeout = 10000)
+	public void interruptedCallerGetsNullAndTheCallCompletes() throws Exception {
+		final SingleFlight<String, String> flight = new SingleFlight<String, String>();
+		BlockingCall call = new BlockingCall(null);
+		AtomicReferenceArray<Object> outcomes = new AtomicReferenceArray<Object>(CALLERS);
+		final AtomicInteger interrupted = new AtomicInteger(0);
+		
+		Thread[] callers = executeConcurrently(flight, call, outcomes);
+		Thread waiter = new Thread(){
+			public void run(){
+				String value = flight.execute("key", new BlockingCall(null));
+				if(value == null && Thread.currentThread().isInterrupted()){
+					interrupted.incrementAndGet();
+				}
+			}
+		};
+		waiter.start();
+		while(flight.getCoalescedCount() < CALLERS){
+			Thread.sleep(1);
+		}
+		waiter.interrupt();
+		waiter.join();
+		assertEquals(1, interrupted.get());
+		
+		//the shared call still succeeds for the callers that kept waiting
+		call.release.countDown();
+		join(callers);
+		assertEquals(1, call.runs.get());
+		for(int i = 0; i < CALLERS; i++){
+			assertEquals("value 1", outcomes.get(i));
+		}
+	}
+}
@@ -0,0 +1,243 @@
+package com.cclo7;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class WorkerIndexTest {
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	/*
+	 * answers as "question=text"
+	 */
+	private static Assignment assignment(String assignmentId, String workerId, Assignment.Status status, String... answers){
+		StringBuilder xml = new StringBuilder();
+		xml.append("<QuestionFormAnswers xmlns=\"http://mechanicalturk.amazonaws.com/AWSMechanicalTurkDataSchemas/2005-10-01/QuestionFormAnswers.xsd\">");
+		for(String answer : answers){
+			int separator = answer.indexOf('=');
+			xml.append("<Answer><QuestionIdentifier>").append(answer.substring(0, separator))
+					.append("</QuestionIdentifier><FreeText>").append(answer.substring(separator + 1))
+					.append("</FreeText></Answer>");
+		}
+		xml.append("</QuestionFormAnswers>");
+		return new Assignment(assignmentId, workerId, "HIT1", status, null, null, null, null, null, null, xml.toString());
+	}
+	
+	private static ReviewResult succeeded(ReviewDecision decision){
+		return new ReviewResult(decision, MTurkResult.success(null, "REQUEST"), 0);
+	}
+	
+	private static List<String> workerIds(List<WorkerStats> workers){
+		List<String> ids = new ArrayList<String>();
+		for(WorkerStats worker : workers){
+			ids.add(worker.getWorkerId());
+		}
+		return ids;
+	}
+	
+	@Test
+	public void topWorkersAreOrderedWithTiesToTheFirstSeen(){
+		WorkerIndex index = new WorkerIndex();
+		//W1 1 of 2 approved, W2 2 of 2, W3 1 of 1, W4 1 of 2, W5 2 of 3
+		index.add(assignment("A1", "W1", Assignment.Status.APPROVED));
+		index.add(assignment("A2", "W1", Assignment.Status.REJECTED));
+		index.add(assignment("A3", "W2", Assignment.Status.APPROVED));
+		index.add(assignment("A4", "W2", Assignment.Status.APPROVED));
+		index.add(assignment("A5", "W3", Assignment.Status.APPROVED));
+		index.add(assignment("A6", "W4", Assignment.Status.REJECTED));
+		index.add(assignment("A7", "W4", Assignment.Status.APPROVED));
+		index.add(assignment("A8", "W5", Assignment.Status.APPROVED));
+		index.add(assignment("A9", "W5", Assignment.Status.APPROVED));
+		index.add(assignment("A10", "W5", Assignment.Status.REJECTED));
+		
+		assertEquals(Arrays.asList("W2", "W3", "W5", "W1", "W4"),
+				workerIds(index.getTopWorkers(WorkerIndex.Metric.APPROVAL_RATE, 10, 0)));
+		assertEquals(Arrays.asList("W2", "W3"), workerIds(index.getTopWorkers(WorkerIndex.Metric.APPROVAL_RATE, 2, 0)));
+		assertEquals(Arrays.asList("W2", "W5", "W1"),
+				workerIds(index.getTopWorkers(WorkerIndex.Metric.APPROVAL_RATE, 3, 2)));
+		assertEquals(Arrays.asList("W5"), workerIds(index.getTopWorkers(WorkerIndex.Metric.ASSIGNMENT_COUNT, 1, 0)));
+		assertEquals(Arrays.asList("W1", "W2", "W4", "W5"),
+				workerIds(index.findWorkers(WorkerIndex.Metric.ASSIGNMENT_COUNT, 2, 0)));
+		assertEquals(Collections.<String>emptyList(), workerIds(index.getTopWorkers(WorkerIndex.Metric.APPROVAL_RATE, 0, 0)));
+		assertEquals(Collections.<String>emptyList(), workerIds(index.getTopWorkers(WorkerIndex.Metric.APPROVAL_RATE, 3, 4)));
+	}
+	
+	@Test
+	public void scoringAHITAgainReplacesItsAgreement(){
+		WorkerIndex index = new WorkerIndex();
+		List<Assignment> hit = new ArrayList<Assignment>();
+		hit.add(assignment("A1", "W1", Assignment.Status.SUBMITTED, "q1=cat", "q2=red"));
+		hit.add(assignment("A2", "W2", Assignment.Status.SUBMITTED, "q1=dog", "q2=blue"));
+		index.addHIT(hit);
+		//no answer was given twice, nothing is compared
+		assertEquals(0, index.getStats("W1").getComparedCount());
+		
+		hit.add(assignment("A3", "W3", Assignment.Status.SUBMITTED, "q1=cat", "q2=green"));
+		index.addHIT(hit);
+		assertEquals(1, index.getStats("W1").getComparedCount());
+		assertEquals(1, index.getStats("W1").getAgreedCount());
+		assertEquals(1, index.getStats("W2").getComparedCount());
+		assertEquals(0, index.getStats("W2").getAgreedCount());
+		
+		hit.add(assignment("A4", "W2", Assignment.Status.SUBMITTED, "q1=dog", "q2=blue"));
+		hit.add(assignment("A5", "W4", Assignment.Status.SUBMITTED, "q1=dog", "q2=blue"));
+		index.addHIT(hit);
+		//q1: dog 3, cat 2; q2: blue 3
+		assertEquals(2, index.getStats("W1").getComparedCount());
+		assertEquals(0, index.getStats("W1").getAgreedCount());
+		assertEquals(4, index.getStats("W2").getComparedCount());
+		assertEquals(4, index.getStats("W2").getAgreedCount());
+		assertEquals(2, index.getStats("W2").getAssignmentCount());
+		assertEquals(1.0, index.getStats("W4").getAgreementRate(), 0);
+		assertEquals(5, index.getAssignmentCount());
+	}
+	
+	@Test
+	public void assignmentFedAgainOnlyAppliesItsStatusChange(){
+		WorkerIndex index = new WorkerIndex();
+		index.add(assignment("A1", "W1", Assignment.Status.SUBMITTED));
+		index.add(assignment("A1", "W1", Assignment.Status.SUBMITTED));
+		WorkerStats stats = index.getStats("W1");
+		assertEquals(1, stats.getAssignmentCount());
+		assertEquals(0, stats.getApprovedCount() + stats.getRejectedCount());
+		
+		index.add(assignment("A1", "W1", Assignment.Status.APPROVED));
+		index.add(assignment("A1", "W1", Assignment.Status.APPROVED));
+		assertEquals(1, index.getStats("W1").getApprovedCount());
+		
+		index.recordReview(succeeded(ReviewDecision.reject("A1", "spam")));
+		stats = index.getStats("W1");
+		assertEquals(1, stats.getAssignmentCount());
+		assertEquals(0, stats.getApprovedCount());
+		assertEquals(1, stats.getRejectedCount());
+		
+		//failed reviews and reviews of unknown assignments change nothing
+		index.recordReview(new ReviewResult(ReviewDecision.approve("A1"), ReviewResult.Status.PERMANENT_FAILURE, "no", 0));
+		index.recordReview(succeeded(ReviewDecision.approve("UNKNOWN")));
+		assertEquals(1, index.getStats("W1").getRejectedCount());
+		assertNull(index.getStats("UNKNOWN"));
+		assertEquals(1, index.getWorkerCount());
+	}
+	
+	@Test
+	public void repeatedBonusIsCountedOnce(){
+		WorkerIndex index = new WorkerIndex();
+		index.add(assignment("A1", "W1", Assignment.Status.APPROVED));
+		index.add(assignment("A2", "W2", Assignment.Status.APPROVED));
+		List<ReviewDecision> decisions = WorkerIndex.bonusDecisions(
+				index.getTopWorkers(WorkerIndex.Metric.APPROVAL_RATE, 2, 0), 0.5, "thanks");
+		assertEquals(2, decisions.size());
+		
+		for(int run = 0; run < 2; run++){
+			for(ReviewDecision decision : decisions){
+				index.recordReview(succeeded(decision));
+			}
+		}
+		assertEquals(0.5, index.getStats("W1").getBonusTotal(), 0);
+		assertEquals(0.5, index.getStats("W2").getBonusTotal(), 0);
+		
+		//a bonus for a new assignment is another payment
+		index.add(assignment("A3", "W1", Assignment.Status.APPROVED));
+		index.recordReviews(new BulkReviewReport(Arrays.asList(succeeded(
+				WorkerIndex.bonusDecisions(Arrays.asList(index.getStats("W1")), 0.5, "thanks").get(0))), 0));
+		assertEquals(1.0, index.getStats("W1").getBonusTotal(), 0);
+	}
+	
+	@Test
+	public void snapshotRoundTrip() throws IOException {
+		WorkerIndex index = new WorkerIndex();
+		List<Assignment> hit = new ArrayList<Assignment>();
+		hit.add(assignment("A1", "W1", Assignment.Status.APPROVED, "q1=cat"));
+		hit.add(assignment("A2", "W2", Assignment.Status.REJECTED, "q1=cat"));
+		hit.add(assignment("A3", "W3", Assignment.Status.SUBMITTED, "q1=dog"));
+		index.addHIT(hit);
+		ReviewDecision bonus = ReviewDecision.grantBonus("W1", "A1", 1.25, "thanks");
+		index.recordReview(succeeded(bonus));
+		
+		File snapshotFile = new File(this.folder.getRoot(), "workers.snapshot");
+		index.writeSnapshot(snapshotFile);
+		WorkerIndex restored = WorkerIndex.readSnapshot(snapshotFile);
+		
+		assertEquals(3, restored.getWorkerCount());
+		assertEquals(3, restored.getAssignmentCount());
+		for(String workerId : Arrays.asList("W1", "W2", "W3")){
+			assertEquals(index.getStats(workerId).toString(), restored.getStats(workerId).toString());
+		}
+		assertEquals("A1", restored.getStats("W1").getLastAssignmentId());
+		assertEquals(1.25, restored.getStats("W1").getBonusTotal(), 0);
+		
+		//the restored index knows the assignments and the bonus already counted
+		restored.add(assignment("A3", "W3", Assignment.Status.APPROVED));
+		restored.recordReview(succeeded(bonus));
+		assertEquals(1, restored.getStats("W3").getApprovedCount());
+		assertEquals(1, restored.getStats("W3").getAssignmentCount());
+		assertEquals(1.25, restored.getStats("W1").getBonusTotal(), 0);
+	}
+	
+	@Test
+	public void damagedSnapshotIsRejected() throws IOException {
+		WorkerIndex index = new WorkerIndex();
+		for(int i = 0; i < 100; i++){
+			index.add(assignment("A" + i, "W" + (i % 10), Assignment.Status.APPROVED));
+		}
+		File snapshotFile = new File(this.folder.getRoot(), "workers.snapshot");
+		index.writeSnapshot(snapshotFile);
+		long length = snapshotFile.length();
+		
+		//a flipped byte in a worker id
+		RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw");
+		try{
+			file.seek(15);
+			int value = file.read();
+			file.seek(15);
+			file.write(value ^ 0x01);
+		}finally{
+			file.close();
+		}
+		assertRejected(snapshotFile);
+		
+		//a worker count larger than the file
+		index.writeSnapshot(snapshotFile);
+		file = new RandomAccessFile(snapshotFile, "rw");
+		try{
+			file.seek(8);
+			file.writeInt(Integer.MAX_VALUE);
+		}finally{
+			file.close();
+		}
+		assertRejected(snapshotFile);
+		
+		//truncated
+		index.writeSnapshot(snapshotFile);
+		file = new RandomAccessFile(snapshotFile, "rw");
+		try{
+			file.setLength(length / 2);
+		}finally{
+			file.close();
+		}
+		assertRejected(snapshotFile);
+	}
+	
+	private static void assertRejected(File snapshotFile){
+		try{
+			WorkerIndex.readSnapshot(snapshotFile);
+			fail("damaged snapshot was read");
+		}catch(IOException e){
+			//expected
+		}
+	}
+}